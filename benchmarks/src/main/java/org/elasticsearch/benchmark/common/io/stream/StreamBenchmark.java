@@ -0,0 +1,205 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.io.stream;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization and deserialization throughput of the primitives that make up transport messages,
+ * through {@link BytesStreamOutput} and {@link StreamInput}.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class StreamBenchmark {
+
+    @Param({"1000"})
+    private int count;
+
+    @Param({"ascii", "unicode"})
+    private String charset;
+
+    private long[] longs;
+    private int[] ints;
+    private String[] strings;
+    private byte[] blob;
+
+    private BytesStreamOutput reusableOutput;
+    private BytesReference serializedVInts;
+    private BytesReference serializedVLongs;
+    private BytesReference serializedStrings;
+
+    @Setup
+    public void setUp() throws IOException {
+        longs = new long[count];
+        ints = new int[count];
+        strings = new String[count];
+        long seed = 42;
+        for (int i = 0; i < count; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            // mix small and large values so that all variable length encodings are exercised
+            longs[i] = (seed >>> (i % 64));
+            ints[i] = (int) (seed >>> (32 + i % 32));
+            strings[i] = randomString(seed, 4 + i % 60);
+        }
+        blob = new byte[16 * 1024];
+        for (int i = 0; i < blob.length; i++) {
+            blob[i] = (byte) i;
+        }
+        reusableOutput = new BytesStreamOutput();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        for (int value : ints) {
+            out.writeVInt(value);
+        }
+        serializedVInts = out.bytes();
+        out = new BytesStreamOutput();
+        for (long value : longs) {
+            out.writeVLong(value);
+        }
+        serializedVLongs = out.bytes();
+        out = new BytesStreamOutput();
+        for (String value : strings) {
+            out.writeString(value);
+        }
+        serializedStrings = out.bytes();
+    }
+
+    private String randomString(long seed, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            int offset = (int) ((seed >>> 33) % 26);
+            if ("ascii".equals(charset)) {
+                builder.append((char) ('a' + offset));
+            } else {
+                // cyrillic characters need two bytes in UTF-8
+                builder.append((char) ('\u0430' + offset));
+            }
+        }
+        return builder.toString();
+    }
+
+    @Benchmark
+    public int writeVInt() throws IOException {
+        reusableOutput.reset();
+        for (int value : ints) {
+            reusableOutput.writeVInt(value);
+        }
+        return reusableOutput.size();
+    }
+
+    @Benchmark
+    public int writeVLong() throws IOException {
+        reusableOutput.reset();
+        for (long value : longs) {
+            reusableOutput.writeVLong(value);
+        }
+        return reusableOutput.size();
+    }
+
+    @Benchmark
+    public int writeLong() throws IOException {
+        reusableOutput.reset();
+        for (long value : longs) {
+            reusableOutput.writeLong(value);
+        }
+        return reusableOutput.size();
+    }
+
+    @Benchmark
+    public int writeString() throws IOException {
+        reusableOutput.reset();
+        for (String value : strings) {
+            reusableOutput.writeString(value);
+        }
+        return reusableOutput.size();
+    }
+
+    @Benchmark
+    public int writeByteArray() throws IOException {
+        reusableOutput.reset();
+        reusableOutput.writeByteArray(blob);
+        return reusableOutput.size();
+    }
+
+    @Benchmark
+    public int writeFreshStream() throws IOException {
+        // the common pattern when serializing a transport response
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            for (long value : longs) {
+                out.writeVLong(value);
+            }
+            for (String value : strings) {
+                out.writeString(value);
+            }
+            return out.bytes().length();
+        }
+    }
+
+    @Benchmark
+    public long readVInt() throws IOException {
+        StreamInput in = StreamInput.wrap(serializedVInts);
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += in.readVInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long readVLong() throws IOException {
+        StreamInput in = StreamInput.wrap(serializedVLongs);
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += in.readVLong();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int readString() throws IOException {
+        StreamInput in = StreamInput.wrap(serializedStrings);
+        int length = 0;
+        for (int i = 0; i < count; i++) {
+            length += in.readString().length();
+        }
+        return length;
+    }
+}
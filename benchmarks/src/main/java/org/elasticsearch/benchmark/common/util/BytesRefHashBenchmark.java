@@ -0,0 +1,145 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.util;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures insertion and lookup throughput of {@link BytesRefHash} for term-like keys, in the way that
+ * terms and significant terms aggregations use it.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class BytesRefHashBenchmark {
+
+    @Param({"1000", "100000"})
+    private int cardinality;
+
+    @Param({"8", "32"})
+    private int keyLength;
+
+    @Param({"true", "false"})
+    private boolean recycling;
+
+    private ThreadPool threadPool;
+    private BigArrays bigArrays;
+    private BytesRef[] keys;
+    private BytesRefHash filled;
+
+    @Setup
+    public void setUp() {
+        if (recycling) {
+            threadPool = new ThreadPool("benchmark");
+            bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY, threadPool), null);
+        } else {
+            bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        }
+        keys = new BytesRef[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            byte[] bytes = new byte[keyLength];
+            int value = i;
+            for (int j = 0; j < keyLength; j++) {
+                // spread the ordinal over the key so that keys share long common prefixes like real terms do
+                bytes[keyLength - j - 1] = (byte) ('a' + value % 26);
+                value /= 26;
+            }
+            keys[i] = new BytesRef(bytes);
+        }
+        filled = new BytesRefHash(1, bigArrays);
+        for (BytesRef key : keys) {
+            filled.add(key);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        filled.close();
+        if (threadPool != null) {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        try (BytesRefHash hash = new BytesRefHash(1, bigArrays)) {
+            for (BytesRef key : keys) {
+                hash.add(key);
+            }
+            return hash.size();
+        }
+    }
+
+    @Benchmark
+    public long addDuplicates() {
+        try (BytesRefHash hash = new BytesRefHash(1, bigArrays)) {
+            long duplicates = 0;
+            for (int round = 0; round < 4; round++) {
+                for (BytesRef key : keys) {
+                    if (hash.add(key) < 0) {
+                        duplicates++;
+                    }
+                }
+            }
+            return duplicates;
+        }
+    }
+
+    @Benchmark
+    public long find() {
+        long sum = 0;
+        for (BytesRef key : keys) {
+            sum += filled.find(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int get() {
+        BytesRef spare = new BytesRef();
+        int length = 0;
+        for (long id = 0; id < filled.size(); id++) {
+            length += filled.get(id, spare).length;
+        }
+        return length;
+    }
+}
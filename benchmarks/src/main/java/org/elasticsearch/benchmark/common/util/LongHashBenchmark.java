@@ -0,0 +1,150 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.common.util.LongObjectPagedHashMap;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures insertion and lookup throughput of the long keyed paged hash tables, {@link LongHash} (used for
+ * bucket ordinals of histograms and long terms) and {@link LongObjectPagedHashMap}.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class LongHashBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int cardinality;
+
+    @Param({"sequential", "random"})
+    private String distribution;
+
+    @Param({"true", "false"})
+    private boolean recycling;
+
+    private ThreadPool threadPool;
+    private BigArrays bigArrays;
+    private long[] keys;
+    private LongHash filled;
+    private LongObjectPagedHashMap<Object> filledMap;
+
+    @Setup
+    public void setUp() {
+        if (recycling) {
+            threadPool = new ThreadPool("benchmark");
+            bigArrays = new BigArrays(new PageCacheRecycler(Settings.EMPTY, threadPool), null);
+        } else {
+            bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        }
+        keys = new long[cardinality];
+        long seed = 42;
+        for (int i = 0; i < cardinality; i++) {
+            switch (distribution) {
+                case "sequential":
+                    // e.g. rounded timestamps of a date histogram
+                    keys[i] = 1420070400000L + i * 3600000L;
+                    break;
+                case "random":
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    keys[i] = seed;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown distribution [" + distribution + "]");
+            }
+        }
+        filled = new LongHash(1, bigArrays);
+        filledMap = new LongObjectPagedHashMap<>(bigArrays);
+        for (long key : keys) {
+            filled.add(key);
+            filledMap.put(key, Boolean.TRUE);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        filled.close();
+        filledMap.close();
+        if (threadPool != null) {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public long longHashAdd() {
+        try (LongHash hash = new LongHash(1, bigArrays)) {
+            for (long key : keys) {
+                hash.add(key);
+            }
+            return hash.size();
+        }
+    }
+
+    @Benchmark
+    public long longHashFind() {
+        long sum = 0;
+        for (long key : keys) {
+            sum += filled.find(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long longObjectPagedHashMapPut() {
+        try (LongObjectPagedHashMap<Object> map = new LongObjectPagedHashMap<>(bigArrays)) {
+            for (long key : keys) {
+                map.put(key, Boolean.TRUE);
+            }
+            return map.size();
+        }
+    }
+
+    @Benchmark
+    public int longObjectPagedHashMapGet() {
+        int found = 0;
+        for (long key : keys) {
+            if (filledMap.get(key) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
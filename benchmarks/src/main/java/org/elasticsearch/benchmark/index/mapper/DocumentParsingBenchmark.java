@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.index.mapper;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.analysis.AnalysisRegistry;
+import org.elasticsearch.index.analysis.AnalysisService;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a bulk of log-like documents is parsed into Lucene documents by {@link DocumentMapper#parse}. Run it
+ * through the <code>jmh</code> task to get the bytes allocated per parsed bulk next to the throughput.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DocumentParsingBenchmark {
+
+    private static final String TYPE = "log";
+
+    @Param({"1000"})
+    private int bulkSize;
+
+    @Param({"6", "30"})
+    private int numFields;
+
+    private DocumentMapper documentMapper;
+    private BytesReference[] sources;
+
+    @Setup
+    public void setUp() throws IOException {
+        Settings settings = Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), Files.createTempDirectory("benchmark").toString())
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+            .build();
+        IndexSettings indexSettings = new IndexSettings(IndexMetaData.builder("benchmark").settings(settings).build(), Settings.EMPTY);
+        AnalysisService analysisService = new AnalysisRegistry(null, new Environment(settings)).build(indexSettings);
+        SimilarityService similarityService = new SimilarityService(indexSettings, Collections.emptyMap());
+        MapperService mapperService = new MapperService(indexSettings, analysisService, similarityService,
+            new IndicesModule().getMapperRegistry(), () -> null);
+        documentMapper = mapperService.merge(TYPE, new CompressedXContent(mapping().string()), MapperService.MergeReason.MAPPING_UPDATE,
+            false);
+
+        sources = new BytesReference[bulkSize];
+        long seed = 42;
+        for (int i = 0; i < bulkSize; i++) {
+            XContentBuilder source = XContentFactory.jsonBuilder().startObject();
+            for (int field = 0; field < numFields; field++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                switch (field % 6) {
+                    case 0:
+                        source.field(fieldName(field), 1460000000000L + (seed >>> 40));
+                        break;
+                    case 1:
+                        source.field(fieldName(field), "GET /index/" + (seed >>> 50) + " HTTP/1.1 request served from cache");
+                        break;
+                    case 2:
+                        source.field(fieldName(field), "host-" + (seed >>> 58));
+                        break;
+                    case 3:
+                        source.field(fieldName(field), (int) (seed >>> 55));
+                        break;
+                    case 4:
+                        source.field(fieldName(field), seed >>> 30);
+                        break;
+                    default:
+                        source.field(fieldName(field), (seed >>> 11) * 0x1.0p-53);
+                        break;
+                }
+            }
+            sources[i] = source.endObject().bytes();
+        }
+    }
+
+    private XContentBuilder mapping() throws IOException {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject(TYPE).startObject("properties");
+        for (int field = 0; field < numFields; field++) {
+            mapping.startObject(fieldName(field));
+            switch (field % 6) {
+                case 0:
+                    mapping.field("type", "date");
+                    break;
+                case 1:
+                    mapping.field("type", "text");
+                    break;
+                case 2:
+                    mapping.field("type", "keyword");
+                    break;
+                case 3:
+                    mapping.field("type", "integer");
+                    break;
+                case 4:
+                    mapping.field("type", "long");
+                    break;
+                default:
+                    mapping.field("type", "double");
+                    break;
+            }
+            mapping.endObject();
+        }
+        return mapping.endObject().endObject().endObject();
+    }
+
+    private static String fieldName(int field) {
+        return "field_" + field;
+    }
+
+    @Benchmark
+    public int parseBulk() {
+        int fields = 0;
+        for (int i = 0; i < sources.length; i++) {
+            ParsedDocument doc = documentMapper.parse("benchmark", TYPE, Integer.toString(i), sources[i]);
+            fields += doc.rootDoc().getFields().size();
+        }
+        return fields;
+    }
+}
@@ -92,6 +92,16 @@ public class BulkShardRequest extends ReplicationRequest<BulkShardRequest> {
         refresh = in.readBoolean();
     }
 
+    @Override
+    public void onRetry() {
+        for (BulkItemRequest item : items) {
+            if (item.request() instanceof ReplicationRequest) {
+                // the items might have been executed by the previous attempt, see IndexRequest#isRetry()
+                ((ReplicationRequest) item.request()).onRetry();
+            }
+        }
+    }
+
     @Override
     public String toString() {
         // This is included in error messages so we'll try to make it somewhat user friendly.
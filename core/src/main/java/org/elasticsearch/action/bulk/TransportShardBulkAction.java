@@ -60,6 +60,8 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportRequestOptions;
 import org.elasticsearch.transport.TransportService;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -109,13 +111,27 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
         ShardId shardId = request.shardId();
         final IndexService indexService = indicesService.indexServiceSafe(shardId.getIndex());
         final IndexShard indexShard = indexService.getShard(shardId.getId());
+        return executeBulkOnPrimary(metaData, request, indexShard);
+    }
 
+    Tuple<BulkShardResponse, BulkShardRequest> executeBulkOnPrimary(MetaData metaData, BulkShardRequest request, IndexShard indexShard) {
         long[] preVersions = new long[request.items().length];
         VersionType[] preVersionTypes = new VersionType[request.items().length];
         Translog.Location location = null;
-        for (int requestIndex = 0; requestIndex < request.items().length; requestIndex++) {
-            BulkItemRequest item = request.items()[requestIndex];
-            location = handleItem(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, item);
+        for (int requestIndex = 0; requestIndex < request.items().length; ) {
+            // consecutive index requests are handed to the engine as a single batch
+            int batchEnd = requestIndex;
+            while (batchEnd < request.items().length && request.items()[batchEnd].request() instanceof IndexRequest) {
+                batchEnd++;
+            }
+            if (batchEnd - requestIndex > 1) {
+                location = indexBatch(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, batchEnd);
+                requestIndex = batchEnd;
+            } else {
+                BulkItemRequest item = request.items()[requestIndex];
+                location = handleItem(metaData, request, indexShard, preVersions, preVersionTypes, location, requestIndex, item);
+                requestIndex++;
+            }
         }
 
         processAfterWrite(request.refresh(), indexShard, location);
@@ -156,28 +172,102 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
             IndexResponse indexResponse = result.response();
             setResponse(item, new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse));
         } catch (Throwable e) {
-            // rethrow the failure if we are going to retry on primary and let parent failure to handle it
-            if (retryPrimaryException(e)) {
-                // restore updated versions...
-                for (int j = 0; j < requestIndex; j++) {
-                    applyVersion(request.items()[j], preVersions[j], preVersionTypes[j]);
-                }
-                throw (ElasticsearchException) e;
+            onIndexFailure(request, preVersions, preVersionTypes, requestIndex, item, e);
+        }
+        return location;
+    }
+
+    /**
+     * Indexes the index requests between <code>from</code> (inclusive) and <code>to</code> (exclusive) with a single call to the
+     * engine, which resolves their versions and writes them to lucene and the translog as a batch.
+     */
+    private Translog.Location indexBatch(MetaData metaData, BulkShardRequest request, IndexShard indexShard, long[] preVersions,
+                                         VersionType[] preVersionTypes, Translog.Location location, int from, int to) {
+        final BulkItemRequest[] items = request.items();
+        final List<Engine.Index> operations = new ArrayList<>(to - from);
+        final List<Integer> operationItems = new ArrayList<>(to - from);
+        for (int requestIndex = from; requestIndex < to; requestIndex++) {
+            final IndexRequest indexRequest = (IndexRequest) items[requestIndex].request();
+            preVersions[requestIndex] = indexRequest.version();
+            preVersionTypes[requestIndex] = indexRequest.versionType();
+            try {
+                validateRouting(request, indexRequest, metaData);
+                operations.add(TransportIndexAction.prepareIndexOperationOnPrimary(indexRequest, indexShard, mappingUpdatedAction));
+                operationItems.add(requestIndex);
+            } catch (Throwable e) {
+                onIndexFailure(request, preVersions, preVersionTypes, requestIndex, items[requestIndex], e);
             }
-            logFailure(e, "index", request.shardId(), indexRequest);
-            // if its a conflict failure, and we already executed the request on a primary (and we execute it
-            // again, due to primary relocation and only processing up to N bulk items when the shard gets closed)
-            // then just use the response we got from the successful execution
-            if (item.getPrimaryResponse() != null && isConflictException(e)) {
-                setResponse(item, item.getPrimaryResponse());
+        }
+        if (operations.isEmpty()) {
+            return location;
+        }
+        final List<Engine.IndexResult> results;
+        try {
+            results = indexShard.index(operations);
+        } catch (Throwable e) {
+            // the shard rejected the batch before handing it to the engine, none of the operations was applied
+            for (int requestIndex : operationItems) {
+                onIndexFailure(request, preVersions, preVersionTypes, requestIndex, items[requestIndex], e);
+            }
+            return location;
+        }
+        // the outcome of every operation of the batch is recorded before a failure that retries the request on the primary is
+        // rethrown, operations that follow the failed one may have been applied already
+        Throwable retryFailure = null;
+        for (int i = 0; i < operations.size(); i++) {
+            final int requestIndex = operationItems.get(i);
+            final BulkItemRequest item = items[requestIndex];
+            final Engine.IndexResult result = results.get(i);
+            if (result.hasFailure()) {
+                if (retryPrimaryException(result.getFailure())) {
+                    if (retryFailure == null) {
+                        retryFailure = result.getFailure();
+                    }
+                } else {
+                    onIndexFailure(request, preVersions, preVersionTypes, requestIndex, item, result.getFailure());
+                }
             } else {
-                setResponse(item, new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
-                        new BulkItemResponse.Failure(request.index(), indexRequest.type(), indexRequest.id(), e)));
+                final IndexRequest indexRequest = (IndexRequest) item.request();
+                final WriteResult<IndexResponse> writeResult = TransportIndexAction.onIndexedOnPrimary(indexRequest, indexShard,
+                    operations.get(i), result.isCreated());
+                location = locationToSync(location, writeResult.location);
+                IndexResponse indexResponse = writeResult.response();
+                setResponse(item, new BulkItemResponse(item.id(), indexRequest.opType().lowercase(), indexResponse));
+            }
+        }
+        if (retryFailure != null) {
+            // restore updated versions of all items up to the end of the batch...
+            for (int j = 0; j < to; j++) {
+                applyVersion(items[j], preVersions[j], preVersionTypes[j]);
             }
+            throw (ElasticsearchException) retryFailure;
         }
         return location;
     }
 
+    private void onIndexFailure(BulkShardRequest request, long[] preVersions, VersionType[] preVersionTypes, int requestIndex,
+                                BulkItemRequest item, Throwable e) {
+        final IndexRequest indexRequest = (IndexRequest) item.request();
+        // rethrow the failure if we are going to retry on primary and let parent failure to handle it
+        if (retryPrimaryException(e)) {
+            // restore updated versions...
+            for (int j = 0; j < requestIndex; j++) {
+                applyVersion(request.items()[j], preVersions[j], preVersionTypes[j]);
+            }
+            throw (ElasticsearchException) e;
+        }
+        logFailure(e, "index", request.shardId(), indexRequest);
+        // if its a conflict failure, and we already executed the request on a primary (and we execute it
+        // again, due to primary relocation and only processing up to N bulk items when the shard gets closed)
+        // then just use the response we got from the successful execution
+        if (item.getPrimaryResponse() != null && isConflictException(e)) {
+            setResponse(item, item.getPrimaryResponse());
+        } else {
+            setResponse(item, new BulkItemResponse(item.id(), indexRequest.opType().lowercase(),
+                    new BulkItemResponse.Failure(request.index(), indexRequest.type(), indexRequest.id(), e)));
+        }
+    }
+
     private <ReplicationRequestT extends ReplicationRequest<ReplicationRequestT>> void logFailure(Throwable e, String operation, ShardId shardId, ReplicationRequest<ReplicationRequestT> request) {
         if (ExceptionsHelper.status(e) == RestStatus.CONFLICT) {
             logger.trace("{} failed to execute bulk item ({}) {}", e, shardId, operation, request);
@@ -329,18 +419,23 @@ public class TransportShardBulkAction extends TransportReplicationAction<BulkSha
     private WriteResult shardIndexOperation(BulkShardRequest request, IndexRequest indexRequest, MetaData metaData,
                                             IndexShard indexShard, boolean processed) throws Throwable {
 
-        // validate, if routing is required, that we got routing
+        MappingMetaData mappingMd = validateRouting(request, indexRequest, metaData);
+
+        if (!processed) {
+            indexRequest.process(metaData, mappingMd, allowIdGeneration, request.index());
+        }
+        return TransportIndexAction.executeIndexRequestOnPrimary(indexRequest, indexShard, mappingUpdatedAction);
+    }
+
+    /** Validates, if routing is required, that we got routing and returns the mapping of the request's type */
+    private static MappingMetaData validateRouting(BulkShardRequest request, IndexRequest indexRequest, MetaData metaData) {
         MappingMetaData mappingMd = metaData.index(request.index()).mappingOrDefault(indexRequest.type());
         if (mappingMd != null && mappingMd.routing().required()) {
             if (indexRequest.routing() == null) {
                 throw new RoutingMissingException(request.index(), indexRequest.type(), indexRequest.id());
             }
         }
-
-        if (!processed) {
-            indexRequest.process(metaData, mappingMd, allowIdGeneration, request.index());
-        }
-        return TransportIndexAction.executeIndexRequestOnPrimary(indexRequest, indexShard, mappingUpdatedAction);
+        return mappingMd;
     }
 
     static class UpdateResult {
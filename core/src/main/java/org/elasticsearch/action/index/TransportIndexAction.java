@@ -195,7 +195,8 @@ public class TransportIndexAction extends TransportReplicationAction<IndexReques
     public static Engine.Index prepareIndexOperationOnPrimary(IndexRequest request, IndexShard indexShard) {
         SourceToParse sourceToParse = SourceToParse.source(SourceToParse.Origin.PRIMARY, request.source()).index(request.index()).type(request.type()).id(request.id())
             .routing(request.routing()).parent(request.parent()).timestamp(request.timestamp()).ttl(request.ttl());
-        return indexShard.prepareIndexOnPrimary(sourceToParse, request.version(), request.versionType());
+        return indexShard.prepareIndexOnPrimary(sourceToParse, request.version(), request.versionType(),
+            request.getAutoGeneratedTimestamp(), request.isRetry());
     }
 
     /**
@@ -203,6 +204,17 @@ public class TransportIndexAction extends TransportReplicationAction<IndexReques
      * {@link RetryOnPrimaryException} if the operation needs to be re-tried.
      */
     public static WriteResult<IndexResponse> executeIndexRequestOnPrimary(IndexRequest request, IndexShard indexShard, MappingUpdatedAction mappingUpdatedAction) throws Exception {
+        final Engine.Index operation = prepareIndexOperationOnPrimary(request, indexShard, mappingUpdatedAction);
+        final boolean created = indexShard.index(operation);
+        return onIndexedOnPrimary(request, indexShard, operation, created);
+    }
+
+    /**
+     * Prepares an index operation on a primary shard and makes sure that the master knows about the mapping updates it
+     * introduces, throwing a {@link RetryOnPrimaryException} if the updated mappings are not available yet.
+     */
+    public static Engine.Index prepareIndexOperationOnPrimary(IndexRequest request, IndexShard indexShard,
+                                                              MappingUpdatedAction mappingUpdatedAction) throws Exception {
         Engine.Index operation = prepareIndexOperationOnPrimary(request, indexShard);
         Mapping update = operation.parsedDoc().dynamicMappingsUpdate();
         final ShardId shardId = indexShard.shardId();
@@ -215,8 +227,15 @@ public class TransportIndexAction extends TransportReplicationAction<IndexReques
                     "Dynamic mappings are not available on the node that holds the primary yet");
             }
         }
-        final boolean created = indexShard.index(operation);
+        return operation;
+    }
 
+    /**
+     * Updates the request with the outcome of the given operation, which was executed on the primary, so that it can be
+     * replicated and returns its result.
+     */
+    public static WriteResult<IndexResponse> onIndexedOnPrimary(IndexRequest request, IndexShard indexShard, Engine.Index operation,
+                                                                boolean created) {
         // update the version on request so it will happen on the replicas
         final long version = operation.version();
         request.version(version);
@@ -224,7 +243,8 @@ public class TransportIndexAction extends TransportReplicationAction<IndexReques
 
         assert request.versionType().validateVersionForWrites(request.version());
 
-        return new WriteResult<>(new IndexResponse(shardId, request.type(), request.id(), request.version(), created), operation.getTranslogLocation());
+        return new WriteResult<>(new IndexResponse(indexShard.shardId(), request.type(), request.id(), request.version(), created),
+            operation.getTranslogLocation());
     }
 
 }
@@ -106,7 +106,7 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         BulkRequestModifier bulkRequestModifier = new BulkRequestModifier(original);
         executionService.executeBulkRequest(() -> bulkRequestModifier, (indexRequest, throwable) -> {
             logger.debug("failed to execute pipeline [{}] for document [{}/{}/{}]", throwable, indexRequest.getPipeline(), indexRequest.index(), indexRequest.type(), indexRequest.id());
-            bulkRequestModifier.markCurrentItemAsFailed(throwable);
+            bulkRequestModifier.markItemAsFailed(indexRequest, throwable);
         }, (throwable) -> {
             if (throwable != null) {
                 logger.error("failed to execute pipeline for a bulk request", throwable);
@@ -139,6 +139,7 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         final List<BulkItemResponse> itemResponses;
 
         int currentSlot = -1;
+        int lastFailedSlot = -1;
         int[] originalSlots;
 
         BulkRequestModifier(BulkRequest bulkRequest) {
@@ -198,14 +199,32 @@ public final class IngestActionFilter extends AbstractComponent implements Actio
         }
 
         void markCurrentItemAsFailed(Throwable e) {
-            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(currentSlot);
+            markItemAsFailed(currentSlot, e);
+        }
+
+        /**
+         * Marks the given request as failed. Requests must be marked in the order they appear in the bulk request, which
+         * allows to find their slot by scanning forward from the previously failed request.
+         */
+        void markItemAsFailed(IndexRequest indexRequest, Throwable e) {
+            int slot = lastFailedSlot + 1;
+            while (bulkRequest.requests().get(slot) != indexRequest) {
+                slot++;
+            }
+            markItemAsFailed(slot, e);
+        }
+
+        private void markItemAsFailed(int slot, Throwable e) {
+            assert slot > lastFailedSlot : "items must be marked as failed in order";
+            lastFailedSlot = slot;
+            IndexRequest indexRequest = (IndexRequest) bulkRequest.requests().get(slot);
             // We hit a error during preprocessing a request, so we:
             // 1) Remember the request item slot from the bulk, so that we're done processing all requests we know what failed
             // 2) Add a bulk item failure for this request
             // 3) Continue with the next request in the bulk.
-            failedSlots.add(currentSlot);
+            failedSlots.add(slot);
             BulkItemResponse.Failure failure = new BulkItemResponse.Failure(indexRequest.index(), indexRequest.type(), indexRequest.id(), e);
-            itemResponses.add(new BulkItemResponse(currentSlot, indexRequest.opType().lowercase(), failure));
+            itemResponses.add(new BulkItemResponse(slot, indexRequest.opType().lowercase(), failure));
         }
 
     }
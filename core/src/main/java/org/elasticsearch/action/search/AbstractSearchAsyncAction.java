@@ -40,6 +40,7 @@ import org.elasticsearch.common.util.concurrent.AtomicArray;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.action.SearchTransportService;
+import org.elasticsearch.search.controller.QueryPhaseResultConsumer;
 import org.elasticsearch.search.controller.SearchPhaseController;
 import org.elasticsearch.search.fetch.ShardFetchSearchRequest;
 import org.elasticsearch.search.internal.InternalSearchResponse;
@@ -72,6 +73,7 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
     protected final AtomicInteger successfulOps = new AtomicInteger();
     private final AtomicInteger totalOps = new AtomicInteger();
     protected final AtomicArray<FirstResult> firstResults;
+    protected final QueryPhaseResultConsumer queryResultConsumer;
     private volatile AtomicArray<ShardSearchFailure> shardFailures;
     private final Object shardFailuresMutex = new Object();
     protected volatile ScoreDoc[] sortedShardList;
@@ -112,6 +114,7 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
         expectedTotalOps = shardsIts.totalSizeWith1ForEmpty();
 
         firstResults = new AtomicArray<>(shardsIts.size());
+        queryResultConsumer = searchPhaseController.newQueryPhaseResultConsumer(request, shardsIts.size());
     }
 
     public void start() {
@@ -351,6 +354,9 @@ abstract class AbstractSearchAsyncAction<FirstResult extends SearchPhaseResult>
 
     protected final void processFirstPhaseResult(int shardIndex, FirstResult result) {
         firstResults.set(shardIndex, result);
+        if (result instanceof QuerySearchResultProvider) {
+            queryResultConsumer.consume(shardIndex, (QuerySearchResultProvider) result);
+        }
 
         if (logger.isTraceEnabled()) {
             logger.trace("got first-phase result from {}", result != null ? result.shardTarget() : null);
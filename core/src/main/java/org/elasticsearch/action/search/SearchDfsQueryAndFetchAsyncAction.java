@@ -83,6 +83,7 @@ class SearchDfsQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<DfsSea
             public void onResponse(QueryFetchSearchResult result) {
                 result.shardTarget(dfsResult.shardTarget());
                 queryFetchResults.set(shardIndex, result);
+                queryResultConsumer.consume(shardIndex, result);
                 if (counter.decrementAndGet() == 0) {
                     finishHim();
                 }
@@ -118,6 +119,7 @@ class SearchDfsQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<DfsSea
         threadPool.executor(ThreadPool.Names.SEARCH).execute(new ActionRunnable<SearchResponse>(listener) {
             @Override
             public void doRun() throws IOException {
+                queryResultConsumer.ensureNoFailure();
                 sortedShardList = searchPhaseController.sortDocs(true, queryFetchResults);
                 final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, queryFetchResults,
                     queryFetchResults);
@@ -91,6 +91,7 @@ class SearchDfsQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<DfsSe
             public void onResponse(QuerySearchResult result) {
                 result.shardTarget(dfsResult.shardTarget());
                 queryResults.set(shardIndex, result);
+                queryResultConsumer.consume(shardIndex, result);
                 if (counter.decrementAndGet() == 0) {
                     executeFetchPhase();
                 }
@@ -135,6 +136,7 @@ class SearchDfsQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<DfsSe
     }
 
     void innerExecuteFetchPhase() throws Exception {
+        queryResultConsumer.ensureNoFailure();
         boolean useScroll = request.scroll() != null;
         sortedShardList = searchPhaseController.sortDocs(useScroll, queryResults);
         searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
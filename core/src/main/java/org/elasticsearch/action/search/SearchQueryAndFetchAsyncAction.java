@@ -60,6 +60,7 @@ class SearchQueryAndFetchAsyncAction extends AbstractSearchAsyncAction<QueryFetc
         threadPool.executor(ThreadPool.Names.SEARCH).execute(new ActionRunnable<SearchResponse>(listener) {
             @Override
             public void doRun() throws IOException {
+                queryResultConsumer.ensureNoFailure();
                 boolean useScroll = request.scroll() != null;
                 sortedShardList = searchPhaseController.sortDocs(useScroll, firstResults);
                 final InternalSearchResponse internalResponse = searchPhaseController.merge(sortedShardList, firstResults,
@@ -68,6 +68,7 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<QuerySea
 
     @Override
     protected void moveToSecondPhase() throws Exception {
+        queryResultConsumer.ensureNoFailure();
         boolean useScroll = request.scroll() != null;
         sortedShardList = searchPhaseController.sortDocs(useScroll, firstResults);
         searchPhaseController.fillDocIdsToLoad(docIdsToLoad, sortedShardList);
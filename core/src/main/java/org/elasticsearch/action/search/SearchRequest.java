@@ -63,10 +63,14 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
 
     private Boolean requestCache;
 
+    private int batchedReduceSize = DEFAULT_BATCHED_REDUCE_SIZE;
+
     private Scroll scroll;
 
     private String[] types = Strings.EMPTY_ARRAY;
 
+    public static final int DEFAULT_BATCHED_REDUCE_SIZE = 512;
+
     public static final IndicesOptions DEFAULT_INDICES_OPTIONS = IndicesOptions.strictExpandOpenAndForbidClosed();
 
     private IndicesOptions indicesOptions = DEFAULT_INDICES_OPTIONS;
@@ -295,6 +299,26 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         return this.requestCache;
     }
 
+    /**
+     * Sets the number of shard results that should be reduced at once on the coordinating node. This value should be used as a
+     * protection mechanism to reduce the memory overhead per search request if the potential number of shards in the request can
+     * be large. Defaults to <tt>512</tt>.
+     */
+    public SearchRequest setBatchedReduceSize(int batchedReduceSize) {
+        if (batchedReduceSize <= 1) {
+            throw new IllegalArgumentException("batchedReduceSize must be >= 2");
+        }
+        this.batchedReduceSize = batchedReduceSize;
+        return this;
+    }
+
+    /**
+     * Returns the number of shard results that should be reduced at once on the coordinating node.
+     */
+    public int getBatchedReduceSize() {
+        return batchedReduceSize;
+    }
+
     /**
      * @return true if the request only has suggest
      */
@@ -326,6 +350,7 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         indicesOptions = IndicesOptions.readIndicesOptions(in);
 
         requestCache = in.readOptionalBoolean();
+        batchedReduceSize = in.readVInt();
         template = in.readOptionalStreamable(Template::new);
     }
 
@@ -357,6 +382,7 @@ public class SearchRequest extends ActionRequest<SearchRequest> implements Indic
         out.writeStringArray(types);
         indicesOptions.writeIndicesOptions(out);
         out.writeOptionalBoolean(requestCache);
+        out.writeVInt(batchedReduceSize);
         out.writeOptionalStreamable(template);
     }
 }
@@ -335,6 +335,16 @@ public class MetaDataCreateIndexService extends AbstractComponent {
                                 }
                             }
 
+                            if (indexService.getIndexSettings().getIndexSortConfig().hasIndexSort()) {
+                                // the index sort is resolved against the mappings, fail early if they do not support it
+                                try {
+                                    indexService.getIndexSettings().getIndexSortConfig().buildIndexSort(mapperService::fullName);
+                                } catch (IllegalArgumentException e) {
+                                    removalReason = "failed on building the index sort on index creation";
+                                    throw e;
+                                }
+                            }
+
                             final QueryShardContext queryShardContext = indexService.newQueryShardContext();
                             for (Alias alias : request.aliases()) {
                                 if (Strings.hasLength(alias.filter())) {
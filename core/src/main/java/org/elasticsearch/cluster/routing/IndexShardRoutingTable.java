@@ -28,11 +28,14 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -230,6 +233,60 @@ public class IndexShardRoutingTable implements Iterable<ShardRouting> {
         return activeInitializingShardsIt(shuffler.nextSeed());
     }
 
+    /**
+     * Returns an iterator over active and initializing shards, ordered by the rank of the nodes they are allocated on
+     * (see {@link ComputedNodeStats#rank()}). Copies on nodes that no statistics were collected for yet come first so that
+     * they get the chance to report them, ties are broken randomly. Initializing shards are the last to iterate through.
+     */
+    public ShardIterator activeInitializingShardsRankedIt(ResponseCollectorService collector) {
+        final int seed = shuffler.nextSeed();
+        if (allInitializingShards.isEmpty()) {
+            return new PlainShardIterator(shardId, rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector));
+        }
+        ArrayList<ShardRouting> ordered = new ArrayList<>(activeShards.size() + allInitializingShards.size());
+        ordered.addAll(rankShardsAndUpdateStats(shuffler.shuffle(activeShards, seed), collector));
+        ordered.addAll(allInitializingShards);
+        return new PlainShardIterator(shardId, ordered);
+    }
+
+    private static List<ShardRouting> rankShardsAndUpdateStats(List<ShardRouting> shards, ResponseCollectorService collector) {
+        if (shards.size() <= 1) {
+            return shards;
+        }
+        final Map<String, ComputedNodeStats> nodeStats = new HashMap<>(shards.size());
+        for (ShardRouting shard : shards) {
+            ComputedNodeStats stats = collector.getNodeStatistics(shard.currentNodeId());
+            if (stats != null) {
+                nodeStats.put(shard.currentNodeId(), stats);
+            }
+        }
+        if (nodeStats.isEmpty()) {
+            return shards;
+        }
+        // the sort is stable, so copies with the same rank stay in the random order of the shuffle
+        final List<ShardRouting> ranked = new ArrayList<>(shards);
+        Collections.sort(ranked, (s1, s2) -> {
+            ComputedNodeStats stats1 = nodeStats.get(s1.currentNodeId());
+            ComputedNodeStats stats2 = nodeStats.get(s2.currentNodeId());
+            if (stats1 == null || stats2 == null) {
+                return stats1 == stats2 ? 0 : (stats1 == null ? -1 : 1);
+            }
+            return Double.compare(stats1.rank(), stats2.rank());
+        });
+        // the other copies are moved towards the selected one, otherwise they would never be selected again while the
+        // selected copy is only a bit faster
+        final ComputedNodeStats winner = nodeStats.get(ranked.get(0).currentNodeId());
+        if (winner != null) {
+            for (int i = 1; i < ranked.size(); i++) {
+                String nodeId = ranked.get(i).currentNodeId();
+                if (nodeId.equals(winner.nodeId) == false) {
+                    collector.adjustNodeStatistics(nodeId, winner);
+                }
+            }
+        }
+        return ranked;
+    }
+
     /**
      * Returns an iterator over active and initializing shards. Making sure though that
      * its random within the active shards, and initializing shards are the last to iterate through.
@@ -28,10 +28,14 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.math.MathUtils;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
+import org.elasticsearch.node.ResponseCollectorService;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -44,13 +48,32 @@ import java.util.Set;
  */
 public class OperationRouting extends AbstractComponent {
 
+    public static final Setting<Boolean> USE_ADAPTIVE_REPLICA_SELECTION_SETTING =
+        Setting.boolSetting("cluster.routing.use_adaptive_replica_selection", false, Property.Dynamic, Property.NodeScope);
 
     private final AwarenessAllocationDecider awarenessAllocationDecider;
+    private final ResponseCollectorService responseCollectorService;
+    private volatile boolean useAdaptiveReplicaSelection;
 
-    @Inject
     public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider) {
         super(settings);
         this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = null;
+        this.useAdaptiveReplicaSelection = false;
+    }
+
+    @Inject
+    public OperationRouting(Settings settings, AwarenessAllocationDecider awarenessAllocationDecider, ClusterSettings clusterSettings,
+                            ResponseCollectorService responseCollectorService) {
+        super(settings);
+        this.awarenessAllocationDecider = awarenessAllocationDecider;
+        this.responseCollectorService = responseCollectorService;
+        this.useAdaptiveReplicaSelection = USE_ADAPTIVE_REPLICA_SELECTION_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(USE_ADAPTIVE_REPLICA_SELECTION_SETTING, this::setUseAdaptiveReplicaSelection);
+    }
+
+    private void setUseAdaptiveReplicaSelection(boolean useAdaptiveReplicaSelection) {
+        this.useAdaptiveReplicaSelection = useAdaptiveReplicaSelection;
     }
 
     public ShardIterator indexShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing) {
@@ -58,12 +81,13 @@ public class OperationRouting extends AbstractComponent {
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, String type, String id, @Nullable String routing, @Nullable String preference) {
-        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(shards(clusterState, index, id, routing), clusterState.nodes().localNodeId(), clusterState.nodes(),
+            preference, null);
     }
 
     public ShardIterator getShards(ClusterState clusterState, String index, int shardId, @Nullable String preference) {
         final IndexShardRoutingTable indexShard = clusterState.getRoutingTable().shardRoutingTable(index, shardId);
-        return preferenceActiveShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+        return preferenceActiveShardIterator(indexShard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference, null);
     }
 
     public int searchShardsCount(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing) {
@@ -74,8 +98,11 @@ public class OperationRouting extends AbstractComponent {
     public GroupShardsIterator searchShards(ClusterState clusterState, String[] concreteIndices, @Nullable Map<String, Set<String>> routing, @Nullable String preference) {
         final Set<IndexShardRoutingTable> shards = computeTargetedShards(clusterState, concreteIndices, routing);
         final Set<ShardIterator> set = new HashSet<>(shards.size());
+        // only searches report the load of the nodes they were executed on, so only searches are routed adaptively
+        final ResponseCollectorService collectorService = useAdaptiveReplicaSelection ? responseCollectorService : null;
         for (IndexShardRoutingTable shard : shards) {
-            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(), preference);
+            ShardIterator iterator = preferenceActiveShardIterator(shard, clusterState.nodes().localNodeId(), clusterState.nodes(),
+                preference, collectorService);
             if (iterator != null) {
                 set.add(iterator);
             }
@@ -112,14 +139,10 @@ public class OperationRouting extends AbstractComponent {
         return set;
     }
 
-    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes, @Nullable String preference) {
+    private ShardIterator preferenceActiveShardIterator(IndexShardRoutingTable indexShard, String localNodeId, DiscoveryNodes nodes,
+                                                        @Nullable String preference, @Nullable ResponseCollectorService collectorService) {
         if (preference == null || preference.isEmpty()) {
-            String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-            if (awarenessAttributes.length == 0) {
-                return indexShard.activeInitializingShardsRandomIt();
-            } else {
-                return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-            }
+            return defaultActiveShardIterator(indexShard, nodes, collectorService);
         }
         if (preference.charAt(0) == '_') {
             Preference preferenceType = Preference.parse(preference);
@@ -146,12 +169,7 @@ public class OperationRouting extends AbstractComponent {
                 }
                 // no more preference
                 if (index == -1 || index == preference.length() - 1) {
-                    String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
-                    if (awarenessAttributes.length == 0) {
-                        return indexShard.activeInitializingShardsRandomIt();
-                    } else {
-                        return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
-                    }
+                    return defaultActiveShardIterator(indexShard, nodes, collectorService);
                 } else {
                     // update the preference and continue
                     preference = preference.substring(index + 1);
@@ -193,6 +211,18 @@ public class OperationRouting extends AbstractComponent {
         }
     }
 
+    private ShardIterator defaultActiveShardIterator(IndexShardRoutingTable indexShard, DiscoveryNodes nodes,
+                                                     @Nullable ResponseCollectorService collectorService) {
+        String[] awarenessAttributes = awarenessAllocationDecider.awarenessAttributes();
+        if (awarenessAttributes.length != 0) {
+            return indexShard.preferAttributesActiveInitializingShardsIt(awarenessAttributes, nodes);
+        } else if (collectorService != null) {
+            return indexShard.activeInitializingShardsRankedIt(collectorService);
+        } else {
+            return indexShard.activeInitializingShardsRandomIt();
+        }
+    }
+
     protected IndexRoutingTable indexRoutingTable(ClusterState clusterState, String index) {
         IndexRoutingTable indexRouting = clusterState.routingTable().index(index);
         if (indexRouting == null) {
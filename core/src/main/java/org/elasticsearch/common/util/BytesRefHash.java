@@ -159,6 +159,11 @@ public final class BytesRefHash extends AbstractHash {
         reset(code, id);
     }
 
+    /** Returns the number of bytes used by the arrays backing this hash. */
+    public long ramBytesUsed() {
+        return ids.ramBytesUsed() + startOffsets.ramBytesUsed() + bytes.ramBytesUsed() + hashes.ramBytesUsed();
+    }
+
     @Override
     public void close() {
         try (Releasable releasable = Releasables.wrap(bytes, hashes, startOffsets)) {
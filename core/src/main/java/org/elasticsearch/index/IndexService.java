@@ -694,9 +694,7 @@ public final class IndexService extends AbstractIndexComponent implements IndexC
                     case STARTED:
                     case RELOCATED:
                         try {
-                            if (shard.isRefreshNeeded()) {
-                                shard.refresh("schedule");
-                            }
+                            shard.scheduledRefresh();
                         } catch (EngineClosedException | AlreadyClosedException ex) {
                             // fine - continue;
                         }
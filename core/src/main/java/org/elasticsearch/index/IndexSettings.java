@@ -66,6 +66,10 @@ public final class IndexSettings {
     public static final Setting<Translog.Durability> INDEX_TRANSLOG_DURABILITY_SETTING =
         new Setting<>("index.translog.durability", Translog.Durability.REQUEST.name(),
             (value) -> Translog.Durability.valueOf(value.toUpperCase(Locale.ROOT)), Property.Dynamic, Property.IndexScope);
+    public static final Setting<Boolean> INDEX_TRANSLOG_COMPRESS_SETTING =
+        Setting.boolSetting("index.translog.compress", false, Property.IndexScope);
+    public static final Setting<Integer> INDEX_TRANSLOG_RECOVERY_THREADS_SETTING =
+        Setting.intSetting("index.translog.recovery_threads", 1, 1, Property.IndexScope);
     public static final Setting<Boolean> INDEX_WARMER_ENABLED_SETTING =
         Setting.boolSetting("index.warmer.enabled", true, Property.Dynamic, Property.IndexScope);
     public static final Setting<Boolean> INDEX_TTL_DISABLE_PURGE_SETTING =
@@ -92,10 +96,25 @@ public final class IndexSettings {
      */
     public static final Setting<Integer> MAX_RESULT_WINDOW_SETTING =
         Setting.intSetting("index.max_result_window", 10000, 1, Property.Dynamic, Property.IndexScope);
+    /**
+     * Index setting describing the maximum number of slices of segments that the query phase on a shard searches concurrently on
+     * the search thread pool. Defaults to <code>1</code>, which searches all segments on the thread that executes the request.
+     */
+    public static final Setting<Integer> INDEX_SEARCH_CONCURRENCY_SETTING =
+        Setting.intSetting("index.search.concurrency", 1, 1, Property.Dynamic, Property.IndexScope);
     public static final TimeValue DEFAULT_REFRESH_INTERVAL = new TimeValue(1, TimeUnit.SECONDS);
     public static final Setting<TimeValue> INDEX_REFRESH_INTERVAL_SETTING =
         Setting.timeSetting("index.refresh_interval", DEFAULT_REFRESH_INTERVAL, new TimeValue(-1, TimeUnit.MILLISECONDS),
             Property.Dynamic, Property.IndexScope);
+    /**
+     * Index setting to enable adaptive refreshes: scheduled refreshes are skipped on shards that weren't searched recently, and
+     * are executed less frequently while merges are falling behind. A skipped refresh is executed by the next search.
+     */
+    public static final Setting<Boolean> INDEX_REFRESH_ADAPTIVE_SETTING =
+        Setting.boolSetting("index.refresh.adaptive", false, Property.Dynamic, Property.IndexScope);
+    public static final Setting<TimeValue> INDEX_SEARCH_IDLE_AFTER_SETTING =
+        Setting.timeSetting("index.search.idle.after", TimeValue.timeValueSeconds(30), TimeValue.timeValueMillis(0),
+            Property.Dynamic, Property.IndexScope);
     public static final Setting<ByteSizeValue> INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING =
         Setting.byteSizeSetting("index.translog.flush_threshold_size", new ByteSizeValue(512, ByteSizeUnit.MB), Property.Dynamic,
             Property.IndexScope);
@@ -129,14 +148,20 @@ public final class IndexSettings {
     private final Predicate<String> indexNameMatcher;
     private volatile Translog.Durability durability;
     private final TimeValue syncInterval;
+    private final boolean translogCompressSources;
+    private final int translogRecoveryThreads;
     private volatile TimeValue refreshInterval;
+    private volatile boolean adaptiveRefresh;
+    private volatile TimeValue searchIdleAfter;
     private volatile ByteSizeValue flushThresholdSize;
     private final MergeSchedulerConfig mergeSchedulerConfig;
     private final MergePolicyConfig mergePolicyConfig;
+    private final IndexSortConfig indexSortConfig;
     private final IndexScopedSettings scopedSettings;
     private long gcDeletesInMillis = DEFAULT_GC_DELETES.millis();
     private volatile boolean warmerEnabled;
     private volatile int maxResultWindow;
+    private volatile int searchConcurrency;
     private volatile boolean TTLPurgeDisabled;
 
     /**
@@ -214,14 +239,20 @@ public final class IndexSettings {
         this.indexNameMatcher = indexNameMatcher;
         this.durability = scopedSettings.get(INDEX_TRANSLOG_DURABILITY_SETTING);
         syncInterval = INDEX_TRANSLOG_SYNC_INTERVAL_SETTING.get(settings);
+        translogCompressSources = scopedSettings.get(INDEX_TRANSLOG_COMPRESS_SETTING);
+        translogRecoveryThreads = scopedSettings.get(INDEX_TRANSLOG_RECOVERY_THREADS_SETTING);
         refreshInterval = scopedSettings.get(INDEX_REFRESH_INTERVAL_SETTING);
+        adaptiveRefresh = scopedSettings.get(INDEX_REFRESH_ADAPTIVE_SETTING);
+        searchIdleAfter = scopedSettings.get(INDEX_SEARCH_IDLE_AFTER_SETTING);
         flushThresholdSize = scopedSettings.get(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING);
         mergeSchedulerConfig = new MergeSchedulerConfig(this);
         gcDeletesInMillis = scopedSettings.get(INDEX_GC_DELETES_SETTING).getMillis();
         warmerEnabled = scopedSettings.get(INDEX_WARMER_ENABLED_SETTING);
         maxResultWindow = scopedSettings.get(MAX_RESULT_WINDOW_SETTING);
+        searchConcurrency = scopedSettings.get(INDEX_SEARCH_CONCURRENCY_SETTING);
         TTLPurgeDisabled = scopedSettings.get(INDEX_TTL_DISABLE_PURGE_SETTING);
         this.mergePolicyConfig = new MergePolicyConfig(logger, this);
+        this.indexSortConfig = new IndexSortConfig(this);
         assert indexNameMatcher.test(indexMetaData.getIndex().getName());
 
         scopedSettings.addSettingsUpdateConsumer(MergePolicyConfig.INDEX_COMPOUND_FORMAT_SETTING, mergePolicyConfig::setNoCFSRatio);
@@ -238,10 +269,13 @@ public final class IndexSettings {
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_DURABILITY_SETTING, this::setTranslogDurability);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TTL_DISABLE_PURGE_SETTING, this::setTTLPurgeDisabled);
         scopedSettings.addSettingsUpdateConsumer(MAX_RESULT_WINDOW_SETTING, this::setMaxResultWindow);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_CONCURRENCY_SETTING, this::setSearchConcurrency);
         scopedSettings.addSettingsUpdateConsumer(INDEX_WARMER_ENABLED_SETTING, this::setEnableWarmer);
         scopedSettings.addSettingsUpdateConsumer(INDEX_GC_DELETES_SETTING, this::setGCDeletes);
         scopedSettings.addSettingsUpdateConsumer(INDEX_TRANSLOG_FLUSH_THRESHOLD_SIZE_SETTING, this::setTranslogFlushThresholdSize);
         scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_INTERVAL_SETTING, this::setRefreshInterval);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_REFRESH_ADAPTIVE_SETTING, this::setAdaptiveRefresh);
+        scopedSettings.addSettingsUpdateConsumer(INDEX_SEARCH_IDLE_AFTER_SETTING, this::setSearchIdleAfter);
     }
 
     private void setTranslogFlushThresholdSize(ByteSizeValue byteSizeValue) {
@@ -256,6 +290,14 @@ public final class IndexSettings {
         this.refreshInterval = timeValue;
     }
 
+    private void setAdaptiveRefresh(boolean adaptiveRefresh) {
+        this.adaptiveRefresh = adaptiveRefresh;
+    }
+
+    private void setSearchIdleAfter(TimeValue searchIdleAfter) {
+        this.searchIdleAfter = searchIdleAfter;
+    }
+
     /**
      * Returns the settings for this index. These settings contain the node and index level settings where
      * settings that are specified on both index and node level are overwritten by the index settings.
@@ -421,6 +463,20 @@ public final class IndexSettings {
         return syncInterval;
     }
 
+    /**
+     * Returns <code>true</code> iff the sources of index operations are compressed before they are written to the transaction log
+     */
+    public boolean isTranslogCompressSources() {
+        return translogCompressSources;
+    }
+
+    /**
+     * Returns the number of threads that replay the transaction log when a shard is recovered from its local store
+     */
+    public int getTranslogRecoveryThreads() {
+        return translogRecoveryThreads;
+    }
+
     /**
      * Returns this interval in which the shards of this index are asynchronously refreshed. <tt>-1</tt> means async refresh is disabled.
      */
@@ -428,6 +484,20 @@ public final class IndexSettings {
         return refreshInterval;
     }
 
+    /**
+     * Returns <code>true</code> if scheduled refreshes adapt to search traffic and merge backlog. The default is <code>false</code>
+     */
+    public boolean isAdaptiveRefresh() {
+        return adaptiveRefresh;
+    }
+
+    /**
+     * Returns how long a shard must not have been searched before adaptive refresh considers it search idle.
+     */
+    public TimeValue getSearchIdleAfter() {
+        return searchIdleAfter;
+    }
+
     /**
      * Returns the transaction log threshold size when to forcefully flush the index and clear the transaction log.
      */
@@ -449,6 +519,18 @@ public final class IndexSettings {
         this.maxResultWindow = maxResultWindow;
     }
 
+    /**
+     * Returns the maximum number of slices of segments that a search on a shard searches concurrently, <code>1</code> if
+     * segments are searched sequentially.
+     */
+    public int getSearchConcurrency() {
+        return searchConcurrency;
+    }
+
+    private void setSearchConcurrency(int searchConcurrency) {
+        this.searchConcurrency = searchConcurrency;
+    }
+
 
     /**
      * Returns the GC deletes cycle in milliseconds.
@@ -464,6 +546,13 @@ public final class IndexSettings {
         return mergePolicyConfig.getMergePolicy();
     }
 
+    /**
+     * Returns the {@link IndexSortConfig} that describes how the segments of this index are sorted.
+     */
+    public IndexSortConfig getIndexSortConfig() {
+        return indexSortConfig;
+    }
+
     /**
      * Returns <code>true</code> if the TTL purge is disabled for this index. Default is <code>false</code>
      */
@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index;
+
+import org.apache.lucene.document.FieldType.LegacyNumericType;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Holds the index sort of an index, which orders the documents of merged segments by one or more fields so that searches that
+ * sort by the same fields can stop collecting each sorted segment once they collected enough documents.
+ *
+ * <p>The index sort is configured with the following <b>static</b> settings:
+ *
+ * <ul>
+ * <li> <code>index.sort.field</code>:
+ *
+ *     The numeric or date fields to sort the index by. They must be mapped when the index is created and have doc values.
+ *
+ * <li> <code>index.sort.order</code>:
+ *
+ *     The order of each field, either <code>asc</code> or <code>desc</code>. Defaults to <code>asc</code> for all fields.
+ * </ul>
+ *
+ * Documents are sorted like a search sorts them by default: by the minimum value of multi-valued fields in ascending order and
+ * by the maximum value in descending order, with documents that miss a value last. Sorted indices can't have nested fields since
+ * sorting would separate nested documents from their parent document.
+ */
+public final class IndexSortConfig {
+
+    public static final Setting<List<String>> INDEX_SORT_FIELD_SETTING =
+        Setting.listSetting("index.sort.field", Collections.emptyList(), Function.identity(), Property.IndexScope);
+    public static final Setting<List<Boolean>> INDEX_SORT_ORDER_SETTING =
+        Setting.listSetting("index.sort.order", Collections.emptyList(), IndexSortConfig::parseReverse, Property.IndexScope);
+
+    private final List<String> fields;
+    private final List<Boolean> reverse;
+
+    IndexSortConfig(IndexSettings indexSettings) {
+        this.fields = indexSettings.getValue(INDEX_SORT_FIELD_SETTING);
+        List<Boolean> reverse = indexSettings.getValue(INDEX_SORT_ORDER_SETTING);
+        if (reverse.isEmpty()) {
+            reverse = Collections.nCopies(fields.size(), false);
+        } else if (reverse.size() != fields.size()) {
+            throw new IllegalArgumentException("[" + INDEX_SORT_ORDER_SETTING.getKey() + "] must have one entry per field of ["
+                + INDEX_SORT_FIELD_SETTING.getKey() + "], got " + reverse.size() + " orders for " + fields.size() + " fields");
+        }
+        this.reverse = reverse;
+    }
+
+    private static boolean parseReverse(String order) {
+        switch (order.toLowerCase(Locale.ROOT)) {
+            case "asc":
+                return false;
+            case "desc":
+                return true;
+            default:
+                throw new IllegalArgumentException("unknown index sort order [" + order + "], must be one of [asc, desc]");
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the index is sorted.
+     */
+    public boolean hasIndexSort() {
+        return fields.isEmpty() == false;
+    }
+
+    /**
+     * Builds the sort of the index from the mapped types of its fields, or returns <code>null</code> if the index isn't sorted.
+     *
+     * @throws IllegalArgumentException if a field isn't mapped or can't be used to sort the index
+     */
+    @Nullable
+    public Sort buildIndexSort(Function<String, MappedFieldType> fieldTypeLookup) {
+        if (hasIndexSort() == false) {
+            return null;
+        }
+        final SortField[] sortFields = new SortField[fields.size()];
+        for (int i = 0; i < sortFields.length; i++) {
+            final String field = fields.get(i);
+            final boolean reverse = this.reverse.get(i);
+            final MappedFieldType fieldType = fieldTypeLookup.apply(field);
+            if (fieldType == null) {
+                throw new IllegalArgumentException("unknown index sort field [" + field + "], index sort fields must be mapped");
+            }
+            if (fieldType.hasDocValues() == false) {
+                throw new IllegalArgumentException("index sort field [" + field + "] must have doc values");
+            }
+            final LegacyNumericType numericType = fieldType.numericType();
+            if (numericType == null) {
+                throw new IllegalArgumentException("index sort field [" + field + "] of type [" + fieldType.typeName()
+                    + "] is not supported, only numeric and date fields can be used to sort an index");
+            }
+            final SortedNumericSelector.Type selector = reverse ? SortedNumericSelector.Type.MAX : SortedNumericSelector.Type.MIN;
+            final SortedNumericSortField sortField;
+            switch (numericType) {
+                case INT:
+                case LONG:
+                    sortField = new SortedNumericSortField(fieldType.name(), SortField.Type.LONG, reverse, selector);
+                    sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+                    break;
+                case FLOAT:
+                    sortField = new SortedNumericSortField(fieldType.name(), SortField.Type.FLOAT, reverse, selector);
+                    sortField.setMissingValue(reverse ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY);
+                    break;
+                case DOUBLE:
+                    sortField = new SortedNumericSortField(fieldType.name(), SortField.Type.DOUBLE, reverse, selector);
+                    sortField.setMissingValue(reverse ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                    break;
+                default:
+                    throw new AssertionError("unexpected numeric type " + numericType);
+            }
+            sortFields[i] = sortField;
+        }
+        return new Sort(sortFields);
+    }
+
+    /**
+     * Returns the number of leading fields of the given search sort that order documents exactly like the given index sort, or
+     * <code>0</code> if the search sort doesn't start with the index sort.
+     */
+    public static int commonPrefixLength(Sort searchSort, Sort indexSort) {
+        final SortField[] searchFields = searchSort.getSort();
+        final SortField[] indexFields = indexSort.getSort();
+        int i = 0;
+        for (; i < searchFields.length && i < indexFields.length; i++) {
+            final SortField searchField = searchFields[i];
+            final SortField indexField = indexFields[i];
+            if (indexField.getField().equals(searchField.getField()) == false
+                || indexField.getReverse() != searchField.getReverse()
+                || searchField.getComparatorSource() instanceof IndexFieldData.XFieldComparatorSource == false
+                || ((IndexFieldData.XFieldComparatorSource) searchField.getComparatorSource())
+                    .sortsLikeIndexSort(searchField.getReverse()) == false) {
+                break;
+            }
+        }
+        return i;
+    }
+}
@@ -166,6 +166,14 @@ class ElasticsearchConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         return thread;
     }
 
+    /**
+     * Returns <code>true</code> if more merges are running than the configured number of merge threads, which means that
+     * merges are paused because merging falls behind.
+     */
+    boolean hasMergeBacklog() {
+        return currentMerges.count() > getMaxThreadCount();
+    }
+
     MergeStats stats() {
         final MergeStats mergeStats = new MergeStats();
         mergeStats.add(totalMerges.count(), totalMerges.sum(), totalMergesNumDocs.count(), totalMergesSizeInBytes.count(),
@@ -43,6 +43,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.common.Base64;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -72,6 +73,7 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
@@ -181,6 +183,13 @@ public abstract class Engine implements Closeable {
         return new MergeStats();
     }
 
+    /**
+     * Returns <code>true</code> if merges of this engine are falling behind.
+     */
+    public boolean hasMergeBacklog() {
+        return false;
+    }
+
     /**
      * A throttling class that can be activated, causing the
      * {@code acquireThrottle} method to block on a lock when throttling
@@ -282,6 +291,24 @@ public abstract class Engine implements Closeable {
 
     public abstract boolean index(Index operation) throws EngineException;
 
+    /**
+     * Indexes the given operations in order and returns the outcome of each of them. An operation that fails, for instance
+     * because of a version conflict, doesn't prevent the other operations from being applied. If the engine fails while the
+     * batch is applied, the operations that were applied keep their outcome and the others fail with the engine's failure.
+     * Engines may override this to apply the batch more efficiently than one operation at a time.
+     */
+    public List<IndexResult> index(List<Index> operations) throws EngineException {
+        final List<IndexResult> results = new ArrayList<>(operations.size());
+        for (Index operation : operations) {
+            try {
+                results.add(new IndexResult(index(operation)));
+            } catch (Throwable t) {
+                results.add(new IndexResult(t));
+            }
+        }
+        return results;
+    }
+
     public abstract void delete(Delete delete) throws EngineException;
 
     /**
@@ -832,10 +859,19 @@ public abstract class Engine implements Closeable {
     public static class Index extends Operation {
 
         private final ParsedDocument doc;
+        private final long autoGeneratedIdTimestamp;
+        private final boolean isRetry;
 
-        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime) {
+        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime,
+                     long autoGeneratedIdTimestamp, boolean isRetry) {
             super(uid, version, versionType, origin, startTime);
             this.doc = doc;
+            this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+            this.isRetry = isRetry;
+        }
+
+        public Index(Term uid, ParsedDocument doc, long version, VersionType versionType, Origin origin, long startTime) {
+            this(uid, doc, version, versionType, origin, startTime, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false);
         }
 
         public Index(Term uid, ParsedDocument doc) {
@@ -887,6 +923,23 @@ public abstract class Engine implements Closeable {
         public BytesReference source() {
             return this.doc.source();
         }
+
+        /**
+         * Returns the time at which the ID of this document was auto-generated, or
+         * {@link IndexRequest#UNSET_AUTO_GENERATED_TIMESTAMP} if the ID was provided externally. Documents with
+         * auto-generated IDs can't collide with existing documents, so they may be added without a version lookup.
+         */
+        public long getAutoGeneratedIdTimestamp() {
+            return autoGeneratedIdTimestamp;
+        }
+
+        /**
+         * Returns <code>true</code> if the request of this operation was retried, in which case the document might already
+         * have been indexed by a previous attempt.
+         */
+        public boolean isRetry() {
+            return isRetry;
+        }
     }
 
     public static class Delete extends Operation {
@@ -965,6 +1018,39 @@ public abstract class Engine implements Closeable {
         }
     }
 
+    /**
+     * The outcome of a single operation of a batch passed to {@link #index(List)}
+     */
+    public static final class IndexResult {
+        private final boolean created;
+        private final Throwable failure;
+
+        public IndexResult(boolean created) {
+            this.created = created;
+            this.failure = null;
+        }
+
+        public IndexResult(Throwable failure) {
+            this.created = false;
+            this.failure = Objects.requireNonNull(failure);
+        }
+
+        /** Returns <code>true</code> iff the operation created the document, as opposed to updating it */
+        public boolean isCreated() {
+            return created;
+        }
+
+        /** Returns the reason why the operation failed or <code>null</code> if it succeeded */
+        @Nullable
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public boolean hasFailure() {
+            return failure != null;
+        }
+    }
+
     public static class GetResult implements Releasable {
         private final boolean exists;
         private final long version;
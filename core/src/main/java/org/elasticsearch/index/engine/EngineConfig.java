@@ -24,7 +24,9 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
@@ -60,6 +62,8 @@ public final class EngineConfig {
     private final Store store;
     private final SnapshotDeletionPolicy deletionPolicy;
     private final MergePolicy mergePolicy;
+    @Nullable
+    private final Sort indexSort;
     private final Analyzer analyzer;
     private final Similarity similarity;
     private final CodecService codecService;
@@ -67,6 +71,7 @@ public final class EngineConfig {
     private final boolean forceNewTranslog;
     private final QueryCache queryCache;
     private final QueryCachingPolicy queryCachingPolicy;
+    private final boolean pagedVersionMap;
 
     /**
      * Index setting to change the low level lucene codec used for writing new segments.
@@ -89,6 +94,14 @@ public final class EngineConfig {
         }
     }, Property.IndexScope, Property.NodeScope);
 
+    /**
+     * Index setting to keep the uids and versions of recently indexed documents in paged arrays instead of a concurrent hash
+     * map. This reduces the heap overhead per indexed document for indices that index at high rates between refreshes.
+     * This setting is <b>not</b> realtime updateable.
+     */
+    public static final Setting<Boolean> INDEX_PAGED_VERSION_MAP_SETTING =
+        Setting.boolSetting("index.engine.paged_version_map", false, Property.IndexScope);
+
     /** if set to true the engine will start even if the translog id in the commit point can not be found */
     public static final String INDEX_FORCE_NEW_TRANSLOG = "index.engine.force_new_translog";
 
@@ -100,7 +113,7 @@ public final class EngineConfig {
      */
     public EngineConfig(ShardId shardId, ThreadPool threadPool,
                         IndexSettings indexSettings, Engine.Warmer warmer, Store store, SnapshotDeletionPolicy deletionPolicy,
-                        MergePolicy mergePolicy,Analyzer analyzer,
+                        MergePolicy mergePolicy, @Nullable Sort indexSort, Analyzer analyzer,
                         Similarity similarity, CodecService codecService, Engine.EventListener eventListener,
                         TranslogRecoveryPerformer translogRecoveryPerformer, QueryCache queryCache, QueryCachingPolicy queryCachingPolicy,
                         TranslogConfig translogConfig, TimeValue flushMergesAfter) {
@@ -112,11 +125,13 @@ public final class EngineConfig {
         this.store = store;
         this.deletionPolicy = deletionPolicy;
         this.mergePolicy = mergePolicy;
+        this.indexSort = indexSort;
         this.analyzer = analyzer;
         this.similarity = similarity;
         this.codecService = codecService;
         this.eventListener = eventListener;
         codecName = indexSettings.getValue(INDEX_CODEC_SETTING);
+        pagedVersionMap = indexSettings.getValue(INDEX_PAGED_VERSION_MAP_SETTING);
         // We give IndexWriter a "huge" (256 MB) buffer, so it won't flush on its own unless the ES indexing buffer is also huge and/or
         // there are not too many shards allocated to this node.  Instead, IndexingMemoryController periodically checks
         // and refreshes the most heap-consuming shards when total indexing heap usage across all shards is too high:
@@ -165,6 +180,14 @@ public final class EngineConfig {
         return enableGcDeletes;
     }
 
+    /**
+     * Returns <code>true</code> iff the engine should keep its live version map in paged arrays allocated from the
+     * {@link TranslogConfig#getBigArrays() shard's BigArrays}.
+     */
+    public boolean isPagedVersionMap() {
+        return pagedVersionMap;
+    }
+
     /**
      * Returns the {@link Codec} used in the engines {@link org.apache.lucene.index.IndexWriter}
      * <p>
@@ -219,6 +242,14 @@ public final class EngineConfig {
         return mergePolicy;
     }
 
+    /**
+     * Returns the sort of the documents of merged segments, or <code>null</code> if the index isn't sorted
+     */
+    @Nullable
+    public Sort getIndexSort() {
+        return indexSort;
+    }
+
     /**
      * Returns a listener that should be called on engine failure
      */
@@ -30,6 +30,7 @@ import org.apache.lucene.index.LiveIndexWriterConfig;
 import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
@@ -41,6 +42,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.routing.Murmur3HashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lease.Releasable;
@@ -54,6 +56,8 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.mapper.ParseContext;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.merge.OnGoingMerge;
@@ -66,13 +70,16 @@ import org.elasticsearch.index.translog.TranslogCorruptedException;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -114,9 +121,14 @@ public class InternalEngine extends Engine {
     // incoming indexing ops to a single thread:
     private final AtomicInteger throttleRequestCount = new AtomicInteger();
 
+    // The highest auto-generated ID timestamp of all retried index operations. A document with an auto-generated ID at or below
+    // this timestamp might have been indexed by the original request already, so it can't be added without a version lookup.
+    private final AtomicLong maxUnsafeAutoIdTimestamp = new AtomicLong(IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP);
+
     public InternalEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
         super(engineConfig);
-        this.versionMap = new LiveVersionMap();
+        this.versionMap = engineConfig.isPagedVersionMap()
+            ? new LiveVersionMap(engineConfig.getTranslogConfig().getBigArrays()) : new LiveVersionMap();
         store.incRef();
         IndexWriter writer = null;
         Translog translog = null;
@@ -339,62 +351,289 @@ public class InternalEngine extends Engine {
     private boolean innerIndex(Index index) throws IOException {
         synchronized (dirtyLock(index.uid())) {
             lastWriteNanos = index.startTime();
-            final long currentVersion;
-            final boolean deleted;
-            VersionValue versionValue = versionMap.getUnderLock(index.uid().bytes());
-            if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(index.uid());
-                deleted = currentVersion == Versions.NOT_FOUND;
+            final IndexingPlan plan = planIndexing(index);
+            if (plan == null) {
+                return false;
+            }
+            if (plan.addDocument) {
+                index(index, indexWriter);
             } else {
-                deleted = versionValue.delete();
-                if (engineConfig.isEnableGcDeletes() && versionValue.delete() && (engineConfig.getThreadPool().estimatedTimeInMillis() - versionValue.time()) > getGcDeletesInMillis()) {
-                    currentVersion = Versions.NOT_FOUND; // deleted, and GC
-                } else {
-                    currentVersion = versionValue.version();
+                update(index, indexWriter);
+            }
+            Translog.Location translogLocation = translog.add(new Translog.Index(index));
+
+            versionMap.putUnderLock(index.uid().bytes(), new VersionValue(index.version(), translogLocation));
+            index.setTranslogLocation(translogLocation);
+            return plan.created;
+        }
+    }
+
+    @Override
+    public List<IndexResult> index(List<Index> operations) {
+        final IndexResult[] results = new IndexResult[operations.size()];
+        try (ReleasableLock lock = readLock.acquire()) {
+            ensureOpen();
+            try (Releasable r = throttle.acquireThrottle()) {
+                int from = 0;
+                while (from < operations.size()) {
+                    // an operation on a document that is already part of the batch starts a new batch, it must see the outcome
+                    // of the previous operation on the document
+                    final Set<BytesRef> uids = new HashSet<>();
+                    int to = from;
+                    while (to < operations.size() && uids.add(operations.get(to).uid().bytes())) {
+                        to++;
+                    }
+                    innerIndex(operations.subList(from, to), results, from);
+                    from = to;
                 }
             }
+        } catch (EngineClosedException e) {
+            // the engine is closed, none of the operations was applied
+            for (int i = 0; i < operations.size(); i++) {
+                if (results[i] == null) {
+                    results[i] = new IndexResult(e);
+                }
+            }
+        } catch (OutOfMemoryError | IllegalStateException | IOException t) {
+            maybeFailEngine("index", t);
+            for (int i = 0; i < operations.size(); i++) {
+                if (results[i] == null) {
+                    final Index index = operations.get(i);
+                    results[i] = new IndexResult(new IndexFailedEngineException(shardId, index.type(), index.id(), t));
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
 
-            long expectedVersion = index.version();
-            if (isVersionConflictForWrites(index, currentVersion, deleted, expectedVersion)) {
-                if (index.origin() != Operation.Origin.RECOVERY) {
-                    throw new VersionConflictEngineException(shardId, index.type(), index.id(),
-                        index.versionType().explainConflictForWrites(currentVersion, expectedVersion, deleted));
+    /**
+     * Indexes a batch of operations on distinct documents. Each operation resolves its version and is written under its own
+     * dirty lock like a single operation, except for documents with an auto-generated ID that don't need a version lookup: they
+     * are added to Lucene with a single call and written to the translog with a single write once all operations are planned.
+     */
+    private void innerIndex(List<Index> operations, IndexResult[] results, int offset) throws IOException {
+        final List<Index> appends = new ArrayList<>();
+        final List<Integer> appendSlots = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            final Index index = operations.get(i);
+            try {
+                synchronized (dirtyLock(index.uid())) {
+                    lastWriteNanos = index.startTime();
+                    final IndexingPlan plan = planIndexing(index);
+                    if (plan == null) {
+                        results[offset + i] = new IndexResult(false);
+                    } else if (plan == IndexingPlan.APPEND) {
+                        appends.add(index);
+                        appendSlots.add(offset + i);
+                    } else {
+                        if (plan.addDocument) {
+                            index(index, indexWriter);
+                        } else {
+                            update(index, indexWriter);
+                        }
+                        Translog.Location translogLocation = translog.add(new Translog.Index(index));
+                        versionMap.putUnderLock(index.uid().bytes(), new VersionValue(index.version(), translogLocation));
+                        index.setTranslogLocation(translogLocation);
+                        results[offset + i] = new IndexResult(plan.created);
+                    }
                 }
-                return false;
+            } catch (IllegalStateException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // the operation conflicts or lucene rejected its document, this doesn't affect the other operations
+                results[offset + i] = new IndexResult(e);
             }
-            long updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
+        }
+        if (appends.isEmpty() == false) {
+            innerAppend(appends, appendSlots, results);
+        }
+    }
 
-            final boolean created;
-            index.updateVersion(updatedVersion);
+    /**
+     * Adds the documents of operations planned as {@link IndexingPlan#APPEND} with a single call to Lucene and writes them to
+     * the translog with a single write. No dirty lock is held while the documents are added.
+     */
+    private void innerAppend(List<Index> appends, List<Integer> slots, IndexResult[] results) throws IOException {
+        final List<Index> added = new ArrayList<>(appends.size());
+        final List<Integer> addedSlots = new ArrayList<>(appends.size());
+        if (addDocuments(appends)) {
+            added.addAll(appends);
+            addedSlots.addAll(slots);
+        } else {
+            // lucene dropped all documents of the block because one of them failed, we add them one by one to isolate it
+            for (int i = 0; i < appends.size(); i++) {
+                try {
+                    index(appends.get(i), indexWriter);
+                    added.add(appends.get(i));
+                    addedSlots.add(slots.get(i));
+                } catch (IllegalStateException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    results[slots.get(i)] = new IndexResult(e);
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        for (Index index : added) {
+            if (mayHaveBeenIndexedBefore(index)) {
+                // a retry of the request arrived since the operation was planned and may have added its own copy before ours,
+                // replacing both copies with ours leaves a single document like a retry that arrives later would
+                synchronized (dirtyLock(index.uid())) {
+                    update(index, indexWriter);
+                }
+            }
+        }
+        final List<Translog.Index> translogOperations = new ArrayList<>(added.size());
+        for (Index index : added) {
+            translogOperations.add(new Translog.Index(index));
+        }
+        final List<Translog.Location> translogLocations = translog.add(translogOperations);
+        for (int i = 0; i < added.size(); i++) {
+            final Index index = added.get(i);
+            synchronized (dirtyLock(index.uid())) {
+                versionMap.putUnderLock(index.uid().bytes(), new VersionValue(index.version(), translogLocations.get(i)));
+            }
+            index.setTranslogLocation(translogLocations.get(i));
+            results[addedSlots.get(i)] = new IndexResult(true);
+        }
+    }
 
-            if (currentVersion == Versions.NOT_FOUND) {
-                // document does not exists, we can optimize for create
-                created = true;
-                index(index, indexWriter);
+    /**
+     * Adds the documents of all given operations with a single call to Lucene. Returns <code>false</code> if a document was
+     * rejected, in which case none of the documents were added.
+     */
+    private boolean addDocuments(List<Index> operations) throws IOException {
+        if (operations.size() == 1) {
+            return false; // adding it on its own isolates a failure already
+        }
+        final List<ParseContext.Document> docs = new ArrayList<>();
+        for (Index index : operations) {
+            docs.addAll(index.docs());
+        }
+        try {
+            indexWriter.addDocuments(docs);
+            return true;
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /** How an index operation is written to Lucene once its version is resolved. */
+    private enum IndexingPlan {
+        /** the document has an auto-generated ID and is added without looking up its version */
+        APPEND(true, true),
+        /** the document doesn't exist and is added without looking for a previous copy */
+        ADD(true, true),
+        /** the document doesn't exist, or was deleted, but a copy might still have to be replaced */
+        UPDATE_CREATED(false, true),
+        /** the document exists and is replaced */
+        UPDATE_EXISTING(false, false);
+
+        final boolean addDocument;
+        final boolean created;
+
+        IndexingPlan(boolean addDocument, boolean created) {
+            this.addDocument = addDocument;
+            this.created = created;
+        }
+    }
+
+    /**
+     * Resolves the version of the given operation, updates the operation with its new version and decides how to write it to
+     * Lucene. Returns <code>null</code> if the operation conflicts but is a recovery operation, which is skipped. Must be called
+     * under the document's dirty lock.
+     */
+    private IndexingPlan planIndexing(Index index) throws IOException {
+        final boolean forceUpdateDocument;
+        if (index.getAutoGeneratedIdTimestamp() == IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP) {
+            forceUpdateDocument = false;
+        } else if (mayHaveBeenIndexedBefore(index)) {
+            // the version map or the last refresh might not know about the previous attempt yet, so we rely on
+            // IndexWriter#updateDocument to replace the document if it was indexed before
+            forceUpdateDocument = true;
+        } else if (canOptimizeAddDocument(index)) {
+            // the ID was generated for this document so it can't exist yet, we skip the version lookup. The version map still
+            // records the document since realtime gets read documents that aren't refreshed yet through it
+            index.updateVersion(index.versionType().updateVersion(Versions.NOT_FOUND, index.version()));
+            return IndexingPlan.APPEND;
+        } else {
+            forceUpdateDocument = false;
+        }
+        final long currentVersion;
+        final boolean deleted;
+        VersionValue versionValue = versionMap.getUnderLock(index.uid().bytes());
+        if (versionValue == null) {
+            currentVersion = loadCurrentVersionFromIndex(index.uid());
+            deleted = currentVersion == Versions.NOT_FOUND;
+        } else {
+            deleted = versionValue.delete();
+            if (engineConfig.isEnableGcDeletes() && versionValue.delete() && (engineConfig.getThreadPool().estimatedTimeInMillis() - versionValue.time()) > getGcDeletesInMillis()) {
+                currentVersion = Versions.NOT_FOUND; // deleted, and GC
             } else {
-                created = update(index, versionValue, indexWriter);
+                currentVersion = versionValue.version();
             }
-            Translog.Location translogLocation = translog.add(new Translog.Index(index));
+        }
 
-            versionMap.putUnderLock(index.uid().bytes(), new VersionValue(updatedVersion, translogLocation));
-            index.setTranslogLocation(translogLocation);
-            return created;
+        long expectedVersion = index.version();
+        if (isVersionConflictForWrites(index, currentVersion, deleted, expectedVersion)) {
+            if (index.origin() != Operation.Origin.RECOVERY) {
+                throw new VersionConflictEngineException(shardId, index.type(), index.id(),
+                    index.versionType().explainConflictForWrites(currentVersion, expectedVersion, deleted));
+            }
+            return null;
+        }
+        index.updateVersion(index.versionType().updateVersion(currentVersion, expectedVersion));
+
+        if (currentVersion == Versions.NOT_FOUND && forceUpdateDocument == false) {
+            // document does not exists, we can optimize for create
+            return IndexingPlan.ADD;
+        } else if (currentVersion == Versions.NOT_FOUND || (versionValue != null && versionValue.delete())) {
+            // we have a delete which is not GC'ed...
+            return IndexingPlan.UPDATE_CREATED;
+        } else {
+            return IndexingPlan.UPDATE_EXISTING;
         }
     }
 
-    private static boolean update(Index index, VersionValue versionValue, IndexWriter indexWriter) throws IOException {
-        boolean created;
-        if (versionValue != null) {
-            created = versionValue.delete(); // we have a delete which is not GC'ed...
-        } else {
-            created = false;
+    /**
+     * Returns <code>true</code> if the given document with an auto-generated ID can be added without looking up its current
+     * version. Only operations on the primary are optimized, since only the primary knows whether its request was retried.
+     */
+    private static boolean canOptimizeAddDocument(Index index) {
+        assert index.getAutoGeneratedIdTimestamp() != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
+        return index.origin() == Operation.Origin.PRIMARY
+            && index.versionType() == VersionType.INTERNAL
+            && (index.version() == Versions.MATCH_ANY || index.version() == Versions.MATCH_DELETED);
+    }
+
+    /**
+     * Returns <code>true</code> if the given document with an auto-generated ID might have been indexed by an earlier attempt of
+     * the same request. A retried operation raises {@link #maxUnsafeAutoIdTimestamp} to its timestamp so that the original
+     * operation, should it arrive later, isn't added without a version lookup either.
+     */
+    private boolean mayHaveBeenIndexedBefore(Index index) {
+        final long timestamp = index.getAutoGeneratedIdTimestamp();
+        assert timestamp != IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP;
+        if (index.isRetry()) {
+            long maxUnsafeTimestamp;
+            do {
+                maxUnsafeTimestamp = maxUnsafeAutoIdTimestamp.get();
+            } while (maxUnsafeTimestamp < timestamp && maxUnsafeAutoIdTimestamp.compareAndSet(maxUnsafeTimestamp, timestamp) == false);
+            return true;
         }
+        return timestamp <= maxUnsafeAutoIdTimestamp.get();
+    }
+
+    private static void update(Index index, IndexWriter indexWriter) throws IOException {
         if (index.docs().size() > 1) {
             indexWriter.updateDocuments(index.uid(), index.docs());
         } else {
             indexWriter.updateDocument(index.uid(), index.docs().get(0));
         }
-        return created;
     }
 
     private static void index(Index index, IndexWriter indexWriter) throws IOException {
@@ -916,6 +1155,10 @@ public class InternalEngine extends Engine {
             iwc.setInfoStream(verbose ? InfoStream.getDefault() : new LoggerInfoStream(logger));
             iwc.setMergeScheduler(mergeScheduler);
             MergePolicy mergePolicy = config().getMergePolicy();
+            if (config().getIndexSort() != null) {
+                // merged segments are sorted so that sorted searches can terminate early on them
+                mergePolicy = new SortingMergePolicy(mergePolicy, config().getIndexSort());
+            }
             // Give us the opportunity to upgrade old segments while performing
             // background merges
             mergePolicy = new ElasticsearchMergePolicy(mergePolicy);
@@ -1102,4 +1345,9 @@ public class InternalEngine extends Engine {
     public MergeStats getMergeStats() {
         return mergeScheduler.stats();
     }
+
+    @Override
+    public boolean hasMergeBacklog() {
+        return mergeScheduler.hasMergeBacklog();
+    }
 }
@@ -23,6 +23,9 @@ import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
@@ -34,29 +37,65 @@ import java.util.concurrent.atomic.AtomicLong;
 /** Maps _uid value to its version information. */
 class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
+    /** Holds the version of each uid in the current or old map. Implementations must support concurrent access. */
+    interface VersionTable extends Releasable {
+
+        /** Returns the version of this uid, or <code>null</code> if it has none. */
+        VersionValue get(BytesRef uid);
+
+        /** Sets the version of this uid and returns the previous one, or <code>null</code> if it had none. */
+        VersionValue put(BytesRef uid, VersionValue version);
+
+        /** Returns the RAM used by this table, or 0 if it is accounted for by {@link LiveVersionMap} itself. */
+        long ramBytesUsed();
+    }
+
+    /** The default table backed by a concurrent hash map, whose RAM usage is estimated by {@link LiveVersionMap} on each put. */
+    private static final class ConcurrentVersionTable implements VersionTable {
+
+        private final Map<BytesRef,VersionValue> map = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+        @Override
+        public VersionValue get(BytesRef uid) {
+            return map.get(uid);
+        }
+
+        @Override
+        public VersionValue put(BytesRef uid, VersionValue version) {
+            return map.put(uid, version);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static class Maps {
 
         // All writes (adds and deletes) go into here:
-        final Map<BytesRef,VersionValue> current;
+        final VersionTable current;
 
         // Used while refresh is running, and to hold adds/deletes until refresh finishes.  We read from both current and old on lookup:
-        final Map<BytesRef,VersionValue> old;
+        final VersionTable old;
       
-        public Maps(Map<BytesRef,VersionValue> current, Map<BytesRef,VersionValue> old) {
+        public Maps(VersionTable current, VersionTable old) {
            this.current = current;
            this.old = old;
         }
-
-        public Maps() {
-            this(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(),
-                 ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
-        }
     }
 
     // All deletes also go here, and delete "tombstones" are retained after refresh:
     private final Map<BytesRef,VersionValue> tombstones = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
 
-    private volatile Maps maps = new Maps();
+    /** Allocates the pages of the current and old maps, or <code>null</code> if they are held in concurrent hash maps. */
+    private final BigArrays bigArrays;
+
+    private volatile Maps maps;
 
     private ReferenceManager mgr;
 
@@ -86,6 +125,36 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
     /** Tracks bytes used by tombstones (deletes) */
     final AtomicLong ramBytesUsedTombstones = new AtomicLong();
 
+    LiveVersionMap() {
+        this(null);
+    }
+
+    /** Creates a version map whose current and old maps are stored in {@link PagedVersionTable}s if <code>bigArrays</code> is not null. */
+    LiveVersionMap(BigArrays bigArrays) {
+        this.bigArrays = bigArrays;
+        this.maps = newMaps();
+    }
+
+    private VersionTable newTable() {
+        return bigArrays == null ? new ConcurrentVersionTable() : new PagedVersionTable(bigArrays);
+    }
+
+    private Maps newMaps() {
+        return new Maps(newTable(), newTable());
+    }
+
+    /** Replaces the maps and releases the tables that are no longer referenced. */
+    private void swapMaps(Maps newMaps) {
+        final Maps prevMaps = maps;
+        maps = newMaps;
+        if (prevMaps.current != newMaps.current && prevMaps.current != newMaps.old) {
+            Releasables.close(prevMaps.current);
+        }
+        if (prevMaps.old != newMaps.current && prevMaps.old != newMaps.old) {
+            Releasables.close(prevMaps.old);
+        }
+    }
+
     /** Sync'd because we replace old mgr. */
     synchronized void setManager(ReferenceManager newMgr) {
         if (mgr != null) {
@@ -95,7 +164,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
         // In case InternalEngine closes & opens a new IndexWriter/SearcherManager, all deletes are made visible, so we clear old and
         // current here.  This is safe because caller holds writeLock here (so no concurrent adds/deletes can be happeninge):
-        maps = new Maps();
+        swapMaps(newMaps());
 
         // So we are notified when reopen starts and finishes
         mgr.addListener(this);
@@ -107,7 +176,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // map.  While reopen is running, any lookup will first
         // try this new map, then fallback to old, then to the
         // current searcher:
-        maps = new Maps(ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency(), maps.current);
+        swapMaps(new Maps(newTable(), maps.current));
 
         // This is not 100% correct, since concurrent indexing ops can change these counters in between our execution of the previous
         // line and this one, but that should be minor, and the error won't accumulate over time:
@@ -122,7 +191,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
         // case.  This is because we assign new maps (in beforeRefresh) slightly before Lucene actually flushes any segments for the
         // reopen, and so any concurrent indexing requests can still sneak in a few additions to that current map that are in fact reflected
         // in the previous reader.   We don't touch tombstones here: they expire on their own index.gc_deletes timeframe:
-        maps = new Maps(maps.current, ConcurrentCollections.<BytesRef,VersionValue>newConcurrentMapWithAggressiveConcurrency());
+        swapMaps(new Maps(maps.current, newTable()));
     }
 
     /** Returns the live version (add or delete) for this uid. */
@@ -224,7 +293,7 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     /** Called when this index is closed. */
     synchronized void clear() {
-        maps = new Maps();
+        swapMaps(newMaps());
         tombstones.clear();
         ramBytesUsedCurrent.set(0);
 
@@ -241,12 +310,19 @@ class LiveVersionMap implements ReferenceManager.RefreshListener, Accountable {
 
     @Override
     public long ramBytesUsed() {
+        if (bigArrays != null) {
+            final Maps currentMaps = maps;
+            return currentMaps.current.ramBytesUsed() + currentMaps.old.ramBytesUsed() + ramBytesUsedTombstones.get();
+        }
         return ramBytesUsedCurrent.get() + ramBytesUsedTombstones.get();
     }
 
     /** Returns how much RAM would be freed up by refreshing. This is {@link ramBytesUsed} except does not include tombstones because they
      *  don't clear on refresh. */
     long ramBytesUsedForRefresh() {
+        if (bigArrays != null) {
+            return maps.current.ramBytesUsed();
+        }
         return ramBytesUsedCurrent.get();
     }
 
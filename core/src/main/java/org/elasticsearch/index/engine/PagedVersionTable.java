@@ -0,0 +1,211 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.index.translog.Translog;
+
+/**
+ * A {@link LiveVersionMap.VersionTable} that keeps uids and their version information in paged arrays allocated
+ * from {@link BigArrays} rather than in {@link VersionValue} objects held by a concurrent hash map. Uids are
+ * stored in an open-addressing {@link BytesRefHash} and the version, delete time and translog location of each
+ * uid live in parallel primitive arrays, so that an entry costs a few dozen bytes and no objects. The table is
+ * split into segments that are locked independently so that indexing threads working on different uids rarely
+ * contend.
+ * <p>
+ * Once closed, lookups return <code>null</code> and puts are ignored: the table is only closed after a refresh
+ * made its operations visible to the searcher, or when the engine drops its maps altogether.
+ */
+final class PagedVersionTable implements LiveVersionMap.VersionTable {
+
+    private static final int SEGMENT_BITS = 4;
+    private static final int NUM_SEGMENTS = 1 << SEGMENT_BITS;
+    private static final long INITIAL_CAPACITY = 16;
+
+    /** Stored as the delete time of entries that are not deletes. */
+    private static final long NOT_DELETED = Long.MIN_VALUE;
+
+    /** Stored as the size of entries that have no translog location. */
+    private static final int NO_LOCATION = -1;
+
+    private final Segment[] segments;
+
+    PagedVersionTable(BigArrays bigArrays) {
+        segments = new Segment[NUM_SEGMENTS];
+        boolean success = false;
+        try {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(bigArrays);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                Releasables.close(segments);
+            }
+        }
+    }
+
+    private Segment segment(BytesRef uid) {
+        // the hash uses the low bits of the mixed hash code to pick a slot, so we pick the segment from the high bits
+        return segments[BitMixer.mix32(uid.hashCode()) >>> (Integer.SIZE - SEGMENT_BITS)];
+    }
+
+    @Override
+    public VersionValue get(BytesRef uid) {
+        return segment(uid).get(uid);
+    }
+
+    @Override
+    public VersionValue put(BytesRef uid, VersionValue version) {
+        return segment(uid).put(uid, version);
+    }
+
+    /** Returns the number of uids in this table. */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        long ramBytesUsed = 0;
+        for (Segment segment : segments) {
+            ramBytesUsed += segment.ramBytesUsed;
+        }
+        return ramBytesUsed;
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(segments);
+    }
+
+    private static final class Segment implements Releasable {
+
+        private final BigArrays bigArrays;
+        private BytesRefHash uids;
+        private LongArray versions;
+        private LongArray times;
+        private LongArray generations;
+        private LongArray translogLocations;
+        private IntArray sizes;
+        private boolean closed;
+        private volatile long ramBytesUsed;
+
+        Segment(BigArrays bigArrays) {
+            this.bigArrays = bigArrays;
+            boolean success = false;
+            try {
+                uids = new BytesRefHash(INITIAL_CAPACITY, bigArrays);
+                versions = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                times = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                generations = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                translogLocations = bigArrays.newLongArray(INITIAL_CAPACITY, false);
+                sizes = bigArrays.newIntArray(INITIAL_CAPACITY, false);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+            updateRamBytesUsed();
+        }
+
+        synchronized VersionValue get(BytesRef uid) {
+            if (closed) {
+                return null;
+            }
+            final long id = uids.find(uid);
+            return id < 0 ? null : read(id);
+        }
+
+        synchronized VersionValue put(BytesRef uid, VersionValue version) {
+            if (closed) {
+                return null;
+            }
+            long id = uids.add(uid);
+            final VersionValue prev;
+            if (id < 0) {
+                id = -1 - id;
+                prev = read(id);
+            } else {
+                prev = null;
+                versions = bigArrays.grow(versions, id + 1);
+                times = bigArrays.grow(times, id + 1);
+                generations = bigArrays.grow(generations, id + 1);
+                translogLocations = bigArrays.grow(translogLocations, id + 1);
+                sizes = bigArrays.grow(sizes, id + 1);
+            }
+            versions.set(id, version.version());
+            times.set(id, version.delete() ? version.time() : NOT_DELETED);
+            final Translog.Location location = version.translogLocation();
+            if (location == null) {
+                sizes.set(id, NO_LOCATION);
+            } else {
+                generations.set(id, location.generation);
+                translogLocations.set(id, location.translogLocation);
+                sizes.set(id, location.size);
+            }
+            if (prev == null) {
+                updateRamBytesUsed();
+            }
+            return prev;
+        }
+
+        private VersionValue read(long id) {
+            final int size = sizes.get(id);
+            final Translog.Location location = size == NO_LOCATION ? null
+                : new Translog.Location(generations.get(id), translogLocations.get(id), size);
+            final long time = times.get(id);
+            if (time == NOT_DELETED) {
+                return new VersionValue(versions.get(id), location);
+            }
+            return new DeleteVersionValue(versions.get(id), time, location);
+        }
+
+        private void updateRamBytesUsed() {
+            ramBytesUsed = uids.ramBytesUsed() + versions.ramBytesUsed() + times.ramBytesUsed() + generations.ramBytesUsed()
+                + translogLocations.ramBytesUsed() + sizes.ramBytesUsed();
+        }
+
+        synchronized long size() {
+            return closed ? 0 : uids.size();
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed == false) {
+                closed = true;
+                ramBytesUsed = 0;
+                Releasables.close(uids, versions, times, generations, translogLocations, sizes);
+            }
+        }
+    }
+}
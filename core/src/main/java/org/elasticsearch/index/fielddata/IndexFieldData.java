@@ -207,6 +207,14 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
 
         public abstract SortField.Type reducedType();
 
+        /**
+         * Returns <code>true</code> if this source orders documents like an index sort on the same field: by the minimum value in
+         * ascending order and by the maximum value in descending order, with missing values last and without nested documents.
+         */
+        public boolean sortsLikeIndexSort(boolean reversed) {
+            return false;
+        }
+
         /**
          * Return a missing value that is understandable by {@link SortField#setMissingValue(Object)}.
          * Most implementations return null because they already replace the value at the fielddata level.
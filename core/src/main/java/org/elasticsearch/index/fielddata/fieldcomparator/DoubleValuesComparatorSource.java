@@ -57,6 +57,11 @@ public class DoubleValuesComparatorSource extends IndexFieldData.XFieldComparato
         return SortField.Type.DOUBLE;
     }
 
+    @Override
+    public boolean sortsLikeIndexSort(boolean reversed) {
+        return nested == null && sortMissingLast(missingValue) && sortMode == (reversed ? MultiValueMode.MAX : MultiValueMode.MIN);
+    }
+
     protected SortedNumericDoubleValues getValues(LeafReaderContext context) throws IOException {
         return indexFieldData.load(context).getDoubleValues();
     }
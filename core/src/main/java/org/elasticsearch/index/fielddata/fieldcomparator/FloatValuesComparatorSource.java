@@ -55,6 +55,11 @@ public class FloatValuesComparatorSource extends IndexFieldData.XFieldComparator
         return SortField.Type.FLOAT;
     }
 
+    @Override
+    public boolean sortsLikeIndexSort(boolean reversed) {
+        return nested == null && sortMissingLast(missingValue) && sortMode == (reversed ? MultiValueMode.MAX : MultiValueMode.MIN);
+    }
+
     @Override
     public FieldComparator<?> newComparator(String fieldname, int numHits, int sortPos, boolean reversed) throws IOException {
         assert indexFieldData == null || fieldname.equals(indexFieldData.getFieldName());
@@ -54,6 +54,11 @@ public class LongValuesComparatorSource extends IndexFieldData.XFieldComparatorS
         return SortField.Type.LONG;
     }
 
+    @Override
+    public boolean sortsLikeIndexSort(boolean reversed) {
+        return nested == null && sortMissingLast(missingValue) && sortMode == (reversed ? MultiValueMode.MAX : MultiValueMode.MIN);
+    }
+
     @Override
     public FieldComparator<?> newComparator(String fieldname, int numHits, int sortPos, boolean reversed) throws IOException {
         assert indexFieldData == null || fieldname.equals(indexFieldData.getFieldName());
@@ -284,6 +284,11 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         }
         fullPathObjectMappers = Collections.unmodifiableMap(fullPathObjectMappers);
 
+        if (hasNested && indexSettings.getIndexSortConfig().hasIndexSort()) {
+            // sorting the documents of merged segments would separate nested documents from their parent document
+            throw new IllegalArgumentException("cannot have nested fields when index sort is activated");
+        }
+
         if (reason == MergeReason.MAPPING_UPDATE) {
             // this check will only be performed on the master node when there is
             // a call to the update mapping API. For all other cases like
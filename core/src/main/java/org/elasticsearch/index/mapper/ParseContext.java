@@ -55,17 +55,29 @@ public abstract class ParseContext {
         private final List<IndexableField> fields;
         private ObjectObjectMap<Object, IndexableField> keyedFields;
 
-        private Document(String path, Document parent) {
-            fields = new ArrayList<>();
+        private Document(String path, Document parent, int expectedFields) {
+            fields = new ArrayList<>(expectedFields);
             this.path = path;
             this.prefix = path.isEmpty() ? "" : path + ".";
             this.parent = parent;
         }
 
+        private Document(String path, Document parent) {
+            this(path, parent, 10);
+        }
+
         public Document() {
             this("", null);
         }
 
+        /**
+         * Creates a root document whose list of fields is sized to hold <code>expectedFields</code> fields
+         * without having to grow.
+         */
+        public Document(int expectedFields) {
+            this("", null, expectedFields);
+        }
+
         /**
          * Return the path associated with this document.
          */
@@ -369,7 +381,11 @@ public abstract class ParseContext {
 
         private AllEntries allEntries = new AllEntries();
 
-        private List<Mapper> dynamicMappers = new ArrayList<>();
+        private final List<Mapper> dynamicMappers = new ArrayList<>();
+
+        private Document rootDocument;
+
+        private int lastRootDocumentFields = 0;
 
         public InternalParseContext(@Nullable Settings indexSettings, DocumentMapperParser docMapperParser, DocumentMapper docMapper, ContentPath path) {
             this.indexSettings = indexSettings;
@@ -379,13 +395,20 @@ public abstract class ParseContext {
         }
 
         public void reset(XContentParser parser, Document document, SourceToParse source) {
+            if (rootDocument != null) {
+                lastRootDocumentFields = rootDocument.getFields().size();
+            }
             this.parser = parser;
             this.document = document;
+            this.rootDocument = document;
             if (document != null) {
-                this.documents = new ArrayList<>();
+                this.documents = new ArrayList<>(1);
                 this.documents.add(document);
+                // the entries end up in the _all field of the parsed document so they can't be shared across documents
+                this.allEntries = new AllEntries();
             } else {
                 this.documents = null;
+                this.allEntries = null;
             }
             this.uid = null;
             this.version = null;
@@ -393,8 +416,15 @@ public abstract class ParseContext {
             this.sourceToParse = source;
             this.source = source == null ? null : sourceToParse.source();
             this.path.reset();
-            this.allEntries = new AllEntries();
-            this.dynamicMappers = new ArrayList<>();
+            this.dynamicMappers.clear();
+        }
+
+        /**
+         * Creates the root document of the next document to parse with this context, sized after the root document of the
+         * previous one since documents of a type usually have a similar number of fields.
+         */
+        public Document newRootDocument() {
+            return new Document(Math.max(10, lastRootDocumentFields));
         }
 
         @Override
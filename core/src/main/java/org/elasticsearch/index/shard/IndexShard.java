@@ -25,6 +25,7 @@ import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
 import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.util.IOUtils;
@@ -33,6 +34,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.indices.flush.FlushRequest;
 import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
 import org.elasticsearch.action.admin.indices.upgrade.post.UpgradeRequest;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
@@ -152,6 +154,16 @@ public class IndexShard extends AbstractIndexShardComponent {
      */
     private final AtomicLong writingBytes = new AtomicLong();
 
+    /** When adaptive refresh slows down refreshes while merges fall behind, this is the multiplier applied to the refresh interval */
+    static final int MERGE_BACKLOG_REFRESH_INTERVAL_MULTIPLIER = 4;
+
+    /** Last time (System.nanoTime) a search acquired a searcher on this shard */
+    private volatile long lastSearcherAccessNanos = System.nanoTime();
+    /** Last time (System.nanoTime) this shard was refreshed by the scheduled refresh or by a search */
+    private volatile long lastScheduledRefreshNanos = System.nanoTime();
+    /** Set when adaptive refresh skipped the scheduled refresh of a search idle shard, which the next search then executes */
+    private final AtomicBoolean pendingRefresh = new AtomicBoolean();
+
     protected volatile ShardRouting shardRouting;
     protected volatile IndexShardState state;
     protected volatile long primaryTerm;
@@ -322,6 +334,14 @@ public class IndexShard extends AbstractIndexShardComponent {
         return this.engineConfig.getQueryCachingPolicy();
     }
 
+    /**
+     * Returns the sort of the documents of merged segments or <code>null</code> if the index isn't sorted.
+     */
+    @Nullable
+    public Sort getIndexSort() {
+        return this.engineConfig.getIndexSort();
+    }
+
     /**
      * Updates the shards routing entry. This mutate the shards internal state depending
      * on the changes that get introduced by the new routing value. This method will persist shard level metadata
@@ -448,10 +468,12 @@ public class IndexShard extends AbstractIndexShardComponent {
         return previousState;
     }
 
-    public Engine.Index prepareIndexOnPrimary(SourceToParse source, long version, VersionType versionType) {
+    public Engine.Index prepareIndexOnPrimary(SourceToParse source, long version, VersionType versionType, long autoGeneratedIdTimestamp,
+                                              boolean isRetry) {
         try {
             verifyPrimary();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.PRIMARY);
+            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.PRIMARY,
+                autoGeneratedIdTimestamp, isRetry);
         } catch (Throwable t) {
             verifyNotClosed(t);
             throw t;
@@ -461,7 +483,8 @@ public class IndexShard extends AbstractIndexShardComponent {
     public Engine.Index prepareIndexOnReplica(SourceToParse source, long version, VersionType versionType) {
         try {
             verifyReplicationTarget();
-            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.REPLICA);
+            return prepareIndex(docMapper(source.type()), source, version, versionType, Engine.Operation.Origin.REPLICA,
+                IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false);
         } catch (Throwable t) {
             verifyNotClosed(t);
             throw t;
@@ -469,12 +492,18 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long version, VersionType versionType, Engine.Operation.Origin origin) {
+        return prepareIndex(docMapper, source, version, versionType, origin, IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP, false);
+    }
+
+    static Engine.Index prepareIndex(DocumentMapperForType docMapper, SourceToParse source, long version, VersionType versionType,
+                                     Engine.Operation.Origin origin, long autoGeneratedIdTimestamp, boolean isRetry) {
         long startTime = System.nanoTime();
         ParsedDocument doc = docMapper.getDocumentMapper().parse(source);
         if (docMapper.getMapping() != null) {
             doc.addDynamicMappingsUpdate(docMapper.getMapping());
         }
-        return new Engine.Index(docMapper.getDocumentMapper().uidMapper().term(doc.uid().stringValue()), doc, version, versionType, origin, startTime);
+        return new Engine.Index(docMapper.getDocumentMapper().uidMapper().term(doc.uid().stringValue()), doc, version, versionType, origin,
+            startTime, autoGeneratedIdTimestamp, isRetry);
     }
 
     /**
@@ -503,6 +532,47 @@ public class IndexShard extends AbstractIndexShardComponent {
         return created;
     }
 
+    /**
+     * Indexes a batch of documents with a single call to the engine and returns the outcome of each operation, in order. The
+     * operations are updated with their version and translog location like with {@link #index(Engine.Index)}.
+     */
+    public List<Engine.IndexResult> index(List<Engine.Index> operations) {
+        // reject the batch before any listener sees an operation, listeners must see the end of every operation they saw start
+        for (Engine.Index index : operations) {
+            ensureWriteAllowed(index);
+        }
+        final List<Engine.Index> indices = new ArrayList<>(operations.size());
+        for (Engine.Index index : operations) {
+            indices.add(indexingOperationListeners.preIndex(index));
+        }
+        active.set(true);
+        final List<Engine.IndexResult> results;
+        try {
+            if (logger.isTraceEnabled()) {
+                logger.trace("index batch of [{}] operations", indices.size());
+            }
+            Engine engine = getEngine();
+            results = engine.index(indices);
+        } catch (Throwable ex) {
+            for (Engine.Index index : indices) {
+                indexingOperationListeners.postIndex(index, ex);
+            }
+            throw ex;
+        }
+        final long endTime = System.nanoTime();
+        for (int i = 0; i < indices.size(); i++) {
+            final Engine.Index index = indices.get(i);
+            final Engine.IndexResult result = results.get(i);
+            if (result.hasFailure()) {
+                indexingOperationListeners.postIndex(index, result.getFailure());
+            } else {
+                index.endTime(endTime);
+                indexingOperationListeners.postIndex(index);
+            }
+        }
+        return results;
+    }
+
     public Engine.Delete prepareDeleteOnPrimary(String type, String id, long version, VersionType versionType) {
         verifyPrimary();
         final DocumentMapper documentMapper = docMapper(type).getDocumentMapper();
@@ -1120,6 +1190,22 @@ public class IndexShard extends AbstractIndexShardComponent {
         return indexEventListener;
     }
 
+    /**
+     * Returns how many translog bytes were written by successful index and delete operations on this shard. Used by
+     * {@link IndexingMemoryController} to measure the indexing rate of the shard.
+     */
+    public long getIndexingBytes() {
+        return internalIndexingStats.bytesIndexed();
+    }
+
+    /**
+     * Called by {@link IndexingMemoryController} to record the share of the node's indexing buffer that it allocated to
+     * this shard, which is reported in the shard's indexing stats.
+     */
+    public void indexBufferAllocation(long allocatedBytes, long indexingRateBytesPerSec) {
+        internalIndexingStats.indexBufferAllocation(allocatedBytes, indexingRateBytesPerSec);
+    }
+
     public void activateThrottling() {
         try {
             getEngine().activateThrottling();
@@ -1166,6 +1252,7 @@ public class IndexShard extends AbstractIndexShardComponent {
         if (canIndex() == false) {
             throw new UnsupportedOperationException();
         }
+        internalIndexingStats.indexBufferWritten();
         try {
             Engine engine = getEngine();
             long bytes = engine.getIndexBufferRAMBytesUsed();
@@ -1364,7 +1451,8 @@ public class IndexShard extends AbstractIndexShardComponent {
     }
 
     private final EngineConfig newEngineConfig(TranslogConfig translogConfig, QueryCachingPolicy cachingPolicy) {
-        final TranslogRecoveryPerformer translogRecoveryPerformer = new TranslogRecoveryPerformer(shardId, mapperService, logger) {
+        final TranslogRecoveryPerformer translogRecoveryPerformer = new TranslogRecoveryPerformer(shardId, mapperService, logger,
+            threadPool.generic(), indexSettings.getTranslogRecoveryThreads()) {
             @Override
             protected void operationProcessed() {
                 assert recoveryState != null;
@@ -1382,6 +1470,7 @@ public class IndexShard extends AbstractIndexShardComponent {
         };
         return new EngineConfig(shardId,
             threadPool, indexSettings, warmer, store, deletionPolicy, indexSettings.getMergePolicy(),
+            indexSettings.getIndexSortConfig().buildIndexSort(mapperService::fullName),
             mapperService.indexAnalyzer(), similarityService.similarity(mapperService), codecService, shardEventListener, translogRecoveryPerformer, indexCache.query(), cachingPolicy, translogConfig,
             indexSettings.getSettings().getAsTime(IndexingMemoryController.SHARD_INACTIVE_TIME_SETTING, IndexingMemoryController.SHARD_DEFAULT_INACTIVE_TIME));
     }
@@ -1514,4 +1603,73 @@ public class IndexShard extends AbstractIndexShardComponent {
         return getEngine().refreshNeeded();
     }
 
+    /**
+     * Executes a scheduled refresh if the shard has changes that are not visible yet. If adaptive refresh is enabled, the
+     * refresh is skipped if the shard wasn't searched for {@link IndexSettings#getSearchIdleAfter()}, in which case the next
+     * search executes it, see {@link #onSearch()}. It is also skipped if merges are falling behind and the shard was refreshed
+     * within the last {@value #MERGE_BACKLOG_REFRESH_INTERVAL_MULTIPLIER} refresh intervals, in which case a later scheduled
+     * refresh executes it.
+     *
+     * @return <code>true</code> if the shard was refreshed
+     * @throws EngineClosedException  if the engine is already closed
+     * @throws AlreadyClosedException if the internal indexwriter in the engine is already closed
+     */
+    public boolean scheduledRefresh() {
+        if (isRefreshNeeded() == false) {
+            return false;
+        }
+        final long now = System.nanoTime();
+        if (indexSettings.isAdaptiveRefresh()) {
+            if (isSearchIdle(now)) {
+                logger.trace("skipping scheduled refresh, shard is search idle");
+                pendingRefresh.set(true);
+                return false;
+            }
+            final long stretchedIntervalNanos = indexSettings.getRefreshInterval().nanos() * MERGE_BACKLOG_REFRESH_INTERVAL_MULTIPLIER;
+            if (getEngine().hasMergeBacklog() && now - lastScheduledRefreshNanos < stretchedIntervalNanos) {
+                // searches don't execute this refresh, otherwise shards that are searched wouldn't refresh any less
+                logger.trace("skipping scheduled refresh, merges are falling behind");
+                return false;
+            }
+        }
+        lastScheduledRefreshNanos = now;
+        pendingRefresh.set(false);
+        refresh("schedule");
+        return true;
+    }
+
+    /**
+     * Called before a search acquires a searcher on this shard. Marks the shard as searched and executes the scheduled refresh
+     * that adaptive refresh skipped while the shard was search idle, if any. Only one of the searches that arrive concurrently
+     * executes it.
+     */
+    public void onSearch() {
+        lastSearcherAccessNanos = System.nanoTime();
+        if (pendingRefresh.get()) {
+            readAllowed();
+            if (pendingRefresh.compareAndSet(true, false)) {
+                lastScheduledRefreshNanos = System.nanoTime();
+                refresh("search");
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this shard wasn't searched for {@link IndexSettings#getSearchIdleAfter()}
+     */
+    public boolean isSearchIdle() {
+        return isSearchIdle(System.nanoTime());
+    }
+
+    private boolean isSearchIdle(long nowNanos) {
+        return nowNanos - lastSearcherAccessNanos >= indexSettings.getSearchIdleAfter().nanos();
+    }
+
+    /**
+     * Returns <code>true</code> if adaptive refresh skipped a scheduled refresh that wasn't executed yet
+     */
+    public boolean hasPendingRefresh() {
+        return pendingRefresh.get();
+    }
+
 }
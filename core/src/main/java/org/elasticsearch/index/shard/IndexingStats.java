@@ -24,6 +24,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -49,10 +50,20 @@ public class IndexingStats implements Streamable, ToXContent {
         private long noopUpdateCount;
         private long throttleTimeInMillis;
         private boolean isThrottled;
+        private long indexBufferAllocatedInBytes;
+        private long indexingRateInBytesPerSec;
+        private long indexBufferWriteCount;
 
         Stats() {}
 
         public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount, long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis) {
+            this(indexCount, indexTimeInMillis, indexCurrent, indexFailedCount, deleteCount, deleteTimeInMillis, deleteCurrent,
+                noopUpdateCount, isThrottled, throttleTimeInMillis, 0, 0, 0);
+        }
+
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long indexFailedCount, long deleteCount,
+                     long deleteTimeInMillis, long deleteCurrent, long noopUpdateCount, boolean isThrottled, long throttleTimeInMillis,
+                     long indexBufferAllocatedInBytes, long indexingRateInBytesPerSec, long indexBufferWriteCount) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
@@ -63,6 +74,9 @@ public class IndexingStats implements Streamable, ToXContent {
             this.noopUpdateCount = noopUpdateCount;
             this.isThrottled = isThrottled;
             this.throttleTimeInMillis = throttleTimeInMillis;
+            this.indexBufferAllocatedInBytes = indexBufferAllocatedInBytes;
+            this.indexingRateInBytesPerSec = indexingRateInBytesPerSec;
+            this.indexBufferWriteCount = indexBufferWriteCount;
         }
 
         public void add(Stats stats) {
@@ -80,6 +94,9 @@ public class IndexingStats implements Streamable, ToXContent {
             if (isThrottled != stats.isThrottled) {
                 isThrottled = true; //When combining if one is throttled set result to throttled.
             }
+            indexBufferAllocatedInBytes += stats.indexBufferAllocatedInBytes;
+            indexingRateInBytesPerSec += stats.indexingRateInBytesPerSec;
+            indexBufferWriteCount += stats.indexBufferWriteCount;
         }
 
         /**
@@ -135,6 +152,28 @@ public class IndexingStats implements Streamable, ToXContent {
             return noopUpdateCount;
         }
 
+        /**
+         * Returns the share of the node's indexing buffer that the indexing memory controller allocated based on the recent
+         * indexing rate
+         */
+        public ByteSizeValue getIndexBufferAllocated() {
+            return new ByteSizeValue(indexBufferAllocatedInBytes);
+        }
+
+        /**
+         * Returns the recent indexing rate, in translog bytes per second, as measured by the indexing memory controller
+         */
+        public long getIndexingRateInBytesPerSec() {
+            return indexingRateInBytesPerSec;
+        }
+
+        /**
+         * Returns how many times the indexing memory controller wrote the indexing buffer to disk to free up heap
+         */
+        public long getIndexBufferWriteCount() {
+            return indexBufferWriteCount;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -157,6 +196,9 @@ public class IndexingStats implements Streamable, ToXContent {
             noopUpdateCount = in.readVLong();
             isThrottled = in.readBoolean();
             throttleTimeInMillis = in.readLong();
+            indexBufferAllocatedInBytes = in.readVLong();
+            indexingRateInBytesPerSec = in.readVLong();
+            indexBufferWriteCount = in.readVLong();
         }
 
         @Override
@@ -175,6 +217,9 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(noopUpdateCount);
             out.writeBoolean(isThrottled);
             out.writeLong(throttleTimeInMillis);
+            out.writeVLong(indexBufferAllocatedInBytes);
+            out.writeVLong(indexingRateInBytesPerSec);
+            out.writeVLong(indexBufferWriteCount);
 
         }
 
@@ -193,6 +238,10 @@ public class IndexingStats implements Streamable, ToXContent {
 
             builder.field(Fields.IS_THROTTLED, isThrottled);
             builder.timeValueField(Fields.THROTTLED_TIME_IN_MILLIS, Fields.THROTTLED_TIME, throttleTimeInMillis);
+
+            builder.byteSizeField(Fields.INDEX_BUFFER_ALLOCATED_IN_BYTES, Fields.INDEX_BUFFER_ALLOCATED, indexBufferAllocatedInBytes);
+            builder.field(Fields.INDEXING_RATE_IN_BYTES_PER_SEC, indexingRateInBytesPerSec);
+            builder.field(Fields.INDEX_BUFFER_WRITES, indexBufferWriteCount);
             return builder;
         }
     }
@@ -284,6 +333,10 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString IS_THROTTLED = new XContentBuilderString("is_throttled");
         static final XContentBuilderString THROTTLED_TIME_IN_MILLIS = new XContentBuilderString("throttle_time_in_millis");
         static final XContentBuilderString THROTTLED_TIME = new XContentBuilderString("throttle_time");
+        static final XContentBuilderString INDEX_BUFFER_ALLOCATED = new XContentBuilderString("index_buffer_allocated");
+        static final XContentBuilderString INDEX_BUFFER_ALLOCATED_IN_BYTES = new XContentBuilderString("index_buffer_allocated_in_bytes");
+        static final XContentBuilderString INDEXING_RATE_IN_BYTES_PER_SEC = new XContentBuilderString("indexing_rate_in_bytes_per_sec");
+        static final XContentBuilderString INDEX_BUFFER_WRITES = new XContentBuilderString("index_buffer_writes");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
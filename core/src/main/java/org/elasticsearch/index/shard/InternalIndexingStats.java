@@ -38,6 +38,10 @@ import static java.util.Collections.emptyMap;
 final class InternalIndexingStats implements IndexingOperationListener {
     private final StatsHolder totalStats = new StatsHolder();
     private volatile Map<String, StatsHolder> typesStats = emptyMap();
+    private final CounterMetric bytesIndexed = new CounterMetric();
+    private final CounterMetric indexBufferWrites = new CounterMetric();
+    private volatile long indexBufferAllocatedBytes;
+    private volatile long indexingRateBytesPerSec;
 
     /**
      * Returns the stats, including type specific stats. If the types are null/0 length, then nothing
@@ -45,7 +49,8 @@ final class InternalIndexingStats implements IndexingOperationListener {
      * <tt>_all</tt> for all types.
      */
     IndexingStats stats(boolean isThrottled, long currentThrottleInMillis, String... types) {
-        IndexingStats.Stats total = totalStats.stats(isThrottled, currentThrottleInMillis);
+        IndexingStats.Stats total = totalStats.stats(isThrottled, currentThrottleInMillis, indexBufferAllocatedBytes,
+            indexingRateBytesPerSec, indexBufferWrites.count());
         Map<String, IndexingStats.Stats> typesSt = null;
         if (types != null && types.length > 0) {
             typesSt = new HashMap<>(typesStats.size());
@@ -73,6 +78,9 @@ final class InternalIndexingStats implements IndexingOperationListener {
 
     @Override
     public void postIndex(Engine.Index index) {
+        if (index.getTranslogLocation() != null) {
+            bytesIndexed.inc(index.getTranslogLocation().size);
+        }
         long took = index.endTime() - index.startTime();
         totalStats.indexMetric.inc(took);
         totalStats.indexCurrent.dec();
@@ -98,6 +106,9 @@ final class InternalIndexingStats implements IndexingOperationListener {
 
     @Override
     public void postDelete(Engine.Delete delete) {
+        if (delete.getTranslogLocation() != null) {
+            bytesIndexed.inc(delete.getTranslogLocation().size);
+        }
         long took = delete.endTime() - delete.startTime();
         totalStats.deleteMetric.inc(took);
         totalStats.deleteCurrent.dec();
@@ -117,6 +128,22 @@ final class InternalIndexingStats implements IndexingOperationListener {
         typeStats(type).noopUpdates.inc();
     }
 
+    /** Returns the number of translog bytes written by successful index and delete operations */
+    long bytesIndexed() {
+        return bytesIndexed.count();
+    }
+
+    /** Records the share of the node's indexing buffer that was allocated to this shard, based on its indexing rate */
+    void indexBufferAllocation(long allocatedBytes, long indexingRateBytesPerSec) {
+        this.indexBufferAllocatedBytes = allocatedBytes;
+        this.indexingRateBytesPerSec = indexingRateBytesPerSec;
+    }
+
+    /** Records that the indexing buffer of this shard is written to disk to free up heap */
+    void indexBufferWritten() {
+        indexBufferWrites.inc();
+    }
+
     private StatsHolder typeStats(String type) {
         StatsHolder stats = typesStats.get(type);
         if (stats == null) {
@@ -140,10 +167,16 @@ final class InternalIndexingStats implements IndexingOperationListener {
         private final CounterMetric noopUpdates = new CounterMetric();
 
         IndexingStats.Stats stats(boolean isThrottled, long currentThrottleMillis) {
+            return stats(isThrottled, currentThrottleMillis, 0, 0, 0);
+        }
+
+        IndexingStats.Stats stats(boolean isThrottled, long currentThrottleMillis, long indexBufferAllocatedBytes,
+                                  long indexingRateBytesPerSec, long indexBufferWrites) {
             return new IndexingStats.Stats(
                 indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(), indexFailed.count(),
                 deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
-                noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis));
+                noopUpdates.count(), isThrottled, TimeUnit.MILLISECONDS.toMillis(currentThrottleMillis),
+                indexBufferAllocatedBytes, indexingRateBytesPerSec, indexBufferWrites);
         }
 
         void clear() {
@@ -19,6 +19,7 @@
 package org.elasticsearch.index.shard;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.logging.ESLogger;
@@ -33,8 +34,16 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.rest.RestStatus;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -43,15 +52,39 @@ import static org.elasticsearch.index.mapper.SourceToParse.source;
  * indexing operation including source parsing and field creation from the source.
  */
 public class TranslogRecoveryPerformer {
+    /** The number of operations that may be queued for each replay thread before reading the snapshot blocks. */
+    static final int REPLAY_QUEUE_SIZE = 1024;
+    /** Marks the end of the snapshot in the queues of the replay threads, compared by identity. */
+    private static final Translog.Operation END_OF_SNAPSHOT = new Translog.Delete();
+
     private final MapperService mapperService;
     private final ESLogger logger;
     private final Map<String, Mapping> recoveredTypes = new HashMap<>();
     private final ShardId shardId;
+    private final Executor executor;
+    private final int replayThreads;
 
     protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger) {
+        this(shardId, mapperService, logger, null, 1);
+    }
+
+    /**
+     * Creates a recovery performer that replays translog snapshots on <code>replayThreads</code> threads of the given executor.
+     * Operations are partitioned across the threads by uid so that all operations on a document are applied in order.
+     */
+    protected TranslogRecoveryPerformer(ShardId shardId, MapperService mapperService, ESLogger logger, Executor executor,
+                                        int replayThreads) {
+        if (replayThreads < 1) {
+            throw new IllegalArgumentException("replayThreads must be >= 1 but was [" + replayThreads + "]");
+        }
+        if (replayThreads > 1 && executor == null) {
+            throw new IllegalArgumentException("an executor is required to replay on [" + replayThreads + "] threads");
+        }
         this.shardId = shardId;
         this.mapperService = mapperService;
         this.logger = logger;
+        this.executor = executor;
+        this.replayThreads = replayThreads;
     }
 
     protected DocumentMapperForType docMapper(String type) {
@@ -79,24 +112,116 @@ public class TranslogRecoveryPerformer {
     }
 
     public int recoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        if (replayThreads > 1) {
+            return parallelRecoveryFromSnapshot(engine, snapshot);
+        }
         Translog.Operation operation;
         int opsRecovered = 0;
         while ((operation = snapshot.next()) != null) {
-            try {
-                performRecoveryOperation(engine, operation, true);
+            if (recoverOperation(engine, operation)) {
                 opsRecovered++;
-            } catch (ElasticsearchException e) {
-                if (e.status() == RestStatus.BAD_REQUEST) {
-                    // mainly for MapperParsingException and Failure to detect xcontent
-                    logger.info("ignoring recovery of a corrupt translog entry", e);
-                } else {
-                    throw e;
-                }
             }
         }
         return opsRecovered;
     }
 
+    /**
+     * Reads the snapshot on the calling thread and hands every operation to the replay thread that owns its uid. The replay
+     * stops at the first operation that fails to apply and the failure is rethrown once all replay threads are done.
+     */
+    private int parallelRecoveryFromSnapshot(Engine engine, Translog.Snapshot snapshot) throws IOException {
+        final List<BlockingQueue<Translog.Operation>> queues = new ArrayList<>(replayThreads);
+        final AtomicInteger opsRecovered = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(replayThreads);
+        try {
+            try {
+                for (int i = 0; i < replayThreads; i++) {
+                    final BlockingQueue<Translog.Operation> queue = new ArrayBlockingQueue<>(REPLAY_QUEUE_SIZE);
+                    executor.execute(() -> {
+                        try {
+                            Translog.Operation operation;
+                            // we keep draining the queue after a failure so that the reading thread never blocks on it
+                            while ((operation = queue.take()) != END_OF_SNAPSHOT) {
+                                if (failure.get() == null) {
+                                    try {
+                                        if (recoverOperation(engine, operation)) {
+                                            opsRecovered.incrementAndGet();
+                                        }
+                                    } catch (Throwable t) {
+                                        failure.compareAndSet(null, t);
+                                    }
+                                }
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            failure.compareAndSet(null, e);
+                        } finally {
+                            done.countDown();
+                        }
+                    });
+                    // only the queues of workers that were handed to the executor get operations and the end marker
+                    queues.add(queue);
+                }
+                Translog.Operation operation;
+                while (failure.get() == null && (operation = snapshot.next()) != null) {
+                    queues.get(Math.floorMod(uid(operation).hashCode(), replayThreads)).put(operation);
+                }
+            } finally {
+                // also stops the workers that were started if starting the others or reading the snapshot failed
+                for (BlockingQueue<Translog.Operation> queue : queues) {
+                    queue.put(END_OF_SNAPSHOT);
+                }
+                for (int i = queues.size(); i < replayThreads; i++) {
+                    done.countDown();
+                }
+                done.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("interrupted while replaying translog", e);
+        }
+        final Throwable t = failure.get();
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+        return opsRecovered.get();
+    }
+
+    private static String uid(Translog.Operation operation) {
+        switch (operation.opType()) {
+            case INDEX:
+                Translog.Index index = (Translog.Index) operation;
+                return Uid.createUid(index.type(), index.id());
+            case DELETE:
+                return ((Translog.Delete) operation).uid().text();
+            default:
+                throw new IllegalStateException("No operation defined for [" + operation + "]");
+        }
+    }
+
+    /**
+     * Applies a single operation from a snapshot and returns <code>true</code>, or returns <code>false</code> if the operation
+     * is corrupt and was skipped.
+     */
+    private boolean recoverOperation(Engine engine, Translog.Operation operation) {
+        try {
+            performRecoveryOperation(engine, operation, true);
+            return true;
+        } catch (ElasticsearchException e) {
+            if (e.status() == RestStatus.BAD_REQUEST) {
+                // mainly for MapperParsingException and Failure to detect xcontent
+                logger.info("ignoring recovery of a corrupt translog entry", e);
+                return false;
+            } else {
+                throw e;
+            }
+        }
+    }
+
     public static class BatchOperationException extends ElasticsearchException {
 
         private final int completedOperations;
@@ -124,7 +249,7 @@ public class TranslogRecoveryPerformer {
         }
     }
 
-    private void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
+    private synchronized void maybeAddMappingUpdate(String type, Mapping update, String docId, boolean allowMappingUpdates) {
         if (update == null) {
             return;
         }
@@ -206,7 +331,7 @@ public class TranslogRecoveryPerformer {
     /**
      * Returns the recovered types modifying the mapping during the recovery
      */
-    public Map<String, Mapping> getRecoveredTypes() {
+    public synchronized Map<String, Mapping> getRecoveredTypes() {
         return recoveredTypes;
     }
 }
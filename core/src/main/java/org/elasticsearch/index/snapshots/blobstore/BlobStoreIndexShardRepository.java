@@ -67,6 +67,7 @@ import org.elasticsearch.repositories.blobstore.BlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.repositories.blobstore.ChecksumBlobStoreFormat;
 import org.elasticsearch.repositories.blobstore.LegacyBlobStoreFormat;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
@@ -100,6 +101,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private final ClusterService clusterService;
 
+    private final ThreadPool threadPool;
+
     private RateLimiter snapshotRateLimiter;
 
     private RateLimiter restoreRateLimiter;
@@ -112,6 +115,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private boolean compress;
 
+    private int maxConcurrentFileTransfers;
+
     private final ParseFieldMatcher parseFieldMatcher;
 
     protected static final String LEGACY_SNAPSHOT_PREFIX = "snapshot-";
@@ -139,12 +144,14 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
     private ChecksumBlobStoreFormat<BlobStoreIndexShardSnapshots> indexShardSnapshotsFormat;
 
     @Inject
-    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService) {
+    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService,
+                                         ClusterService clusterService, ThreadPool threadPool) {
         super(settings);
         this.parseFieldMatcher = new ParseFieldMatcher(settings);
         this.repositoryName = repositoryName.name();
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.threadPool = threadPool;
     }
 
     /**
@@ -153,10 +160,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
      * @param blobStore blob store
      * @param basePath  base path to blob store
      * @param chunkSize chunk size
+     * @param maxConcurrentFileTransfers maximum number of files of a single shard that are uploaded or downloaded concurrently
      */
     public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
-                           final RateLimiterListener rateLimiterListener, boolean compress) {
+                           final RateLimiterListener rateLimiterListener, boolean compress, int maxConcurrentFileTransfers) {
         this.blobStore = blobStore;
         this.basePath = basePath;
         this.chunkSize = chunkSize;
@@ -166,6 +174,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         this.snapshotThrottleListener = nanos -> rateLimiterListener.onSnapshotPause(nanos);
         this.restoreThrottleListener = nanos -> rateLimiterListener.onRestorePause(nanos);
         this.compress = compress;
+        this.maxConcurrentFileTransfers = maxConcurrentFileTransfers;
         indexShardSnapshotFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_CODEC, SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher, isCompress());
         indexShardSnapshotLegacyFormat = new LegacyBlobStoreFormat<>(LEGACY_SNAPSHOT_NAME_FORMAT, BlobStoreIndexShardSnapshot.PROTO, parseFieldMatcher);
         indexShardSnapshotsFormat = new ChecksumBlobStoreFormat<>(SNAPSHOT_INDEX_CODEC, SNAPSHOT_INDEX_NAME_FORMAT, BlobStoreIndexShardSnapshots.PROTO, parseFieldMatcher, isCompress());
@@ -593,12 +602,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
-                    }
+                try {
+                    ConcurrentFileTransfer.transfer(filesToSnapshot, threadPool.executor(ThreadPool.Names.SNAPSHOT),
+                        maxConcurrentFileTransfers, this::snapshotFile);
+                } catch (IOException e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
                 }
 
                 snapshotStatus.indexVersion(snapshotIndexCommit.getGeneration());
@@ -635,8 +643,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         /**
          * Snapshot individual file
          * <p>
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * Files of the same shard may be snapshotted concurrently, see {@link ConcurrentFileTransfer}
          *
          * @param fileInfo file to be snapshotted
          */
@@ -858,10 +865,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                             index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
                 }
                 try {
-                    for (final FileInfo fileToRecover : filesToRecover) {
-                        logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
-                        restoreFile(fileToRecover);
-                    }
+                    ConcurrentFileTransfer.transfer(filesToRecover, threadPool.executor(ThreadPool.Names.SNAPSHOT),
+                        maxConcurrentFileTransfers, fileToRecover -> {
+                            logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
+                            restoreFile(fileToRecover);
+                        });
                 } catch (IOException ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
                 }
@@ -902,8 +910,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
         /**
          * Restores a file
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * <p>
+         * Files of the same shard may be restored concurrently, see {@link ConcurrentFileTransfer}
          *
          * @param fileInfo file to be restored
          */
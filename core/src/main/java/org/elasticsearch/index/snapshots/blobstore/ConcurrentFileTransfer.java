@@ -0,0 +1,156 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Transfers the files of a single shard snapshot or restore concurrently.
+ * <p>
+ * The calling thread always takes part in the transfer and helper tasks are forked on the given executor, so a saturated
+ * executor (for instance the snapshot thread pool that runs the shard snapshot itself) degrades to a sequential transfer
+ * instead of deadlocking. Helpers that only get to run after the calling thread finished all files are skipped. The first
+ * failure stops the transfer of files that haven't been started yet, later failures are added to it as suppressed exceptions.
+ */
+final class ConcurrentFileTransfer {
+
+    /**
+     * Transfers a single file
+     */
+    interface FileTransfer {
+        void transfer(FileInfo fileInfo) throws IOException;
+    }
+
+    private final Queue<FileInfo> files;
+
+    private final FileTransfer transfer;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // guarded by this
+    private int runningHelpers;
+
+    // guarded by this
+    private boolean closed;
+
+    private ConcurrentFileTransfer(Collection<FileInfo> files, FileTransfer transfer) {
+        this.files = new ConcurrentLinkedQueue<>(files);
+        this.transfer = transfer;
+    }
+
+    /**
+     * Transfers all given files using up to {@code maxConcurrentTransfers} threads, including the calling one, and returns
+     * once all started transfers completed.
+     */
+    static void transfer(Collection<FileInfo> files, Executor executor, int maxConcurrentTransfers, FileTransfer transfer)
+            throws IOException {
+        if (maxConcurrentTransfers <= 1 || files.size() <= 1) {
+            for (FileInfo fileInfo : files) {
+                transfer.transfer(fileInfo);
+            }
+            return;
+        }
+        final ConcurrentFileTransfer fileTransfer = new ConcurrentFileTransfer(files, transfer);
+        final int helpers = Math.min(maxConcurrentTransfers, files.size()) - 1;
+        for (int i = 0; i < helpers; i++) {
+            try {
+                executor.execute(fileTransfer::runHelper);
+            } catch (EsRejectedExecutionException e) {
+                // the calling thread transfers the remaining files on its own
+                break;
+            }
+        }
+        try {
+            fileTransfer.drain();
+        } finally {
+            fileTransfer.awaitHelpers();
+        }
+        fileTransfer.rethrowFailure();
+    }
+
+    private void runHelper() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            runningHelpers++;
+        }
+        try {
+            drain();
+        } finally {
+            synchronized (this) {
+                runningHelpers--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void drain() {
+        FileInfo fileInfo;
+        while (failure.get() == null && (fileInfo = files.poll()) != null) {
+            try {
+                transfer.transfer(fileInfo);
+            } catch (Throwable t) {
+                if (failure.compareAndSet(null, t) == false) {
+                    failure.get().addSuppressed(t);
+                }
+            }
+        }
+    }
+
+    private synchronized void awaitHelpers() {
+        closed = true;
+        boolean interrupted = false;
+        // helpers use the shard's store, we must not return before they are done with it
+        while (runningHelpers > 0) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() throws IOException {
+        final Throwable t = failure.get();
+        if (t == null) {
+            return;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        throw ExceptionsHelper.convertToRuntime(t);
+    }
+}
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.index.translog;
 
+import org.apache.lucene.codecs.compressing.CompressionMode;
+import org.apache.lucene.codecs.compressing.Compressor;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TwoPhaseCommit;
 import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchException;
@@ -30,6 +35,7 @@ import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -117,6 +123,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     // is that is being accessed by two separate classes (additions & reading are done by Translog, remove by View when closed)
     private final Set<View> outstandingViews = ConcurrentCollections.newConcurrentSet();
     private BigArrays bigArrays;
+    private final boolean compressSources;
     protected final ReleasableLock readLock;
     protected final ReleasableLock writeLock;
     private final Path location;
@@ -149,6 +156,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             translogUUID = translogGeneration.translogUUID;
         }
         bigArrays = config.getBigArrays();
+        compressSources = config.getIndexSettings().isTranslogCompressSources();
         ReadWriteLock rwl = new ReentrantReadWriteLock();
         readLock = new ReleasableLock(rwl.readLock());
         writeLock = new ReleasableLock(rwl.writeLock());
@@ -419,7 +427,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
             final long start = out.position();
             out.skip(Integer.BYTES);
-            writeOperationNoSize(checksumStreamOutput, operation);
+            writeOperationNoSize(checksumStreamOutput, operation, compressSources);
             final long end = out.position();
             final int operationSize = (int) (end - Integer.BYTES - start);
             out.seek(start);
@@ -443,6 +451,51 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         }
     }
 
+    /**
+     * Adds the given operations to the transaction log with a single write and returns their locations, in order.
+     *
+     * @see #add(Operation)
+     */
+    public List<Location> add(List<? extends Operation> operations) throws IOException {
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        try {
+            final BufferedChecksumStreamOutput checksumStreamOutput = new BufferedChecksumStreamOutput(out);
+            final long[] offsets = new long[operations.size()];
+            final int[] sizes = new int[operations.size()];
+            for (int i = 0; i < operations.size(); i++) {
+                final long start = out.position();
+                out.skip(Integer.BYTES);
+                writeOperationNoSize(checksumStreamOutput, operations.get(i), compressSources);
+                final long end = out.position();
+                final int operationSize = (int) (end - Integer.BYTES - start);
+                out.seek(start);
+                out.writeInt(operationSize);
+                out.seek(end);
+                offsets[i] = start;
+                sizes[i] = (int) (end - start);
+            }
+            final ReleasablePagedBytesReference bytes = out.bytes();
+            try (ReleasableLock lock = readLock.acquire()) {
+                ensureOpen();
+                final Location location = current.add(bytes, operations.size());
+                assert assertBytesAtLocation(location, bytes);
+                final List<Location> locations = new ArrayList<>(operations.size());
+                for (int i = 0; i < operations.size(); i++) {
+                    locations.add(new Location(location.generation, location.translogLocation + offsets[i], sizes[i]));
+                }
+                return locations;
+            }
+        } catch (AlreadyClosedException | IOException ex) {
+            closeOnTragicEvent(ex);
+            throw ex;
+        } catch (Throwable e) {
+            closeOnTragicEvent(e);
+            throw new TranslogException(shardId, "Failed to write [" + operations.size() + "] operations", e);
+        } finally {
+            Releasables.close(out.bytes());
+        }
+    }
+
     boolean assertBytesAtLocation(Translog.Location location, BytesReference expectedBytes) throws IOException {
         // tests can override this
         ByteBuffer buffer = ByteBuffer.allocate(location.size);
@@ -628,7 +681,7 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
         public final long translogLocation;
         public final int size;
 
-        Location(long generation, long translogLocation, int size) {
+        public Location(long generation, long translogLocation, int size) {
             this.generation = generation;
             this.translogLocation = translogLocation;
             this.size = size;
@@ -764,7 +817,13 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static class Index implements Operation {
-        public static final int SERIALIZATION_FORMAT = 6;
+        public static final int SERIALIZATION_FORMAT = 7;
+
+        /** Sources smaller than this are never compressed since they would hardly shrink. */
+        static final int MIN_COMPRESSED_SOURCE_LENGTH = 256;
+
+        // LZ4 compressors hold a hash table that is worth reusing, but they are not thread-safe
+        private static final ThreadLocal<Compressor> SOURCE_COMPRESSOR = ThreadLocal.withInitial(CompressionMode.FAST::newCompressor);
 
         private String id;
         private String type;
@@ -853,7 +912,11 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             int version = in.readVInt(); // version
             id = in.readString();
             type = in.readString();
-            source = in.readBytesReference();
+            if (version >= 7 && in.readBoolean()) {
+                source = readCompressedSource(in);
+            } else {
+                source = in.readBytesReference();
+            }
             try {
                 if (version >= 1) {
                     if (in.readBoolean()) {
@@ -886,10 +949,27 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
 
         @Override
         public void writeTo(StreamOutput out) throws IOException {
+            writeTo(out, false);
+        }
+
+        /**
+         * Serializes this operation, compressing its source with LZ4 if <code>compressSource</code> is set and the source
+         * is large enough to benefit from it.
+         */
+        void writeTo(StreamOutput out, boolean compressSource) throws IOException {
             out.writeVInt(SERIALIZATION_FORMAT);
             out.writeString(id);
             out.writeString(type);
-            out.writeBytesReference(source);
+            final BytesReference compressed = compressSource && source.length() >= MIN_COMPRESSED_SOURCE_LENGTH
+                ? compressSource(source) : null;
+            if (compressed != null && compressed.length() < source.length()) {
+                out.writeBoolean(true);
+                out.writeVInt(source.length());
+                out.writeBytesReference(compressed);
+            } else {
+                out.writeBoolean(false);
+                out.writeBytesReference(source);
+            }
             if (routing == null) {
                 out.writeBoolean(false);
             } else {
@@ -908,6 +988,22 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
             out.writeByte(versionType.getValue());
         }
 
+        private static BytesReference compressSource(BytesReference source) throws IOException {
+            final BytesRef bytes = source.toBytesRef();
+            final BytesStreamOutput compressed = new BytesStreamOutput(bytes.length);
+            SOURCE_COMPRESSOR.get().compress(bytes.bytes, bytes.offset, bytes.length, new OutputStreamDataOutput(compressed));
+            return compressed.bytes();
+        }
+
+        private static BytesReference readCompressedSource(StreamInput in) throws IOException {
+            final int length = in.readVInt();
+            final BytesRef compressed = in.readBytesReference().toBytesRef();
+            final BytesRef bytes = new BytesRef();
+            final ByteArrayDataInput input = new ByteArrayDataInput(compressed.bytes, compressed.offset, compressed.length);
+            CompressionMode.FAST.newDecompressor().decompress(input, length, 0, length, bytes);
+            return new BytesArray(bytes);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) {
@@ -1161,12 +1257,24 @@ public class Translog extends AbstractIndexShardComponent implements IndexShardC
     }
 
     public static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op) throws IOException {
+        writeOperationNoSize(out, op, false);
+    }
+
+    /**
+     * Writes the given operation, compressing the source of index operations if <code>compressSource</code> is set.
+     * Compressed operations are transparently decompressed by {@link #readOperation(BufferedChecksumStreamInput)}.
+     */
+    static void writeOperationNoSize(BufferedChecksumStreamOutput out, Translog.Operation op, boolean compressSource) throws IOException {
         // This BufferedChecksumStreamOutput remains unclosed on purpose,
         // because closing it closes the underlying stream, which we don't
         // want to do here.
         out.resetDigest();
         out.writeByte(op.opType().id());
-        op.writeTo(out);
+        if (compressSource && op instanceof Index) {
+            ((Index) op).writeTo(out, true);
+        } else {
+            op.writeTo(out);
+        }
         long checksum = out.getChecksum();
         out.writeInt((int) checksum);
     }
@@ -39,8 +39,10 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.Closeable;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -69,6 +71,18 @@ public class IndexingMemoryController extends AbstractComponent implements Index
     /** How frequently we check indexing memory usage (default: 5 seconds). */
     public static final String SHARD_MEMORY_INTERVAL_TIME_SETTING = "indices.memory.interval";
 
+    /**
+     * Whether the indexing buffer is shared across shards in proportion to their recent indexing rate, rather than
+     * writing the largest buffers first (default: true).
+     */
+    public static final String RATE_AWARE_ALLOCATION_SETTING = "indices.memory.rate_aware_allocation";
+
+    /**
+     * Weight of the most recent sample in the exponentially weighted moving average of each shard's indexing rate, for a sample
+     * taken one check interval after the previous one. Samples taken sooner, because enough bytes were written, weigh less.
+     */
+    static final double RATE_EWMA_ALPHA = 0.3;
+
     private final ThreadPool threadPool;
 
     private final IndicesService indicesService;
@@ -77,6 +91,7 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
     private final TimeValue inactiveTime;
     private final TimeValue interval;
+    private final boolean rateAwareAllocation;
 
     /** Contains shards currently being throttled because we can't write segments quickly enough */
     private final Set<IndexShard> throttled = new HashSet<>();
@@ -119,13 +134,15 @@ public class IndexingMemoryController extends AbstractComponent implements Index
         this.inactiveTime = this.settings.getAsTime(SHARD_INACTIVE_TIME_SETTING, SHARD_DEFAULT_INACTIVE_TIME);
         // we need to have this relatively small to free up heap quickly enough
         this.interval = this.settings.getAsTime(SHARD_MEMORY_INTERVAL_TIME_SETTING, TimeValue.timeValueSeconds(5));
+        this.rateAwareAllocation = this.settings.getAsBoolean(RATE_AWARE_ALLOCATION_SETTING, true);
 
         this.statusChecker = new ShardsIndicesStatusChecker();
 
-        logger.debug("using indexing buffer size [{}] with {} [{}], {} [{}]",
+        logger.debug("using indexing buffer size [{}] with {} [{}], {} [{}], {} [{}]",
                      this.indexingBuffer,
                      SHARD_INACTIVE_TIME_SETTING, this.inactiveTime,
-                     SHARD_MEMORY_INTERVAL_TIME_SETTING, this.interval);
+                     SHARD_MEMORY_INTERVAL_TIME_SETTING, this.interval,
+                     RATE_AWARE_ALLOCATION_SETTING, this.rateAwareAllocation);
         this.scheduler = scheduleTask(threadPool);
 
         // Need to save this so we can later launch async "write indexing buffer to disk" on shards:
@@ -174,6 +191,21 @@ public class IndexingMemoryController extends AbstractComponent implements Index
         return shard.getWritingBytes();
     }
 
+    /** returns how many translog bytes this shard has written for index and delete operations so far */
+    protected long getShardIndexingBytes(IndexShard shard) {
+        return shard.getIndexingBytes();
+    }
+
+    /** tells this shard which share of the indexing buffer it was allocated, so it can report it in its stats */
+    protected void indexBufferAllocation(IndexShard shard, long allocatedBytes, long indexingRateBytesPerSec) {
+        shard.indexBufferAllocation(allocatedBytes, indexingRateBytesPerSec);
+    }
+
+    /** returns the current relative time in nanoseconds, used to measure indexing rates */
+    protected long currentTimeInNanos() {
+        return System.nanoTime();
+    }
+
     /** ask this shard to refresh, in the background, to free up heap */
     protected void writeIndexingBufferAsync(IndexShard shard) {
         threadPool.executor(ThreadPool.Names.REFRESH).execute(new AbstractRunnable() {
@@ -221,17 +253,60 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
     private static final class ShardAndBytesUsed implements Comparable<ShardAndBytesUsed> {
         final long bytesUsed;
+        /** how many bytes the shard uses beyond its share of the indexing buffer, or its bytes used if shares are not allocated */
+        final long bytesOverAllocation;
         final IndexShard shard;
 
         public ShardAndBytesUsed(long bytesUsed, IndexShard shard) {
+            this(bytesUsed, bytesUsed, shard);
+        }
+
+        public ShardAndBytesUsed(long bytesUsed, long bytesOverAllocation, IndexShard shard) {
             this.bytesUsed = bytesUsed;
+            this.bytesOverAllocation = bytesOverAllocation;
             this.shard = shard;
         }
 
         @Override
         public int compareTo(ShardAndBytesUsed other) {
-            // Sort larger shards first:
-            return Long.compare(other.bytesUsed, bytesUsed);
+            // Sort shards that exceed their share the most first, then larger shards:
+            int cmp = Long.compare(other.bytesOverAllocation, bytesOverAllocation);
+            if (cmp == 0) {
+                cmp = Long.compare(other.bytesUsed, bytesUsed);
+            }
+            return cmp;
+        }
+    }
+
+    /** Tracks the indexing rate of a shard between two checks */
+    private static final class ShardIndexingRate {
+        long lastIndexingBytes;
+        long lastSampleNanos;
+        /** exponentially weighted moving average of the indexing rate, or -1 if it wasn't measured yet */
+        double bytesPerSec = -1;
+        /** the share of the indexing buffer allocated to the shard during the last check */
+        long allocatedBytes;
+
+        ShardIndexingRate(long indexingBytes, long nanos) {
+            this.lastIndexingBytes = indexingBytes;
+            this.lastSampleNanos = nanos;
+        }
+
+        void sample(long indexingBytes, long nanos, long intervalNanos) {
+            final long elapsedNanos = nanos - lastSampleNanos;
+            if (elapsedNanos <= 0) {
+                return;
+            }
+            final double instant = Math.max(0, indexingBytes - lastIndexingBytes) * 1_000_000_000.0 / elapsedNanos;
+            // the weight decays with elapsed time rather than per sample, so the average doesn't depend on how often we check
+            final double alpha = 1 - Math.pow(1 - RATE_EWMA_ALPHA, (double) elapsedNanos / intervalNanos);
+            bytesPerSec = bytesPerSec < 0 ? instant : alpha * instant + (1 - alpha) * bytesPerSec;
+            lastIndexingBytes = indexingBytes;
+            lastSampleNanos = nanos;
+        }
+
+        double bytesPerSec() {
+            return Math.max(0, bytesPerSec);
         }
     }
 
@@ -240,6 +315,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
         final AtomicLong bytesWrittenSinceCheck = new AtomicLong();
         final ReentrantLock runLock = new ReentrantLock();
+        /** indexing rate of each available shard, only accessed under the run lock */
+        final Map<IndexShard, ShardIndexingRate> rates = new HashMap<>();
 
         /** Shard calls this on each indexing/delete op */
         public void bytesWritten(int bytes) {
@@ -278,11 +355,16 @@ public class IndexingMemoryController extends AbstractComponent implements Index
             // NOTE: even if we hit an errant exc here, our ThreadPool.scheduledWithFixedDelay will log the exception and re-invoke us
             // again, on schedule
 
+            final List<IndexShard> availableShards = availableShards();
+            if (rateAwareAllocation) {
+                allocateIndexingBuffer(availableShards);
+            }
+
             // First pass to sum up how much heap all shards' indexing buffers are using now, and how many bytes they are currently moving
             // to disk:
             long totalBytesUsed = 0;
             long totalBytesWriting = 0;
-            for (IndexShard shard : availableShards()) {
+            for (IndexShard shard : availableShards) {
 
                 // Give shard a chance to transition to inactive so sync'd flush can happen:
                 checkIdle(shard, inactiveTime.nanos());
@@ -342,7 +424,7 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                                 logger.trace("shard [{}] is using [{}] heap, not writing any bytes", shard.shardId(), shardBytesUsed);
                             }
                         }
-                        queue.add(new ShardAndBytesUsed(shardBytesUsed, shard));
+                        queue.add(new ShardAndBytesUsed(shardBytesUsed, bytesOverAllocation(shard, shardBytesUsed), shard));
                     }
                 }
 
@@ -351,7 +433,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
 
                 while (totalBytesUsed > indexingBuffer.bytes() && queue.isEmpty() == false) {
                     ShardAndBytesUsed largest = queue.poll();
-                    logger.debug("write indexing buffer to disk for shard [{}] to free up its [{}] indexing buffer", largest.shard.shardId(), new ByteSizeValue(largest.bytesUsed));
+                    logger.debug("write indexing buffer to disk for shard [{}] to free up its [{}] indexing buffer, [{}] over its share",
+                                 largest.shard.shardId(), new ByteSizeValue(largest.bytesUsed), largest.bytesOverAllocation);
                     writeIndexingBufferAsync(largest.shard);
                     totalBytesUsed -= largest.bytesUsed;
                     if (doThrottle && throttled.contains(largest.shard) == false) {
@@ -360,6 +443,8 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                         activateThrottling(largest.shard);
                     }
                 }
+            } else if (rateAwareAllocation) {
+                writePredictedFullBuffers(availableShards, totalBytesUsed);
             }
 
             if (doThrottle == false) {
@@ -370,6 +455,92 @@ public class IndexingMemoryController extends AbstractComponent implements Index
                 throttled.clear();
             }
         }
+
+        /**
+         * Samples the indexing rate of each shard and allocates each shard a share of the indexing buffer that is proportional
+         * to its rate, so that shards that index heavily write larger segments while idle shards give up their buffer first.
+         * The buffer is shared equally if no shard indexed since the last check.
+         */
+        private void allocateIndexingBuffer(List<IndexShard> shards) {
+            final long now = currentTimeInNanos();
+            final Map<IndexShard, ShardIndexingRate> sampled = new HashMap<>();
+            double totalBytesPerSec = 0;
+            for (IndexShard shard : shards) {
+                final long indexingBytes = getShardIndexingBytes(shard);
+                ShardIndexingRate rate = rates.get(shard);
+                if (rate == null) {
+                    rate = new ShardIndexingRate(indexingBytes, now);
+                } else {
+                    rate.sample(indexingBytes, now, interval.nanos());
+                }
+                sampled.put(shard, rate);
+                totalBytesPerSec += rate.bytesPerSec();
+            }
+            // forget about shards that went away
+            rates.clear();
+            rates.putAll(sampled);
+
+            for (Map.Entry<IndexShard, ShardIndexingRate> entry : rates.entrySet()) {
+                final ShardIndexingRate rate = entry.getValue();
+                if (totalBytesPerSec > 0) {
+                    rate.allocatedBytes = (long) (indexingBuffer.bytes() * (rate.bytesPerSec() / totalBytesPerSec));
+                } else {
+                    rate.allocatedBytes = indexingBuffer.bytes() / rates.size();
+                }
+                if (logger.isTraceEnabled()) {
+                    logger.trace("shard [{}] indexes [{}] bytes/sec and is allocated [{}] of the indexing buffer",
+                                 entry.getKey().shardId(), (long) rate.bytesPerSec(), new ByteSizeValue(rate.allocatedBytes));
+                }
+                indexBufferAllocation(entry.getKey(), rate.allocatedBytes, (long) rate.bytesPerSec());
+            }
+        }
+
+        /** Returns how many bytes this shard uses beyond its share of the indexing buffer, which may be negative */
+        private long bytesOverAllocation(IndexShard shard, long shardBytesUsed) {
+            if (rateAwareAllocation == false) {
+                return shardBytesUsed;
+            }
+            final ShardIndexingRate rate = rates.get(shard);
+            return rate == null ? shardBytesUsed : shardBytesUsed - rate.allocatedBytes;
+        }
+
+        /**
+         * Writes the indexing buffers of the shards that are predicted to fill their share before the next check, if the node would
+         * go over its budget by then. This writes a hot shard's buffer when it reaches its share, instead of waiting until the
+         * whole budget is used and then writing whichever buffers exceed their shares.
+         */
+        private void writePredictedFullBuffers(List<IndexShard> shards, long totalBytesUsed) {
+            double totalBytesPerSec = 0;
+            for (ShardIndexingRate rate : rates.values()) {
+                totalBytesPerSec += rate.bytesPerSec();
+            }
+            if (totalBytesPerSec <= 0) {
+                return;
+            }
+            // we check again once the interval elapsed, or earlier once enough bytes were written to the translog. NOTE: rates
+            // are measured in translog bytes, which only approximate how quickly the indexing buffers grow
+            final double horizonSec = Math.min(interval.secondsFrac(), (indexingBuffer.bytes() / 30) / totalBytesPerSec);
+            if (totalBytesUsed + totalBytesPerSec * horizonSec <= indexingBuffer.bytes()) {
+                return;
+            }
+            for (IndexShard shard : shards) {
+                final ShardIndexingRate rate = rates.get(shard);
+                if (rate == null || rate.bytesPerSec() <= 0) {
+                    continue;
+                }
+                final long shardBytesUsed = getIndexBufferRAMBytesUsed(shard) - getShardWritingBytes(shard);
+                if (shardBytesUsed <= 0) {
+                    continue;
+                }
+                final double secondsUntilFull = (rate.allocatedBytes - shardBytesUsed) / rate.bytesPerSec();
+                if (secondsUntilFull <= horizonSec) {
+                    logger.debug("write indexing buffer to disk for shard [{}]: its [{}] indexing buffer is predicted to fill "
+                                 + "its [{}] share", shard.shardId(), new ByteSizeValue(shardBytesUsed),
+                                 new ByteSizeValue(rate.allocatedBytes));
+                    writeIndexingBufferAsync(shard);
+                }
+            }
+        }
     }
 
     /**
@@ -0,0 +1,271 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The segment aggregation cache holds the aggregation results of single segments of a shard. Unlike the
+ * {@link IndicesRequestCache}, whose entries are keyed by the version of the whole index reader and are useless after a refresh,
+ * its entries are keyed by the core of a segment and the number of its deleted documents. Large segments rarely change, so a
+ * request that is repeated after a refresh only needs to collect the segments that were added or changed since and reduce
+ * their aggregations with the cached ones of the other segments.
+ * <p>
+ * Only segments with at least {@link #INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING} documents are cached, smaller segments
+ * are cheap to collect and are likely to be merged away soon. Entries are removed once the core of their segment is closed.
+ */
+public final class IndicesSegmentAggregationCache extends AbstractComponent implements Closeable {
+
+    /**
+     * A setting to enable or disable the segment aggregation cache on an index level. Requests must also be eligible to the
+     * shard request cache to use it.
+     */
+    public static final Setting<Boolean> INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING =
+        Setting.boolSetting("index.requests.cache.segment_aggregations.enable", false, Property.Dynamic, Property.IndexScope);
+    public static final Setting<Integer> INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING =
+        Setting.intSetting("index.requests.cache.segment_aggregations.min_docs", 10000, 1, Property.Dynamic, Property.IndexScope);
+    public static final Setting<ByteSizeValue> INDICES_CACHE_SEGMENT_AGGREGATIONS_SIZE =
+        Setting.byteSizeSetting("indices.requests.cache.segment_aggregations.size", "1%", Property.NodeScope);
+
+    private final ConcurrentMap<Object, Boolean> registeredClosedListeners = ConcurrentCollections.newConcurrentMap();
+    private final Set<Object> closedCoreKeys = ConcurrentCollections.newConcurrentSet();
+    private final Set<Object> clearedShards = ConcurrentCollections.newConcurrentSet();
+    private final LeafReader.CoreClosedListener coreClosedListener = this::onCoreClosed;
+    private final Cache<Key, Value> cache;
+
+    IndicesSegmentAggregationCache(Settings settings) {
+        super(settings);
+        final ByteSizeValue size = INDICES_CACHE_SEGMENT_AGGREGATIONS_SIZE.get(settings);
+        cache = CacheBuilder.<Key, Value>builder()
+            .setMaximumWeight(size.bytes()).weigher((k, v) -> k.ramBytesUsed() + v.ramBytesUsed()).build();
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Returns a view of this cache for the segments of the given shard that holds the results of the request with the given key.
+     *
+     * @param shardIdentity the identity of the shard that the segments belong to, see {@link #clear(Object)}
+     * @param requestKey    the key of the shard request, which must be the same for requests that compute the same aggregations
+     * @param minDocs       the minimum number of documents of the segments to cache
+     */
+    public Lookup lookup(Object shardIdentity, BytesReference requestKey, int minDocs) {
+        return new Lookup(shardIdentity, requestKey, minDocs);
+    }
+
+    void clear(Object shardIdentity) {
+        clearedShards.add(shardIdentity);
+        cleanCache();
+    }
+
+    private void onCoreClosed(Object ownerCoreCacheKey) {
+        if (registeredClosedListeners.remove(ownerCoreCacheKey) != null) {
+            closedCoreKeys.add(ownerCoreCacheKey);
+        }
+    }
+
+    synchronized void cleanCache() {
+        final Set<Object> currentClosedCoreKeys = new HashSet<>();
+        for (Iterator<Object> iterator = closedCoreKeys.iterator(); iterator.hasNext(); ) {
+            currentClosedCoreKeys.add(iterator.next());
+            iterator.remove();
+        }
+        final Set<Object> currentClearedShards = new HashSet<>();
+        for (Iterator<Object> iterator = clearedShards.iterator(); iterator.hasNext(); ) {
+            currentClearedShards.add(iterator.next());
+            iterator.remove();
+        }
+        if (currentClosedCoreKeys.isEmpty() == false || currentClearedShards.isEmpty() == false) {
+            for (Iterator<Key> iterator = cache.keys().iterator(); iterator.hasNext(); ) {
+                Key key = iterator.next();
+                if (currentClosedCoreKeys.contains(key.coreCacheKey) || currentClearedShards.contains(key.shardIdentity)) {
+                    iterator.remove();
+                }
+            }
+        }
+        cache.refresh();
+    }
+
+    /**
+     * Returns the current size of the cache
+     */
+    final int count() {
+        return cache.count();
+    }
+
+    final int numRegisteredCloseListeners() { // for testing
+        return registeredClosedListeners.size();
+    }
+
+    /**
+     * The segments of a shard as seen by a single request.
+     */
+    public final class Lookup {
+        private final Object shardIdentity;
+        private final BytesReference requestKey;
+        private final int minDocs;
+
+        private Lookup(Object shardIdentity, BytesReference requestKey, int minDocs) {
+            this.shardIdentity = shardIdentity;
+            this.requestKey = requestKey;
+            this.minDocs = minDocs;
+        }
+
+        /**
+         * Returns whether the results of the given segment are worth caching.
+         */
+        public boolean canCache(LeafReader reader) {
+            return reader.maxDoc() >= minDocs;
+        }
+
+        /**
+         * Returns the cached results of the given segment, or <code>null</code> if they need to be computed.
+         */
+        @Nullable
+        public Value get(LeafReader reader) {
+            return cache.get(new Key(shardIdentity, reader, requestKey));
+        }
+
+        /**
+         * Caches the results that were computed on the given segment and returns them as they would be returned by
+         * {@link #get(LeafReader)}.
+         */
+        public Value put(LeafReader reader, long totalHits, InternalAggregations aggregations) throws IOException {
+            final Value value;
+            // most segment results are small, see IndicesService.IndexShardCacheEntity
+            try (BytesStreamOutput out = new BytesStreamOutput(512)) {
+                aggregations.writeTo(out);
+                value = new Value(totalHits, out.bytes(), out.ramBytesUsed());
+            }
+            final Object coreCacheKey = reader.getCoreCacheKey();
+            if (registeredClosedListeners.putIfAbsent(coreCacheKey, Boolean.TRUE) == null) {
+                reader.addCoreClosedListener(coreClosedListener);
+            }
+            cache.put(new Key(shardIdentity, reader, requestKey), value);
+            return value;
+        }
+    }
+
+    public static final class Value implements Accountable {
+        private final long totalHits;
+        private final BytesReference aggregations;
+        private final long ramBytesUsed;
+
+        Value(long totalHits, BytesReference aggregations, long ramBytesUsed) {
+            this.totalHits = totalHits;
+            this.aggregations = aggregations;
+            this.ramBytesUsed = ramBytesUsed;
+        }
+
+        /**
+         * The number of documents of the segment that matched the request.
+         */
+        public long totalHits() {
+            return totalHits;
+        }
+
+        /**
+         * Reads a new copy of the aggregations that were computed on the segment.
+         */
+        public InternalAggregations aggregations() throws IOException {
+            return InternalAggregations.readAggregations(aggregations.streamInput());
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return Long.BYTES + ramBytesUsed;
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+    }
+
+    static final class Key implements Accountable {
+        final Object shardIdentity; // use as identity equality
+        final Object coreCacheKey;
+        // deletes only ever grow on a segment core, so their number identifies the live documents of the segment
+        final int numDeletedDocs;
+        final BytesReference value;
+
+        Key(Object shardIdentity, LeafReader reader, BytesReference value) {
+            this.shardIdentity = shardIdentity;
+            this.coreCacheKey = reader.getCoreCacheKey();
+            this.numDeletedDocs = reader.numDeletedDocs();
+            this.value = value;
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + Integer.BYTES + value.length();
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (numDeletedDocs != key.numDeletedDocs) return false;
+            if (!coreCacheKey.equals(key.coreCacheKey)) return false;
+            if (!shardIdentity.equals(key.shardIdentity)) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = coreCacheKey.hashCode();
+            result = 31 * result + numDeletedDocs;
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+}
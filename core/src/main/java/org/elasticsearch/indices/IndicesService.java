@@ -143,6 +143,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
     private final IndexingMemoryController indexingMemoryController;
     private final TimeValue cleanInterval;
     private final IndicesRequestCache indicesRequestCache;
+    private final IndicesSegmentAggregationCache indicesSegmentAggregationCache;
     private final IndicesQueryCache indicesQueryCache;
 
     @Override
@@ -167,6 +168,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         this.clusterService = clusterService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.indicesRequestCache = new IndicesRequestCache(settings);
+        this.indicesSegmentAggregationCache = new IndicesSegmentAggregationCache(settings);
         this.indicesQueryCache = new IndicesQueryCache(settings);
         this.mapperRegistry = mapperRegistry;
         clusterSettings.addSettingsUpdateConsumer(IndexStoreConfig.INDICES_STORE_THROTTLE_TYPE_SETTING, indexStoreConfig::setRateLimitingType);
@@ -182,7 +184,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             }
         });
         this.cleanInterval = INDICES_CACHE_CLEAN_INTERVAL_SETTING.get(settings);
-        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache,  logger, threadPool, this.cleanInterval);
+        this.cacheCleaner = new CacheCleaner(indicesFieldDataCache, indicesRequestCache, indicesSegmentAggregationCache, logger,
+            threadPool, this.cleanInterval);
 
 
     }
@@ -218,7 +221,8 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
 
     @Override
     protected void doClose() {
-        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner, indicesRequestCache, indicesQueryCache);
+        IOUtils.closeWhileHandlingException(analysisRegistry, indexingMemoryController, indicesFieldDataCache, cacheCleaner,
+            indicesRequestCache, indicesSegmentAggregationCache, indicesQueryCache);
     }
 
     /**
@@ -872,10 +876,14 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         private final TimeValue interval;
         private final AtomicBoolean closed = new AtomicBoolean(false);
         private final IndicesRequestCache requestCache;
+        private final IndicesSegmentAggregationCache segmentAggregationCache;
 
-        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache, ESLogger logger, ThreadPool threadPool, TimeValue interval) {
+        public CacheCleaner(IndicesFieldDataCache cache, IndicesRequestCache requestCache,
+                            IndicesSegmentAggregationCache segmentAggregationCache, ESLogger logger, ThreadPool threadPool,
+                            TimeValue interval) {
             this.cache = cache;
             this.requestCache = requestCache;
+            this.segmentAggregationCache = segmentAggregationCache;
             this.logger = logger;
             this.threadPool = threadPool;
             this.interval = interval;
@@ -901,6 +909,11 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             } catch (Exception e) {
                 logger.warn("Exception during periodic request cache cleanup:", e);
             }
+            try {
+                this.segmentAggregationCache.cleanCache();
+            } catch (Exception e) {
+                logger.warn("Exception during periodic segment aggregation cache cleanup:", e);
+            }
             // Reschedule itself to run again if not closed
             if (closed.get() == false) {
                 threadPool.schedule(interval, ThreadPool.Names.SAME, this);
@@ -924,9 +937,16 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             return false;
         }
 
-        // for now, only enable it for requests with no hits
+        // requests with hits are only cached if the request explicitly asks for it: the cached value holds the top docs so it
+        // is much larger than a hits.total/aggs only result. Scrolls and profiled requests are never cached with hits since
+        // their results depend on more than the content of the index.
         if (context.size() != 0) {
-            return false;
+            if (request.requestCache() == null || request.requestCache() == false) {
+                return false;
+            }
+            if (request.scroll() != null || context.getProfilers() != null) {
+                return false;
+            }
         }
 
         // We cannot cache with DFS because results depend not only on the content of the index but also
@@ -963,6 +983,7 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
             return;
         }
         indicesRequestCache.clear(new IndexShardCacheEntity(shard));
+        indicesSegmentAggregationCache.clear(shard);
         logger.trace("{} explicit cache clear", shard.shardId());
     }
     /**
@@ -984,6 +1005,26 @@ public class IndicesService extends AbstractLifecycleComponent<IndicesService> i
         }
     }
 
+    /**
+     * Returns the segment aggregation cache for the given request, or <code>null</code> if the request can't use it. The cache
+     * can only be used by requests that can be {@link #canCache(ShardSearchRequest, SearchContext) cached} and that compute
+     * aggregations without returning hits, on indices that opted in.
+     */
+    @Nullable
+    public IndicesSegmentAggregationCache.Lookup segmentAggregationCache(ShardSearchRequest request, SearchContext context)
+            throws IOException {
+        assert canCache(request, context);
+        IndexSettings settings = context.indexShard().indexSettings();
+        if (settings.getValue(IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING) == false) {
+            return null;
+        }
+        if (context.size() != 0 || context.aggregations() == null) {
+            return null;
+        }
+        return indicesSegmentAggregationCache.lookup(context.indexShard(), request.cacheKey(),
+            settings.getValue(IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING));
+    }
+
     static final class IndexShardCacheEntity implements IndicesRequestCache.CacheEntity {
         private final QueryPhase queryPhase;
         private final SearchContext context;
@@ -126,7 +126,8 @@ public class RecoverySource extends AbstractComponent implements IndexEventListe
         if (shard.indexSettings().isOnSharedFilesystem()) {
             handler = new SharedFSRecoverySourceHandler(shard, recoveryTarget, request, logger);
         } else {
-            handler = new RecoverySourceHandler(shard, recoveryTarget, request, recoverySettings.getChunkSize().bytesAsInt(), logger);
+            handler = new RecoverySourceHandler(shard, recoveryTarget, request, recoverySettings.getChunkSize().bytesAsInt(),
+                    recoverySettings.getMaxConcurrentFileChunks(), logger);
         }
         ongoingRecoveries.add(shard, handler);
         try {
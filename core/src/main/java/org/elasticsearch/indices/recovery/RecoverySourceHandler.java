@@ -30,9 +30,11 @@ import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
@@ -52,7 +54,10 @@ import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
@@ -77,6 +82,11 @@ public class RecoverySourceHandler {
     // Request containing source and target node information
     private final StartRecoveryRequest request;
     private final int chunkSizeInBytes;
+    private final int maxConcurrentFileChunks;
+    // permits for file chunks that were sent to the target but not yet acknowledged
+    private final Semaphore fileChunkPermits;
+    // the first failure of a file chunk sent without waiting for its acknowledgment, rethrown by the thread sending the files
+    private final AtomicReference<Tuple<StoreFileMetaData, Throwable>> fileChunkFailure = new AtomicReference<>();
     private final RecoveryTargetHandler recoveryTarget;
 
     protected final RecoveryResponse response;
@@ -100,6 +110,7 @@ public class RecoverySourceHandler {
     public RecoverySourceHandler(final IndexShard shard, RecoveryTargetHandler recoveryTarget,
                                  final StartRecoveryRequest request,
                                  final int fileChunkSizeInBytes,
+                                 final int maxConcurrentFileChunks,
                                  final ESLogger logger) {
         this.shard = shard;
         this.recoveryTarget = recoveryTarget;
@@ -108,6 +119,8 @@ public class RecoverySourceHandler {
         this.indexName = this.request.shardId().getIndex().getName();
         this.shardId = this.request.shardId().id();
         this.chunkSizeInBytes = fileChunkSizeInBytes;
+        this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+        this.fileChunkPermits = new Semaphore(maxConcurrentFileChunks);
         this.response = new RecoveryResponse();
     }
 
@@ -495,16 +508,33 @@ public class RecoverySourceHandler {
 
         @Override
         public final void write(byte[] b, int offset, int length) throws IOException {
-            sendNextChunk(position, new BytesArray(b, offset, length), md.length() == position + length);
+            // the chunk may still be in flight when the caller reuses its buffer so we have to send a copy
+            final BytesArray content = new BytesArray(Arrays.copyOfRange(b, offset, offset + length));
+            sendNextChunk(position, content, md.length() == position + length);
             position += length;
             assert md.length() >= position : "length: " + md.length() + " but positions was: " + position;
         }
 
         private void sendNextChunk(long position, BytesArray content, boolean lastChunk) throws IOException {
-            // Actually send the file chunk to the target node, waiting for it to complete
-            cancellableThreads.executeIO(() ->
-                    recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations())
-            );
+            // Wait until there is room for another unacknowledged chunk, then send it without waiting for the target to write it
+            cancellableThreads.execute(fileChunkPermits::acquire);
+            if (fileChunkFailure.get() != null) {
+                fileChunkPermits.release();
+                // stop reading the file, sendFiles rethrows the failure of the chunk
+                throw new IOException("a previous file chunk failed to be sent");
+            }
+            recoveryTarget.writeFileChunk(md, position, content, lastChunk, translogView.totalOperations(), new ActionListener<Void>() {
+                @Override
+                public void onResponse(Void aVoid) {
+                    fileChunkPermits.release();
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    fileChunkFailure.compareAndSet(null, new Tuple<>(md, e));
+                    fileChunkPermits.release();
+                }
+            });
             if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                 throw new IndexShardClosedException(request.shardId());
             }
@@ -522,30 +552,48 @@ public class RecoverySourceHandler {
                     // exceptions during close correctly and doesn't hide the original exception.
                     Streams.copy(new InputStreamIndexInput(indexInput, md.length()), outputStreamFactory.apply(md));
                 } catch (Throwable t) {
-                    final IOException corruptIndexException;
-                    if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
-                        if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
-                            logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
-                            failEngine(corruptIndexException);
-                            throw corruptIndexException;
-                        } else { // corruption has happened on the way to replica
-                            RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
-                                    "checksums are ok", null);
-                            exception.addSuppressed(t);
-                            logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
-                                    corruptIndexException, shardId, request.targetNode(), md);
-                            throw exception;
-                        }
-                    } else {
-                        throw t;
-                    }
+                    // a failed chunk that is still in flight takes precedence over failures it caused
+                    rethrowFileChunkFailure(store);
+                    handleErrorOnSendFiles(store, md, t);
                 }
+                rethrowFileChunkFailure(store);
             }
+            // wait for the target to acknowledge the chunks that are still in flight
+            cancellableThreads.execute(() -> fileChunkPermits.acquire(maxConcurrentFileChunks));
+            fileChunkPermits.release(maxConcurrentFileChunks);
+            rethrowFileChunkFailure(store);
         } finally {
             store.decRef();
         }
     }
 
+    private void rethrowFileChunkFailure(Store store) throws Throwable {
+        final Tuple<StoreFileMetaData, Throwable> failure = fileChunkFailure.get();
+        if (failure != null) {
+            handleErrorOnSendFiles(store, failure.v1(), failure.v2());
+        }
+    }
+
+    private void handleErrorOnSendFiles(Store store, StoreFileMetaData md, Throwable t) throws Throwable {
+        final IOException corruptIndexException;
+        if ((corruptIndexException = ExceptionsHelper.unwrapCorruption(t)) != null) {
+            if (store.checkIntegrityNoException(md) == false) { // we are corrupted on the primary -- fail!
+                logger.warn("{} Corrupted file detected {} checksum mismatch", shardId, md);
+                failEngine(corruptIndexException);
+                throw corruptIndexException;
+            } else { // corruption has happened on the way to replica
+                RemoteTransportException exception = new RemoteTransportException("File corruption occurred on recovery but " +
+                        "checksums are ok", null);
+                exception.addSuppressed(t);
+                logger.warn("{} Remote file corruption on node {}, recovering {}. local checksum OK",
+                        corruptIndexException, shardId, request.targetNode(), md);
+                throw exception;
+            }
+        } else {
+            throw t;
+        }
+    }
+
     protected void failEngine(IOException cause) {
         shard.failShard("recovery", cause);
     }
@@ -44,10 +44,12 @@ import org.elasticsearch.index.translog.Translog;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.PriorityQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -76,6 +78,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
     private final CancellableThreads cancellableThreads = new CancellableThreads();
 
     // last time this status was accessed
@@ -258,6 +261,8 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     }
 
     protected void cleanOpenFiles() {
+        // drop chunks that were waiting for earlier chunks of their file
+        fileChunkWriters.clear();
         // clean open index outputs
         Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -368,9 +373,15 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                                boolean lastChunk, int totalTranslogOps) throws IOException {
+        state().getTranslog().totalOperations(totalTranslogOps);
+        final FileChunkWriter writer = fileChunkWriters.computeIfAbsent(fileMetaData.name(), name -> new FileChunkWriter());
+        writer.writeChunk(new FileChunk(fileMetaData, position, content, lastChunk));
+    }
+
+    private void innerWriteFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                     boolean lastChunk) throws IOException {
         final Store store = store();
         final String name = fileMetaData.name();
-        state().getTranslog().totalOperations(totalTranslogOps);
         final RecoveryState.Index indexState = state().getIndex();
         IndexOutput indexOutput;
         if (position == 0) {
@@ -397,4 +408,45 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
             assert remove == null || remove == indexOutput; // remove maybe null if we got finished
         }
     }
+
+    private static final class FileChunk {
+        final StoreFileMetaData md;
+        final long position;
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(StoreFileMetaData md, long position, BytesReference content, boolean lastChunk) {
+            this.md = md;
+            this.position = position;
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
+    /**
+     * The source sends several chunks of a file without waiting for each of them to be acknowledged so they can arrive out of order.
+     * Chunks that arrive before the chunks preceding them are buffered here until the file can be written sequentially. The number of
+     * buffered chunks is bounded by the number of chunks the source keeps in flight.
+     */
+    private final class FileChunkWriter {
+        private final PriorityQueue<FileChunk> pendingChunks = new PriorityQueue<>(Comparator.comparingLong(chunk -> chunk.position));
+        private long lastPosition = 0;
+
+        synchronized void writeChunk(FileChunk newChunk) throws IOException {
+            pendingChunks.add(newChunk);
+            while (true) {
+                final FileChunk chunk = pendingChunks.peek();
+                if (chunk == null || chunk.position != lastPosition) {
+                    return;
+                }
+                pendingChunks.remove();
+                innerWriteFileChunk(chunk.md, chunk.position, chunk.content, chunk.lastChunk);
+                lastPosition += chunk.content.length();
+                if (chunk.lastChunk) {
+                    assert pendingChunks.isEmpty() : "received chunks after the last chunk of [" + chunk.md.name() + "]";
+                    fileChunkWriters.remove(chunk.md.name());
+                }
+            }
+        }
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
@@ -71,4 +72,19 @@ public interface RecoveryTargetHandler {
     void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                         boolean lastChunk, int totalTranslogOps) throws IOException;
 
+    /**
+     * writes a partial file chunk to the target store without blocking until the target acknowledged it. The listener is notified once
+     * the chunk has been written. Chunks of the same file may reach the target out of order. Defaults to writing the chunk synchronously.
+     */
+    default void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener) {
+        try {
+            writeFileChunk(fileMetaData, position, content, lastChunk, totalTranslogOps);
+        } catch (Throwable t) {
+            listener.onFailure(t);
+            return;
+        }
+        listener.onResponse(null);
+    }
+
 }
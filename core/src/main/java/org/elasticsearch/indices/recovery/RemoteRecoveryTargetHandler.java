@@ -20,14 +20,18 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -120,7 +124,47 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean
             lastChunk, int totalTranslogOps) throws IOException {
-        // Pause using the rate limiter, if desired, to throttle the recovery
+        final long throttleTimeInNanos = throttle(content);
+        transportService.submitRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+    }
+
+    @Override
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk,
+                               int totalTranslogOps, ActionListener<Void> listener) {
+        // throttling blocks the sending thread so the rate limiter still bounds the bytes sent, no matter how many chunks are in flight
+        final long throttleTimeInNanos = throttle(content);
+        transportService.sendRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
+                newFileChunkRequest(fileMetaData, position, content, lastChunk, totalTranslogOps, throttleTimeInNanos),
+                fileChunkRequestOptions, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                    @Override
+                    public void handleResponse(TransportResponse.Empty response) {
+                        listener.onResponse(null);
+                    }
+
+                    @Override
+                    public void handleException(TransportException exp) {
+                        listener.onFailure(exp);
+                    }
+                });
+    }
+
+    private RecoveryFileChunkRequest newFileChunkRequest(StoreFileMetaData fileMetaData, long position, BytesReference content,
+                                                         boolean lastChunk, int totalTranslogOps, long throttleTimeInNanos) {
+        return new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
+                totalTranslogOps,
+                /* we send totalOperations with every request since we collect stats on the target and that way we can
+                 * see how many translog ops we accumulate while copying files across the network. A future optimization
+                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
+                 */
+                throttleTimeInNanos);
+    }
+
+    /**
+     * Pause using the rate limiter, if desired, to throttle the recovery. Returns the time spent paused in nanoseconds.
+     */
+    private long throttle(BytesReference content) {
         final long throttleTimeInNanos;
         // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
         final RateLimiter rl = recoverySettings.rateLimiter();
@@ -141,14 +185,6 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
         } else {
             throttleTimeInNanos = 0;
         }
-
-        transportService.submitRequest(targetNode, RecoveryTargetService.Actions.FILE_CHUNK,
-                new RecoveryFileChunkRequest(recoveryId, shardId, fileMetaData, position, content, lastChunk,
-                        totalTranslogOps,
-                                /* we send totalOperations with every request since we collect stats on the target and that way we can
-                                 * see how many translog ops we accumulate while copying files across the network. A future optimization
-                                 * would be in to restart file copy again (new deltas) if we have too many translog ops are piling up.
-                                 */
-                        throttleTimeInNanos), fileChunkRequestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+        return throttleTimeInNanos;
     }
 }
@@ -36,7 +36,7 @@ public class SharedFSRecoverySourceHandler extends RecoverySourceHandler {
 
     public SharedFSRecoverySourceHandler(IndexShard shard, RecoveryTargetHandler recoveryTarget, StartRecoveryRequest request, ESLogger
             logger) {
-        super(shard, recoveryTarget, request, -1, logger);
+        super(shard, recoveryTarget, request, -1, 1, logger);
         this.shard = shard;
         this.request = request;
     }
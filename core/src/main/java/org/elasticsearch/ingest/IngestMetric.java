@@ -0,0 +1,55 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the number of executions, the time spent, the current executions and the failures of an ingest pipeline
+ * or of a single processor. Time is accumulated in nanoseconds and only converted into milliseconds when the
+ * {@link IngestStats.Stats} are created, so that fast pipelines and processors don't get rounded down to zero.
+ */
+public class IngestMetric {
+
+    private final MeanMetric ingestTime = new MeanMetric();
+    private final CounterMetric ingestCurrent = new CounterMetric();
+    private final CounterMetric ingestFailed = new CounterMetric();
+
+    public void preIngest() {
+        ingestCurrent.inc();
+    }
+
+    public void postIngest(long ingestTimeInNanos) {
+        ingestCurrent.dec();
+        ingestTime.inc(ingestTimeInNanos);
+    }
+
+    public void ingestFailed() {
+        ingestFailed.inc();
+    }
+
+    public IngestStats.Stats createStats() {
+        return new IngestStats.Stats(ingestTime.count(), TimeUnit.NANOSECONDS.toMillis(ingestTime.sum()), ingestCurrent.count(),
+            ingestFailed.count());
+    }
+}
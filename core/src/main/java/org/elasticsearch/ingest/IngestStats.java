@@ -26,26 +26,43 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 public class IngestStats implements Writeable<IngestStats>, ToXContent {
     private final Stats totalStats;
     private final Map<String, Stats> statsPerPipeline;
+    private final Map<String, List<ProcessorStat>> processorStatsPerPipeline;
 
     public IngestStats(StreamInput in) throws IOException {
         this.totalStats = new Stats(in);
         int size = in.readVInt();
         this.statsPerPipeline = new HashMap<>(size);
+        this.processorStatsPerPipeline = new HashMap<>(size);
         for (int i = 0; i < size; i++) {
-            statsPerPipeline.put(in.readString(), new Stats(in));
+            String pipelineId = in.readString();
+            statsPerPipeline.put(pipelineId, new Stats(in));
+            int processors = in.readVInt();
+            List<ProcessorStat> processorStats = new ArrayList<>(processors);
+            for (int j = 0; j < processors; j++) {
+                processorStats.add(new ProcessorStat(in));
+            }
+            processorStatsPerPipeline.put(pipelineId, processorStats);
         }
     }
 
     public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline) {
+        this(totalStats, statsPerPipeline, Collections.emptyMap());
+    }
+
+    public IngestStats(Stats totalStats, Map<String, Stats> statsPerPipeline, Map<String, List<ProcessorStat>> processorStatsPerPipeline) {
         this.totalStats = totalStats;
         this.statsPerPipeline = statsPerPipeline;
+        this.processorStatsPerPipeline = processorStatsPerPipeline;
     }
 
     /**
@@ -62,6 +79,13 @@ public class IngestStats implements Writeable<IngestStats>, ToXContent {
         return statsPerPipeline;
     }
 
+    /**
+     * @return The stats of the processors of each pipeline, in the order the processors are defined in the pipeline
+     */
+    public Map<String, List<ProcessorStat>> getProcessorStatsPerPipeline() {
+        return processorStatsPerPipeline;
+    }
+
     @Override
     public IngestStats readFrom(StreamInput in) throws IOException {
         return new IngestStats(in);
@@ -70,10 +94,15 @@ public class IngestStats implements Writeable<IngestStats>, ToXContent {
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         totalStats.writeTo(out);
-        out.writeVLong(statsPerPipeline.size());
+        out.writeVInt(statsPerPipeline.size());
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             out.writeString(entry.getKey());
             entry.getValue().writeTo(out);
+            List<ProcessorStat> processorStats = processorStatsPerPipeline.getOrDefault(entry.getKey(), Collections.emptyList());
+            out.writeVInt(processorStats.size());
+            for (ProcessorStat processorStat : processorStats) {
+                processorStat.writeTo(out);
+            }
         }
     }
 
@@ -87,6 +116,14 @@ public class IngestStats implements Writeable<IngestStats>, ToXContent {
         for (Map.Entry<String, Stats> entry : statsPerPipeline.entrySet()) {
             builder.startObject(entry.getKey());
             entry.getValue().toXContent(builder, params);
+            List<ProcessorStat> processorStats = processorStatsPerPipeline.get(entry.getKey());
+            if (processorStats != null && processorStats.isEmpty() == false) {
+                builder.startArray("processors");
+                for (ProcessorStat processorStat : processorStats) {
+                    processorStat.toXContent(builder, params);
+                }
+                builder.endArray();
+            }
             builder.endObject();
         }
         builder.endObject();
@@ -166,4 +203,92 @@ public class IngestStats implements Writeable<IngestStats>, ToXContent {
             return builder;
         }
     }
+
+    public static class ProcessorStat implements Writeable<ProcessorStat>, ToXContent {
+
+        private final String type;
+        private final String tag;
+        private final Stats stats;
+        private final Map<String, Long> processorStats;
+
+        public ProcessorStat(StreamInput in) throws IOException {
+            type = in.readString();
+            tag = in.readOptionalString();
+            stats = new Stats(in);
+            int size = in.readVInt();
+            processorStats = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                processorStats.put(in.readString(), in.readVLong());
+            }
+        }
+
+        public ProcessorStat(String type, String tag, Stats stats) {
+            this(type, tag, stats, Collections.emptyMap());
+        }
+
+        public ProcessorStat(String type, String tag, Stats stats, Map<String, Long> processorStats) {
+            this.type = type;
+            this.tag = tag;
+            this.stats = stats;
+            this.processorStats = processorStats;
+        }
+
+        /**
+         * @return The type of the processor
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return The tag of the processor or <code>null</code> if the processor has no tag
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        public Stats getStats() {
+            return stats;
+        }
+
+        /**
+         * @return The counters specific to the type of the processor
+         * @see org.elasticsearch.ingest.core.ProcessorStatsProvider
+         */
+        public Map<String, Long> getProcessorStats() {
+            return processorStats;
+        }
+
+        @Override
+        public ProcessorStat readFrom(StreamInput in) throws IOException {
+            return new ProcessorStat(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(type);
+            out.writeOptionalString(tag);
+            stats.writeTo(out);
+            out.writeVInt(processorStats.size());
+            for (Map.Entry<String, Long> entry : processorStats.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeVLong(entry.getValue());
+            }
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("type", type);
+            if (tag != null) {
+                builder.field("tag", tag);
+            }
+            stats.toXContent(builder, params);
+            for (Map.Entry<String, Long> entry : processorStats.entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            builder.endObject();
+            return builder;
+        }
+    }
 }
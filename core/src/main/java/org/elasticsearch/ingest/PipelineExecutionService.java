@@ -19,35 +19,43 @@
 
 package org.elasticsearch.ingest;
 
-import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.common.Strings;
-import org.elasticsearch.common.metrics.CounterMetric;
-import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.ingest.core.CompoundProcessor;
 import org.elasticsearch.ingest.core.IngestDocument;
 import org.elasticsearch.ingest.core.Pipeline;
+import org.elasticsearch.ingest.core.Processor;
+import org.elasticsearch.ingest.core.ProcessorStatsProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 public class PipelineExecutionService implements ClusterStateListener {
 
+    /**
+     * The number of documents of a bulk request that are run through their pipelines by a single task on the ingest thread pool
+     */
+    static final int BULK_BATCH_SIZE = 32;
+
     private final PipelineStore store;
     private final ThreadPool threadPool;
 
-    private final StatsHolder totalStats = new StatsHolder();
-    private volatile Map<String, StatsHolder> statsHolderPerPipeline = Collections.emptyMap();
+    private final IngestMetric totalStats = new IngestMetric();
+    private volatile Map<String, IngestMetric> statsHolderPerPipeline = Collections.emptyMap();
 
     public PipelineExecutionService(PipelineStore store, ThreadPool threadPool) {
         this.store = store;
@@ -83,34 +91,57 @@ public class PipelineExecutionService implements ClusterStateListener {
 
             @Override
             protected void doRun() throws Exception {
+                List<IndexRequest> indexRequests = new ArrayList<>();
                 for (ActionRequest actionRequest : actionRequests) {
                     if ((actionRequest instanceof IndexRequest)) {
                         IndexRequest indexRequest = (IndexRequest) actionRequest;
                         if (Strings.hasText(indexRequest.getPipeline())) {
-                            try {
-                                innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
-                                //this shouldn't be needed here but we do it for consistency with index api which requires it to prevent double execution
-                                indexRequest.setPipeline(null);
-                            } catch (Throwable e) {
-                                itemFailureHandler.accept(indexRequest, e);
-                            }
+                            indexRequests.add(indexRequest);
                         }
                     }
                 }
-                completionHandler.accept(null);
+                new BulkExecution(indexRequests, itemFailureHandler, completionHandler).run();
             }
         });
     }
 
     public IngestStats stats() {
-        Map<String, StatsHolder> statsHolderPerPipeline = this.statsHolderPerPipeline;
+        Map<String, IngestMetric> statsHolderPerPipeline = this.statsHolderPerPipeline;
 
         Map<String, IngestStats.Stats> statsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
-        for (Map.Entry<String, StatsHolder> entry : statsHolderPerPipeline.entrySet()) {
+        Map<String, List<IngestStats.ProcessorStat>> processorStatsPerPipeline = new HashMap<>(statsHolderPerPipeline.size());
+        for (Map.Entry<String, IngestMetric> entry : statsHolderPerPipeline.entrySet()) {
             statsPerPipeline.put(entry.getKey(), entry.getValue().createStats());
+            Pipeline pipeline = store.get(entry.getKey());
+            if (pipeline != null) {
+                processorStatsPerPipeline.put(entry.getKey(), processorStats(pipeline.getCompoundProcessor()));
+            }
         }
 
-        return new IngestStats(totalStats.createStats(), statsPerPipeline);
+        return new IngestStats(totalStats.createStats(), statsPerPipeline, processorStatsPerPipeline);
+    }
+
+    private static List<IngestStats.ProcessorStat> processorStats(CompoundProcessor compoundProcessor) {
+        List<Processor> processors = compoundProcessor.getProcessors();
+        List<IngestMetric> metrics = compoundProcessor.getProcessorMetrics();
+        if (processors == null || metrics == null) {
+            return Collections.emptyList();
+        }
+        List<IngestStats.ProcessorStat> processorStats = new ArrayList<>(processors.size());
+        for (int i = 0; i < processors.size(); i++) {
+            Processor processor = processors.get(i);
+            // processors with an on_failure block are wrapped into their own compound processor
+            if (processor instanceof CompoundProcessor && ((CompoundProcessor) processor).getProcessors().size() == 1) {
+                processor = ((CompoundProcessor) processor).getProcessors().get(0);
+            }
+            Map<String, Long> additionalStats = Collections.emptyMap();
+            if (processor instanceof ProcessorStatsProvider) {
+                additionalStats = ((ProcessorStatsProvider) processor).getProcessorStats();
+            }
+            processorStats.add(new IngestStats.ProcessorStat(processor.getType(), processor.getTag(), metrics.get(i).createStats(),
+                additionalStats));
+        }
+        return processorStats;
     }
 
     @Override
@@ -123,7 +154,7 @@ public class PipelineExecutionService implements ClusterStateListener {
 
     void updatePipelineStats(IngestMetadata ingestMetadata) {
         boolean changed = false;
-        Map<String, StatsHolder> newStatsPerPipeline = new HashMap<>(statsHolderPerPipeline);
+        Map<String, IngestMetric> newStatsPerPipeline = new HashMap<>(statsHolderPerPipeline);
         for (String pipeline : newStatsPerPipeline.keySet()) {
             if (ingestMetadata.getPipelines().containsKey(pipeline) == false) {
                 newStatsPerPipeline.remove(pipeline);
@@ -132,7 +163,7 @@ public class PipelineExecutionService implements ClusterStateListener {
         }
         for (String pipeline : ingestMetadata.getPipelines().keySet()) {
             if (newStatsPerPipeline.containsKey(pipeline) == false) {
-                newStatsPerPipeline.put(pipeline, new StatsHolder());
+                newStatsPerPipeline.put(pipeline, new IngestMetric());
                 changed = true;
             }
         }
@@ -146,10 +177,10 @@ public class PipelineExecutionService implements ClusterStateListener {
         long startTimeInNanos = System.nanoTime();
         // the pipeline specific stat holder may not exist and that is fine:
         // (e.g. the pipeline may have been removed while we're ingesting a document
-        Optional<StatsHolder> pipelineStats = Optional.ofNullable(statsHolderPerPipeline.get(pipeline.getId()));
+        Optional<IngestMetric> pipelineStats = Optional.ofNullable(statsHolderPerPipeline.get(pipeline.getId()));
         try {
             totalStats.preIngest();
-            pipelineStats.ifPresent(StatsHolder::preIngest);
+            pipelineStats.ifPresent(IngestMetric::preIngest);
             String index = indexRequest.index();
             String type = indexRequest.type();
             String id = indexRequest.id();
@@ -174,12 +205,12 @@ public class PipelineExecutionService implements ClusterStateListener {
             indexRequest.source(ingestDocument.getSourceAndMetadata());
         } catch (Exception e) {
             totalStats.ingestFailed();
-            pipelineStats.ifPresent(StatsHolder::ingestFailed);
+            pipelineStats.ifPresent(IngestMetric::ingestFailed);
             throw e;
         } finally {
-            long ingestTimeInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
-            totalStats.postIngest(ingestTimeInMillis);
-            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(ingestTimeInMillis));
+            long ingestTimeInNanos = System.nanoTime() - startTimeInNanos;
+            totalStats.postIngest(ingestTimeInNanos);
+            pipelineStats.ifPresent(statsHolder -> statsHolder.postIngest(ingestTimeInNanos));
         }
     }
 
@@ -191,29 +222,73 @@ public class PipelineExecutionService implements ClusterStateListener {
         return pipeline;
     }
 
-    static class StatsHolder {
+    /**
+     * Runs the documents of a bulk request through their pipelines in batches of {@link #BULK_BATCH_SIZE} consecutive documents.
+     * All batches but the first are forked to the ingest thread pool, the first one is executed by the calling thread. Failures
+     * are collected per document and handed to the item failure handler in the order of the documents once all batches are done,
+     * just before the completion handler is invoked.
+     */
+    private final class BulkExecution {
 
-        private final MeanMetric ingestMetric = new MeanMetric();
-        private final CounterMetric ingestCurrent = new CounterMetric();
-        private final CounterMetric ingestFailed = new CounterMetric();
+        private final List<IndexRequest> indexRequests;
+        private final BiConsumer<IndexRequest, Throwable> itemFailureHandler;
+        private final Consumer<Throwable> completionHandler;
+        private final Throwable[] failures;
+        private final CountDown pendingBatches;
 
-        void preIngest() {
-            ingestCurrent.inc();
+        BulkExecution(List<IndexRequest> indexRequests, BiConsumer<IndexRequest, Throwable> itemFailureHandler,
+                      Consumer<Throwable> completionHandler) {
+            this.indexRequests = indexRequests;
+            this.itemFailureHandler = itemFailureHandler;
+            this.completionHandler = completionHandler;
+            this.failures = new Throwable[indexRequests.size()];
+            this.pendingBatches = new CountDown(Math.max(1, (indexRequests.size() + BULK_BATCH_SIZE - 1) / BULK_BATCH_SIZE));
         }
 
-        void postIngest(long ingestTimeInMillis) {
-            ingestCurrent.dec();
-            ingestMetric.inc(ingestTimeInMillis);
+        void run() {
+            for (int from = BULK_BATCH_SIZE; from < indexRequests.size(); from += BULK_BATCH_SIZE) {
+                final int batchFrom = from;
+                final int batchTo = Math.min(indexRequests.size(), from + BULK_BATCH_SIZE);
+                try {
+                    threadPool.executor(ThreadPool.Names.INGEST).execute(() -> executeBatch(batchFrom, batchTo));
+                } catch (EsRejectedExecutionException e) {
+                    // the ingest thread pool is busy, no need to fail the documents as we can just process them here
+                    executeBatch(batchFrom, batchTo);
+                }
+            }
+            executeBatch(0, Math.min(indexRequests.size(), BULK_BATCH_SIZE));
         }
 
-        void ingestFailed() {
-            ingestFailed.inc();
+        private void executeBatch(int from, int to) {
+            for (int i = from; i < to; i++) {
+                IndexRequest indexRequest = indexRequests.get(i);
+                try {
+                    innerExecute(indexRequest, getPipeline(indexRequest.getPipeline()));
+                    //this shouldn't be needed here but we do it for consistency with index api which requires it
+                    //to prevent double execution
+                    indexRequest.setPipeline(null);
+                } catch (Throwable e) {
+                    failures[i] = e;
+                }
+            }
+            if (pendingBatches.countDown()) {
+                onCompletion();
+            }
         }
 
-        IngestStats.Stats createStats() {
-            return new IngestStats.Stats(ingestMetric.count(), ingestMetric.sum(), ingestCurrent.count(), ingestFailed.count());
+        private void onCompletion() {
+            try {
+                for (int i = 0; i < failures.length; i++) {
+                    if (failures[i] != null) {
+                        itemFailureHandler.accept(indexRequests.get(i), failures[i]);
+                    }
+                }
+            } catch (Throwable t) {
+                completionHandler.accept(t);
+                return;
+            }
+            completionHandler.accept(null);
         }
-
     }
 
 }
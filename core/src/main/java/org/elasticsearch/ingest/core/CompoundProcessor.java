@@ -21,6 +21,7 @@
 package org.elasticsearch.ingest.core;
 
 import org.elasticsearch.common.util.iterable.Iterables;
+import org.elasticsearch.ingest.IngestMetric;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -41,6 +42,7 @@ public class CompoundProcessor implements Processor {
 
     private final List<Processor> processors;
     private final List<Processor> onFailureProcessors;
+    private final List<IngestMetric> processorMetrics;
 
     public CompoundProcessor(Processor... processor) {
         this(Arrays.asList(processor), Collections.emptyList());
@@ -50,6 +52,11 @@ public class CompoundProcessor implements Processor {
         super();
         this.processors = processors;
         this.onFailureProcessors = onFailureProcessors;
+        List<IngestMetric> processorMetrics = new ArrayList<>(processors.size());
+        for (int i = 0; i < processors.size(); i++) {
+            processorMetrics.add(new IngestMetric());
+        }
+        this.processorMetrics = Collections.unmodifiableList(processorMetrics);
     }
 
     public List<Processor> getOnFailureProcessors() {
@@ -60,6 +67,13 @@ public class CompoundProcessor implements Processor {
         return processors;
     }
 
+    /**
+     * The metrics of the processors returned by {@link #getProcessors()}, in the same order
+     */
+    public List<IngestMetric> getProcessorMetrics() {
+        return processorMetrics;
+    }
+
     public List<Processor> flattenProcessors() {
         List<Processor> allProcessors = new ArrayList<>(flattenProcessors(processors));
         allProcessors.addAll(flattenProcessors(onFailureProcessors));
@@ -90,16 +104,23 @@ public class CompoundProcessor implements Processor {
 
     @Override
     public void execute(IngestDocument ingestDocument) throws Exception {
-        for (Processor processor : processors) {
+        for (int i = 0; i < processors.size(); i++) {
+            Processor processor = processors.get(i);
+            IngestMetric metric = processorMetrics.get(i);
+            long startTimeInNanos = System.nanoTime();
+            metric.preIngest();
             try {
                 processor.execute(ingestDocument);
             } catch (Exception e) {
+                metric.ingestFailed();
                 if (onFailureProcessors.isEmpty()) {
                     throw e;
                 } else {
                     executeOnFailure(ingestDocument, e, processor.getType(), processor.getTag());
                 }
                 break;
+            } finally {
+                metric.postIngest(System.nanoTime() - startTimeInNanos);
             }
         }
     }
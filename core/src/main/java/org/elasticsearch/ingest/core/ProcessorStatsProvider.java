@@ -0,0 +1,34 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.core;
+
+import java.util.Map;
+
+/**
+ * A {@link Processor} that keeps processor specific counters, for example the hits and misses of a lookup cache.
+ * The counters are reported next to the processor's stats in the ingest section of the node stats.
+ */
+public interface ProcessorStatsProvider {
+
+    /**
+     * @return the current value of each of the processor specific counters, keyed by the name they are reported under
+     */
+    Map<String, Long> getProcessorStats();
+}
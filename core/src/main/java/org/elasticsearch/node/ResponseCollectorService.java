@@ -0,0 +1,203 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects statistics about the responses of the search requests this node sends to other nodes: the time it took to
+ * receive the response, the search queue size and the service time the remote node reported, and the number of
+ * requests that are still outstanding. The statistics are used to rank the copies of a shard when adaptive replica
+ * selection is enabled, following the C3 algorithm.
+ */
+public final class ResponseCollectorService extends AbstractComponent {
+
+    /**
+     * The weight of a new sample in the moving averages, high enough to react quickly to a node that gets overloaded
+     */
+    public static final double ALPHA = 0.3;
+
+    private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public ResponseCollectorService(Settings settings) {
+        super(settings);
+    }
+
+    /**
+     * Records that a search request was sent to the given node and is now outstanding.
+     */
+    public void requestSent(String nodeId) {
+        nodeIdToStats.computeIfAbsent(nodeId, NodeStatistics::new).outstandingRequests.incrementAndGet();
+    }
+
+    /**
+     * Records that a search request sent to the given node completed without statistics, for instance because it failed.
+     */
+    public void requestCompleted(String nodeId) {
+        NodeStatistics stats = nodeIdToStats.get(nodeId);
+        if (stats != null) {
+            stats.outstandingRequests.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records the response to a search request sent to the given node.
+     *
+     * @param queueSize            the size of the search queue the remote node reported
+     * @param responseTimeNanos    the time it took from sending the request until the response was received
+     * @param serviceTimeEWMANanos the moving average of the time the remote node spends executing a request
+     */
+    public void addNodeStatistics(String nodeId, int queueSize, long responseTimeNanos, long serviceTimeEWMANanos) {
+        NodeStatistics stats = nodeIdToStats.computeIfAbsent(nodeId, NodeStatistics::new);
+        stats.outstandingRequests.decrementAndGet();
+        stats.update(queueSize, responseTimeNanos, serviceTimeEWMANanos);
+    }
+
+    /**
+     * Forgets all statistics about the given node, for instance because it left the cluster.
+     */
+    public void removeNode(String nodeId) {
+        nodeIdToStats.remove(nodeId);
+    }
+
+    /**
+     * Returns the statistics of the given node or <code>null</code> if no response of that node has been received yet.
+     */
+    public ComputedNodeStats getNodeStatistics(String nodeId) {
+        final int clientNum = nodeIdToStats.size();
+        NodeStatistics stats = nodeIdToStats.get(nodeId);
+        return stats == null || stats.initialized() == false ? null : new ComputedNodeStats(clientNum, stats);
+    }
+
+    /**
+     * Returns the statistics of all nodes that a response was received from, keyed by node id.
+     */
+    public Map<String, ComputedNodeStats> getAllNodeStatistics() {
+        final int clientNum = nodeIdToStats.size();
+        Map<String, ComputedNodeStats> nodeStats = new HashMap<>(clientNum);
+        for (Map.Entry<String, NodeStatistics> entry : nodeIdToStats.entrySet()) {
+            if (entry.getValue().initialized()) {
+                nodeStats.put(entry.getKey(), new ComputedNodeStats(clientNum, entry.getValue()));
+            }
+        }
+        return Collections.unmodifiableMap(nodeStats);
+    }
+
+    /**
+     * Moves the statistics of a node that lost against another copy towards the average of its own and the winner's.
+     * Without this a node that was slow once would never be selected again and therefore never get the chance to
+     * report that it recovered.
+     */
+    public void adjustNodeStatistics(String nodeId, ComputedNodeStats winner) {
+        NodeStatistics stats = nodeIdToStats.get(nodeId);
+        if (stats != null && stats.initialized()) {
+            ComputedNodeStats loser = new ComputedNodeStats(0, stats);
+            stats.update((int) ((loser.queueSize + winner.queueSize) / 2), (long) ((loser.responseTime + winner.responseTime) / 2),
+                (long) ((loser.serviceTime + winner.serviceTime) / 2));
+        }
+    }
+
+    /**
+     * A point in time snapshot of the statistics of a single node.
+     */
+    public static final class ComputedNodeStats {
+
+        public final String nodeId;
+        public final int clientNum;
+        public final long outstandingRequests;
+        public final double queueSize;
+        public final double responseTime;
+        public final double serviceTime;
+
+        public ComputedNodeStats(String nodeId, int clientNum, long outstandingRequests, double queueSize, double responseTime,
+                                 double serviceTime) {
+            this.nodeId = nodeId;
+            this.clientNum = clientNum;
+            this.outstandingRequests = outstandingRequests;
+            this.queueSize = queueSize;
+            this.responseTime = responseTime;
+            this.serviceTime = serviceTime;
+        }
+
+        ComputedNodeStats(int clientNum, NodeStatistics stats) {
+            this(stats.nodeId, clientNum, Math.max(0, stats.outstandingRequests.get()), stats.queueSize.getAverage(),
+                stats.responseTime.getAverage(), stats.serviceTime.getAverage());
+        }
+
+        /**
+         * The rank of the node, lower is better. Each request that is still outstanding counts as if it was queued on
+         * the remote node as many times as there are nodes sending requests, and the queue is penalized cubically so
+         * that a node with a growing queue is avoided long before it becomes the bottleneck.
+         */
+        public double rank() {
+            double queueSizeEstimate = 1 + outstandingRequests * clientNum + queueSize;
+            return responseTime - serviceTime + Math.pow(queueSizeEstimate, 3) * serviceTime;
+        }
+
+        @Override
+        public String toString() {
+            return "ComputedNodeStats[" + nodeId + "](clients: " + clientNum + ", outstanding: " + outstandingRequests
+                + ", queue: " + queueSize + ", response time: " + responseTime + ", service time: " + serviceTime
+                + ", rank: " + rank() + ")";
+        }
+    }
+
+    private static final class NodeStatistics {
+
+        final String nodeId;
+        final AtomicLong outstandingRequests = new AtomicLong();
+        // the averages are created from the first response of the node, starting them at zero would make it look fast
+        volatile ExponentiallyWeightedMovingAverage queueSize;
+        volatile ExponentiallyWeightedMovingAverage responseTime;
+        volatile ExponentiallyWeightedMovingAverage serviceTime;
+
+        NodeStatistics(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        boolean initialized() {
+            return serviceTime != null;
+        }
+
+        synchronized void update(int queueSize, long responseTimeNanos, long serviceTimeNanos) {
+            if (initialized()) {
+                this.queueSize.addValue(queueSize);
+                this.responseTime.addValue(responseTimeNanos);
+                this.serviceTime.addValue(serviceTimeNanos);
+            } else {
+                this.queueSize = new ExponentiallyWeightedMovingAverage(ALPHA, queueSize);
+                this.responseTime = new ExponentiallyWeightedMovingAverage(ALPHA, responseTimeNanos);
+                // set last, it marks the statistics as initialized
+                this.serviceTime = new ExponentiallyWeightedMovingAverage(ALPHA, serviceTimeNanos);
+            }
+        }
+    }
+}
@@ -170,6 +170,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private final boolean readOnly;
 
+    private final int maxConcurrentFileTransfers;
+
     /**
      * Constructs new BlobStoreRepository
      *
@@ -184,6 +186,11 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         snapshotRateLimiter = getRateLimiter(repositorySettings, "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(repositorySettings, "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = repositorySettings.settings().getAsBoolean("readonly", false);
+        maxConcurrentFileTransfers = repositorySettings.settings().getAsInt("max_concurrent_file_transfers", 5);
+        if (maxConcurrentFileTransfers < 1) {
+            throw new RepositoryException(repositoryName, "[max_concurrent_file_transfers] must be at least 1 but was ["
+                + maxConcurrentFileTransfers + "]");
+        }
     }
 
     /**
@@ -192,7 +199,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     protected void doStart() {
         this.snapshotsBlobContainer = blobStore().blobContainer(basePath());
-        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress());
+        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this, isCompress(),
+            maxConcurrentFileTransfers);
 
         ParseFieldMatcher parseFieldMatcher = new ParseFieldMatcher(settings);
         globalMetaDataFormat = new ChecksumBlobStoreFormat<>(METADATA_CODEC, METADATA_NAME_FORMAT, MetaData.PROTO, parseFieldMatcher, isCompress());
@@ -97,6 +97,8 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorParsers;
 import org.elasticsearch.search.aggregations.bucket.children.ChildrenParser;
 import org.elasticsearch.search.aggregations.bucket.children.InternalChildren;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeParser;
+import org.elasticsearch.search.aggregations.bucket.composite.InternalComposite;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterParser;
 import org.elasticsearch.search.aggregations.bucket.filter.InternalFilter;
 import org.elasticsearch.search.aggregations.bucket.filters.FiltersParser;
@@ -402,6 +404,7 @@ public class SearchModule extends AbstractModule {
         registerAggregatorParser(new MissingParser());
         registerAggregatorParser(new FilterParser());
         registerAggregatorParser(new FiltersParser(indicesQueriesRegistry));
+        registerAggregatorParser(new CompositeParser());
         registerAggregatorParser(new SamplerParser());
         registerAggregatorParser(new DiversifiedSamplerParser());
         registerAggregatorParser(new TermsParser());
@@ -565,6 +568,7 @@ public class SearchModule extends AbstractModule {
         InternalGlobal.registerStreams();
         InternalFilter.registerStreams();
         InternalFilters.registerStream();
+        InternalComposite.registerStream();
         InternalSampler.registerStreams();
         UnmappedSampler.registerStreams();
         InternalMissing.registerStreams();
@@ -33,6 +33,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -56,6 +57,7 @@ import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.script.ScriptService;
@@ -102,7 +104,9 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static java.util.Collections.unmodifiableMap;
@@ -159,6 +163,13 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
     private final AggregatorParsers aggParsers;
     private final Suggesters suggesters;
 
+    /**
+     * The moving average of the time this node spends executing the first phase of a shard level search request,
+     * reported back to the coordinating node for adaptive replica selection.
+     */
+    private final ExponentiallyWeightedMovingAverage serviceTimeEWMA =
+        new ExponentiallyWeightedMovingAverage(ResponseCollectorService.ALPHA, 0);
+
     @Inject
     public SearchService(Settings settings, ClusterSettings clusterSettings, ClusterService clusterService, IndicesService indicesService,
                          ThreadPool threadPool, ScriptService scriptService, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase,
@@ -266,6 +277,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             final QueryPhase queryPhase) throws Exception {
         final boolean canCache = indicesService.canCache(request, context);
         if (canCache) {
+            // if the shard level entry is missing, the aggregations of the segments that didn't change can still be reused
+            context.segmentAggregationCache(indicesService.segmentAggregationCache(request, context));
             indicesService.loadIntoContext(request, context, queryPhase);
         } else {
             queryPhase.execute(context);
@@ -287,7 +300,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             } else {
                 contextProcessedSuccessfully(context);
             }
-            shardSearchStats.onQueryPhase(context, System.nanoTime() - time);
+            final long took = System.nanoTime() - time;
+            shardSearchStats.onQueryPhase(context, took);
+            addNodeStatistics(context.queryResult(), took);
 
             return context.queryResult();
         } catch (Throwable e) {
@@ -354,6 +369,19 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         }
     }
 
+    /**
+     * Adds the service time of a request and attaches the current search queue size and service time average to its
+     * result so that the coordinating node can rank this node against other nodes holding a copy of the same shard.
+     */
+    private void addNodeStatistics(QuerySearchResult result, long serviceTimeNanos) {
+        serviceTimeEWMA.addValue(serviceTimeNanos);
+        result.serviceTimeEWMA((long) serviceTimeEWMA.getAverage());
+        final Executor executor = threadPool.executor(ThreadPool.Names.SEARCH);
+        if (executor instanceof ThreadPoolExecutor) {
+            result.nodeQueueSize(((ThreadPoolExecutor) executor).getQueue().size());
+        }
+    }
+
     private boolean fetchPhaseShouldFreeContext(SearchContext context) {
         if (context.scrollContext() == null) {
             // simple search, no scroll
@@ -392,7 +420,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
                 shardSearchStats.onFailedFetchPhase(context);
                 throw ExceptionsHelper.convertToRuntime(e);
             }
-            shardSearchStats.onFetchPhase(context, System.nanoTime() - time2);
+            final long now = System.nanoTime();
+            shardSearchStats.onFetchPhase(context, now - time2);
+            addNodeStatistics(context.queryResult(), now - time);
             return new QueryFetchSearchResult(context.queryResult(), context.fetchResult());
         } catch (Throwable e) {
             logger.trace("Fetch phase failed", e);
@@ -544,6 +574,9 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
         IndexShard indexShard = indexService.getShard(request.shardId().getId());
         SearchShardTarget shardTarget = new SearchShardTarget(clusterService.localNode().id(), indexShard.shardId());
 
+        if (searcher == null) {
+            indexShard.onSearch();
+        }
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
 
         DefaultSearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher,
@@ -551,6 +584,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
                 indexShard, scriptService, pageCacheRecycler, bigArrays, threadPool.estimatedTimeInMillisCounter(), parseFieldMatcher,
                 defaultSearchTimeout, fetchPhase);
         context.getQueryShardContext().setFieldStatsProvider(new FieldStatsProvider(engineSearcher, indexService.mapperService()));
+        final int searchConcurrency = indexService.getIndexSettings().getSearchConcurrency();
+        if (searchConcurrency > 1) {
+            context.searcher().setSliceExecutor(searchConcurrency, threadPool.executor(ThreadPool.Names.SEARCH));
+        }
         SearchContext.setCurrent(context);
         request.rewrite(context.getQueryShardContext());
         // reset that we have used nowInMillis from the context since it may
@@ -695,6 +732,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             }
         }
         context.trackScores(source.trackScores());
+        context.trackTotalHits(source.trackTotalHits());
         if (source.minScore() != null) {
             context.minimumScore(source.minScore());
         }
@@ -827,6 +865,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> imp
             FieldDoc fieldDoc = SearchAfterBuilder.buildFieldDoc(context.sort(), source.searchAfter());
             context.searchAfter(fieldDoc);
         }
+        if (source.slice() != null) {
+            if (context.scrollContext() == null) {
+                throw new SearchContextException(context, "`slice` cannot be used outside of a scroll context");
+            }
+            context.sliceFilter(source.slice().toFilter(queryShardContext,
+                context.shardTarget().shardId().id(),
+                queryShardContext.getIndexSettings().getNumberOfShards()));
+        }
     }
 
     private static final int[] EMPTY_DOC_IDS = new int[0];
@@ -31,6 +31,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
 import org.elasticsearch.search.fetch.FetchSearchResult;
@@ -46,6 +47,7 @@ import org.elasticsearch.search.query.QuerySearchResultProvider;
 import org.elasticsearch.search.query.ScrollQuerySearchResult;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportConnectionListener;
 import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportResponse;
@@ -74,12 +76,25 @@ public class SearchTransportService extends AbstractComponent {
 
     private final TransportService transportService;
     private final SearchService searchService;
+    private final ResponseCollectorService responseCollectorService;
 
     @Inject
-    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService) {
+    public SearchTransportService(Settings settings, TransportService transportService, SearchService searchService,
+                                  ResponseCollectorService responseCollectorService) {
         super(settings);
         this.transportService = transportService;
         this.searchService = searchService;
+        this.responseCollectorService = responseCollectorService;
+        transportService.addConnectionListener(new TransportConnectionListener() {
+            @Override
+            public void onNodeConnected(DiscoveryNode node) {
+            }
+
+            @Override
+            public void onNodeDisconnected(DiscoveryNode node) {
+                responseCollectorService.removeNode(node.getId());
+            }
+        });
         transportService.registerRequestHandler(FREE_CONTEXT_SCROLL_ACTION_NAME, ScrollFreeContextRequest::new, ThreadPool.Names.SAME,
                 new FreeContextTransportHandler<>());
         transportService.registerRequestHandler(FREE_CONTEXT_ACTION_NAME, SearchFreeContextRequest::new, ThreadPool.Names.SAME,
@@ -159,7 +174,7 @@ public class SearchTransportService extends AbstractComponent {
     public void sendExecuteQuery(DiscoveryNode node, final ShardSearchTransportRequest request,
                                  final ActionListener<QuerySearchResultProvider> listener) {
         transportService.sendRequest(node, QUERY_ACTION_NAME, request,
-                new ActionListenerResponseHandler<QuerySearchResultProvider>(listener) {
+                new ActionListenerResponseHandler<QuerySearchResultProvider>(collectNodeStatistics(node, listener)) {
             @Override
             public QuerySearchResult newInstance() {
                 return new QuerySearchResult();
@@ -190,7 +205,7 @@ public class SearchTransportService extends AbstractComponent {
     public void sendExecuteFetch(DiscoveryNode node, final ShardSearchTransportRequest request,
                                  final ActionListener<QueryFetchSearchResult> listener) {
         transportService.sendRequest(node, QUERY_FETCH_ACTION_NAME, request,
-                new ActionListenerResponseHandler<QueryFetchSearchResult>(listener) {
+                new ActionListenerResponseHandler<QueryFetchSearchResult>(collectNodeStatistics(node, listener)) {
             @Override
             public QueryFetchSearchResult newInstance() {
                 return new QueryFetchSearchResult();
@@ -220,6 +235,36 @@ public class SearchTransportService extends AbstractComponent {
         });
     }
 
+    /**
+     * Wraps the listener of a request that is sent to the first copy of a shard that was selected for a search, so that
+     * the outstanding requests, the response time and the load that the node reports are recorded for adaptive replica
+     * selection.
+     */
+    private <T extends QuerySearchResultProvider> ActionListener<T> collectNodeStatistics(DiscoveryNode node, ActionListener<T> listener) {
+        final String nodeId = node.getId();
+        final long startNanos = System.nanoTime();
+        responseCollectorService.requestSent(nodeId);
+        return new ActionListener<T>() {
+            @Override
+            public void onResponse(T response) {
+                final QuerySearchResult queryResult = response.queryResult();
+                if (queryResult.nodeQueueSize() >= 0 && queryResult.serviceTimeEWMA() >= 0) {
+                    responseCollectorService.addNodeStatistics(nodeId, queryResult.nodeQueueSize(), System.nanoTime() - startNanos,
+                        queryResult.serviceTimeEWMA());
+                } else {
+                    responseCollectorService.requestCompleted(nodeId);
+                }
+                listener.onResponse(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                responseCollectorService.requestCompleted(nodeId);
+                listener.onFailure(e);
+            }
+        };
+    }
+
     public void sendExecuteFetch(DiscoveryNode node, final ShardFetchSearchRequest request,
                                  final ActionListener<FetchSearchResult> listener) {
         sendExecuteFetch(node, FETCH_ID_ACTION_NAME, request, listener);
@@ -23,6 +23,9 @@ import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.aggregations.bucket.children.Children;
 import org.elasticsearch.search.aggregations.bucket.children.ChildrenAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregatorBuilder;
 import org.elasticsearch.search.aggregations.bucket.filters.Filters;
@@ -82,6 +85,8 @@ import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregatorBu
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
 import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregatorBuilder;
 
+import java.util.List;
+
 /**
  * Utility class to create aggregations.
  */
@@ -160,6 +165,13 @@ public class AggregationBuilders {
         return new FiltersAggregatorBuilder(name, filters);
     }
 
+    /**
+     * Create a new {@link CompositeAggregation} aggregation with the given name.
+     */
+    public static CompositeAggregatorBuilder composite(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        return new CompositeAggregatorBuilder(name, sources);
+    }
+
     /**
      * Create a new {@link Sampler} aggregation with the given name.
      */
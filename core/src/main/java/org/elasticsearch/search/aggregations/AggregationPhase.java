@@ -26,6 +26,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
@@ -33,10 +34,12 @@ import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
 import org.elasticsearch.search.profile.InternalProfileCollector;
+import org.elasticsearch.search.profile.aggregation.ProfilingAggregator;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -79,7 +82,7 @@ public class AggregationPhase implements SearchPhase {
                 AggregatorFactories factories = context.aggregations().factories();
                 aggregators = factories.createTopLevelAggregators();
                 for (int i = 0; i < aggregators.length; i++) {
-                    if (aggregators[i] instanceof GlobalAggregator == false) {
+                    if (ProfilingAggregator.unwrap(aggregators[i]) instanceof GlobalAggregator == false) {
                         collectors.add(aggregators[i]);
                     }
                 }
@@ -100,6 +103,34 @@ public class AggregationPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Creates a new set of top level aggregators that collect an additional slice of the leaves of a concurrent search. The
+     * results of these aggregators are reduced with the results of the main aggregators on execution.
+     */
+    public static Collector createSliceCollector(SearchContext context) throws IOException {
+        Aggregator[] aggregators = context.aggregations().factories().createTopLevelAggregators();
+        context.aggregations().addSliceAggregators(aggregators);
+        BucketCollector collector = BucketCollector.wrap(Arrays.asList(aggregators));
+        collector.preCollection();
+        return collector;
+    }
+
+    /**
+     * Builds the results of the given top level aggregators once they collected all their documents.
+     */
+    public static InternalAggregations buildAggregations(Aggregator[] aggregators) {
+        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
+        for (Aggregator aggregator : aggregators) {
+            try {
+                aggregator.postCollection();
+                aggregations.add(aggregator.buildAggregation(0));
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+            }
+        }
+        return new InternalAggregations(aggregations);
+    }
+
     @Override
     public void execute(SearchContext context) {
         if (context.aggregations() == null) {
@@ -115,7 +146,7 @@ public class AggregationPhase implements SearchPhase {
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
-            if (aggregators[i] instanceof GlobalAggregator) {
+            if (ProfilingAggregator.unwrap(aggregators[i]) instanceof GlobalAggregator) {
                 globals.add(aggregators[i]);
             }
         }
@@ -155,16 +186,26 @@ public class AggregationPhase implements SearchPhase {
             }
         }
 
-        List<InternalAggregation> aggregations = new ArrayList<>(aggregators.length);
-        for (Aggregator aggregator : context.aggregations().aggregators()) {
-            try {
-                aggregator.postCollection();
-                aggregations.add(aggregator.buildAggregation(0));
-            } catch (IOException e) {
-                throw new AggregationExecutionException("Failed to build aggregation [" + aggregator.name() + "]", e);
+        InternalAggregations internalAggregations = buildAggregations(context.aggregations().aggregators());
+        List<Aggregator[]> sliceAggregators = context.aggregations().sliceAggregators();
+        List<InternalAggregations> segmentAggregations = context.aggregations().segmentAggregations();
+        if (context.aggregations().collectsSegmentsSeparately() || sliceAggregators.isEmpty() == false
+                || segmentAggregations.isEmpty() == false) {
+            List<InternalAggregations> slices = new ArrayList<>(sliceAggregators.size() + segmentAggregations.size() + 1);
+            slices.add(internalAggregations);
+            for (Aggregator[] slice : sliceAggregators) {
+                slices.add(buildAggregations(slice));
             }
+            slices.addAll(segmentAggregations);
+            // the shard level result is reduced again on the coordinating node, so pipeline aggregations must not run yet
+            internalAggregations = InternalAggregations.reduce(slices,
+                    new ReduceContext(context.bigArrays(), context.scriptService(), false, true));
+        }
+        context.queryResult().aggregations(internalAggregations);
+        if (context.getProfilers() != null) {
+            // the aggregators are released at the end of the phase, read their counts while they are still there
+            context.getProfilers().getAggregationProfiler().freezeCounts();
         }
-        context.queryResult().aggregations(new InternalAggregations(aggregations));
         try {
             List<PipelineAggregator> pipelineAggregators = context.aggregations().factories().createPipelineAggregators();
             List<SiblingPipelineAggregator> siblingPipelineAggregators = new ArrayList<>(pipelineAggregators.size());
@@ -24,6 +24,8 @@ import org.elasticsearch.search.aggregations.bucket.DeferringBucketCollector;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
+import org.elasticsearch.search.profile.Profilers;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileBreakdown.CountType;
 import org.elasticsearch.search.query.QueryPhaseExecutionException;
 
 import java.io.IOException;
@@ -68,6 +70,11 @@ public abstract class AggregatorBase extends Aggregator {
         assert factories != null : "sub-factories provided to BucketAggregator must not be null, use AggragatorFactories.EMPTY instead";
         this.subAggregators = factories.createSubAggregators(this);
         context.searchContext().addReleasable(this, Lifetime.PHASE);
+        final Profilers profilers = context.searchContext().getProfilers();
+        if (profilers != null) {
+            profilers.getAggregationProfiler().getBreakdown(this, null)
+                    .addCounter(CountType.DEFERRED_DOCS_REPLAYED, this::deferredDocsReplayed);
+        }
         // Register a safeguard to highlight any invalid construction logic (call to this constructor without subsequent preCollection call)
         collectableSubAggregators = new BucketCollector() {
             void badState(){
@@ -190,6 +197,13 @@ public abstract class AggregatorBase extends Aggregator {
         }
     }
 
+    /**
+     * Returns the number of documents that were replayed to the deferred sub-aggregators of this aggregator so far.
+     */
+    public long deferredDocsReplayed() {
+        return recordingWrapper == null ? 0 : recordingWrapper.getReplayedDocs();
+    }
+
     /**
      * @return  The name of the aggregation.
      */
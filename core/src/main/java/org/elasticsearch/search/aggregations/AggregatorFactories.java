@@ -28,6 +28,8 @@ import org.elasticsearch.search.aggregations.pipeline.PipelineAggregatorBuilder;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
 import org.elasticsearch.search.aggregations.support.AggregationPath.PathElement;
+import org.elasticsearch.search.profile.Profilers;
+import org.elasticsearch.search.profile.aggregation.ProfilingAggregator;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -82,7 +84,7 @@ public class AggregatorFactories {
             // propagate the fact that only bucket 0 will be collected with single-bucket
             // aggs
             final boolean collectsFromSingleBucket = false;
-            aggregators[i] = factories[i].create(parent, collectsFromSingleBucket);
+            aggregators[i] = profile(factories[i], factories[i].create(parent, collectsFromSingleBucket));
         }
         return aggregators;
     }
@@ -93,11 +95,22 @@ public class AggregatorFactories {
         for (int i = 0; i < factories.length; i++) {
             // top-level aggs only get called with bucket 0
             final boolean collectsFromSingleBucket = true;
-            aggregators[i] = factories[i].create(null, collectsFromSingleBucket);
+            aggregators[i] = profile(factories[i], factories[i].create(null, collectsFromSingleBucket));
         }
         return aggregators;
     }
 
+    /**
+     * Wraps the given aggregator to record its timings if the search is profiled.
+     */
+    private static Aggregator profile(AggregatorFactory<?> factory, Aggregator aggregator) {
+        final Profilers profilers = factory.context.searchContext().getProfilers();
+        if (profilers == null) {
+            return aggregator;
+        }
+        return new ProfilingAggregator(aggregator, factory.getType(), profilers.getAggregationProfiler());
+    }
+
     /**
      * @return the number of sub-aggregator factories not including pipeline
      *         aggregator factories
@@ -113,6 +126,20 @@ public class AggregatorFactories {
         return pipelineAggregatorFactories.size();
     }
 
+    /**
+     * @return whether all aggregations of this tree can collect the segments of a
+     *         shard separately, see
+     *         {@link AggregatorFactory#canCollectSegmentsSeparately()}
+     */
+    public boolean canCollectSegmentsSeparately() {
+        for (AggregatorFactory<?> factory : factories) {
+            if (factory.canCollectSegmentsSeparately() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void validate() {
         for (AggregatorFactory<?> factory : factories) {
             factory.validate();
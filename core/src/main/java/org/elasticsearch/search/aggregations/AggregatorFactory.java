@@ -78,6 +78,14 @@ public abstract class AggregatorFactory<AF extends AggregatorFactory<AF>> {
     public void doValidate() {
     }
 
+    /**
+     * Returns whether the aggregations created by this factory and its sub factories can collect the segments of a shard
+     * separately and reduce the partial results afterwards, which isn't the case if they read statistics of the whole shard.
+     */
+    public boolean canCollectSegmentsSeparately() {
+        return factories.canCollectSegmentsSeparately();
+    }
+
     protected abstract Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket,
             List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException;
 
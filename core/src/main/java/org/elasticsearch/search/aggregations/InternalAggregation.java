@@ -94,10 +94,31 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
 
         private final BigArrays bigArrays;
         private ScriptService scriptService;
+        private final boolean isFinalReduce;
+        private final boolean isShardReduce;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService) {
+            this(bigArrays, scriptService, true);
+        }
+
+        /**
+         * @param isFinalReduce <code>false</code> if only a subset of the shard results is reduced and the result will be
+         *                      reduced again together with the other results later on
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
+            this(bigArrays, scriptService, isFinalReduce, false);
+        }
+
+        /**
+         * @param isShardReduce <code>true</code> if the results of the separate collections of the segments of a single shard are
+         *                      reduced into the result of that shard, see {@link #isShardReduce()}
+         */
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce, boolean isShardReduce) {
+            assert isFinalReduce == false || isShardReduce == false : "the result of a shard is always reduced again";
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
+            this.isFinalReduce = isFinalReduce;
+            this.isShardReduce = isShardReduce;
         }
 
         public BigArrays bigArrays() {
@@ -107,6 +128,25 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
         public ScriptService scriptService() {
             return scriptService;
         }
+
+        /**
+         * Returns <code>true</code> if this is the last reduce of the aggregation. Partial reduces must not prune buckets,
+         * apply <code>min_doc_count</code> or run pipeline aggregations and scripts, since their result is reduced again.
+         */
+        public boolean isFinalReduce() {
+            return isFinalReduce;
+        }
+
+        /**
+         * Returns <code>true</code> if the results of aggregators that collected separate groups of segments of a single shard
+         * are reduced into the result of that shard. Such aggregators keep all their buckets, see
+         * {@link org.elasticsearch.search.aggregations.SearchContextAggregations#collectsSegmentsSeparately()}, and the
+         * reduce must prune them like a single aggregator of the shard would have, since its result is sent to the
+         * coordinating node as an ordinary shard result. It is not a final reduce.
+         */
+        public boolean isShardReduce() {
+            return isShardReduce;
+        }
     }
 
 
@@ -148,8 +188,10 @@ public abstract class InternalAggregation implements Aggregation, ToXContent, St
      */
     public final InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         InternalAggregation aggResult = doReduce(aggregations, reduceContext);
-        for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
-            aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+        if (reduceContext.isFinalReduce()) {
+            for (PipelineAggregator pipelineAggregator : pipelineAggregators) {
+                aggResult = pipelineAggregator.reduce(aggResult, reduceContext);
+            }
         }
         return aggResult;
     }
@@ -20,6 +20,9 @@ package org.elasticsearch.search.aggregations;
 
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The aggregation context that is part of the search context.
  */
@@ -27,7 +30,10 @@ public class SearchContextAggregations {
 
     private final AggregatorFactories factories;
     private Aggregator[] aggregators;
+    private final List<Aggregator[]> sliceAggregators = new ArrayList<>();
+    private final List<InternalAggregations> segmentAggregations = new ArrayList<>();
     private AggregationContext aggregationContext;
+    private boolean collectsSegmentsSeparately = false;
 
     /**
      * Creates a new aggregation context with the parsed aggregator factories
@@ -61,4 +67,49 @@ public class SearchContextAggregations {
         this.aggregators = aggregators;
     }
 
+    /**
+     * Returns whether groups of segments of the shard are collected by separate sets of top level aggregators. Aggregators
+     * that prune their buckets to the shard size must then keep all their buckets: the partial results are exact that way,
+     * and the shard level reduce of the partial results prunes them instead.
+     */
+    public boolean collectsSegmentsSeparately() {
+        return collectsSegmentsSeparately;
+    }
+
+    /**
+     * Sets whether groups of segments of the shard are collected by separate sets of top level aggregators, which must be
+     * known before any aggregator builds its result.
+     */
+    public void collectsSegmentsSeparately(boolean collectsSegmentsSeparately) {
+        this.collectsSegmentsSeparately = collectsSegmentsSeparately;
+    }
+
+    /**
+     * Returns the top level aggregators that collected the additional slices of a concurrent search, if any.
+     */
+    public List<Aggregator[]> sliceAggregators() {
+        return sliceAggregators;
+    }
+
+    /**
+     * Registers the top level aggregators that collect an additional slice of a concurrent search.
+     */
+    public void addSliceAggregators(Aggregator[] aggregators) {
+        sliceAggregators.add(aggregators);
+    }
+
+    /**
+     * Returns the aggregations of the segments that were collected separately from the top level aggregators, if any.
+     */
+    public List<InternalAggregations> segmentAggregations() {
+        return segmentAggregations;
+    }
+
+    /**
+     * Registers the aggregations of a segment that was collected separately from the top level aggregators.
+     */
+    public void addSegmentAggregations(InternalAggregations aggregations) {
+        segmentAggregations.add(aggregations);
+    }
+
 }
@@ -150,14 +150,17 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
             final PackedLongValues.Iterator buckets = entry.buckets.iterator();
             int doc = 0;
+            long replayed = 0;
             for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
                 doc += docDeltaIterator.next();
                 final long bucket = buckets.next();
                 final long rebasedBucket = hash.find(bucket);
                 if (rebasedBucket != -1) {
                     leafCollector.collect(doc, rebasedBucket);
+                    replayed++;
                 }
             }
+            addReplayedDocs(replayed);
         }
 
         collector.postCollection();
@@ -247,6 +247,7 @@ public class BestDocsDeferringCollector extends DeferringBucketCollector impleme
             if (maxDocId < 0) {
                 return;
             }
+            long replayed = 0;
             for (ScoreDoc scoreDoc : sd) {
                 // Doc ids from TopDocCollector are root-level Reader so
                 // need rebasing
@@ -257,8 +258,10 @@ public class BestDocsDeferringCollector extends DeferringBucketCollector impleme
                     // We stored the bucket ID in Lucene's shardIndex property
                     // for convenience. 
                     leafCollector.collect(rebased, scoreDoc.shardIndex);
+                    replayed++;
                 }
             }
+            addReplayedDocs(replayed);
 
         }
 
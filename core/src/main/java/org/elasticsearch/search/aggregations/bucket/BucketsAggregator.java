@@ -29,6 +29,8 @@ import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.profile.Profilers;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileBreakdown.CountType;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -48,6 +50,24 @@ public abstract class BucketsAggregator extends AggregatorBase {
         super(name, factories, context, parent, pipelineAggregators, metaData);
         bigArrays = context.bigArrays();
         docCounts = bigArrays.newIntArray(1, true);
+        final Profilers profilers = context.searchContext().getProfilers();
+        if (profilers != null) {
+            profilers.getAggregationProfiler().getBreakdown(this, null).addCounter(CountType.BUCKETS, this::nonEmptyBucketCount);
+        }
+    }
+
+    /**
+     * Return the number of buckets that collected at least one document. This needs to go over all buckets, so it
+     * should only be used for profiling.
+     */
+    private long nonEmptyBucketCount() {
+        long count = 0;
+        for (long i = 0; i < docCounts.size(); ++i) {
+            if (docCounts.get(i) > 0) {
+                count++;
+            }
+        }
+        return count;
     }
 
     /**
@@ -35,9 +35,20 @@ import java.io.IOException;
 public abstract class DeferringBucketCollector extends BucketCollector {
 
     private BucketCollector collector;
+    private long replayedDocs;
     /** Sole constructor. */
     public DeferringBucketCollector() {}
 
+    /** Records that <code>count</code> documents were replayed to the deferred collectors. */
+    protected final void addReplayedDocs(long count) {
+        replayedDocs += count;
+    }
+
+    /** Returns the number of documents that were replayed to the deferred collectors so far. */
+    public long getReplayedDocs() {
+        return replayedDocs;
+    }
+
     /** Set the deferred collectors. */
     public void setDeferredCollector(Iterable<BucketCollector> deferredCollectors) {
         this.collector = BucketCollector.wrap(deferredCollectors);
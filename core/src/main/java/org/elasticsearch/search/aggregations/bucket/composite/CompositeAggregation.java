@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A multi bucket aggregation that creates a bucket per combination of the values of several sources, sorted by that compound
+ * key. Buckets are returned in pages: the key of the last bucket of a page is used as the <code>after</code> key of the request
+ * for the next page.
+ */
+public interface CompositeAggregation extends MultiBucketsAggregation {
+
+    /**
+     * A bucket associated with a combination of values, keyed by the name of the source that produced each value.
+     */
+    interface Bucket extends MultiBucketsAggregation.Bucket {
+
+        @Override
+        Map<String, Object> getKey();
+    }
+
+    /**
+     * The buckets created by this aggregation.
+     */
+    @Override
+    List<? extends Bucket> getBuckets();
+
+    /**
+     * Returns the key to use as the <code>after</code> key of the request for the next page, or <code>null</code> if this page is
+     * empty.
+     */
+    Map<String, Object> afterKey();
+}
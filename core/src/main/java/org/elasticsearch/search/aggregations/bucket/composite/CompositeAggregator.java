@@ -0,0 +1,291 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the first <code>size</code> compound keys after an optional <code>after</code> key. The keys are kept in a sorted map
+ * bounded to <code>size</code> entries: once the map is full, keys that sort after its last entry are skipped without being
+ * inserted, and a key that sorts before it takes over the bucket slot of the last entry, which is evicted. Bucket ordinals are
+ * these slots so doc counts never hold more than <code>size</code> buckets.
+ * <p>
+ * Sub-aggregations only collect the documents of the keys that survive: the documents that made it into the map are recorded
+ * and replayed once all documents were collected, re-running the query for sub-aggregations that need scores.
+ */
+public class CompositeAggregator extends BucketsAggregator {
+
+    private static class Entry {
+        final LeafReaderContext context;
+        final PackedLongValues docDeltas;
+
+        Entry(LeafReaderContext context, PackedLongValues docDeltas) {
+            this.context = context;
+            this.docDeltas = docDeltas;
+        }
+    }
+
+    private final int size;
+    private final CompositeValuesSource[] sources;
+    private final String[] sourceNames;
+    private final int[] reverseMuls;
+    private final Comparable<?>[] after;
+    private final Comparator<Comparable<?>[]> comparator;
+    private final TreeMap<Comparable<?>[], Integer> queue;
+
+    private BucketCollector subCollectors;
+    private final List<Entry> entries = new ArrayList<>();
+    private LeafReaderContext leaf;
+    private PackedLongValues.Builder docDeltas;
+
+    public CompositeAggregator(String name, AggregatorFactories factories, int size, CompositeValuesSource[] sources,
+            Comparable<?>[] after, AggregationContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.size = size;
+        this.sources = sources;
+        this.after = after;
+        this.sourceNames = new String[sources.length];
+        this.reverseMuls = new int[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            sourceNames[i] = sources[i].name;
+            reverseMuls[i] = sources[i].reverseMul;
+        }
+        this.comparator = InternalComposite.keyComparator(reverseMuls);
+        this.queue = new TreeMap<>(comparator);
+    }
+
+    @Override
+    protected void doPreCollection() throws IOException {
+        // sub-aggregations are fed by the replay of the surviving keys, not while the keys are collected
+        subCollectors = collectableSubAggregators;
+        collectableSubAggregators = BucketCollector.NO_OP_COLLECTOR;
+        subCollectors.preCollection();
+    }
+
+    private void finishLeaf() {
+        if (leaf != null) {
+            entries.add(new Entry(leaf, docDeltas.build()));
+        }
+        leaf = null;
+        docDeltas = null;
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        finishLeaf();
+        if (subAggregators.length > 0) {
+            leaf = ctx;
+            docDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        }
+        final LeafKeys keys = new LeafKeys(ctx);
+        return new LeafBucketCollector() {
+            int lastDoc = 0;
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                if (keys.visit(doc, CompositeAggregator.this::collectKey) && docDeltas != null) {
+                    docDeltas.add(doc - lastDoc);
+                    lastDoc = doc;
+                }
+            }
+        };
+    }
+
+    /**
+     * Counts the document in the bucket of the given key, inserting the key if it is one of the first <code>size</code> keys
+     * seen so far. Returns <code>false</code> if the key was skipped.
+     */
+    private boolean collectKey(Comparable<?>[] key) {
+        Integer slot = queue.get(key);
+        if (slot == null) {
+            if (after != null && comparator.compare(key, after) <= 0) {
+                return false;
+            }
+            if (queue.size() >= size) {
+                if (comparator.compare(key, queue.lastKey()) >= 0) {
+                    return false;
+                }
+                // the evicted key sorts after every key that can still be inserted so it never comes back, the new key reuses
+                // its slot, sub-aggregations are only collected for the final keys
+                slot = queue.pollLastEntry().getValue();
+                getDocCounts().set(slot, 0);
+            } else {
+                slot = queue.size();
+            }
+            queue.put(key.clone(), slot);
+        }
+        incrementBucketDocCount(slot, 1);
+        return true;
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        finishLeaf();
+        if (entries.isEmpty() == false) {
+            replaySurvivingKeys();
+        }
+        subCollectors.postCollection();
+    }
+
+    /**
+     * Collects the recorded documents into the sub-aggregations of the keys that survived.
+     */
+    private void replaySurvivingKeys() throws IOException {
+        final boolean needsScores = subCollectors.needsScores();
+        Weight weight = null;
+        if (needsScores) {
+            final SearchContext searchContext = context.searchContext();
+            weight = searchContext.searcher().createNormalizedWeight(searchContext.query(), true);
+        }
+        for (Entry entry : entries) {
+            final LeafBucketCollector subCollector = subCollectors.getLeafCollector(entry.context);
+            DocIdSetIterator scorerIterator = null;
+            if (needsScores) {
+                final Scorer scorer = weight.scorer(entry.context);
+                // the recorded documents matched the query
+                assert scorer != null;
+                scorerIterator = scorer.iterator();
+                subCollector.setScorer(scorer);
+            }
+            final LeafKeys keys = new LeafKeys(entry.context);
+            final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
+            int doc = 0;
+            for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
+                doc += docDeltaIterator.next();
+                if (scorerIterator != null) {
+                    scorerIterator.advance(doc);
+                    assert scorerIterator.docID() == doc;
+                }
+                final int replayedDoc = doc;
+                keys.visit(doc, key -> {
+                    final Integer slot = queue.get(key);
+                    if (slot == null) {
+                        return false;
+                    }
+                    subCollector.collect(replayedDoc, slot);
+                    return true;
+                });
+            }
+        }
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>(queue.size());
+        for (Map.Entry<Comparable<?>[], Integer> entry : queue.entrySet()) {
+            final long slot = entry.getValue();
+            buckets.add(new InternalComposite.InternalBucket(sourceNames, entry.getKey(), bucketDocCount(slot), bucketAggregations(slot)));
+        }
+        return new InternalComposite(name, size, sourceNames, reverseMuls, buckets, pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalComposite(name, size, sourceNames, reverseMuls, Collections.emptyList(), pipelineAggregators(), metaData());
+    }
+
+    @FunctionalInterface
+    private interface KeyConsumer {
+        /** Returns <code>false</code> if the key was skipped. */
+        boolean accept(Comparable<?>[] key) throws IOException;
+    }
+
+    /**
+     * Enumerates the compound keys of the documents of a segment: every combination of the distinct values of the sources.
+     */
+    private final class LeafKeys {
+        private final CompositeValuesSource.LeafValues[] values = new CompositeValuesSource.LeafValues[sources.length];
+        private final Comparable<?>[][] docValues = new Comparable<?>[sources.length][];
+        private final int[] counts = new int[sources.length];
+        private final int[] positions = new int[sources.length];
+        private final Comparable<?>[] key = new Comparable<?>[sources.length];
+
+        LeafKeys(LeafReaderContext ctx) throws IOException {
+            for (int i = 0; i < sources.length; i++) {
+                values[i] = sources[i].getLeafValues(ctx);
+            }
+        }
+
+        /**
+         * Passes every key of the given document to the consumer, returns <code>true</code> if the consumer accepted one of them.
+         */
+        boolean visit(int doc, KeyConsumer consumer) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                final int count = values[i].setDocument(doc);
+                if (count == 0) {
+                    // documents without a value for one of the sources don't belong to any bucket
+                    return false;
+                }
+                if (docValues[i] == null || docValues[i].length < count) {
+                    docValues[i] = new Comparable<?>[count];
+                }
+                // values are sorted, rounding keeps them sorted so duplicates are adjacent
+                int unique = 0;
+                for (int j = 0; j < count; j++) {
+                    final Comparable<?> value = values[i].valueAt(j);
+                    if (unique == 0 || value.equals(docValues[i][unique - 1]) == false) {
+                        docValues[i][unique++] = value;
+                    }
+                }
+                counts[i] = unique;
+                positions[i] = 0;
+            }
+            boolean accepted = false;
+            while (true) {
+                for (int i = 0; i < key.length; i++) {
+                    key[i] = docValues[i][positions[i]];
+                }
+                accepted |= consumer.accept(key);
+                int i = key.length - 1;
+                while (i >= 0 && ++positions[i] == counts[i]) {
+                    positions[i] = 0;
+                    i--;
+                }
+                if (i < 0) {
+                    return accepted;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregatorBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+public class CompositeAggregatorBuilder extends AggregatorBuilder<CompositeAggregatorBuilder> {
+
+    public static final ParseField SOURCES_FIELD = new ParseField("sources");
+    public static final ParseField SIZE_FIELD = new ParseField("size");
+    public static final ParseField AFTER_FIELD = new ParseField("after");
+    public static final ParseField AFTER_KEY_FIELD = new ParseField("after_key");
+
+    static final CompositeAggregatorBuilder PROTOTYPE = new CompositeAggregatorBuilder("", Collections.emptyList());
+
+    private final List<CompositeValuesSourceBuilder<?>> sources;
+    private int size = 10;
+    private Map<String, Object> after;
+
+    /**
+     * @param name
+     *            the name of this aggregation
+     * @param sources
+     *            the sources of the values that make up the keys of the buckets, in the order they are compared
+     */
+    public CompositeAggregatorBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
+        super(name, InternalComposite.TYPE);
+        if (sources == null) {
+            throw new IllegalArgumentException("[sources] must not be null: [" + name + "]");
+        }
+        Set<String> names = new HashSet<>();
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            if (names.add(source.name()) == false) {
+                throw new IllegalArgumentException("Duplicate source name [" + source.name() + "] in [" + name + "]");
+            }
+        }
+        this.sources = sources;
+    }
+
+    /**
+     * Gets the sources of the values that make up the keys of the buckets.
+     */
+    public List<CompositeValuesSourceBuilder<?>> sources() {
+        return sources;
+    }
+
+    /**
+     * Sets the number of buckets to return, must be 1 or greater.
+     */
+    public CompositeAggregatorBuilder size(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("[size] must be greater than 0. Found [" + size + "] in [" + name + "]");
+        }
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * Gets the number of buckets to return.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sets the key to start after, usually the <code>after_key</code> of the previous page.
+     */
+    public CompositeAggregatorBuilder aggregateAfter(Map<String, Object> after) {
+        this.after = after;
+        return this;
+    }
+
+    /**
+     * Gets the key to start after.
+     */
+    public Map<String, Object> aggregateAfter() {
+        return after;
+    }
+
+    @Override
+    protected AggregatorFactory<?> doBuild(AggregationContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
+            throws IOException {
+        if (parent != null) {
+            throw new IllegalArgumentException("[" + type.name() + "] aggregation [" + name + "] cannot be a sub-aggregation of ["
+                + parent.name() + "], it must be a top-level aggregation");
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("Required [" + SOURCES_FIELD.getPreferredName() + "] for [" + name + "]");
+        }
+        return new CompositeAggregatorFactory(name, type, size, sources, after, context, parent, subFactoriesBuilder, metaData);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(SIZE_FIELD.getPreferredName(), size);
+        builder.startArray(SOURCES_FIELD.getPreferredName());
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            source.toXContent(builder, params);
+        }
+        builder.endArray();
+        if (after != null) {
+            builder.field(AFTER_FIELD.getPreferredName(), after);
+        }
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    protected CompositeAggregatorBuilder doReadFrom(String name, StreamInput in) throws IOException {
+        int numSources = in.readVInt();
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>(numSources);
+        for (int i = 0; i < numSources; i++) {
+            sources.add(CompositeValuesSourceBuilder.readSource(in));
+        }
+        CompositeAggregatorBuilder factory = new CompositeAggregatorBuilder(name, sources);
+        factory.size = in.readVInt();
+        if (in.readBoolean()) {
+            factory.after = in.readMap();
+        }
+        return factory;
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(sources.size());
+        for (CompositeValuesSourceBuilder<?> source : sources) {
+            source.writeTo(out);
+        }
+        out.writeVInt(size);
+        out.writeBoolean(after != null);
+        if (after != null) {
+            out.writeMap(after);
+        }
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(sources, size, after);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        CompositeAggregatorBuilder other = (CompositeAggregatorBuilder) obj;
+        return Objects.equals(sources, other.sources)
+                && size == other.size
+                && Objects.equals(after, other.after);
+    }
+}
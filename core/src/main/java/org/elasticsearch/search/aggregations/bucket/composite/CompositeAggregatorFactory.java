@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.InternalAggregation.Type;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeAggregatorFactory extends AggregatorFactory<CompositeAggregatorFactory> {
+
+    private final int size;
+    private final CompositeValuesSource[] sources;
+    private final Comparable<?>[] after;
+
+    public CompositeAggregatorFactory(String name, Type type, int size, List<CompositeValuesSourceBuilder<?>> sourceBuilders,
+            Map<String, Object> after, AggregationContext context, AggregatorFactory<?> parent, AggregatorFactories.Builder subFactories,
+            Map<String, Object> metaData) throws IOException {
+        super(name, type, context, parent, subFactories, metaData);
+        this.size = size;
+        this.sources = new CompositeValuesSource[sourceBuilders.size()];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = sourceBuilders.get(i).build(context);
+        }
+        if (after != null) {
+            if (after.size() != sources.length) {
+                throw new IllegalArgumentException("[after] key of [" + name + "] must have one value per source, got " + after);
+            }
+            this.after = new Comparable<?>[sources.length];
+            for (int i = 0; i < sources.length; i++) {
+                Object value = after.get(sources[i].name);
+                if (value == null) {
+                    throw new IllegalArgumentException("Missing value for source [" + sources[i].name + "] in the [after] key of ["
+                        + name + "]");
+                }
+                this.after[i] = sources[i].parseAfter(value);
+            }
+        } else {
+            this.after = null;
+        }
+    }
+
+    @Override
+    public Aggregator createInternal(Aggregator parent, boolean collectsFromSingleBucket, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
+        return new CompositeAggregator(name, factories, size, sources, after, context, parent, pipelineAggregators, metaData);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the <code>composite</code> aggregation, whose sources are given as an array of single entry objects:
+ * <code>{ "sources": [ { "name": { "type": { "field": ... } } } ] }</code>.
+ */
+public class CompositeParser implements Aggregator.Parser {
+
+    @Override
+    public String type() {
+        return InternalComposite.TYPE.name();
+    }
+
+    @Override
+    public CompositeAggregatorBuilder parse(String aggregationName, XContentParser parser, QueryParseContext context)
+            throws IOException {
+        List<CompositeValuesSourceBuilder<?>> sources = null;
+        Integer size = null;
+        Map<String, Object> after = null;
+
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregatorBuilder.SIZE_FIELD)) {
+                    size = parser.intValue();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregatorBuilder.SOURCES_FIELD)) {
+                    sources = new ArrayList<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        sources.add(parseSource(aggregationName, parser, context));
+                    }
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeAggregatorBuilder.AFTER_FIELD)) {
+                    after = parser.map();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(),
+                        "Unknown key for a " + token + " in [" + aggregationName + "]: [" + currentFieldName + "].");
+            }
+        }
+
+        if (sources == null || sources.isEmpty()) {
+            throw new ParsingException(parser.getTokenLocation(), "Missing required field ["
+                    + CompositeAggregatorBuilder.SOURCES_FIELD.getPreferredName() + "] for composite aggregation ["
+                    + aggregationName + "]");
+        }
+        CompositeAggregatorBuilder factory = new CompositeAggregatorBuilder(aggregationName, sources);
+        if (size != null) {
+            factory.size(size);
+        }
+        if (after != null) {
+            factory.aggregateAfter(after);
+        }
+        return factory;
+    }
+
+    private CompositeValuesSourceBuilder<?> parseSource(String aggregationName, XContentParser parser, QueryParseContext context)
+            throws IOException {
+        XContentParser.Token token = parser.currentToken();
+        if (token != XContentParser.Token.START_OBJECT || parser.nextToken() != XContentParser.Token.FIELD_NAME) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Expected a single named source in [" + aggregationName + "] but found [" + token + "]");
+        }
+        final String sourceName = parser.currentName();
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT || parser.nextToken() != XContentParser.Token.FIELD_NAME) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Expected the type of source [" + sourceName + "] in [" + aggregationName + "]");
+        }
+        final String type = parser.currentName();
+        final CompositeValuesSourceBuilder<?> source;
+        switch (type) {
+            case TermsValuesSourceBuilder.TYPE:
+                source = new TermsValuesSourceBuilder(sourceName);
+                break;
+            case HistogramValuesSourceBuilder.TYPE:
+                source = new HistogramValuesSourceBuilder(sourceName);
+                break;
+            case DateHistogramValuesSourceBuilder.TYPE:
+                source = new DateHistogramValuesSourceBuilder(sourceName);
+                break;
+            default:
+                throw new ParsingException(parser.getTokenLocation(),
+                        "Unknown source type [" + type + "] for source [" + sourceName + "] in [" + aggregationName + "]");
+        }
+        if (parser.nextToken() != XContentParser.Token.START_OBJECT) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Expected an object for source [" + sourceName + "] in [" + aggregationName + "]");
+        }
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if (context.parseFieldMatcher().match(currentFieldName, CompositeValuesSourceBuilder.FIELD_FIELD)) {
+                    source.field(parser.text());
+                } else if (context.parseFieldMatcher().match(currentFieldName, CompositeValuesSourceBuilder.ORDER_FIELD)) {
+                    source.order(SortOrder.fromString(parser.text()));
+                } else if (source instanceof HistogramValuesSourceBuilder
+                        && context.parseFieldMatcher().match(currentFieldName, HistogramValuesSourceBuilder.INTERVAL_FIELD)) {
+                    ((HistogramValuesSourceBuilder) source).interval(parser.longValue());
+                } else if (source instanceof DateHistogramValuesSourceBuilder
+                        && context.parseFieldMatcher().match(currentFieldName, DateHistogramValuesSourceBuilder.INTERVAL_FIELD)) {
+                    String interval = token == XContentParser.Token.VALUE_NUMBER ? parser.longValue() + "ms" : parser.text();
+                    ((DateHistogramValuesSourceBuilder) source).interval(new DateHistogramInterval(interval));
+                } else if (source instanceof DateHistogramValuesSourceBuilder
+                        && context.parseFieldMatcher().match(currentFieldName, DateHistogramValuesSourceBuilder.TIME_ZONE_FIELD)) {
+                    ((DateHistogramValuesSourceBuilder) source).timeZone(DateTimeZone.forID(parser.text()));
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unknown key for a " + token + " in source [" + sourceName + "] of [" + aggregationName + "]: ["
+                                    + currentFieldName + "].");
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(),
+                        "Unknown key for a " + token + " in source [" + sourceName + "] of [" + aggregationName + "]: ["
+                                + currentFieldName + "].");
+            }
+        }
+        if (parser.nextToken() != XContentParser.Token.END_OBJECT || parser.nextToken() != XContentParser.Token.END_OBJECT) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Expected a single type for source [" + sourceName + "] in [" + aggregationName + "]");
+        }
+        return source;
+    }
+
+    @Override
+    public CompositeAggregatorBuilder getFactoryPrototypes() {
+        return CompositeAggregatorBuilder.PROTOTYPE;
+    }
+}
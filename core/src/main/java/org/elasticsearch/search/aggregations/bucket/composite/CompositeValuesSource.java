@@ -0,0 +1,206 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+
+/**
+ * The shard level counterpart of a {@link CompositeValuesSourceBuilder}, which reads the values of a source for each document.
+ * Values are {@link Long}s, {@link Double}s or {@link BytesRef}s depending on the field.
+ */
+abstract class CompositeValuesSource {
+
+    /**
+     * The values of a source for the documents of a segment.
+     */
+    interface LeafValues {
+
+        /**
+         * Positions the values on the given document and returns the number of its values, in ascending order.
+         */
+        int setDocument(int doc);
+
+        /**
+         * Returns the value at the given index for the current document.
+         */
+        Comparable<?> valueAt(int index);
+    }
+
+    private static final LeafValues EMPTY = new LeafValues() {
+        @Override
+        public int setDocument(int doc) {
+            return 0;
+        }
+
+        @Override
+        public Comparable<?> valueAt(int index) {
+            throw new IndexOutOfBoundsException();
+        }
+    };
+
+    final String name;
+    final int reverseMul;
+
+    CompositeValuesSource(String name, int reverseMul) {
+        this.name = name;
+        this.reverseMul = reverseMul;
+    }
+
+    /**
+     * Returns the values of this source for the given segment.
+     */
+    abstract LeafValues getLeafValues(LeafReaderContext context) throws IOException;
+
+    /**
+     * Converts the value of this source in the <code>after</code> key of the request to a value of this source.
+     */
+    abstract Comparable<?> parseAfter(Object value);
+
+    /**
+     * Values of a string field, copied since doc values reuse their {@link BytesRef}s.
+     */
+    static final class Bytes extends CompositeValuesSource {
+
+        @Nullable
+        private final ValuesSource valuesSource;
+
+        Bytes(String name, @Nullable ValuesSource valuesSource, int reverseMul) {
+            super(name, reverseMul);
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            if (valuesSource == null) {
+                return EMPTY;
+            }
+            final SortedBinaryDocValues values = valuesSource.bytesValues(context);
+            return new LeafValues() {
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    return values.count();
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return BytesRef.deepCopyOf(values.valueAt(index));
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            return new BytesRef(value.toString());
+        }
+    }
+
+    /**
+     * Values of an integer or date field, optionally rounded to the start of the interval they belong to.
+     */
+    static final class Longs extends CompositeValuesSource {
+
+        @Nullable
+        private final ValuesSource.Numeric valuesSource;
+        @Nullable
+        private final Rounding rounding;
+
+        Longs(String name, @Nullable ValuesSource.Numeric valuesSource, @Nullable Rounding rounding, int reverseMul) {
+            super(name, reverseMul);
+            this.valuesSource = valuesSource;
+            this.rounding = rounding;
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            if (valuesSource == null) {
+                return EMPTY;
+            }
+            final SortedNumericDocValues values = valuesSource.longValues(context);
+            return new LeafValues() {
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    return values.count();
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    final long value = values.valueAt(index);
+                    return rounding == null ? value : rounding.round(value);
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            }
+            return Long.parseLong(value.toString());
+        }
+    }
+
+    /**
+     * Values of a floating point field.
+     */
+    static final class Doubles extends CompositeValuesSource {
+
+        private final ValuesSource.Numeric valuesSource;
+
+        Doubles(String name, ValuesSource.Numeric valuesSource, int reverseMul) {
+            super(name, reverseMul);
+            this.valuesSource = valuesSource;
+        }
+
+        @Override
+        LeafValues getLeafValues(LeafReaderContext context) throws IOException {
+            final SortedNumericDoubleValues values = valuesSource.doubleValues(context);
+            return new LeafValues() {
+                @Override
+                public int setDocument(int doc) {
+                    values.setDocument(doc);
+                    return values.count();
+                }
+
+                @Override
+                public Comparable<?> valueAt(int index) {
+                    return values.valueAt(index);
+                }
+            };
+        }
+
+        @Override
+        Comparable<?> parseAfter(Object value) {
+            if (value instanceof Number) {
+                return ((Number) value).doubleValue();
+            }
+            return Double.parseDouble(value.toString());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.FieldContext;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.search.sort.SortOrder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Defines one of the sources of values that make up the keys of a {@link CompositeAggregation}.
+ */
+public abstract class CompositeValuesSourceBuilder<VB extends CompositeValuesSourceBuilder<VB>> implements Writeable<VB>, ToXContent {
+
+    public static final ParseField FIELD_FIELD = new ParseField("field");
+    public static final ParseField ORDER_FIELD = new ParseField("order");
+
+    protected final String name;
+    private String field;
+    private SortOrder order = SortOrder.ASC;
+
+    protected CompositeValuesSourceBuilder(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("[name] must not be null");
+        }
+        this.name = name;
+    }
+
+    /**
+     * The name of the source, which keys its values in the buckets.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * The type of the source.
+     */
+    public abstract String type();
+
+    /**
+     * Sets the field to read the values of this source from.
+     */
+    @SuppressWarnings("unchecked")
+    public VB field(String field) {
+        if (field == null) {
+            throw new IllegalArgumentException("[field] must not be null: [" + name + "]");
+        }
+        this.field = field;
+        return (VB) this;
+    }
+
+    /**
+     * Gets the field to read the values of this source from.
+     */
+    public String field() {
+        return field;
+    }
+
+    /**
+     * Sets the order of the values of this source in the keys.
+     */
+    @SuppressWarnings("unchecked")
+    public VB order(SortOrder order) {
+        if (order == null) {
+            throw new IllegalArgumentException("[order] must not be null: [" + name + "]");
+        }
+        this.order = order;
+        return (VB) this;
+    }
+
+    /**
+     * Gets the order of the values of this source in the keys.
+     */
+    public SortOrder order() {
+        return order;
+    }
+
+    /**
+     * Resolves this source against the mappings of the shard that executes the aggregation.
+     */
+    CompositeValuesSource build(AggregationContext context) throws IOException {
+        if (field == null) {
+            throw new IllegalArgumentException("Required [field] for source [" + name + "] of type [" + type() + "]");
+        }
+        final int reverseMul = order == SortOrder.ASC ? 1 : -1;
+        MappedFieldType fieldType = context.searchContext().smartNameFieldType(field);
+        if (fieldType == null) {
+            // documents without a value for one of the sources don't belong to any bucket
+            return innerBuild(null, reverseMul);
+        }
+        IndexFieldData<?> indexFieldData = context.searchContext().fieldData().getForField(fieldType);
+        ValuesSourceType valuesSourceType =
+            indexFieldData instanceof IndexNumericFieldData ? ValuesSourceType.NUMERIC : ValuesSourceType.BYTES;
+        ValuesSourceConfig<ValuesSource> config = new ValuesSourceConfig<>(valuesSourceType);
+        config.fieldContext(new FieldContext(field, indexFieldData, fieldType));
+        ValuesSource valuesSource = context.valuesSource(config, context.searchContext());
+        return innerBuild(valuesSource, reverseMul);
+    }
+
+    /**
+     * Creates the shard level source from the values of the field, which are <code>null</code> if the field is unmapped.
+     */
+    protected abstract CompositeValuesSource innerBuild(ValuesSource valuesSource, int reverseMul) throws IOException;
+
+    protected final ValuesSource.Numeric numericValuesSource(ValuesSource valuesSource) {
+        if (valuesSource == null || valuesSource instanceof ValuesSource.Numeric) {
+            return (ValuesSource.Numeric) valuesSource;
+        }
+        throw new AggregationExecutionException("Source [" + name + "] of type [" + type() + "] requires a numeric or date field, got ["
+            + field + "]");
+    }
+
+    @Override
+    public final void writeTo(StreamOutput out) throws IOException {
+        out.writeString(type());
+        out.writeString(name);
+        out.writeOptionalString(field);
+        out.writeString(order.toString());
+        innerWriteTo(out);
+    }
+
+    protected abstract void innerWriteTo(StreamOutput out) throws IOException;
+
+    /**
+     * Reads a source written with {@link #writeTo(StreamOutput)}.
+     */
+    public static CompositeValuesSourceBuilder<?> readSource(StreamInput in) throws IOException {
+        final String type = in.readString();
+        final String name = in.readString();
+        final CompositeValuesSourceBuilder<?> source;
+        switch (type) {
+            case TermsValuesSourceBuilder.TYPE:
+                source = new TermsValuesSourceBuilder(name);
+                break;
+            case HistogramValuesSourceBuilder.TYPE:
+                source = new HistogramValuesSourceBuilder(name);
+                break;
+            case DateHistogramValuesSourceBuilder.TYPE:
+                source = new DateHistogramValuesSourceBuilder(name);
+                break;
+            default:
+                throw new IOException("Unknown composite source type [" + type + "]");
+        }
+        source.field = in.readOptionalString();
+        source.order = SortOrder.fromString(in.readString());
+        source.innerReadFrom(in);
+        return source;
+    }
+
+    protected abstract void innerReadFrom(StreamInput in) throws IOException;
+
+    @Override
+    public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startObject(name);
+        builder.startObject(type());
+        if (field != null) {
+            builder.field(FIELD_FIELD.getPreferredName(), field);
+        }
+        builder.field(ORDER_FIELD.getPreferredName(), order.toString());
+        innerXContent(builder, params);
+        builder.endObject();
+        builder.endObject();
+        return builder.endObject();
+    }
+
+    protected abstract void innerXContent(XContentBuilder builder, Params params) throws IOException;
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, field, order, innerHashCode());
+    }
+
+    protected abstract int innerHashCode();
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        VB other = (VB) obj;
+        return Objects.equals(name, other.name())
+            && Objects.equals(field, other.field())
+            && Objects.equals(order, other.order())
+            && innerEquals(other);
+    }
+
+    protected abstract boolean innerEquals(VB other);
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregatorFactory;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.joda.time.DateTimeZone;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A {@link CompositeValuesSourceBuilder} that rounds the values of a date field down to the start of a calendar or fixed
+ * interval, in milliseconds since the epoch.
+ */
+public class DateHistogramValuesSourceBuilder extends CompositeValuesSourceBuilder<DateHistogramValuesSourceBuilder> {
+
+    static final String TYPE = "date_histogram";
+    public static final ParseField INTERVAL_FIELD = new ParseField("interval");
+    public static final ParseField TIME_ZONE_FIELD = new ParseField("time_zone");
+
+    private DateHistogramInterval interval;
+    private DateTimeZone timeZone;
+
+    public DateHistogramValuesSourceBuilder(String name) {
+        super(name);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    /**
+     * Sets the interval to round dates with, either a calendar unit such as <code>1d</code> or <code>month</code>, or a time value.
+     */
+    public DateHistogramValuesSourceBuilder interval(DateHistogramInterval interval) {
+        if (interval == null) {
+            throw new IllegalArgumentException("[interval] must not be null: [" + name + "]");
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * Gets the interval to round dates with.
+     */
+    public DateHistogramInterval interval() {
+        return interval;
+    }
+
+    /**
+     * Sets the time zone to round dates in.
+     */
+    public DateHistogramValuesSourceBuilder timeZone(DateTimeZone timeZone) {
+        if (timeZone == null) {
+            throw new IllegalArgumentException("[timeZone] must not be null: [" + name + "]");
+        }
+        this.timeZone = timeZone;
+        return this;
+    }
+
+    /**
+     * Gets the time zone to round dates in.
+     */
+    public DateTimeZone timeZone() {
+        return timeZone;
+    }
+
+    @Override
+    protected CompositeValuesSource innerBuild(ValuesSource valuesSource, int reverseMul) throws IOException {
+        if (interval == null) {
+            throw new IllegalArgumentException("Required [interval] for source [" + name + "] of type [" + TYPE + "]");
+        }
+        TimeZoneRounding.Builder rounding;
+        DateTimeUnit dateTimeUnit = DateHistogramAggregatorFactory.DATE_FIELD_UNITS.get(interval.toString());
+        if (dateTimeUnit != null) {
+            rounding = TimeZoneRounding.builder(dateTimeUnit);
+        } else {
+            TimeValue timeValue = TimeValue.parseTimeValue(interval.toString(), null, getClass().getSimpleName() + ".interval");
+            rounding = TimeZoneRounding.builder(timeValue);
+        }
+        if (timeZone != null) {
+            rounding.timeZone(timeZone);
+        }
+        return new CompositeValuesSource.Longs(name, numericValuesSource(valuesSource), rounding.build(), reverseMul);
+    }
+
+    @Override
+    protected void innerWriteTo(StreamOutput out) throws IOException {
+        out.writeOptionalString(interval == null ? null : interval.toString());
+        out.writeOptionalString(timeZone == null ? null : timeZone.getID());
+    }
+
+    @Override
+    protected void innerReadFrom(StreamInput in) throws IOException {
+        String interval = in.readOptionalString();
+        this.interval = interval == null ? null : new DateHistogramInterval(interval);
+        String timeZone = in.readOptionalString();
+        this.timeZone = timeZone == null ? null : DateTimeZone.forID(timeZone);
+    }
+
+    @Override
+    protected void innerXContent(XContentBuilder builder, Params params) throws IOException {
+        if (interval != null) {
+            builder.field(INTERVAL_FIELD.getPreferredName(), interval.toString());
+        }
+        if (timeZone != null) {
+            builder.field(TIME_ZONE_FIELD.getPreferredName(), timeZone.getID());
+        }
+    }
+
+    @Override
+    protected int innerHashCode() {
+        return Objects.hash(interval, timeZone);
+    }
+
+    @Override
+    protected boolean innerEquals(DateHistogramValuesSourceBuilder other) {
+        return Objects.equals(interval, other.interval) && Objects.equals(timeZone, other.timeZone);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A {@link CompositeValuesSourceBuilder} that rounds the values of a numeric field down to the nearest multiple of an interval.
+ */
+public class HistogramValuesSourceBuilder extends CompositeValuesSourceBuilder<HistogramValuesSourceBuilder> {
+
+    static final String TYPE = "histogram";
+    public static final ParseField INTERVAL_FIELD = new ParseField("interval");
+
+    private long interval = 0;
+
+    public HistogramValuesSourceBuilder(String name) {
+        super(name);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    /**
+     * Sets the interval to round values with, must be 1 or greater.
+     */
+    public HistogramValuesSourceBuilder interval(long interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("[interval] must be 1 or greater for source [" + name + "]");
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    /**
+     * Gets the interval to round values with.
+     */
+    public long interval() {
+        return interval;
+    }
+
+    @Override
+    protected CompositeValuesSource innerBuild(ValuesSource valuesSource, int reverseMul) throws IOException {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Required [interval] for source [" + name + "] of type [" + TYPE + "]");
+        }
+        return new CompositeValuesSource.Longs(name, numericValuesSource(valuesSource), new Rounding.Interval(interval), reverseMul);
+    }
+
+    @Override
+    protected void innerWriteTo(StreamOutput out) throws IOException {
+        out.writeVLong(interval);
+    }
+
+    @Override
+    protected void innerReadFrom(StreamInput in) throws IOException {
+        interval = in.readVLong();
+    }
+
+    @Override
+    protected void innerXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(INTERVAL_FIELD.getPreferredName(), interval);
+    }
+
+    @Override
+    protected int innerHashCode() {
+        return Objects.hash(interval);
+    }
+
+    @Override
+    protected boolean innerEquals(HistogramValuesSourceBuilder other) {
+        return interval == other.interval;
+    }
+}
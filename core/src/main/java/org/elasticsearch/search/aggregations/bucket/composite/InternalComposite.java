@@ -0,0 +1,293 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.AggregationExecutionException;
+import org.elasticsearch.search.aggregations.AggregationStreams;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The result of a {@link CompositeAggregator}: the first <code>size</code> buckets of the sorted compound keys.
+ */
+public class InternalComposite extends InternalMultiBucketAggregation<InternalComposite, InternalComposite.InternalBucket>
+        implements CompositeAggregation {
+
+    public static final Type TYPE = new Type("composite");
+
+    private static final AggregationStreams.Stream STREAM = new AggregationStreams.Stream() {
+        @Override
+        public InternalComposite readResult(StreamInput in) throws IOException {
+            InternalComposite composite = new InternalComposite();
+            composite.readFrom(in);
+            return composite;
+        }
+    };
+
+    public static void registerStream() {
+        AggregationStreams.registerStream(STREAM, TYPE.stream());
+    }
+
+    /**
+     * Compares compound keys source by source, reversing the sources that are sorted in descending order.
+     */
+    static Comparator<Comparable<?>[]> keyComparator(final int[] reverseMuls) {
+        return (a, b) -> {
+            for (int i = 0; i < reverseMuls.length; i++) {
+                final int cmp = compareValues(a[i], b[i]);
+                if (cmp != 0) {
+                    return cmp * reverseMuls[i];
+                }
+            }
+            return 0;
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Comparable a, Comparable b) {
+        if (a.getClass() == b.getClass()) {
+            return a.compareTo(b);
+        }
+        if (a instanceof Number && b instanceof Number) {
+            // the same field may be mapped as a long on one index and as a double on another one
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        throw new AggregationExecutionException("Cannot compare composite key values of different types ["
+            + a.getClass().getSimpleName() + "] and [" + b.getClass().getSimpleName() + "]");
+    }
+
+    private static Object formatValue(Comparable<?> value) {
+        if (value instanceof BytesRef) {
+            return ((BytesRef) value).utf8ToString();
+        }
+        return value;
+    }
+
+    public static class InternalBucket extends InternalMultiBucketAggregation.InternalBucket implements CompositeAggregation.Bucket {
+
+        private String[] sourceNames;
+        private Comparable<?>[] key;
+        private long docCount;
+        InternalAggregations aggregations;
+
+        private InternalBucket(String[] sourceNames) {
+            // for serialization
+            this.sourceNames = sourceNames;
+        }
+
+        InternalBucket(String[] sourceNames, Comparable<?>[] key, long docCount, InternalAggregations aggregations) {
+            this.sourceNames = sourceNames;
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        Comparable<?>[] rawKey() {
+            return key;
+        }
+
+        @Override
+        public Map<String, Object> getKey() {
+            Map<String, Object> map = new LinkedHashMap<>(sourceNames.length);
+            for (int i = 0; i < sourceNames.length; i++) {
+                map.put(sourceNames[i], formatValue(key[i]));
+            }
+            return map;
+        }
+
+        @Override
+        public String getKeyAsString() {
+            return getKey().toString();
+        }
+
+        @Override
+        public long getDocCount() {
+            return docCount;
+        }
+
+        @Override
+        public Aggregations getAggregations() {
+            return aggregations;
+        }
+
+        InternalBucket reduce(List<InternalBucket> buckets, ReduceContext context) {
+            long docCount = 0;
+            List<InternalAggregations> aggregationsList = new ArrayList<>(buckets.size());
+            for (InternalBucket bucket : buckets) {
+                docCount += bucket.docCount;
+                aggregationsList.add(bucket.aggregations);
+            }
+            return new InternalBucket(sourceNames, key, docCount, InternalAggregations.reduce(aggregationsList, context));
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(CommonFields.KEY, getKey());
+            builder.field(CommonFields.DOC_COUNT, docCount);
+            aggregations.toXContentInternal(builder, params);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            key = new Comparable<?>[sourceNames.length];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = (Comparable<?>) in.readGenericValue();
+            }
+            docCount = in.readVLong();
+            aggregations = InternalAggregations.readAggregations(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            for (Comparable<?> value : key) {
+                out.writeGenericValue(value);
+            }
+            out.writeVLong(docCount);
+            aggregations.writeTo(out);
+        }
+    }
+
+    private int size;
+    private String[] sourceNames;
+    private int[] reverseMuls;
+    private List<InternalBucket> buckets;
+
+    public InternalComposite() {} // for serialization
+
+    InternalComposite(String name, int size, String[] sourceNames, int[] reverseMuls, List<InternalBucket> buckets,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, pipelineAggregators, metaData);
+        this.size = size;
+        this.sourceNames = sourceNames;
+        this.reverseMuls = reverseMuls;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public Type type() {
+        return TYPE;
+    }
+
+    @Override
+    public InternalComposite create(List<InternalBucket> buckets) {
+        return new InternalComposite(name, size, sourceNames, reverseMuls, buckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    public InternalBucket createBucket(InternalAggregations aggregations, InternalBucket prototype) {
+        return new InternalBucket(prototype.sourceNames, prototype.key, prototype.docCount, aggregations);
+    }
+
+    @Override
+    public List<InternalBucket> getBuckets() {
+        return buckets;
+    }
+
+    @Override
+    public Map<String, Object> afterKey() {
+        return buckets.isEmpty() ? null : buckets.get(buckets.size() - 1).getKey();
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        // every shard returns its first buckets after the same key, so the first buckets of the merged keys are complete
+        TreeMap<Comparable<?>[], List<InternalBucket>> merged = new TreeMap<>(keyComparator(reverseMuls));
+        for (InternalAggregation aggregation : aggregations) {
+            for (InternalBucket bucket : ((InternalComposite) aggregation).buckets) {
+                List<InternalBucket> sameKey = merged.get(bucket.key);
+                if (sameKey == null) {
+                    sameKey = new ArrayList<>(aggregations.size());
+                    merged.put(bucket.key, sameKey);
+                }
+                sameKey.add(bucket);
+            }
+        }
+        List<InternalBucket> reducedBuckets = new ArrayList<>(Math.min(size, merged.size()));
+        for (List<InternalBucket> sameKey : merged.values()) {
+            if (reducedBuckets.size() == size) {
+                break;
+            }
+            reducedBuckets.add(sameKey.get(0).reduce(sameKey, reduceContext));
+        }
+        return new InternalComposite(name, size, sourceNames, reverseMuls, reducedBuckets, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    protected void doReadFrom(StreamInput in) throws IOException {
+        size = in.readVInt();
+        sourceNames = in.readStringArray();
+        reverseMuls = new int[sourceNames.length];
+        for (int i = 0; i < reverseMuls.length; i++) {
+            reverseMuls[i] = in.readInt();
+        }
+        int numBuckets = in.readVInt();
+        List<InternalBucket> buckets = new ArrayList<>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            InternalBucket bucket = new InternalBucket(sourceNames);
+            bucket.readFrom(in);
+            buckets.add(bucket);
+        }
+        this.buckets = Collections.unmodifiableList(buckets);
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeVInt(size);
+        out.writeStringArray(sourceNames);
+        for (int reverseMul : reverseMuls) {
+            out.writeInt(reverseMul);
+        }
+        out.writeVInt(buckets.size());
+        for (InternalBucket bucket : buckets) {
+            bucket.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        if (buckets.isEmpty() == false) {
+            builder.field(CompositeAggregatorBuilder.AFTER_KEY_FIELD.getPreferredName(), afterKey());
+        }
+        builder.startArray(CommonFields.BUCKETS);
+        for (InternalBucket bucket : buckets) {
+            bucket.toXContent(builder, params);
+        }
+        builder.endArray();
+        return builder;
+    }
+}
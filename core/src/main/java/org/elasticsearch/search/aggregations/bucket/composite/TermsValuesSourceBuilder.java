@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+
+/**
+ * A {@link CompositeValuesSourceBuilder} that uses the values of a field as they are.
+ */
+public class TermsValuesSourceBuilder extends CompositeValuesSourceBuilder<TermsValuesSourceBuilder> {
+
+    static final String TYPE = "terms";
+
+    public TermsValuesSourceBuilder(String name) {
+        super(name);
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    protected CompositeValuesSource innerBuild(ValuesSource valuesSource, int reverseMul) throws IOException {
+        if (valuesSource instanceof ValuesSource.Numeric) {
+            ValuesSource.Numeric numeric = (ValuesSource.Numeric) valuesSource;
+            if (numeric.isFloatingPoint()) {
+                return new CompositeValuesSource.Doubles(name, numeric, reverseMul);
+            }
+            return new CompositeValuesSource.Longs(name, numeric, null, reverseMul);
+        }
+        return new CompositeValuesSource.Bytes(name, valuesSource, reverseMul);
+    }
+
+    @Override
+    protected void innerWriteTo(StreamOutput out) throws IOException {
+    }
+
+    @Override
+    protected void innerReadFrom(StreamInput in) throws IOException {
+    }
+
+    @Override
+    protected void innerXContent(XContentBuilder builder, Params params) throws IOException {
+    }
+
+    @Override
+    protected int innerHashCode() {
+        return 0;
+    }
+
+    @Override
+    protected boolean innerEquals(TermsValuesSourceBuilder other) {
+        return true;
+    }
+}
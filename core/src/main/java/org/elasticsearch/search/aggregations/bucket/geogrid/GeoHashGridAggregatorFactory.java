@@ -78,4 +78,10 @@ public class GeoHashGridAggregatorFactory extends ValuesSourceAggregatorFactory<
 
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // the cells are pruned to shard_size, which the partial results of the shard can't report
+        return false;
+    }
+
 }
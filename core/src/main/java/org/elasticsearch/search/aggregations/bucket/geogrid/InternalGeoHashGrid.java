@@ -219,7 +219,8 @@ public class InternalGeoHashGrid extends InternalMultiBucketAggregation<Internal
             }
         }
 
-        final int size = (int) Math.min(requiredSize, buckets.size());
+        // partial reduces keep all cells, a cell that doesn't make it now might still make it once all shards are reduced
+        final int size = reduceContext.isFinalReduce() ? (int) Math.min(requiredSize, buckets.size()) : (int) buckets.size();
         BucketPriorityQueue ordered = new BucketPriorityQueue(size);
         for (LongObjectPagedHashMap.Cursor<List<Bucket>> cursor : buckets) {
             List<Bucket> sameCellBuckets = cursor.value;
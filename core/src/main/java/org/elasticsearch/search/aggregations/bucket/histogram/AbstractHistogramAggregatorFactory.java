@@ -21,6 +21,7 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.elasticsearch.common.ParsingException;
 import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -70,8 +71,8 @@ public abstract class AbstractHistogramAggregatorFactory<AF extends AbstractHist
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
         Rounding rounding = createRounding();
-        return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, config.formatter(),
-                histogramFactory, context, parent, pipelineAggregators, metaData);
+        return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, extendedBounds, null, null,
+                config.formatter(), histogramFactory, context, parent, pipelineAggregators, metaData);
     }
 
     protected Rounding createRounding() {
@@ -104,7 +105,12 @@ public abstract class AbstractHistogramAggregatorFactory<AF extends AbstractHist
             extendedBounds.processAndValidate(name, context.searchContext(), config.parser());
             roundedBounds = extendedBounds.round(rounding);
         }
-        return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource,
+        // the bounds of the values of a segment can only be read from the index if the values are the ones of the field
+        MappedFieldType fieldType = null;
+        if (config.fieldContext() != null && config.script() == null && config.missing() == null) {
+            fieldType = config.fieldContext().fieldType();
+        }
+        return new HistogramAggregator(name, factories, rounding, order, keyed, minDocCount, roundedBounds, valuesSource, fieldType,
                 config.formatter(), histogramFactory, context, parent, pipelineAggregators, metaData);
     }
 
@@ -20,12 +20,15 @@ package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.action.fieldstats.FieldStats;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.inject.internal.Nullable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.rounding.Rounding;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -39,6 +42,7 @@ import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +53,13 @@ public class HistogramAggregator extends BucketsAggregator {
     public static final ParseField KEYED_FIELD = new ParseField("keyed");
     public static final ParseField MIN_DOC_COUNT_FIELD = new ParseField("min_doc_count");
 
+    /**
+     * The maximum number of buckets that the values of a segment may span for the boundaries of these buckets to be precomputed.
+     */
+    static final int MAX_SEGMENT_BUCKETS = 1024;
+
     private final ValuesSource.Numeric valuesSource;
+    private final MappedFieldType fieldType;
     private final ValueFormatter formatter;
     private final Rounding rounding;
     private final InternalOrder order;
@@ -63,8 +73,9 @@ public class HistogramAggregator extends BucketsAggregator {
 
     public HistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, InternalOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory, AggregationContext aggregationContext,
-            Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+            @Nullable MappedFieldType fieldType, ValueFormatter formatter, InternalHistogram.Factory<?> histogramFactory,
+            AggregationContext aggregationContext, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
@@ -73,6 +84,7 @@ public class HistogramAggregator extends BucketsAggregator {
         this.minDocCount = minDocCount;
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
+        this.fieldType = fieldType;
         this.formatter = formatter;
         this.histogramFactory = histogramFactory;
 
@@ -91,6 +103,41 @@ public class HistogramAggregator extends BucketsAggregator {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
+        final SegmentBuckets segmentBuckets = segmentBuckets(ctx);
+        if (segmentBuckets != null) {
+            return new LeafBucketCollectorBase(sub, values) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    values.setDocument(doc);
+                    final int valuesCount = values.count();
+
+                    long previousKey = Long.MIN_VALUE;
+                    for (int i = 0; i < valuesCount; ++i) {
+                        long value = values.valueAt(i);
+                        int index = segmentBuckets.indexOf(value);
+                        long key = index >= 0 ? segmentBuckets.keys[index] : rounding.roundKey(value);
+                        assert key >= previousKey;
+                        if (key == previousKey) {
+                            continue;
+                        }
+                        if (index >= 0 && segmentBuckets.ords[index] >= 0) {
+                            collectExistingBucket(sub, doc, segmentBuckets.ords[index]);
+                        } else {
+                            long bucketOrd = bucketOrds.add(key);
+                            if (bucketOrd < 0) { // already seen
+                                bucketOrd = -1 - bucketOrd;
+                            }
+                            if (index >= 0) {
+                                segmentBuckets.ords[index] = bucketOrd;
+                            }
+                            collectBucket(sub, doc, bucketOrd);
+                        }
+                        previousKey = key;
+                    }
+                }
+            };
+        }
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -119,6 +166,103 @@ public class HistogramAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Reads the bounds of the values of the segment from the terms of the field and precomputes the buckets that they span, or
+     * returns <code>null</code> if the bounds are unknown or span too many buckets.
+     */
+    private SegmentBuckets segmentBuckets(LeafReaderContext ctx) throws IOException {
+        if (fieldType == null) {
+            return null;
+        }
+        final Terms terms = ctx.reader().terms(fieldType.name());
+        if (terms == null) {
+            return null;
+        }
+        final FieldStats<?> stats = fieldType.stats(terms, ctx.reader().maxDoc());
+        if (stats instanceof FieldStats.Long == false) {
+            return null;
+        }
+        final FieldStats.Long longStats = (FieldStats.Long) stats;
+        return SegmentBuckets.build(rounding, longStats.getMinValue(), longStats.getMaxValue(),
+                Math.min(MAX_SEGMENT_BUCKETS, ctx.reader().maxDoc()));
+    }
+
+    /**
+     * The buckets spanned by the values of a segment, as sorted boundaries: values in
+     * <code>[boundaries[i], boundaries[i + 1])</code> belong to the bucket with key <code>keys[i]</code>. Assigning a value to
+     * its bucket is a comparison with the boundaries of the bucket of the previous value, which is usually the same bucket since
+     * values tend to be clustered, or a binary search rather than a rounding and a hash lookup.
+     */
+    static final class SegmentBuckets {
+
+        final long[] boundaries;
+        final long[] keys;
+        final long[] ords;
+        private int lastIndex = 0;
+
+        private SegmentBuckets(long[] boundaries, long[] keys) {
+            this.boundaries = boundaries;
+            this.keys = keys;
+            this.ords = new long[keys.length];
+            Arrays.fill(ords, -1);
+        }
+
+        /**
+         * Computes the buckets that the values in <code>[min, max]</code> fall into, or returns <code>null</code> if there are more
+         * than <code>maxBuckets</code> of them or if the boundaries of the buckets can't be derived from the rounding.
+         */
+        static SegmentBuckets build(Rounding rounding, long min, long max, int maxBuckets) {
+            if (min > max || max == Long.MAX_VALUE) {
+                return null;
+            }
+            final long[] boundaries = new long[maxBuckets + 1];
+            final long[] keys = new long[maxBuckets];
+            final long maxKey = rounding.roundKey(max);
+            long lower = min;
+            long key = rounding.roundKey(min);
+            int numBuckets = 0;
+            while (true) {
+                if (numBuckets == maxBuckets) {
+                    return null;
+                }
+                boundaries[numBuckets] = lower;
+                keys[numBuckets] = key;
+                numBuckets++;
+                if (key == maxKey) {
+                    break;
+                }
+                final long next = rounding.nextRoundingValue(rounding.valueForKey(key));
+                // roundings are monotonic so every value between lower and next - 1 belongs to the bucket if both ends do,
+                // the boundary is only used if it is exact
+                if (next <= lower || next > max || rounding.roundKey(next - 1) != key || rounding.roundKey(next) == key) {
+                    return null;
+                }
+                lower = next;
+                key = rounding.roundKey(next);
+            }
+            boundaries[numBuckets] = max + 1;
+            return new SegmentBuckets(Arrays.copyOf(boundaries, numBuckets + 1), Arrays.copyOf(keys, numBuckets));
+        }
+
+        /**
+         * Returns the index of the bucket of the value, or <code>-1</code> if the value is out of the bounds of the segment.
+         */
+        int indexOf(long value) {
+            if (value < boundaries[0] || value >= boundaries[keys.length]) {
+                return -1;
+            }
+            if (value >= boundaries[lastIndex] && value < boundaries[lastIndex + 1]) {
+                return lastIndex;
+            }
+            int index = Arrays.binarySearch(boundaries, value);
+            if (index < 0) {
+                index = -2 - index;
+            }
+            lastIndex = index;
+            return index;
+        }
+    }
+
     @Override
     public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
         assert owningBucketOrdinal == 0;
@@ -97,4 +97,10 @@ public class DiversifiedAggregatorFactory extends ValuesSourceAggregatorFactory<
         };
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // the best shard_size documents of the shard are sampled, with at most max_docs_per_value of them per value
+        return false;
+    }
+
 }
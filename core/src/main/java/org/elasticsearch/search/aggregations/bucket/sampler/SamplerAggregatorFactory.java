@@ -46,4 +46,10 @@ public class SamplerAggregatorFactory extends AggregatorFactory<SamplerAggregato
         return new SamplerAggregator(name, shardSize, factories, context, parent, pipelineAggregators, metaData);
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // the sample holds the best shard_size documents of the whole shard
+        return false;
+    }
+
 }
@@ -150,6 +150,12 @@ public class SignificantTermsAggregatorFactory extends ValuesSourceAggregatorFac
         return getBackgroundFrequency(indexedVal);
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // the background frequencies and the superset size are read from the whole shard
+        return false;
+    }
+
     @Override
     protected Aggregator createUnmapped(Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData)
             throws IOException {
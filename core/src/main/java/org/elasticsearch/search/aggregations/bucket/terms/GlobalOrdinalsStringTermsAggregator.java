@@ -151,9 +151,9 @@ public class GlobalOrdinalsStringTermsAggregator extends AbstractStringTermsAggr
         final int size;
         if (bucketCountThresholds.getMinDocCount() == 0) {
             // if minDocCount == 0 then we can end up with more buckets then maxBucketOrd() returns
-            size = (int) Math.min(globalOrds.getValueCount(), bucketCountThresholds.getShardSize());
+            size = (int) Math.min(globalOrds.getValueCount(), shardSize());
         } else {
-            size = (int) Math.min(maxBucketOrd(), bucketCountThresholds.getShardSize());
+            size = (int) Math.min(maxBucketOrd(), shardSize());
         }
         long otherDocCount = 0;
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(this));
@@ -117,6 +117,12 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
     protected long docCountError;
     protected boolean showTermDocCountError;
     protected long otherDocCount;
+    /**
+     * Whether this is the result of a partial reduce on the coordinating node rather than the result of a single shard.
+     * A partial result holds all terms of the shards it was reduced from and the sum of their doc count errors. It is
+     * never serialized since partial results don't leave the coordinating node.
+     */
+    protected boolean partiallyReduced = false;
 
     protected InternalTerms() {} // for serialization
 
@@ -188,7 +194,12 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             }
             otherDocCount += terms.getSumOfOtherDocCounts();
             final long thisAggDocCountError;
-            if (terms.buckets.size() < this.shardSize || InternalOrder.isTermOrder(order)) {
+            if (reduceContext.isShardReduce()) {
+                // the separate aggregators of a shard return all their terms, so their counts are exact
+                thisAggDocCountError = 0;
+            } else if (terms.partiallyReduced) {
+                thisAggDocCountError = terms.docCountError;
+            } else if (terms.buckets.size() < this.shardSize || InternalOrder.isTermOrder(order)) {
                 thisAggDocCountError = 0;
             } else if (InternalOrder.isCountDesc(this.order)) {
                 thisAggDocCountError = terms.buckets.get(terms.buckets.size() - 1).docCount;
@@ -204,7 +215,15 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             }
             terms.docCountError = thisAggDocCountError;
             for (Bucket bucket : terms.buckets) {
-                bucket.docCountError = thisAggDocCountError;
+                if (terms.partiallyReduced == false) {
+                    bucket.docCountError = thisAggDocCountError;
+                } else if (thisAggDocCountError == -1 || bucket.docCountError == -1) {
+                    bucket.docCountError = -1;
+                } else {
+                    // the bucket of a partial result holds the errors of the shards that didn't return the term, but
+                    // the reduced bucket needs the errors of the shards that did
+                    bucket.docCountError = thisAggDocCountError - bucket.docCountError;
+                }
                 List<Bucket> bucketList = buckets.get(bucket.getKey());
                 if (bucketList == null) {
                     bucketList = new ArrayList<>();
@@ -214,7 +233,16 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
             }
         }
 
-        final int size = Math.min(requiredSize, buckets.size());
+        final int size;
+        if (reduceContext.isFinalReduce()) {
+            size = Math.min(requiredSize, buckets.size());
+        } else if (reduceContext.isShardReduce()) {
+            // the shard returns its top shard_size terms, like a single aggregator of the shard would have
+            size = Math.min(shardSize, buckets.size());
+        } else {
+            // partial reduces keep all terms, a term that doesn't make it now might still make it once all shards are reduced
+            size = buckets.size();
+        }
         BucketPriorityQueue ordered = new BucketPriorityQueue(size, order.comparator(null));
         for (List<Bucket> sameTermBuckets : buckets.values()) {
             final Bucket b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
@@ -225,7 +253,7 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
                     b.docCountError = sumDocCountError - b.docCountError;
                 }
             }
-            if (b.docCount >= minDocCount) {
+            if (b.docCount >= minDocCount || reduceContext.isFinalReduce() == false) {
                 Terms.Bucket removed = ordered.insertWithOverflow(b);
                 if (removed != null) {
                     otherDocCount += removed.getDocCount();
@@ -239,10 +267,15 @@ public abstract class InternalTerms<A extends InternalTerms, B extends InternalT
         long docCountError;
         if (sumDocCountError == -1) {
             docCountError = -1;
+        } else if (reduceContext.isFinalReduce() && aggregations.size() == 1
+                && ((InternalTerms<A, B>) aggregations.get(0)).partiallyReduced == false) {
+            docCountError = 0;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            docCountError = sumDocCountError;
         }
-        return create(name, Arrays.asList(list), docCountError, otherDocCount, this);
+        A reduced = create(name, Arrays.asList(list), docCountError, otherDocCount, this);
+        reduced.partiallyReduced = reduceContext.isFinalReduce() == false && reduceContext.isShardReduce() == false;
+        return reduced;
     }
 
     protected abstract A create(String name, List<InternalTerms.Bucket> buckets, long docCountError, long otherDocCount,
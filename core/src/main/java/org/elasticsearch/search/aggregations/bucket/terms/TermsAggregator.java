@@ -28,12 +28,14 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.SearchContextAggregations;
 import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.InternalOrder.Aggregation;
 import org.elasticsearch.search.aggregations.bucket.terms.InternalOrder.CompoundOrder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.search.profile.aggregation.ProfilingAggregator;
 
 import java.io.IOException;
 import java.util.HashSet;
@@ -197,11 +199,23 @@ public abstract class TermsAggregator extends BucketsAggregator {
         }
     }
 
+    /**
+     * Returns the maximum number of buckets to build for the shard. This is the shard size, unless the segments of the shard are
+     * collected by separate aggregators, which then build all their buckets so that the shard level reduce can prune them.
+     */
+    protected long shardSize() {
+        final SearchContextAggregations aggregations = context.searchContext().aggregations();
+        if (aggregations != null && aggregations.collectsSegmentsSeparately()) {
+            return Long.MAX_VALUE;
+        }
+        return bucketCountThresholds.getShardSize();
+    }
+
     @Override
     protected boolean shouldDefer(Aggregator aggregator) {
         return collectMode == SubAggCollectionMode.BREADTH_FIRST
                 && aggregator.needsScores() == false
-                && !aggsUsedForSorting.contains(aggregator);
+                && !aggsUsedForSorting.contains(ProfilingAggregator.unwrap(aggregator));
     }
 
 }
@@ -181,6 +181,12 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 + "]. It can only be applied to numeric or string fields.");
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // separate aggregators would each drop the terms that they saw less than shard_min_doc_count times
+        return bucketCountThresholds.getShardMinDocCount() <= 1 && super.canCollectSegmentsSeparately();
+    }
+
     public enum ExecutionMode {
 
         MAP(new ParseField("map")) {
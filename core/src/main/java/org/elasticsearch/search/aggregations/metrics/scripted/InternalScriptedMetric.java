@@ -57,6 +57,11 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
 
     private Script reduceScript;
     private Object aggregation;
+    /**
+     * Whether this is the result of a partial reduce, in which case {@link #aggregation} holds the list of the objects of the
+     * shards it was reduced from. Never serialized since partial results don't leave the coordinating node.
+     */
+    private boolean partiallyReduced = false;
 
     private InternalScriptedMetric() {
     }
@@ -81,9 +86,20 @@ public class InternalScriptedMetric extends InternalMetricsAggregation implement
         List<Object> aggregationObjects = new ArrayList<>();
         for (InternalAggregation aggregation : aggregations) {
             InternalScriptedMetric mapReduceAggregation = (InternalScriptedMetric) aggregation;
-            aggregationObjects.add(mapReduceAggregation.aggregation());
+            if (mapReduceAggregation.partiallyReduced) {
+                aggregationObjects.addAll((List<?>) mapReduceAggregation.aggregation());
+            } else {
+                aggregationObjects.add(mapReduceAggregation.aggregation());
+            }
         }
         InternalScriptedMetric firstAggregation = ((InternalScriptedMetric) aggregations.get(0));
+        if (reduceContext.isFinalReduce() == false) {
+            // the reduce script needs the objects of all shards at once, so it only runs on the final reduce
+            InternalScriptedMetric reduced = new InternalScriptedMetric(firstAggregation.getName(), aggregationObjects,
+                    firstAggregation.reduceScript, pipelineAggregators(), getMetaData());
+            reduced.partiallyReduced = true;
+            return reduced;
+        }
         Object aggregation;
         if (firstAggregation.reduceScript != null) {
             Map<String, Object> vars = new HashMap<>();
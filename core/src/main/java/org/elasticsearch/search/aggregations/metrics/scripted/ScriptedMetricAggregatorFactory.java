@@ -73,6 +73,12 @@ public class ScriptedMetricAggregatorFactory extends AggregatorFactory<ScriptedM
                 pipelineAggregators, metaData);
     }
 
+    @Override
+    public boolean canCollectSegmentsSeparately() {
+        // the combine script runs once per shard and the reduce script gets one object per shard
+        return false;
+    }
+
     private static Script insertParams(Script script, Map<String, Object> params) {
         if (script == null) {
             return null;
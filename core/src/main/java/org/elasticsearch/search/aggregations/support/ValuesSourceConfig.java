@@ -55,6 +55,10 @@ public class ValuesSourceConfig<VS extends ValuesSource> {
         return script;
     }
 
+    public Object missing() {
+        return missing;
+    }
+
     public boolean unmapped() {
         return unmapped;
     }
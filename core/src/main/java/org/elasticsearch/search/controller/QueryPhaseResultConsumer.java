@@ -0,0 +1,187 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.search.query.QuerySearchResultProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consumes the query phase results of the shards as they arrive on the coordinating node and partially reduces their
+ * aggregations and top docs every <code>batchedReduceSize</code> results, so that the coordinating node doesn't need to hold
+ * the results of all shards at once. The partially reduced results replace the results they were reduced from and are
+ * reduced again, together with the results that arrived after the last batch, by
+ * {@link SearchPhaseController#sortDocs} and {@link SearchPhaseController#merge}.
+ */
+public final class QueryPhaseResultConsumer {
+
+    private final BigArrays bigArrays;
+    private final ScriptService scriptService;
+    private final int batchedReduceSize;
+    private final boolean enabled;
+    private final boolean trimTopDocs;
+    // results that hold aggregations, the first one holds the aggregations that were reduced by the previous batch
+    private final List<QuerySearchResult> aggsBuffer = new ArrayList<>();
+    // results that hold more than one doc, sorted by shard index so that ties are broken like in the final merge
+    private final Map<Integer, QuerySearchResult> topDocsBuffer = new TreeMap<>();
+    private int numBuffered = 0;
+    private int numReducePhases = 0;
+    private Throwable failure;
+
+    QueryPhaseResultConsumer(BigArrays bigArrays, ScriptService scriptService, int batchedReduceSize, int numShards,
+                             boolean trimTopDocs) {
+        if (batchedReduceSize <= 1) {
+            throw new IllegalArgumentException("batchedReduceSize must be >= 2");
+        }
+        this.bigArrays = bigArrays;
+        this.scriptService = scriptService;
+        this.batchedReduceSize = batchedReduceSize;
+        // if all results fit in a single batch there is nothing to gain from reducing them before they all arrived
+        this.enabled = numShards > batchedReduceSize;
+        this.trimTopDocs = trimTopDocs;
+    }
+
+    /**
+     * Adds the query phase result of the shard with the given index and partially reduces the buffered results if
+     * <code>batchedReduceSize</code> results were added since the last partial reduce.
+     */
+    public synchronized void consume(int shardIndex, QuerySearchResultProvider provider) {
+        if (enabled == false || failure != null) {
+            return;
+        }
+        QuerySearchResult result = provider.queryResult();
+        if (result.aggregations() != null) {
+            aggsBuffer.add(result);
+        }
+        if (trimTopDocs && result.topDocs() != null && result.topDocs().scoreDocs.length > 1) {
+            topDocsBuffer.put(shardIndex, result);
+        }
+        if (++numBuffered == batchedReduceSize) {
+            numBuffered = 0;
+            try {
+                reduceAggs();
+                reduceTopDocs();
+                numReducePhases++;
+            } catch (Throwable t) {
+                // the results are reduced on the thread that delivered the shard response, so the failure is kept
+                // and rethrown once the coordinating node moves on to the next phase
+                failure = t;
+            }
+        }
+    }
+
+    private void reduceAggs() {
+        if (aggsBuffer.size() <= 1) {
+            return;
+        }
+        List<InternalAggregations> aggregationsList = new ArrayList<>(aggsBuffer.size());
+        for (QuerySearchResult result : aggsBuffer) {
+            aggregationsList.add((InternalAggregations) result.aggregations());
+        }
+        InternalAggregations reduced = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService, false));
+        QuerySearchResult holder = aggsBuffer.get(0);
+        for (QuerySearchResult result : aggsBuffer) {
+            result.aggregations(null);
+        }
+        holder.aggregations(reduced);
+        aggsBuffer.clear();
+        aggsBuffer.add(holder);
+    }
+
+    private void reduceTopDocs() {
+        if (topDocsBuffer.size() <= 1) {
+            return;
+        }
+        QuerySearchResult[] results = topDocsBuffer.values().toArray(new QuerySearchResult[topDocsBuffer.size()]);
+        // the final merge only keeps the docs from `from` to `from + size`
+        final int topN = results[0].from() + results[0].size();
+        final TopDocs merged;
+        if (results[0].topDocs() instanceof TopFieldDocs) {
+            Sort sort = new Sort(((TopFieldDocs) results[0].topDocs()).fields);
+            TopFieldDocs[] shardTopDocs = new TopFieldDocs[results.length];
+            for (int i = 0; i < results.length; i++) {
+                shardTopDocs[i] = (TopFieldDocs) results[i].topDocs();
+            }
+            merged = TopDocs.merge(sort, 0, topN, shardTopDocs);
+        } else {
+            TopDocs[] shardTopDocs = new TopDocs[results.length];
+            for (int i = 0; i < results.length; i++) {
+                shardTopDocs[i] = results[i].topDocs();
+            }
+            merged = TopDocs.merge(0, topN, shardTopDocs);
+        }
+        // the shard index of the merged docs is their result's position in the array that was merged
+        int[] numDocs = new int[results.length];
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            numDocs[scoreDoc.shardIndex]++;
+        }
+        Iterator<QuerySearchResult> iterator = topDocsBuffer.values().iterator();
+        for (int i = 0; i < results.length; i++) {
+            QuerySearchResult result = iterator.next();
+            assert result == results[i];
+            // the docs of a shard that make it to the top are a prefix of its docs. we keep at least one doc so that the
+            // search context of the shard is still released if none of its docs make it to the final top docs
+            final int keep = Math.max(numDocs[i], 1);
+            TopDocs topDocs = result.topDocs();
+            if (keep < topDocs.scoreDocs.length) {
+                ScoreDoc[] scoreDocs = Arrays.copyOf(topDocs.scoreDocs, keep);
+                if (topDocs instanceof TopFieldDocs) {
+                    result.topDocs(new TopFieldDocs(topDocs.totalHits, scoreDocs, ((TopFieldDocs) topDocs).fields, topDocs.getMaxScore()));
+                } else {
+                    result.topDocs(new TopDocs(topDocs.totalHits, scoreDocs, topDocs.getMaxScore()));
+                }
+            }
+            if (keep == 1) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Rethrows the failure of a partial reduce, if any.
+     */
+    public synchronized void ensureNoFailure() {
+        if (failure != null) {
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+    }
+
+    /**
+     * Returns the number of partial reduces that were executed so far.
+     */
+    public synchronized int getNumReducePhases() {
+        return numReducePhases;
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopFieldDocs;
 import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.common.collect.HppcMaps;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -95,6 +96,16 @@ public class SearchPhaseController extends AbstractComponent {
         this.scriptService = scriptService;
     }
 
+    /**
+     * Returns a new consumer that partially reduces the query phase results of the given request as they arrive.
+     */
+    public QueryPhaseResultConsumer newQueryPhaseResultConsumer(SearchRequest request, int numShards) {
+        // scroll requests need the docs after the current page and query_and_fetch already fetched the docs of all shards
+        final boolean trimTopDocs = request.scroll() == null
+            && (request.searchType() == SearchType.QUERY_THEN_FETCH || request.searchType() == SearchType.DFS_QUERY_THEN_FETCH);
+        return new QueryPhaseResultConsumer(bigArrays, scriptService, request.getBatchedReduceSize(), numShards, trimTopDocs);
+    }
+
     public AggregatedDfs aggregateDfs(AtomicArray<DfsSearchResult> results) {
         ObjectObjectHashMap<Term, TermStatistics> termStatistics = HppcMaps.newNoNullKeysMap();
         ObjectObjectHashMap<String, CollectionStatistics> fieldStatistics = HppcMaps.newNoNullKeysMap();
@@ -392,11 +403,15 @@ public class SearchPhaseController extends AbstractComponent {
         // merge addAggregation
         InternalAggregations aggregations = null;
         if (!queryResults.isEmpty()) {
-            if (firstResult.aggregations() != null && firstResult.aggregations().asList() != null) {
-                List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
-                for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
-                    aggregationsList.add((InternalAggregations) entry.value.queryResult().aggregations());
+            // results whose aggregations were partially reduced into another result don't hold aggregations anymore
+            List<InternalAggregations> aggregationsList = new ArrayList<>(queryResults.size());
+            for (AtomicArray.Entry<? extends QuerySearchResultProvider> entry : queryResults) {
+                InternalAggregations shardAggregations = (InternalAggregations) entry.value.queryResult().aggregations();
+                if (shardAggregations != null && shardAggregations.asList() != null) {
+                    aggregationsList.add(shardAggregations);
                 }
+            }
+            if (aggregationsList.isEmpty() == false) {
                 aggregations = InternalAggregations.reduce(aggregationsList, new ReduceContext(bigArrays, scriptService));
             }
         }
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.internal;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.search.CollectionStatistics;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
@@ -30,7 +32,9 @@ import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermStatistics;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.AggregatedDfs;
 import org.elasticsearch.search.profile.ProfileBreakdown;
@@ -38,6 +42,12 @@ import org.elasticsearch.search.profile.ProfileWeight;
 import org.elasticsearch.search.profile.Profiler;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -56,6 +66,9 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
     // TODO revisit moving the profiler to inheritance or wrapping model in the future
     private Profiler profiler;
 
+    private int maxSlices = 1;
+    private Executor sliceExecutor;
+
     public ContextIndexSearcher(Engine.Searcher searcher,
             QueryCache queryCache, QueryCachingPolicy queryCachingPolicy) {
         super(searcher.reader());
@@ -78,6 +91,132 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
         this.aggregatedDfs = aggregatedDfs;
     }
 
+    /**
+     * Allows {@link #searchSlices(Query, List)} to split the leaves into up to <code>maxSlices</code> slices that are searched
+     * concurrently on the given executor.
+     */
+    public void setSliceExecutor(int maxSlices, Executor executor) {
+        this.maxSlices = maxSlices;
+        this.sliceExecutor = executor;
+    }
+
+    /**
+     * Returns the number of slices that {@link #searchSlices(Query, List)} searches concurrently, <code>1</code> if the leaves of
+     * this searcher are searched sequentially.
+     */
+    public int sliceCount() {
+        if (sliceExecutor == null || maxSlices <= 1) {
+            return 1;
+        }
+        return slices(leafContexts, maxSlices).size();
+    }
+
+    /**
+     * Searches the slices of the leaves concurrently, the leaves of the <code>i</code>-th slice being collected into the
+     * <code>i</code>-th collector, which must not be shared between slices. There must be one collector per slice as returned by
+     * {@link #sliceCount()}. Slices are contiguous ranges of leaves so that the results of the slices can be merged in the order
+     * of the slices to break ties on doc ids like a sequential search would.
+     * <p>
+     * The calling thread searches the slices that the executor didn't pick up yet itself, so the search makes progress even if
+     * all the threads of the executor are busy. The first exception thrown by a slice is rethrown once all slices completed.
+     */
+    public void searchSlices(Query query, List<Collector> collectors) throws IOException {
+        final List<List<LeafReaderContext>> slices = slices(leafContexts, sliceExecutor == null ? 1 : maxSlices);
+        if (slices.size() != collectors.size()) {
+            throw new IllegalArgumentException("Expected [" + slices.size() + "] collectors but got [" + collectors.size() + "]");
+        }
+        boolean needsScores = false;
+        for (Collector collector : collectors) {
+            needsScores |= collector.needsScores();
+        }
+        final Weight weight = createNormalizedWeight(query, needsScores);
+        final SearchContext searchContext = SearchContext.current();
+        final List<FutureTask<Void>> tasks = new ArrayList<>(slices.size());
+        for (int i = 0; i < slices.size(); i++) {
+            final List<LeafReaderContext> leaves = slices.get(i);
+            final Collector collector = collectors.get(i);
+            tasks.add(new FutureTask<>(() -> {
+                // some queries and aggregations look up the search context of the current thread
+                final boolean setCurrent = searchContext != null && SearchContext.current() == null;
+                if (setCurrent) {
+                    SearchContext.setCurrent(searchContext);
+                }
+                try {
+                    search(leaves, weight, collector);
+                } finally {
+                    if (setCurrent) {
+                        SearchContext.removeCurrent();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 1; i < tasks.size(); i++) {
+            try {
+                sliceExecutor.execute(tasks.get(i));
+            } catch (EsRejectedExecutionException | RejectedExecutionException e) {
+                // the slice is searched by the calling thread below
+            }
+        }
+        Throwable failure = null;
+        for (FutureTask<Void> task : tasks) {
+            // does nothing if the task was already started by the executor
+            task.run();
+            try {
+                task.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ThreadInterruptedException(e);
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+
+    /**
+     * Searches the given leaves of this searcher only, the leaves must be collected in the order of the leaves of the reader.
+     */
+    public void searchLeaves(List<LeafReaderContext> leaves, Query query, Collector collector) throws IOException {
+        search(leaves, createNormalizedWeight(query, collector.needsScores()), collector);
+    }
+
+    /**
+     * Splits the leaves into up to <code>maxSlices</code> contiguous slices of about the same number of documents.
+     */
+    static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices) {
+        long totalDocs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            totalDocs += leaf.reader().maxDoc();
+        }
+        final List<List<LeafReaderContext>> slices = new ArrayList<>(maxSlices);
+        List<LeafReaderContext> slice = new ArrayList<>();
+        long docs = 0;
+        for (LeafReaderContext leaf : leaves) {
+            slice.add(leaf);
+            docs += leaf.reader().maxDoc();
+            // close the slice once the slices closed so far hold their share of the documents
+            if (slices.size() < maxSlices - 1 && docs * maxSlices >= totalDocs * (slices.size() + 1)) {
+                slices.add(slice);
+                slice = new ArrayList<>();
+            }
+        }
+        if (slice.isEmpty() == false || slices.isEmpty()) {
+            slices.add(slice);
+        }
+        return slices;
+    }
+
     @Override
     public Query rewrite(Query original) throws IOException {
         if (profiler != null) {
@@ -117,7 +117,10 @@ public class DefaultSearchContext extends SearchContext {
     private Sort sort;
     private Float minimumScore;
     private boolean trackScores = false; // when sorting, track scores as well...
+    private boolean trackTotalHits = true;
     private FieldDoc searchAfter;
+    // filter for sliced scroll
+    private Query sliceFilter;
     /**
      * The original query as sent by the user without the types and aliases
      * applied. Putting things in here leaks them into highlighting so don't add
@@ -230,6 +233,16 @@ public class DefaultSearchContext extends SearchContext {
 
     private ParsedQuery buildFilteredQuery() {
         Query searchFilter = searchFilter(queryShardContext.getTypes());
+        if (sliceFilter != null) {
+            if (searchFilter == null) {
+                searchFilter = sliceFilter;
+            } else {
+                searchFilter = new BooleanQuery.Builder()
+                        .add(searchFilter, Occur.FILTER)
+                        .add(sliceFilter, Occur.FILTER)
+                        .build();
+            }
+        }
         if (searchFilter == null) {
             return originalQuery;
         }
@@ -549,6 +562,17 @@ public class DefaultSearchContext extends SearchContext {
         return this.trackScores;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return this.trackTotalHits;
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         this.searchAfter = searchAfter;
@@ -560,6 +584,14 @@ public class DefaultSearchContext extends SearchContext {
         return searchAfter;
     }
 
+    /**
+     * Sets the filter restricting the hits of a sliced scroll to the requested slice.
+     */
+    public SearchContext sliceFilter(Query filter) {
+        this.sliceFilter = filter;
+        return this;
+    }
+
     @Override
     public SearchContext parsedPostFilter(ParsedQuery postFilter) {
         this.postFilter = postFilter;
@@ -720,7 +752,7 @@ public class DefaultSearchContext extends SearchContext {
     }
 
     @Override
-    public SearchLookup lookup() {
+    protected SearchLookup lookupImpl() {
         // TODO: The types should take into account the parsing context in QueryParserContext...
         if (searchLookup == null) {
             searchLookup = new SearchLookup(mapperService(), fieldData(), request.types());
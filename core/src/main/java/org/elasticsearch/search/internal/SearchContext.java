@@ -43,6 +43,7 @@ import org.elasticsearch.index.query.ParsedQuery;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.similarity.SimilarityService;
+import org.elasticsearch.indices.IndicesSegmentAggregationCache;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.SearchShardTarget;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
@@ -110,6 +111,8 @@ public abstract class SearchContext implements Releasable {
     }
 
     private boolean nowInMillisUsed;
+    private boolean lookupUsed;
+    private IndicesSegmentAggregationCache.Lookup segmentAggregationCache;
 
     protected abstract void doClose();
 
@@ -155,6 +158,18 @@ public abstract class SearchContext implements Releasable {
 
     protected abstract long nowInMillisImpl();
 
+    /**
+     * Returns the cache of the aggregation results of the segments of the shard that the query phase can use, if any.
+     */
+    @Nullable
+    public final IndicesSegmentAggregationCache.Lookup segmentAggregationCache() {
+        return segmentAggregationCache;
+    }
+
+    public final void segmentAggregationCache(@Nullable IndicesSegmentAggregationCache.Lookup segmentAggregationCache) {
+        this.segmentAggregationCache = segmentAggregationCache;
+    }
+
     public abstract ScrollContext scrollContext();
 
     public abstract SearchContext scrollContext(ScrollContext scroll);
@@ -244,6 +259,14 @@ public abstract class SearchContext implements Releasable {
 
     public abstract boolean trackScores();
 
+    public abstract SearchContext trackTotalHits(boolean trackTotalHits);
+
+    /**
+     * Indicates if the total number of hits must be counted exactly or if collection may stop early, the total number of hits
+     * being a lower bound then.
+     */
+    public abstract boolean trackTotalHits();
+
     public abstract SearchContext searchAfter(FieldDoc searchAfter);
 
     public abstract FieldDoc searchAfter();
@@ -306,7 +329,20 @@ public abstract class SearchContext implements Releasable {
 
     public abstract void keepAlive(long keepAlive);
 
-    public abstract SearchLookup lookup();
+    public final SearchLookup lookup() {
+        lookupUsed = true;
+        return lookupImpl();
+    }
+
+    /**
+     * Returns whether the {@link #lookup()} was requested, which scripts do to read the documents they are executed on. The lookup
+     * is not thread-safe, so such a search can't collect segments on several threads.
+     */
+    public final boolean lookupUsed() {
+        return lookupUsed;
+    }
+
+    protected abstract SearchLookup lookupImpl();
 
     public abstract DfsSearchResult dfsResult();
 
@@ -325,7 +361,7 @@ public abstract class SearchContext implements Releasable {
      * Schedule the release of a resource. The time when {@link Releasable#close()} will be called on this object
      * is function of the provided {@link Lifetime}.
      */
-    public void addReleasable(Releasable releasable, Lifetime lifetime) {
+    public synchronized void addReleasable(Releasable releasable, Lifetime lifetime) {
         if (clearables == null) {
             clearables = new HashMap<>();
         }
@@ -337,7 +373,7 @@ public abstract class SearchContext implements Releasable {
         releasables.add(releasable);
     }
 
-    public void clearReleasables(Lifetime lifetime) {
+    public synchronized void clearReleasables(Lifetime lifetime) {
         if (clearables != null) {
             List<List<Releasable>>releasables = new ArrayList<>();
             for (Lifetime lc : Lifetime.values()) {
@@ -24,6 +24,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileResult;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,7 +33,8 @@ import java.util.List;
 
 /**
  * A container class to hold the profile results for a single shard in the request.
- * Contains a list of query profiles, a collector tree and a total rewrite tree.
+ * Contains a list of query profiles, a collector tree, a total rewrite tree and the
+ * profiles of the aggregations.
  */
 public final class ProfileShardResult implements Writeable<ProfileShardResult>, ToXContent {
 
@@ -42,12 +44,15 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
 
     private final long rewriteTime;
 
+    private final List<AggregationProfileResult> aggregationResults;
+
     public ProfileShardResult(List<ProfileResult> profileResults, long rewriteTime,
-                              CollectorResult profileCollector) {
+                              CollectorResult profileCollector, List<AggregationProfileResult> aggregationResults) {
         assert(profileCollector != null);
         this.profileResults = profileResults;
         this.profileCollector = profileCollector;
         this.rewriteTime = rewriteTime;
+        this.aggregationResults = aggregationResults;
     }
 
     public ProfileShardResult(StreamInput in) throws IOException {
@@ -59,6 +64,12 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
 
         profileCollector = new CollectorResult(in);
         rewriteTime = in.readLong();
+
+        int aggregationsSize = in.readVInt();
+        aggregationResults = new ArrayList<>(aggregationsSize);
+        for (int j = 0; j < aggregationsSize; j++) {
+            aggregationResults.add(new AggregationProfileResult(in));
+        }
     }
 
     public List<ProfileResult> getQueryResults() {
@@ -73,6 +84,10 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         return profileCollector;
     }
 
+    public List<AggregationProfileResult> getAggregationResults() {
+        return Collections.unmodifiableList(aggregationResults);
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startArray("query");
@@ -84,6 +99,13 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         builder.startArray("collector");
         profileCollector.toXContent(builder, params);
         builder.endArray();
+        if (aggregationResults.isEmpty() == false) {
+            builder.startArray("aggregations");
+            for (AggregationProfileResult p : aggregationResults) {
+                p.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
         return builder;
     }
 
@@ -100,6 +122,10 @@ public final class ProfileShardResult implements Writeable<ProfileShardResult>,
         }
         profileCollector.writeTo(out);
         out.writeLong(rewriteTime);
+        out.writeVInt(aggregationResults.size());
+        for (AggregationProfileResult p : aggregationResults) {
+            p.writeTo(out);
+        }
     }
 
 }
@@ -20,8 +20,11 @@
 package org.elasticsearch.search.profile;
 
 import org.apache.lucene.search.Query;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileResult;
+import org.elasticsearch.search.profile.aggregation.AggregationProfiler;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -115,14 +118,20 @@ public final class Profiler {
      * Helper method to convert Profiler into  InternalProfileShardResults, which can be
      * serialized to other nodes, emitted as JSON, etc.
      *
+     * The aggregations of a request are profiled across all of its searches, so they are reported
+     * with the first search only.
+     *
      * @param profilers A list of Profilers to convert into InternalProfileShardResults
+     * @param aggregationProfiler The profiler of the aggregations of the request
      * @return          A list of corresponding InternalProfileShardResults
      */
-    public static List<ProfileShardResult> buildShardResults(List<Profiler> profilers) {
+    public static List<ProfileShardResult> buildShardResults(List<Profiler> profilers, AggregationProfiler aggregationProfiler) {
         List<ProfileShardResult> results = new ArrayList<>(profilers.size());
         for (Profiler profiler : profilers) {
+            List<AggregationProfileResult> aggregationResults = results.isEmpty()
+                    ? aggregationProfiler.getTree() : Collections.emptyList();
             ProfileShardResult result =  new ProfileShardResult(
-                    profiler.getQueryTree(), profiler.getRewriteTime(), profiler.getCollector());
+                    profiler.getQueryTree(), profiler.getRewriteTime(), profiler.getCollector(), aggregationResults);
             results.add(result);
         }
         return results;
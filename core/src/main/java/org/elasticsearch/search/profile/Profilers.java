@@ -20,6 +20,7 @@
 package org.elasticsearch.search.profile;
 
 import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.search.profile.aggregation.AggregationProfiler;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +31,7 @@ public final class Profilers {
 
     private final ContextIndexSearcher searcher;
     private final List<Profiler> profilers;
+    private final AggregationProfiler aggProfiler = new AggregationProfiler();
 
     /** Sole constructor. This {@link Profilers} instance will initially wrap one {@link Profiler}. */
     public Profilers(ContextIndexSearcher searcher) {
@@ -56,4 +58,9 @@ public final class Profilers {
         return Collections.unmodifiableList(profilers);
     }
 
+    /** Return the profiler of the aggregations of the request, which are shared by all searches. */
+    public AggregationProfiler getAggregationProfiler() {
+        return aggProfiler;
+    }
+
 }
@@ -0,0 +1,172 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * A record of timings and counts for the various operations that may happen during the execution of an aggregator.
+ * Instances of the same aggregation under different parent buckets share a breakdown.
+ */
+public final class AggregationProfileBreakdown {
+
+    /** Enumeration of all supported timing types. */
+    public enum TimingType {
+        INITIALIZE,
+        COLLECT,
+        POST_COLLECTION,
+        BUILD_AGGREGATION;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Enumeration of all supported count types. */
+    public enum CountType {
+        /** Number of buckets created by a bucket aggregator. */
+        BUCKETS,
+        /** Number of documents that were replayed to deferred sub-aggregations. */
+        DEFERRED_DOCS_REPLAYED;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The accumulated timings for this aggregation node
+     */
+    private final long[] timings;
+
+    /**
+     * The counts that were read from the counters of this aggregation node so far
+     */
+    private final long[] counts;
+
+    /**
+     * The sources of the counts for this aggregation node, read until the counts are frozen
+     */
+    private final List<List<LongSupplier>> counters;
+
+    /** Scratch to store the current timing type. */
+    private TimingType currentTimingType;
+
+    /**
+     * The temporary scratch space for holding start-times
+     */
+    private long scratch;
+
+    /** Sole constructor. */
+    public AggregationProfileBreakdown() {
+        timings = new long[TimingType.values().length];
+        counts = new long[CountType.values().length];
+        counters = new ArrayList<>(CountType.values().length);
+        for (int i = 0; i < CountType.values().length; ++i) {
+            counters.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Begin timing an aggregator for a specific Timing context
+     * @param timing    The timing context being profiled
+     */
+    public void startTime(TimingType timing) {
+        assert currentTimingType == null;
+        assert scratch == 0;
+        currentTimingType = timing;
+        scratch = System.nanoTime();
+    }
+
+    /**
+     * Halt the timing process and save the elapsed time.
+     * startTime() must be called for a particular context prior to calling
+     * stopAndRecordTime(), otherwise the elapsed time will be negative and
+     * nonsensical
+     *
+     * @return          The elapsed time
+     */
+    public long stopAndRecordTime() {
+        long time = Math.max(1, System.nanoTime() - scratch);
+        timings[currentTimingType.ordinal()] += time;
+        currentTimingType = null;
+        scratch = 0L;
+        return time;
+    }
+
+    /**
+     * Register a source for the given count. The values of all sources of the same count are summed up. Sources are read
+     * until {@link #freezeCounts()} is called, which must happen before the resources of the aggregators are released.
+     */
+    public void addCounter(CountType countType, LongSupplier counter) {
+        counters.get(countType.ordinal()).add(counter);
+    }
+
+    /**
+     * Read the current values of all sources of counts and forget about the sources.
+     */
+    public void freezeCounts() {
+        for (CountType countType : CountType.values()) {
+            List<LongSupplier> sources = counters.get(countType.ordinal());
+            for (LongSupplier counter : sources) {
+                counts[countType.ordinal()] += counter.getAsLong();
+            }
+            sources.clear();
+        }
+    }
+
+    /** Convert this record to a map from {@link TimingType} to times. */
+    public Map<String, Long> toTimingMap() {
+        Map<String, Long> map = new HashMap<>();
+        for (TimingType timingType : TimingType.values()) {
+            map.put(timingType.toString(), timings[timingType.ordinal()]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /** Convert the counts of this record to a map from {@link CountType} to counts. */
+    public Map<String, Long> toCountMap() {
+        Map<String, Long> map = new HashMap<>();
+        for (CountType countType : CountType.values()) {
+            long count = counts[countType.ordinal()];
+            for (LongSupplier counter : counters.get(countType.ordinal())) {
+                count += counter.getAsLong();
+            }
+            map.put(countType.toString(), count);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /** Returns the total time of this aggregation node, including the time of its sub aggregations. */
+    public long getTotalTime() {
+        long total = 0;
+        for (long timing : timings) {
+            total += timing;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The profiled timings and counts of a single aggregation, corresponding to a node in the tree of aggregations of
+ * the request. Each result holds the results of its sub-aggregations as children.
+ */
+public final class AggregationProfileResult implements Writeable<AggregationProfileResult>, ToXContent {
+
+    private static final ParseField TYPE = new ParseField("type");
+    private static final ParseField NAME = new ParseField("name");
+    private static final ParseField NODE_TIME = new ParseField("time");
+    private static final ParseField BREAKDOWN = new ParseField("breakdown");
+    private static final ParseField COUNTS = new ParseField("counts");
+    private static final ParseField CHILDREN = new ParseField("children");
+
+    private final String type;
+    private final String name;
+    private final Map<String, Long> timings;
+    private final Map<String, Long> counts;
+    private final long nodeTime;
+    private final List<AggregationProfileResult> children;
+
+    public AggregationProfileResult(String type, String name, Map<String, Long> timings, Map<String, Long> counts,
+                                    List<AggregationProfileResult> children, long nodeTime) {
+        this.type = type;
+        this.name = name;
+        this.timings = timings;
+        this.counts = counts;
+        this.children = children;
+        this.nodeTime = nodeTime;
+    }
+
+    public AggregationProfileResult(StreamInput in) throws IOException {
+        this.type = in.readString();
+        this.name = in.readString();
+        this.nodeTime = in.readLong();
+        this.timings = readLongMap(in);
+        this.counts = readLongMap(in);
+        int size = in.readVInt();
+        this.children = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(new AggregationProfileResult(in));
+        }
+    }
+
+    private static Map<String, Long> readLongMap(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        Map<String, Long> map = new HashMap<>(size);
+        for (int i = 0; i < size; ++i) {
+            map.put(in.readString(), in.readLong());
+        }
+        return map;
+    }
+
+    private static void writeLongMap(StreamOutput out, Map<String, Long> map) throws IOException {
+        out.writeVInt(map.size());
+        for (Map.Entry<String, Long> entry : map.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /**
+     * Retrieve the type of the aggregation (e.g. "terms")
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Retrieve the name of the aggregation as given in the request
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the timing breakdown for this aggregation node
+     */
+    public Map<String, Long> getTimeBreakdown() {
+        return Collections.unmodifiableMap(timings);
+    }
+
+    /**
+     * Returns the counts, such as the number of created buckets, for this aggregation node
+     */
+    public Map<String, Long> getCounts() {
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Returns the total time (inclusive of sub-aggregations) for this aggregation node.
+     *
+     * @return  elapsed time in nanoseconds
+     */
+    public long getTime() {
+        return nodeTime;
+    }
+
+    /**
+     * Returns the profiled results of the sub-aggregations
+     */
+    public List<AggregationProfileResult> getProfiledChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    @Override
+    public AggregationProfileResult readFrom(StreamInput in) throws IOException {
+        return new AggregationProfileResult(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(type);
+        out.writeString(name);
+        out.writeLong(nodeTime);
+        writeLongMap(out, timings);
+        writeLongMap(out, counts);
+        out.writeVInt(children.size());
+        for (AggregationProfileResult child : children) {
+            child.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject()
+                .field(TYPE.getPreferredName(), type)
+                .field(NAME.getPreferredName(), name)
+                .field(NODE_TIME.getPreferredName(), String.format(Locale.US, "%.10gms", nodeTime / 1000000.0))
+                .field(BREAKDOWN.getPreferredName(), timings)
+                .field(COUNTS.getPreferredName(), counts);
+        if (children.isEmpty() == false) {
+            builder.startArray(CHILDREN.getPreferredName());
+            for (AggregationProfileResult child : children) {
+                child.toXContent(builder, params);
+            }
+            builder.endArray();
+        }
+        return builder.endObject();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import org.elasticsearch.search.aggregations.Aggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the {@link AggregationProfileBreakdown}s of the aggregators of a search. Aggregators are identified by the
+ * path of names from the top level aggregation down to them, so that all the instances that an aggregation may have
+ * under the different buckets of its parent share a breakdown, and the tree of results follows the tree of
+ * aggregations of the request.
+ */
+public final class AggregationProfiler {
+
+    private final Map<List<String>, AggregationProfileBreakdown> breakdowns = new LinkedHashMap<>();
+    private final Map<List<String>, String> types = new HashMap<>();
+
+    /**
+     * Get the {@link AggregationProfileBreakdown} for the given aggregator, potentially creating it if it did not exist.
+     *
+     * @param aggregator    The aggregator to profile
+     * @param type          The type of the aggregation, e.g. "terms", or {@code null} if unknown to the caller
+     */
+    public AggregationProfileBreakdown getBreakdown(Aggregator aggregator, String type) {
+        final List<String> path = new ArrayList<>();
+        for (Aggregator agg = aggregator; agg != null; agg = agg.parent()) {
+            path.add(agg.name());
+        }
+        Collections.reverse(path);
+        AggregationProfileBreakdown breakdown = breakdowns.get(path);
+        if (breakdown == null) {
+            breakdown = new AggregationProfileBreakdown();
+            breakdowns.put(path, breakdown);
+        }
+        if (type != null) {
+            types.put(path, type);
+        }
+        return breakdown;
+    }
+
+    /**
+     * Reads the counts of all aggregators, which must be called once the aggregations were built and before the
+     * aggregators are released.
+     */
+    public void freezeCounts() {
+        for (AggregationProfileBreakdown breakdown : breakdowns.values()) {
+            breakdown.freezeCounts();
+        }
+    }
+
+    /**
+     * @return a hierarchical representation of the profiled aggregations, one root per top level aggregation
+     */
+    public List<AggregationProfileResult> getTree() {
+        return buildChildren(Collections.emptyList());
+    }
+
+    private List<AggregationProfileResult> buildChildren(List<String> parentPath) {
+        final List<AggregationProfileResult> children = new ArrayList<>();
+        for (Map.Entry<List<String>, AggregationProfileBreakdown> entry : breakdowns.entrySet()) {
+            final List<String> path = entry.getKey();
+            if (path.size() == parentPath.size() + 1 && path.subList(0, parentPath.size()).equals(parentPath)) {
+                final AggregationProfileBreakdown breakdown = entry.getValue();
+                children.add(new AggregationProfileResult(types.get(path), path.get(path.size() - 1), breakdown.toTimingMap(),
+                        breakdown.toCountMap(), buildChildren(path), breakdown.getTotalTime()));
+            }
+        }
+        return children;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileBreakdown.TimingType;
+
+import java.io.IOException;
+
+/**
+ * An {@link Aggregator} that records the time spent in the different stages of the wrapped aggregator into an
+ * {@link AggregationProfileBreakdown}. Code that needs to know the actual type of an aggregator should
+ * {@link #unwrap(Aggregator)} it first.
+ */
+public final class ProfilingAggregator extends Aggregator {
+
+    private final Aggregator delegate;
+    private final AggregationProfileBreakdown profileBreakdown;
+
+    public ProfilingAggregator(Aggregator delegate, String type, AggregationProfiler profiler) {
+        this.delegate = delegate;
+        this.profileBreakdown = profiler.getBreakdown(delegate, type);
+    }
+
+    /**
+     * Returns the aggregator that is wrapped by the given aggregator if it is profiled, the given aggregator otherwise.
+     */
+    public static Aggregator unwrap(Aggregator aggregator) {
+        if (aggregator instanceof ProfilingAggregator) {
+            return ((ProfilingAggregator) aggregator).delegate;
+        }
+        return aggregator;
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public boolean needsScores() {
+        return delegate.needsScores();
+    }
+
+    @Override
+    public String name() {
+        return delegate.name();
+    }
+
+    @Override
+    public AggregationContext context() {
+        return delegate.context();
+    }
+
+    @Override
+    public Aggregator parent() {
+        return delegate.parent();
+    }
+
+    @Override
+    public Aggregator subAggregator(String name) {
+        return delegate.subAggregator(name);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long bucket) throws IOException {
+        profileBreakdown.startTime(TimingType.BUILD_AGGREGATION);
+        try {
+            return delegate.buildAggregation(bucket);
+        } finally {
+            profileBreakdown.stopAndRecordTime();
+        }
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return delegate.buildEmptyAggregation();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        final LeafBucketCollector collector = delegate.getLeafCollector(ctx);
+        if (collector == LeafBucketCollector.NO_OP_COLLECTOR) {
+            return collector;
+        }
+        return new ProfilingLeafBucketCollector(collector, profileBreakdown);
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        profileBreakdown.startTime(TimingType.INITIALIZE);
+        try {
+            delegate.preCollection();
+        } finally {
+            profileBreakdown.stopAndRecordTime();
+        }
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        profileBreakdown.startTime(TimingType.POST_COLLECTION);
+        try {
+            delegate.postCollection();
+        } finally {
+            profileBreakdown.stopAndRecordTime();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
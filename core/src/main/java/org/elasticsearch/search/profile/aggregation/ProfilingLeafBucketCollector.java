@@ -0,0 +1,54 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import org.apache.lucene.search.Scorer;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileBreakdown.TimingType;
+
+import java.io.IOException;
+
+/**
+ * A {@link LeafBucketCollector} that records the time spent collecting documents into the wrapped collector.
+ */
+final class ProfilingLeafBucketCollector extends LeafBucketCollector {
+
+    private final LeafBucketCollector delegate;
+    private final AggregationProfileBreakdown profileBreakdown;
+
+    ProfilingLeafBucketCollector(LeafBucketCollector delegate, AggregationProfileBreakdown profileBreakdown) {
+        this.delegate = delegate;
+        this.profileBreakdown = profileBreakdown;
+    }
+
+    @Override
+    public void collect(int doc, long bucket) throws IOException {
+        profileBreakdown.startTime(TimingType.COLLECT);
+        try {
+            delegate.collect(doc, bucket);
+        } finally {
+            profileBreakdown.stopAndRecordTime();
+        }
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        delegate.setScorer(scorer);
+    }
+}
@@ -37,6 +37,7 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldDocs;
 import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TotalHitCountCollector;
@@ -46,16 +47,23 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.index.IndexSortConfig;
+import org.elasticsearch.indices.IndicesSegmentAggregationCache;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.aggregations.AggregationPhase;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregator;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.search.internal.ScrollContext;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.profile.CollectorResult;
 import org.elasticsearch.search.profile.InternalProfileCollector;
 import org.elasticsearch.search.profile.ProfileShardResult;
 import org.elasticsearch.search.profile.Profiler;
+import org.elasticsearch.search.profile.aggregation.ProfilingAggregator;
 import org.elasticsearch.search.rescore.RescorePhase;
 import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.sort.TrackScoresParseElement;
@@ -63,6 +71,7 @@ import org.elasticsearch.search.suggest.SuggestPhase;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -136,7 +145,8 @@ public class QueryPhase implements SearchPhase {
         aggregationPhase.execute(searchContext);
 
         if (searchContext.getProfilers() != null) {
-            List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers());
+            List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers(),
+                    searchContext.getProfilers().getAggregationProfiler());
             searchContext.queryResult().profileResults(shardResults);
         }
     }
@@ -153,6 +163,255 @@ public class QueryPhase implements SearchPhase {
         }
     }
 
+    /**
+     * Returns whether the collection of segments that are sorted by the given index sort can be terminated early, which requires
+     * that the request doesn't need the exact total number of hits, that the search sorts like the index and that no other
+     * collector needs to see all matching documents.
+     */
+    static boolean canTerminateSortedSegmentsEarly(SearchContext searchContext, Sort indexSort) {
+        if (searchContext.trackTotalHits() || searchContext.sort() == null || searchContext.scrollContext() != null
+                || searchContext.queryCollectors().isEmpty() == false) {
+            return false;
+        }
+        final Sort searchSort = searchContext.sort();
+        return IndexSortConfig.commonPrefixLength(searchSort, indexSort) == searchSort.getSort().length;
+    }
+
+    /**
+     * Returns whether the slices of the leaves of the given searcher can be searched concurrently, which requires that the
+     * searcher was configured with more than one slice and that nothing needs to see the matching documents in order or
+     * across all segments.
+     */
+    static boolean canSearchConcurrently(SearchContext searchContext, IndexSearcher searcher) {
+        if (searcher instanceof ContextIndexSearcher == false || ((ContextIndexSearcher) searcher).sliceCount() <= 1) {
+            return false;
+        }
+        if (searchContext.getProfilers() != null || searchContext.scrollContext() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return false;
+        }
+        if (searchContext.lookupUsed()) {
+            // scripts of the query, the aggregations or the sort read documents through the shared lookup of the context
+            return false;
+        }
+        if (canCollectSegmentsSeparately(searchContext) == false) {
+            return false;
+        }
+        // plain counts are cheap enough or even optimized to not collect at all
+        return searchContext.size() > 0 || searchContext.queryCollectors().containsKey(AggregationPhase.class);
+    }
+
+    /**
+     * Returns whether groups of segments can be collected by separate sets of aggregators whose results are reduced afterwards,
+     * which requires that no other collector needs to see all matching documents and that no aggregation depends on the whole
+     * shard.
+     */
+    private static boolean canCollectSegmentsSeparately(SearchContext searchContext) {
+        for (Class<?> collectorKey : searchContext.queryCollectors().keySet()) {
+            if (collectorKey != AggregationPhase.class) {
+                // other collectors can't be duplicated per group of segments
+                return false;
+            }
+        }
+        if (searchContext.aggregations() != null && searchContext.aggregations().aggregators() != null) {
+            for (Aggregator aggregator : searchContext.aggregations().aggregators()) {
+                if (ProfilingAggregator.unwrap(aggregator) instanceof GlobalAggregator) {
+                    return false;
+                }
+            }
+            if (searchContext.aggregations().factories().canCollectSegmentsSeparately() == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the aggregations of the large segments of the searcher can be loaded from the segment aggregation cache,
+     * which requires a request that only counts hits and computes aggregations. Scores depend on the statistics of the whole
+     * shard, which change whenever a segment is added or merged away, so requests that read scores can't be cached per segment.
+     */
+    static boolean canUseSegmentAggregationCache(SearchContext searchContext, IndexSearcher searcher) {
+        if (searchContext.segmentAggregationCache() == null || searcher instanceof ContextIndexSearcher == false) {
+            return false;
+        }
+        if (searchContext.size() != 0 || searchContext.getProfilers() != null || searchContext.scrollContext() != null
+                || searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || searchContext.parsedPostFilter() != null || searchContext.minimumScore() != null) {
+            return false;
+        }
+        if (searchContext.queryCollectors().containsKey(AggregationPhase.class) == false) {
+            return false;
+        }
+        for (Aggregator aggregator : searchContext.aggregations().aggregators()) {
+            if (aggregator.needsScores()) {
+                return false;
+            }
+        }
+        return canCollectSegmentsSeparately(searchContext);
+    }
+
+    /**
+     * Executes the query with the aggregations of the large segments being loaded from the segment aggregation cache. The large
+     * segments that are not cached yet are collected one by one by fresh aggregators whose results are cached, while the other
+     * segments are collected by the aggregators of the aggregation phase, which reduces all the results.
+     */
+    private static boolean executeWithSegmentAggregationCache(SearchContext searchContext, ContextIndexSearcher searcher, Query query)
+            throws Exception {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final IndicesSegmentAggregationCache.Lookup cache = searchContext.segmentAggregationCache();
+        final boolean timeoutSet = searchContext.timeoutInMillis() != SearchService.NO_TIMEOUT.millis();
+        // the timeout applies to the whole query, not to each of the searches of the segments
+        final long timeoutBaseline = searchContext.timeEstimateCounter().get();
+        final List<LeafReaderContext> uncachedLeaves = new ArrayList<>();
+        // the aggregators of the segments keep all their buckets, the aggregation phase prunes them once it reduced the segments
+        searchContext.aggregations().collectsSegmentsSeparately(true);
+        long totalHits = 0;
+        try {
+            for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+                if (cache.canCache(leaf.reader()) == false) {
+                    uncachedLeaves.add(leaf);
+                    continue;
+                }
+                IndicesSegmentAggregationCache.Value value = cache.get(leaf.reader());
+                if (value == null) {
+                    final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+                    final Aggregator[] aggregators = searchContext.aggregations().factories().createTopLevelAggregators();
+                    final BucketCollector aggregationCollector = BucketCollector.wrap(Arrays.asList(aggregators));
+                    aggregationCollector.preCollection();
+                    final Collector collector = MultiCollector.wrap(hitCountCollector, aggregationCollector);
+                    searcher.searchLeaves(Collections.singletonList(leaf), query,
+                            wrapSegmentCollector(searchContext, collector, timeoutSet, timeoutBaseline));
+                    // a timed out search doesn't get here, so only complete results are cached
+                    value = cache.put(leaf.reader(), hitCountCollector.getTotalHits(), AggregationPhase.buildAggregations(aggregators));
+                }
+                totalHits += value.totalHits();
+                searchContext.aggregations().addSegmentAggregations(value.aggregations());
+            }
+            if (uncachedLeaves.isEmpty() == false) {
+                final TotalHitCountCollector hitCountCollector = new TotalHitCountCollector();
+                final Collector collector = MultiCollector.wrap(hitCountCollector,
+                        searchContext.queryCollectors().get(AggregationPhase.class));
+                searcher.searchLeaves(uncachedLeaves, query, wrapSegmentCollector(searchContext, collector, timeoutSet, timeoutBaseline));
+                totalHits += hitCountCollector.getTotalHits();
+            }
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            queryResult.searchTimedOut(true);
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+        queryResult.topDocs(new TopDocs(Math.toIntExact(totalHits), Lucene.EMPTY_SCORE_DOCS, 0));
+        return false;
+    }
+
+    private static Collector wrapSegmentCollector(SearchContext searchContext, Collector collector, boolean timeoutSet,
+            long timeoutBaseline) {
+        if (timeoutSet) {
+            TimeLimitingCollector timeLimitingCollector = Lucene.wrapTimeLimitingCollector(collector,
+                    searchContext.timeEstimateCounter(), searchContext.timeoutInMillis());
+            timeLimitingCollector.setBaseline(timeoutBaseline);
+            collector = timeLimitingCollector;
+        }
+        return collector;
+    }
+
+    /**
+     * Executes the query on the slices of the searcher concurrently. Each slice collects its own top docs and aggregations, the
+     * top docs are merged here while the aggregations are reduced by the {@link AggregationPhase}.
+     */
+    private static boolean executeConcurrently(SearchContext searchContext, ContextIndexSearcher searcher, Query query) throws Exception {
+        final QuerySearchResult queryResult = searchContext.queryResult();
+        final int sliceCount = searcher.sliceCount();
+        final Sort sort = searchContext.sort();
+        final FieldDoc after = searchContext.searchAfter();
+        boolean rescore = false;
+        int numDocs = Math.min(searchContext.from() + searchContext.size(), searcher.getIndexReader().numDocs());
+        if (sort == null) {
+            rescore = !searchContext.rescore().isEmpty();
+            for (RescoreSearchContext rescoreContext : searchContext.rescore()) {
+                numDocs = Math.max(rescoreContext.window(), numDocs);
+            }
+        }
+        // top collectors don't like a size of 0
+        numDocs = Math.max(1, numDocs);
+
+        final Weight filterWeight = searchContext.parsedPostFilter() == null ? null
+                : searcher.createNormalizedWeight(searchContext.parsedPostFilter().query(), false);
+        final boolean timeoutSet = searchContext.timeoutInMillis() != SearchService.NO_TIMEOUT.millis();
+        final Collector aggregationCollector = searchContext.queryCollectors().get(AggregationPhase.class);
+        if (aggregationCollector != null) {
+            // the aggregators of the slices keep all their buckets, the aggregation phase prunes them once it reduced the slices
+            searchContext.aggregations().collectsSegmentsSeparately(true);
+        }
+        final List<Collector> hitCollectors = new ArrayList<>(sliceCount);
+        final List<Collector> collectors = new ArrayList<>(sliceCount);
+        for (int i = 0; i < sliceCount; i++) {
+            Collector collector;
+            if (searchContext.size() == 0) {
+                collector = new TotalHitCountCollector();
+            } else if (sort != null) {
+                collector = TopFieldCollector.create(sort, numDocs, after, true, searchContext.trackScores(), searchContext.trackScores());
+            } else {
+                collector = TopScoreDocCollector.create(numDocs, after);
+            }
+            hitCollectors.add(collector);
+            if (filterWeight != null) {
+                collector = new FilteredCollector(collector, filterWeight);
+            }
+            if (aggregationCollector != null) {
+                // the first slice reuses the aggregators that were created by the aggregation phase
+                final Collector sliceAggregationCollector = i == 0 ? aggregationCollector
+                        : AggregationPhase.createSliceCollector(searchContext);
+                collector = MultiCollector.wrap(collector, sliceAggregationCollector);
+            }
+            if (searchContext.minimumScore() != null) {
+                collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+            }
+            if (timeoutSet) {
+                collector = Lucene.wrapTimeLimitingCollector(collector, searchContext.timeEstimateCounter(),
+                        searchContext.timeoutInMillis());
+            }
+            collectors.add(collector);
+        }
+
+        try {
+            searcher.searchSlices(query, collectors);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            assert timeoutSet : "TimeExceededException thrown even though timeout wasn't set";
+            queryResult.searchTimedOut(true);
+        } finally {
+            searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
+        }
+
+        final TopDocs topDocs;
+        if (searchContext.size() == 0) {
+            int totalHits = 0;
+            for (Collector collector : hitCollectors) {
+                totalHits += ((TotalHitCountCollector) collector).getTotalHits();
+            }
+            topDocs = new TopDocs(totalHits, Lucene.EMPTY_SCORE_DOCS, 0);
+        } else if (sort != null) {
+            final TopFieldDocs[] sliceDocs = new TopFieldDocs[sliceCount];
+            for (int i = 0; i < sliceCount; i++) {
+                sliceDocs[i] = (TopFieldDocs) ((TopDocsCollector<?>) hitCollectors.get(i)).topDocs();
+            }
+            topDocs = TopDocs.merge(sort, numDocs, sliceDocs);
+        } else {
+            final TopDocs[] sliceDocs = new TopDocs[sliceCount];
+            for (int i = 0; i < sliceCount; i++) {
+                sliceDocs[i] = ((TopDocsCollector<?>) hitCollectors.get(i)).topDocs();
+            }
+            topDocs = TopDocs.merge(numDocs, sliceDocs);
+        }
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            // merging records the slice of the hit, which must not be mistaken for a shard
+            scoreDoc.shardIndex = -1;
+        }
+        queryResult.topDocs(topDocs);
+        return rescore;
+    }
+
     /**
      * In a package-private method so that it can be tested without having to
      * wire everything (mapperService, etc.)
@@ -176,9 +435,18 @@ public class QueryPhase implements SearchPhase {
 
             Collector collector;
             Callable<TopDocs> topDocsCallable;
+            SortedSegmentTerminatingCollector sortedSegmentCollector = null;
 
             assert query == searcher.rewrite(query); // already rewritten
 
+            if (canUseSegmentAggregationCache(searchContext, searcher)) {
+                return executeWithSegmentAggregationCache(searchContext, (ContextIndexSearcher) searcher, query);
+            }
+
+            if (canSearchConcurrently(searchContext, searcher)) {
+                return executeConcurrently(searchContext, (ContextIndexSearcher) searcher, query);
+            }
+
             if (searchContext.size() == 0) { // no matter what the value of from is
                 final TotalHitCountCollector totalHitCountCollector = new TotalHitCountCollector();
                 collector = totalHitCountCollector;
@@ -239,6 +507,12 @@ public class QueryPhase implements SearchPhase {
                     topDocsCollector = TopScoreDocCollector.create(numDocs, after);
                 }
                 collector = topDocsCollector;
+                final Sort indexSort = searchContext.indexShard() == null ? null : searchContext.indexShard().getIndexSort();
+                if (indexSort != null && after == null && canTerminateSortedSegmentsEarly(searchContext, indexSort)) {
+                    // segments sorted by the index sort can stop being collected once they collected the top docs
+                    sortedSegmentCollector = new SortedSegmentTerminatingCollector(collector, indexSort, numDocs);
+                    collector = sortedSegmentCollector;
+                }
                 if (doProfile) {
                     collector = new InternalProfileCollector(collector, CollectorResult.REASON_SEARCH_TOP_HITS, Collections.emptyList());
                 }
@@ -398,6 +672,9 @@ public class QueryPhase implements SearchPhase {
             } finally {
                 searchContext.clearReleasables(SearchContext.Lifetime.COLLECTION);
             }
+            if (sortedSegmentCollector != null && sortedSegmentCollector.terminatedEarly()) {
+                queryResult.terminatedEarly(true);
+            }
             if (terminateAfterSet && queryResult.terminatedEarly() == null) {
                 queryResult.terminatedEarly(false);
             }
@@ -405,7 +682,8 @@ public class QueryPhase implements SearchPhase {
             queryResult.topDocs(topDocsCallable.call());
 
             if (searchContext.getProfilers() != null) {
-                List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers());
+                List<ProfileShardResult> shardResults = Profiler.buildShardResults(searchContext.getProfilers().getProfilers(),
+                        searchContext.getProfilers().getAggregationProfiler());
                 searchContext.queryResult().profileResults(shardResults);
             }
 
@@ -57,6 +57,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
     private boolean searchTimedOut;
     private Boolean terminatedEarly = null;
     private List<ProfileShardResult> profileShardResults;
+    private int nodeQueueSize = -1;
+    private long serviceTimeEWMA = -1;
 
     public QuerySearchResult() {
 
@@ -140,6 +142,30 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         this.profileShardResults = shardResults;
     }
 
+    /**
+     * The size of the search queue of the node that executed the query, used for adaptive replica selection.
+     * <code>-1</code> if unknown.
+     */
+    public int nodeQueueSize() {
+        return nodeQueueSize;
+    }
+
+    public void nodeQueueSize(int nodeQueueSize) {
+        this.nodeQueueSize = nodeQueueSize;
+    }
+
+    /**
+     * The moving average of the time in nanoseconds the node that executed the query spends executing a query,
+     * used for adaptive replica selection. <code>-1</code> if unknown.
+     */
+    public long serviceTimeEWMA() {
+        return serviceTimeEWMA;
+    }
+
+    public void serviceTimeEWMA(long serviceTimeEWMA) {
+        this.serviceTimeEWMA = serviceTimeEWMA;
+    }
+
     public List<SiblingPipelineAggregator> pipelineAggregators() {
         return pipelineAggregators;
     }
@@ -185,6 +211,9 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         super.readFrom(in);
         long id = in.readLong();
         readFromWithId(id, in);
+        // not part of readFromWithId, these describe the node at the time of the request and must not be cached
+        nodeQueueSize = in.readInt();
+        serviceTimeEWMA = in.readZLong();
     }
 
     public void readFromWithId(long id, StreamInput in) throws IOException {
@@ -227,6 +256,8 @@ public class QuerySearchResult extends QuerySearchResultProvider {
         super.writeTo(out);
         out.writeLong(id);
         writeToNoId(out);
+        out.writeInt(nodeQueueSize);
+        out.writeZLong(serviceTimeEWMA);
     }
 
     public void writeToNoId(StreamOutput out) throws IOException {
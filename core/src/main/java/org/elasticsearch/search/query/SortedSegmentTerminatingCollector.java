@@ -0,0 +1,75 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.query;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FilterCollector;
+import org.apache.lucene.search.FilterLeafCollector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Sort;
+
+import java.io.IOException;
+
+/**
+ * A collector that stops collecting a segment once it collected <code>numDocs</code> documents if the segment is sorted by the
+ * index sort: when the search sorts by the index sort, the remaining documents of such a segment can't be competitive anymore.
+ * Segments that were not sorted yet, like freshly flushed ones, are collected entirely.
+ */
+final class SortedSegmentTerminatingCollector extends FilterCollector {
+
+    private final Sort indexSort;
+    private final int numDocs;
+    private boolean terminatedEarly = false;
+
+    SortedSegmentTerminatingCollector(Collector in, Sort indexSort, int numDocs) {
+        super(in);
+        this.indexSort = indexSort;
+        this.numDocs = numDocs;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        final LeafCollector leafCollector = super.getLeafCollector(context);
+        if (SortingMergePolicy.isSorted(context.reader(), indexSort) == false) {
+            return leafCollector;
+        }
+        return new FilterLeafCollector(leafCollector) {
+            private int collected = 0;
+
+            @Override
+            public void collect(int doc) throws IOException {
+                super.collect(doc);
+                if (++collected >= numDocs) {
+                    terminatedEarly = true;
+                    throw new CollectionTerminatedException();
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns <code>true</code> if the collection of at least one segment was terminated early.
+     */
+    boolean terminatedEarly() {
+        return terminatedEarly;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.action.bulk;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.Term;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.cluster.action.index.MappingUpdatedAction;
+import org.elasticsearch.cluster.action.shard.ShardStateAction;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
+import org.elasticsearch.index.mapper.ParseContext;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SourceToParse;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardClosedException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TransportShardBulkActionTests extends ESTestCase {
+
+    private final ShardId shardId = new ShardId("test", "_na_", 0);
+
+    private final MetaData metaData = MetaData.builder()
+        .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(0))
+        .build();
+
+    public void testIndexBatchRecordsTheOutcomeOfEachItem() {
+        final BulkShardRequest request = bulkShardRequest(3);
+        final IndexShard indexShard = indexShard(operations -> {
+            List<Engine.IndexResult> results = new ArrayList<>();
+            results.add(applied(operations.get(0), true));
+            results.add(new Engine.IndexResult(new VersionConflictEngineException(shardId, "type", "1", "conflict")));
+            results.add(applied(operations.get(2), false));
+            return results;
+        });
+
+        BulkShardResponse response = newAction().executeBulkOnPrimary(metaData, request, indexShard).v1();
+        assertThat(response.getResponses().length, equalTo(3));
+        assertFalse(response.getResponses()[0].isFailed());
+        assertTrue(((IndexResponse) response.getResponses()[0].getResponse()).isCreated());
+        assertTrue(response.getResponses()[1].isFailed());
+        assertThat(response.getResponses()[1].getFailure().getCause(), instanceOf(VersionConflictEngineException.class));
+        assertFalse(response.getResponses()[2].isFailed());
+        assertFalse(((IndexResponse) response.getResponses()[2].getResponse()).isCreated());
+        // the versions of the applied items are replicated
+        IndexRequest indexRequest = (IndexRequest) request.items()[2].request();
+        assertThat(indexRequest.version(), equalTo(2L));
+        assertThat(indexRequest.versionType(), equalTo(VersionType.INTERNAL.versionTypeForReplicationAndRecovery()));
+    }
+
+    public void testIndexBatchRecordsAppliedItemsBeforeRetryingOnPrimary() {
+        final BulkShardRequest request = bulkShardRequest(3);
+        final IndexShard indexShard = indexShard(operations -> {
+            // the engine was closed while the batch was applied, the last operation was applied before the second one failed
+            List<Engine.IndexResult> results = new ArrayList<>();
+            results.add(applied(operations.get(0), true));
+            results.add(new Engine.IndexResult(new IndexShardClosedException(shardId)));
+            results.add(applied(operations.get(2), true));
+            return results;
+        });
+
+        expectThrows(IndexShardClosedException.class, () -> newAction().executeBulkOnPrimary(metaData, request, indexShard));
+        assertFalse(request.items()[0].getPrimaryResponse().isFailed());
+        assertThat(request.items()[1].getPrimaryResponse(), nullValue());
+        assertFalse(request.items()[2].getPrimaryResponse().isFailed());
+        // the retry executes all items with the versions of the original request
+        for (BulkItemRequest item : request.items()) {
+            IndexRequest indexRequest = (IndexRequest) item.request();
+            assertThat(indexRequest.version(), equalTo(Versions.MATCH_ANY));
+            assertThat(indexRequest.versionType(), equalTo(VersionType.INTERNAL));
+        }
+    }
+
+    public void testIndexBatchRejectedByTheShard() {
+        final BulkShardRequest request = bulkShardRequest(3);
+        final IndexShard indexShard = indexShard(operations -> {
+            throw new IllegalArgumentException("rejected");
+        });
+
+        BulkShardResponse response = newAction().executeBulkOnPrimary(metaData, request, indexShard).v1();
+        for (BulkItemResponse itemResponse : response.getResponses()) {
+            assertTrue(itemResponse.isFailed());
+            assertThat(itemResponse.getFailure().getCause(), instanceOf(IllegalArgumentException.class));
+        }
+
+        final BulkShardRequest retriedRequest = bulkShardRequest(3);
+        final IndexShard closedShard = indexShard(operations -> {
+            throw new IndexShardClosedException(shardId);
+        });
+        expectThrows(IndexShardClosedException.class, () -> newAction().executeBulkOnPrimary(metaData, retriedRequest, closedShard));
+        for (BulkItemRequest item : retriedRequest.items()) {
+            assertThat(item.getPrimaryResponse(), nullValue());
+        }
+    }
+
+    private static Engine.IndexResult applied(Engine.Index operation, boolean created) {
+        operation.updateVersion(created ? 1 : 2);
+        return new Engine.IndexResult(created);
+    }
+
+    private BulkShardRequest bulkShardRequest(int numItems) {
+        BulkItemRequest[] items = new BulkItemRequest[numItems];
+        for (int i = 0; i < numItems; i++) {
+            items[i] = new BulkItemRequest(i, new IndexRequest("test", "type", Integer.toString(i)).source("{}"));
+        }
+        return new BulkShardRequest(null, shardId, false, items);
+    }
+
+    private IndexShard indexShard(Function<List<Engine.Index>, List<Engine.IndexResult>> engine) {
+        IndexShard indexShard = mock(IndexShard.class);
+        when(indexShard.shardId()).thenReturn(shardId);
+        when(indexShard.prepareIndexOnPrimary(any(SourceToParse.class), anyLong(), any(VersionType.class), anyLong(), anyBoolean()))
+            .thenAnswer(invocation -> {
+                SourceToParse source = (SourceToParse) invocation.getArguments()[0];
+                Field uid = new Field("_uid", "type#" + source.id(), UidFieldMapper.Defaults.FIELD_TYPE);
+                ParsedDocument doc = new ParsedDocument(uid, new NumericDocValuesField("_version", 0), source.id(), "type", null,
+                    -1, -1, Collections.singletonList(new ParseContext.Document()), new BytesArray("{}"), null);
+                return new Engine.Index(new Term("_uid", uid.stringValue()), doc);
+            });
+        when(indexShard.index(anyListOf(Engine.Index.class))).thenAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            List<Engine.Index> operations = (List<Engine.Index>) invocation.getArguments()[0];
+            return engine.apply(operations);
+        });
+        return indexShard;
+    }
+
+    private TransportShardBulkAction newAction() {
+        return new TransportShardBulkAction(Settings.EMPTY, mock(TransportService.class), mock(ClusterService.class),
+            mock(IndicesService.class), mock(ThreadPool.class), mock(ShardStateAction.class), mock(MappingUpdatedAction.class), null,
+            new ActionFilters(Collections.emptySet()), new IndexNameExpressionResolver(Settings.EMPTY));
+    }
+}
@@ -19,6 +19,9 @@
 package org.elasticsearch.action.index;
 
 import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.test.ESTestCase;
@@ -30,6 +33,7 @@ import java.util.Set;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 
@@ -131,4 +135,26 @@ public class IndexRequestTests extends ESTestCase {
         assertThat(validate, notNullValue());
         assertThat(validate.getMessage(), containsString("ttl must not be negative"));
     }
+
+    public void testAutoGeneratedTimestamp() throws Exception {
+        IndexRequest indexRequest = new IndexRequest("index", "type").source("{}");
+        assertThat(indexRequest.getAutoGeneratedTimestamp(), equalTo(IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP));
+        indexRequest.process(MetaData.EMPTY_META_DATA, null, true, "index");
+        assertThat(indexRequest.id(), notNullValue());
+        assertThat(indexRequest.getAutoGeneratedTimestamp(), greaterThanOrEqualTo(0L));
+        assertFalse(indexRequest.isRetry());
+        indexRequest.onRetry();
+        assertTrue(indexRequest.isRetry());
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        indexRequest.writeTo(out);
+        IndexRequest serialized = new IndexRequest();
+        serialized.readFrom(StreamInput.wrap(out.bytes()));
+        assertThat(serialized.getAutoGeneratedTimestamp(), equalTo(indexRequest.getAutoGeneratedTimestamp()));
+        assertTrue(serialized.isRetry());
+
+        IndexRequest withId = new IndexRequest("index", "type", "1").source("{}");
+        withId.process(MetaData.EMPTY_META_DATA, null, true, "index");
+        assertThat(withId.getAutoGeneratedTimestamp(), equalTo(IndexRequest.UNSET_AUTO_GENERATED_TIMESTAMP));
+    }
 }
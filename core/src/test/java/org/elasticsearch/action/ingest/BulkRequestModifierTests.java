@@ -85,6 +85,32 @@ public class BulkRequestModifierTests extends ESTestCase {
         }
     }
 
+    public void testMarkItemAsFailedAfterIteration() {
+        int numRequests = scaledRandomIntBetween(8, 64);
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < numRequests; i++) {
+            bulkRequest.add(new IndexRequest("_index", "_type", String.valueOf(i)).source("{}"));
+        }
+        IngestActionFilter.BulkRequestModifier bulkRequestModifier = new IngestActionFilter.BulkRequestModifier(bulkRequest);
+        while (bulkRequestModifier.hasNext()) {
+            bulkRequestModifier.next();
+        }
+
+        Set<Integer> failedSlots = new HashSet<>();
+        for (int i = 0; i < numRequests; i++) {
+            if (randomBoolean()) {
+                bulkRequestModifier.markItemAsFailed((IndexRequest) bulkRequest.requests().get(i), new RuntimeException());
+                failedSlots.add(i);
+            }
+        }
+
+        BulkRequest modifiedBulkRequest = bulkRequestModifier.getBulkRequest();
+        assertThat(modifiedBulkRequest.requests().size(), equalTo(numRequests - failedSlots.size()));
+        for (ActionRequest actionRequest : modifiedBulkRequest.requests()) {
+            assertThat(failedSlots.contains(Integer.parseInt(((IndexRequest) actionRequest).id())), is(false));
+        }
+    }
+
     public void testPipelineFailures() {
         BulkRequest originalBulkRequest = new BulkRequest();
         for (int i = 0; i < 32; i++) {
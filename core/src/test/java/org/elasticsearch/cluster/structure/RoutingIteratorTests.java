@@ -37,8 +37,10 @@ import org.elasticsearch.cluster.routing.ShardsIterator;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.AwarenessAllocationDecider;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.test.ESAllocationTestCase;
 
 import java.util.Collections;
@@ -51,6 +53,7 @@ import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
 import static org.elasticsearch.common.settings.Settings.settingsBuilder;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -395,6 +398,71 @@ public class RoutingIteratorTests extends ESAllocationTestCase {
         assertThat(shardIterators.iterator().next().nextOrNull().currentNodeId(), equalTo("node1"));
     }
 
+    public void testAdaptiveReplicaSelection() {
+        AllocationService strategy = createAllocationService(settingsBuilder()
+                .put("cluster.routing.allocation.node_concurrent_recoveries", 10)
+                .build());
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(1).numberOfReplicas(2))
+                .build();
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(metaData.index("test"))
+                .build();
+
+        ClusterState clusterState = ClusterState.builder(ClusterName.DEFAULT).metaData(metaData).routingTable(routingTable).build();
+
+        clusterState = ClusterState.builder(clusterState).nodes(DiscoveryNodes.builder()
+                .put(newNode("node1"))
+                .put(newNode("node2"))
+                .put(newNode("node3"))
+                .localNodeId("node1")
+        ).build();
+        routingTable = strategy.reroute(clusterState, "reroute").routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        routingTable = strategy.applyStartedShards(clusterState, clusterState.getRoutingNodes().shardsWithState(INITIALIZING)).routingTable();
+        clusterState = ClusterState.builder(clusterState).routingTable(routingTable).build();
+
+        Settings settings = settingsBuilder().put(OperationRouting.USE_ADAPTIVE_REPLICA_SELECTION_SETTING.getKey(), true).build();
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY);
+        OperationRouting operationRouting = new OperationRouting(settings, new AwarenessAllocationDecider(),
+                new ClusterSettings(settings, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS), collector);
+
+        // without statistics all copies are returned
+        GroupShardsIterator shardIterators = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null);
+        assertThat(shardIterators.size(), equalTo(1));
+        assertThat(shardIterators.iterator().next().size(), equalTo(3));
+
+        // node1 is fast and node2 is slow, node3 hasn't reported anything yet and comes first so that it can
+        collector.requestSent("node1");
+        collector.addNodeStatistics("node1", 0, 1000, 500);
+        collector.requestSent("node2");
+        collector.addNodeStatistics("node2", 10, 100000, 50000);
+        ShardIterator shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null).iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node3"));
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+
+        collector.requestSent("node3");
+        collector.addNodeStatistics("node3", 5, 10000, 5000);
+        final double node2Rank = collector.getNodeStatistics("node2").rank();
+        shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, null, null).iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node1"));
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node3"));
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+        // the statistics of the copies that weren't selected are moved towards the winner so they get selected again eventually
+        assertThat(collector.getNodeStatistics("node2").rank(), lessThan(node2Rank));
+
+        // preferences still win
+        shardIterator = operationRouting.searchShards(clusterState, new String[]{"test"}, null, "_prefer_node:node2").iterator().next();
+        assertThat(shardIterator.nextOrNull().currentNodeId(), equalTo("node2"));
+    }
+
     public void testReplicaShardPreferenceIters() throws Exception {
         AllocationService strategy = createAllocationService(settingsBuilder()
                 .put("cluster.routing.allocation.node_concurrent_recoveries", 10)
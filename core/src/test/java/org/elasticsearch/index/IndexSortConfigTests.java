@@ -0,0 +1,152 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index;
+
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSelector;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.fieldcomparator.DoubleValuesComparatorSource;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.core.DoubleFieldMapper;
+import org.elasticsearch.index.mapper.core.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.elasticsearch.index.IndexSettingsTests.newIndexMeta;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class IndexSortConfigTests extends ESTestCase {
+
+    private static IndexSortConfig indexSortConfig(Settings settings) {
+        return new IndexSettings(newIndexMeta("test", settings), Settings.EMPTY).getIndexSortConfig();
+    }
+
+    private static Map<String, MappedFieldType> fieldTypes() {
+        Map<String, MappedFieldType> fieldTypes = new HashMap<>();
+        MappedFieldType timestamp = new LongFieldMapper.LongFieldType();
+        timestamp.setName("timestamp");
+        fieldTypes.put("timestamp", timestamp);
+        MappedFieldType score = new DoubleFieldMapper.DoubleFieldType();
+        score.setName("score");
+        fieldTypes.put("score", score);
+        MappedFieldType noDocValues = new LongFieldMapper.LongFieldType();
+        noDocValues.setName("no_doc_values");
+        noDocValues.setHasDocValues(false);
+        fieldTypes.put("no_doc_values", noDocValues);
+        MappedFieldType keyword = new KeywordFieldMapper.KeywordFieldType();
+        keyword.setName("keyword");
+        fieldTypes.put("keyword", keyword);
+        return fieldTypes;
+    }
+
+    public void testNoIndexSort() {
+        IndexSortConfig config = indexSortConfig(Settings.EMPTY);
+        assertFalse(config.hasIndexSort());
+        assertNull(config.buildIndexSort(fieldTypes()::get));
+    }
+
+    public void testBuildIndexSort() {
+        IndexSortConfig config = indexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "timestamp", "score")
+            .putArray("index.sort.order", "desc", "asc")
+            .build());
+        assertTrue(config.hasIndexSort());
+        Sort sort = config.buildIndexSort(fieldTypes()::get);
+        assertThat(sort.getSort().length, equalTo(2));
+
+        SortedNumericSortField timestamp = (SortedNumericSortField) sort.getSort()[0];
+        assertThat(timestamp.getField(), equalTo("timestamp"));
+        assertThat(timestamp.getNumericType(), equalTo(SortField.Type.LONG));
+        assertTrue(timestamp.getReverse());
+        assertThat(timestamp.getSelector(), equalTo(SortedNumericSelector.Type.MAX));
+        assertThat(timestamp.getMissingValue(), equalTo(Long.MIN_VALUE));
+
+        SortedNumericSortField score = (SortedNumericSortField) sort.getSort()[1];
+        assertThat(score.getField(), equalTo("score"));
+        assertThat(score.getNumericType(), equalTo(SortField.Type.DOUBLE));
+        assertFalse(score.getReverse());
+        assertThat(score.getSelector(), equalTo(SortedNumericSelector.Type.MIN));
+        assertThat(score.getMissingValue(), equalTo(Double.POSITIVE_INFINITY));
+    }
+
+    public void testDefaultOrder() {
+        IndexSortConfig config = indexSortConfig(Settings.builder().put("index.sort.field", "timestamp").build());
+        Sort sort = config.buildIndexSort(fieldTypes()::get);
+        assertFalse(sort.getSort()[0].getReverse());
+    }
+
+    public void testInvalidSettings() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> indexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "timestamp", "score")
+            .put("index.sort.order", "desc")
+            .build()));
+        assertThat(e.getMessage(), containsString("must have one entry per field"));
+
+        e = expectThrows(IllegalArgumentException.class, () -> indexSortConfig(Settings.builder()
+            .put("index.sort.field", "timestamp")
+            .put("index.sort.order", "descending")
+            .build()));
+        assertThat(e.getMessage(), containsString("unknown index sort order [descending]"));
+    }
+
+    public void testInvalidFields() {
+        Map<String, MappedFieldType> fieldTypes = fieldTypes();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> indexSortConfig(Settings.builder().put("index.sort.field", "unknown").build()).buildIndexSort(fieldTypes::get));
+        assertThat(e.getMessage(), containsString("unknown index sort field [unknown]"));
+
+        e = expectThrows(IllegalArgumentException.class,
+            () -> indexSortConfig(Settings.builder().put("index.sort.field", "no_doc_values").build()).buildIndexSort(fieldTypes::get));
+        assertThat(e.getMessage(), containsString("must have doc values"));
+
+        e = expectThrows(IllegalArgumentException.class,
+            () -> indexSortConfig(Settings.builder().put("index.sort.field", "keyword").build()).buildIndexSort(fieldTypes::get));
+        assertThat(e.getMessage(), containsString("only numeric and date fields can be used to sort an index"));
+    }
+
+    public void testCommonPrefixLength() {
+        Sort indexSort = indexSortConfig(Settings.builder()
+            .putArray("index.sort.field", "timestamp", "score")
+            .putArray("index.sort.order", "desc", "asc")
+            .build()).buildIndexSort(fieldTypes()::get);
+
+        SortField timestampDesc = new SortField("timestamp", new LongValuesComparatorSource(null, "_last", MultiValueMode.MAX, null), true);
+        SortField timestampAsc = new SortField("timestamp", new LongValuesComparatorSource(null, "_last", MultiValueMode.MIN, null), false);
+        SortField timestampMissingFirst =
+            new SortField("timestamp", new LongValuesComparatorSource(null, "_first", MultiValueMode.MAX, null), true);
+        SortField timestampAvg = new SortField("timestamp", new LongValuesComparatorSource(null, "_last", MultiValueMode.AVG, null), true);
+        SortField score = new SortField("score", new DoubleValuesComparatorSource(null, "_last", MultiValueMode.MIN, null), false);
+
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(timestampDesc), indexSort), equalTo(1));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(timestampDesc, score), indexSort), equalTo(2));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(score), indexSort), equalTo(0));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(timestampAsc), indexSort), equalTo(0));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(timestampMissingFirst), indexSort), equalTo(0));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(timestampAvg), indexSort), equalTo(0));
+        assertThat(IndexSortConfig.commonPrefixLength(new Sort(SortField.FIELD_SCORE), indexSort), equalTo(0));
+    }
+}
@@ -65,6 +65,7 @@ import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
@@ -114,12 +115,16 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -131,6 +136,7 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -272,7 +278,7 @@ public class InternalEngineTests extends ESTestCase {
         TranslogConfig translogConfig = new TranslogConfig(shardId, translogPath, indexSettings, BigArrays.NON_RECYCLING_INSTANCE);
 
         EngineConfig config = new EngineConfig(shardId, threadPool, indexSettings
-                , null, store, createSnapshotDeletionPolicy(), mergePolicy,
+                , null, store, createSnapshotDeletionPolicy(), mergePolicy, null,
                 iwc.getAnalyzer(), iwc.getSimilarity(), new CodecService(null, logger), new Engine.EventListener() {
             @Override
             public void onFailedEngine(String reason, @Nullable Throwable t) {
@@ -928,6 +934,122 @@ public class InternalEngineTests extends ESTestCase {
         assertThat(create.version(), equalTo(1L));
     }
 
+    public void testAppendOnlyAutoGeneratedIds() throws IOException {
+        int numDocs = randomIntBetween(1, 20);
+        for (int i = 0; i < numDocs; i++) {
+            String id = Integer.toString(i);
+            ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), B_1, null);
+            Engine.Index index = new Engine.Index(newUid(id), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY,
+                System.nanoTime(), randomNonNegativeTimestamp(), false);
+            assertTrue(engine.index(index));
+            assertThat(index.version(), equalTo(1L));
+            assertNotNull(index.getTranslogLocation());
+        }
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(numDocs));
+        }
+    }
+
+    public void testRetryOfAutoGeneratedIdDoesNotDuplicate() throws IOException {
+        final long timestamp = randomNonNegativeTimestamp();
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        Engine.Index original = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            timestamp, false);
+        assertTrue(engine.index(original));
+        if (randomBoolean()) {
+            engine.refresh("test");
+        }
+        Engine.Index retry = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            timestamp, true);
+        assertFalse(engine.index(retry));
+        assertThat(retry.version(), equalTo(2L));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(1));
+        }
+    }
+
+    public void testOriginalAfterRetryOfAutoGeneratedIdDoesNotDuplicate() throws IOException {
+        final long timestamp = randomNonNegativeTimestamp();
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
+        Engine.Index retry = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            timestamp, true);
+        assertTrue(engine.index(retry));
+        // the original request of the retry arrives late, as do all requests whose IDs were generated before it
+        Engine.Index original = new Engine.Index(newUid("1"), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY, System.nanoTime(),
+            timestamp, false);
+        assertFalse(engine.index(original));
+        ParsedDocument olderDoc = testParsedDocument("2", "2", "test", null, -1, -1, testDocument(), B_1, null);
+        Engine.Index older = new Engine.Index(newUid("2"), olderDoc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY,
+            System.nanoTime(), randomIntBetween(0, (int) timestamp), false);
+        assertTrue(engine.index(older));
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(2));
+        }
+    }
+
+    public void testIndexBatch() throws IOException {
+        ParsedDocument existingDoc = testParsedDocument("existing", "existing", "test", null, -1, -1, testDocument(), B_1, null);
+        assertTrue(engine.index(new Engine.Index(newUid("existing"), existingDoc)));
+        final int translogOpsBefore = engine.getTranslog().totalOperations();
+
+        final int numDocs = randomIntBetween(2, 50);
+        final List<Engine.Index> operations = new ArrayList<>();
+        for (int i = 0; i < numDocs; i++) {
+            String id = Integer.toString(i);
+            ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), B_1, null);
+            if (randomBoolean()) {
+                operations.add(new Engine.Index(newUid(id), doc, Versions.MATCH_ANY, VersionType.INTERNAL, PRIMARY,
+                    System.nanoTime(), randomNonNegativeTimestamp(), false));
+            } else {
+                operations.add(new Engine.Index(newUid(id), doc));
+            }
+        }
+        // the same document twice, an update of an existing document and a version conflict
+        ParsedDocument duplicateDoc = testParsedDocument("0", "0", "test", null, -1, -1, testDocument(), B_2, null);
+        operations.add(new Engine.Index(newUid("0"), duplicateDoc));
+        operations.add(new Engine.Index(newUid("existing"), existingDoc));
+        operations.add(new Engine.Index(newUid("existing"), existingDoc, 1L));
+
+        List<Engine.IndexResult> results = engine.index(operations);
+        assertThat(results.size(), equalTo(operations.size()));
+        for (int i = 0; i < numDocs; i++) {
+            assertFalse(results.get(i).hasFailure());
+            assertTrue(results.get(i).isCreated());
+            assertThat(operations.get(i).version(), equalTo(1L));
+            assertNotNull(operations.get(i).getTranslogLocation());
+        }
+        Engine.IndexResult duplicateResult = results.get(numDocs);
+        assertFalse(duplicateResult.hasFailure());
+        assertFalse(duplicateResult.isCreated());
+        assertThat(operations.get(numDocs).version(), equalTo(2L));
+        Engine.IndexResult updateResult = results.get(numDocs + 1);
+        assertFalse(updateResult.hasFailure());
+        assertFalse(updateResult.isCreated());
+        assertThat(operations.get(numDocs + 1).version(), equalTo(2L));
+        Engine.IndexResult conflictResult = results.get(numDocs + 2);
+        assertTrue(conflictResult.hasFailure());
+        assertThat(conflictResult.getFailure(), instanceOf(VersionConflictEngineException.class));
+        assertNull(operations.get(numDocs + 2).getTranslogLocation());
+
+        assertThat(engine.getTranslog().totalOperations(), equalTo(translogOpsBefore + numDocs + 2));
+        for (int i = 0; i <= numDocs + 1; i++) {
+            Translog.Index read = (Translog.Index) engine.getTranslog().read(operations.get(i).getTranslogLocation());
+            assertThat(read.id(), equalTo(operations.get(i).id()));
+            assertThat(read.version(), equalTo(operations.get(i).version()));
+        }
+        engine.refresh("test");
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            MatcherAssert.assertThat(searcher, EngineSearcherTotalHitsMatcher.engineSearcherTotalHits(numDocs + 1));
+        }
+    }
+
+    private static long randomNonNegativeTimestamp() {
+        return randomIntBetween(0, Integer.MAX_VALUE);
+    }
+
     public void testVersioningNewIndex() {
         ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocument(), B_1, null);
         Engine.Index index = new Engine.Index(newUid("1"), doc);
@@ -1905,7 +2027,11 @@ public class InternalEngineTests extends ESTestCase {
         public final AtomicInteger recoveredOps = new AtomicInteger(0);
 
         public TranslogHandler(String indexName, ESLogger logger) {
-            super(new ShardId("test", "_na_", 0), null, logger);
+            this(indexName, logger, null, 1);
+        }
+
+        public TranslogHandler(String indexName, ESLogger logger, Executor executor, int replayThreads) {
+            super(new ShardId("test", "_na_", 0), null, logger, executor, replayThreads);
             Settings settings = Settings.settingsBuilder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT).build();
             RootObjectMapper.Builder rootBuilder = new RootObjectMapper.Builder("test");
             Index index = new Index(indexName, "_na_");
@@ -1929,6 +2055,76 @@ public class InternalEngineTests extends ESTestCase {
         }
     }
 
+    public void testParallelTranslogReplay() throws IOException {
+        final int numIds = randomIntBetween(1, 50);
+        final int numOps = randomIntBetween(numIds, 500);
+        final Map<String, Long> versions = new HashMap<>();
+        final Set<String> deleted = new HashSet<>();
+        for (int i = 0; i < numOps; i++) {
+            final String id = Integer.toString(randomInt(numIds - 1));
+            if (versions.containsKey(id) && deleted.contains(id) == false && rarely()) {
+                Engine.Delete delete = new Engine.Delete("test", id, newUid(id));
+                engine.delete(delete);
+                versions.put(id, delete.version());
+                deleted.add(id);
+            } else {
+                ParsedDocument doc = testParsedDocument(id, id, "test", null, -1, -1, testDocument(), new BytesArray("{}"), null);
+                Engine.Index index = new Engine.Index(newUid(id), doc);
+                engine.index(index);
+                versions.put(id, index.version());
+                deleted.remove(id);
+            }
+        }
+
+        final int replayThreads = randomIntBetween(2, 8);
+        final TranslogHandler handler = new TranslogHandler(shardId.getIndexName(), logger, threadPool.generic(), replayThreads);
+        final Translog.Snapshot snapshot = engine.getTranslog().newSnapshot();
+        assertEquals(numOps, handler.recoveryFromSnapshot(replicaEngine, snapshot));
+        assertEquals(numOps, handler.recoveredOps.get());
+
+        replicaEngine.refresh("test");
+        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+            final Engine.GetResult getResult = replicaEngine.get(new Engine.Get(true, newUid(entry.getKey())));
+            try {
+                if (deleted.contains(entry.getKey())) {
+                    assertFalse(getResult.exists());
+                } else {
+                    assertTrue(getResult.exists());
+                    assertEquals((long) entry.getValue(), getResult.version());
+                }
+            } finally {
+                getResult.release();
+            }
+        }
+        try (Engine.Searcher searcher = replicaEngine.acquireSearcher("test")) {
+            TopDocs topDocs = searcher.searcher().search(new MatchAllDocsQuery(), numIds);
+            assertThat(topDocs.totalHits, equalTo(versions.size() - deleted.size()));
+        }
+    }
+
+    public void testParallelTranslogReplayWithRejectedThreads() throws IOException {
+        final int numOps = randomIntBetween(1, 100);
+        for (int i = 0; i < numOps; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), Integer.toString(i), "test", null, -1, -1, testDocument(),
+                new BytesArray("{}"), null);
+            engine.index(new Engine.Index(newUid(Integer.toString(i)), doc));
+        }
+        final int replayThreads = randomIntBetween(2, 8);
+        final int acceptedThreads = randomIntBetween(0, replayThreads - 1);
+        final AtomicInteger started = new AtomicInteger();
+        final Executor executor = command -> {
+            if (started.getAndIncrement() >= acceptedThreads) {
+                throw new EsRejectedExecutionException("rejected");
+            }
+            threadPool.generic().execute(command);
+        };
+        final TranslogHandler handler = new TranslogHandler(shardId.getIndexName(), logger, executor, replayThreads);
+        final Translog.Snapshot snapshot = engine.getTranslog().newSnapshot();
+        // the replay threads that were started must be stopped, otherwise this would never return
+        expectThrows(EsRejectedExecutionException.class, () -> handler.recoveryFromSnapshot(replicaEngine, snapshot));
+        assertEquals(0, handler.recoveredOps.get());
+    }
+
     public void testRecoverFromForeignTranslog() throws IOException {
         final int numDocs = randomIntBetween(1, 10);
         for (int i = 0; i < numDocs; i++) {
@@ -1961,7 +2157,7 @@ public class InternalEngineTests extends ESTestCase {
         TranslogConfig translogConfig = new TranslogConfig(shardId, translog.location(), config.getIndexSettings(), BigArrays.NON_RECYCLING_INSTANCE);
 
         EngineConfig brokenConfig = new EngineConfig(shardId, threadPool, config.getIndexSettings()
-                , null, store, createSnapshotDeletionPolicy(), newMergePolicy(),
+                , null, store, createSnapshotDeletionPolicy(), newMergePolicy(), null,
                 config.getAnalyzer(), config.getSimilarity(), new CodecService(null, logger), config.getEventListener()
                 , config.getTranslogRecoveryPerformer(), IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), translogConfig, TimeValue.timeValueMinutes(5));
 
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.engine;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class PagedVersionTableTests extends ESTestCase {
+
+    private static BigArrays bigArrays() {
+        return new MockBigArrays(null, new NoneCircuitBreakerService());
+    }
+
+    private static VersionValue randomVersionValue() {
+        final Translog.Location location = new Translog.Location(randomIntBetween(0, 100), randomIntBetween(0, Integer.MAX_VALUE),
+            randomIntBetween(1, 1024));
+        if (randomBoolean()) {
+            return new DeleteVersionValue(randomIntBetween(1, Integer.MAX_VALUE), randomIntBetween(0, Integer.MAX_VALUE), location);
+        }
+        return new VersionValue(randomIntBetween(1, Integer.MAX_VALUE), location);
+    }
+
+    private static void assertVersionValue(VersionValue expected, VersionValue actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.version(), actual.version());
+        assertEquals(expected.delete(), actual.delete());
+        if (expected.delete()) {
+            assertEquals(expected.time(), actual.time());
+        }
+        assertEquals(expected.translogLocation(), actual.translogLocation());
+    }
+
+    public void testDuel() {
+        final Map<BytesRef, VersionValue> expected = new HashMap<>();
+        try (PagedVersionTable table = new PagedVersionTable(bigArrays())) {
+            final int maxUid = randomIntBetween(1, 1000);
+            final int iters = scaledRandomIntBetween(1000, 10000);
+            for (int i = 0; i < iters; i++) {
+                final BytesRef uid = new BytesRef("type#" + randomInt(maxUid));
+                if (randomBoolean()) {
+                    final VersionValue version = randomVersionValue();
+                    assertVersionValue(expected.put(uid, version), table.put(uid, version));
+                } else {
+                    assertVersionValue(expected.get(uid), table.get(uid));
+                }
+            }
+            assertEquals(expected.size(), table.size());
+            for (Map.Entry<BytesRef, VersionValue> entry : expected.entrySet()) {
+                assertVersionValue(entry.getValue(), table.get(entry.getKey()));
+            }
+        }
+    }
+
+    public void testRamBytesUsed() {
+        final PagedVersionTable table = new PagedVersionTable(bigArrays());
+        final long initialBytes = table.ramBytesUsed();
+        assertTrue(initialBytes > 0);
+        final int numUids = scaledRandomIntBetween(1000, 10000);
+        for (int i = 0; i < numUids; i++) {
+            table.put(new BytesRef("type#" + i), randomVersionValue());
+        }
+        assertTrue(table.ramBytesUsed() > initialBytes);
+        table.close();
+        assertEquals(0, table.ramBytesUsed());
+        assertEquals(0, table.size());
+    }
+
+    public void testClosedTableIgnoresOperations() {
+        final PagedVersionTable table = new PagedVersionTable(bigArrays());
+        final BytesRef uid = new BytesRef("type#1");
+        table.put(uid, randomVersionValue());
+        table.close();
+        assertNull(table.get(uid));
+        assertNull(table.put(uid, randomVersionValue()));
+        assertNull(table.get(uid));
+        // closing twice is a no-op
+        table.close();
+    }
+
+    public void testLiveVersionMapRefresh() throws Exception {
+        final LiveVersionMap map = new LiveVersionMap(bigArrays());
+        final BytesRef uid = new BytesRef("type#1");
+        final VersionValue version = new VersionValue(1, new Translog.Location(1, 0, 10));
+        final long emptyBytes = map.ramBytesUsedForRefresh();
+        map.putUnderLock(uid, version);
+        for (int i = 2; i < 1000; i++) {
+            map.putUnderLock(new BytesRef("type#" + i), new VersionValue(1, new Translog.Location(1, i * 10, 10)));
+        }
+        assertTrue(map.ramBytesUsedForRefresh() > emptyBytes);
+        map.beforeRefresh();
+        // the pending operations moved to the old map and are no longer freed by the next refresh, but are still visible
+        assertEquals(emptyBytes, map.ramBytesUsedForRefresh());
+        assertVersionValue(version, map.getUnderLock(uid));
+        map.afterRefresh(true);
+        assertNull(map.getUnderLock(uid));
+
+        final VersionValue delete = new DeleteVersionValue(2, 42, new Translog.Location(1, 10000, 10));
+        map.putUnderLock(uid, delete);
+        map.beforeRefresh();
+        map.afterRefresh(true);
+        // deletes are retained as tombstones on heap
+        assertVersionValue(delete, map.getUnderLock(uid));
+        map.removeTombstoneUnderLock(uid);
+        assertNull(map.getUnderLock(uid));
+        map.clear();
+    }
+}
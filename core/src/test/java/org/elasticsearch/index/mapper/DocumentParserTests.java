@@ -70,6 +70,29 @@ public class DocumentParserTests extends ESSingleNodeTestCase {
         assertNotNull(doc.rootDoc().getField(UidFieldMapper.NAME));
     }
 
+    public void testReusedContextProducesIndependentDocuments() throws Exception {
+        DocumentMapperParser mapperParser = createIndex("test").mapperService().documentMapperParser();
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").startObject("properties")
+            .startObject("foo").field("type", "keyword").endObject()
+            .startObject("bar").field("type", "integer").endObject()
+            .endObject().endObject().endObject().string();
+        DocumentMapper mapper = mapperParser.parse("type", new CompressedXContent(mapping));
+
+        ParsedDocument first = mapper.parse("test", "type", "1", XContentFactory.jsonBuilder()
+            .startObject().field("foo", "a").field("bar", 1).endObject().bytes());
+        final int firstFields = first.rootDoc().getFields().size();
+        ParsedDocument second = mapper.parse("test", "type", "2", XContentFactory.jsonBuilder()
+            .startObject().field("foo", "b").endObject().bytes());
+
+        assertNotSame(first.rootDoc(), second.rootDoc());
+        assertEquals(firstFields, first.rootDoc().getFields().size());
+        assertEquals("1", first.id());
+        assertNotNull(first.rootDoc().getField("bar"));
+        assertEquals("2", second.id());
+        assertNull(second.rootDoc().getField("bar"));
+        assertEquals(1, second.docs().size());
+    }
+
     DocumentMapper createDummyMapping(MapperService mapperService) throws Exception {
         String mapping = jsonBuilder().startObject().startObject("type").startObject("properties")
             .startObject("y").field("type", "object").endObject()
@@ -161,4 +161,20 @@ public class MapperServiceTests extends ESSingleNodeTestCase {
             assertThat(e.getMessage(), containsString("Limit of total fields [1] in index [test2] has been exceeded"));
         }
     }
+
+    public void testIndexSortWithNestedFields() throws IOException {
+        Settings settings = Settings.builder().put("index.sort.field", "foo").build();
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> createIndex("test1", settings, "type", "foo", "type=long", "nested_field", "type=nested"));
+        assertThat(e.getMessage(), containsString("cannot have nested fields when index sort is activated"));
+
+        IndexService indexService = createIndex("test2", settings, "type", "foo", "type=long");
+        CompressedXContent nestedFieldMapping = new CompressedXContent(XContentFactory.jsonBuilder().startObject().startObject("type")
+            .startObject("properties").startObject("nested_field").field("type", "nested").endObject().endObject()
+            .endObject().endObject().string());
+        e = expectThrows(IllegalArgumentException.class,
+            () -> indexService.mapperService().merge("type", nestedFieldMapping, MergeReason.MAPPING_UPDATE, false));
+        assertThat(e.getMessage(), containsString("cannot have nested fields when index sort is activated"));
+        assertFalse(indexService.mapperService().hasNested());
+    }
 }
@@ -63,10 +63,12 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.DummyTransportAddress;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.env.Environment;
@@ -75,8 +77,12 @@ import org.elasticsearch.env.ShardLock;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineConfig;
 import org.elasticsearch.index.engine.EngineException;
+import org.elasticsearch.index.engine.EngineFactory;
+import org.elasticsearch.index.engine.InternalEngine;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.flush.FlushStats;
@@ -776,6 +782,66 @@ public class IndexShardTests extends ESSingleNodeTestCase {
 
     }
 
+    public void testIndexingOperationsListenersWithRejectedBatch() throws IOException {
+        createIndex("test_iol");
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test_iol"));
+        IndexShard shard = test.getShardOrNull(0);
+        AtomicInteger preIndex = new AtomicInteger();
+        AtomicInteger postIndex = new AtomicInteger();
+        AtomicInteger postIndexException = new AtomicInteger();
+        shard = reinitWithWrapper(test, shard, null, new IndexingOperationListener() {
+            @Override
+            public Engine.Index preIndex(Engine.Index operation) {
+                preIndex.incrementAndGet();
+                return operation;
+            }
+
+            @Override
+            public void postIndex(Engine.Index index) {
+                postIndex.incrementAndGet();
+            }
+
+            @Override
+            public void postIndex(Engine.Index index, Throwable ex) {
+                postIndexException.incrementAndGet();
+            }
+        });
+        try {
+            List<Engine.Index> operations = new ArrayList<>();
+            int numAllowed = randomIntBetween(1, 5);
+            for (int i = 0; i < numAllowed; i++) {
+                ParsedDocument doc = testParsedDocument(Integer.toString(i), Integer.toString(i), "test", null, -1, -1,
+                    new ParseContext.Document(), new BytesArray(new byte[]{1}), null);
+                operations.add(new Engine.Index(new Term("_uid", Integer.toString(i)), doc));
+            }
+            // recovery operations are rejected by a started shard
+            ParsedDocument doc = testParsedDocument("rejected", "rejected", "test", null, -1, -1, new ParseContext.Document(),
+                new BytesArray(new byte[]{1}), null);
+            operations.add(new Engine.Index(new Term("_uid", "rejected"), doc, Versions.MATCH_ANY, VersionType.INTERNAL,
+                Engine.Operation.Origin.RECOVERY, System.nanoTime()));
+            try {
+                shard.index(operations);
+                fail();
+            } catch (IllegalIndexShardStateException e) {
+
+            }
+            assertEquals(preIndex.get(), postIndex.get() + postIndexException.get());
+            assertEquals(0, shard.indexingStats().getTotal().getIndexCurrent());
+
+            // the batch goes through once the rejected operation is removed
+            operations.remove(operations.size() - 1);
+            List<Engine.IndexResult> results = shard.index(operations);
+            assertEquals(numAllowed, results.size());
+            assertEquals(preIndex.get(), postIndex.get() + postIndexException.get());
+            assertEquals(0, shard.indexingStats().getTotal().getIndexCurrent());
+            assertEquals(numAllowed, shard.indexingStats().getTotal().getIndexCount());
+        } finally {
+            shard.close("just do it", randomBoolean());
+        }
+    }
+
     public void testMaybeFlush() throws Exception {
         createIndex("test", settingsBuilder().put(IndexSettings.INDEX_TRANSLOG_DURABILITY_SETTING.getKey(), Translog.Durability.REQUEST).build());
         ensureGreen();
@@ -810,6 +876,135 @@ public class IndexShardTests extends ESSingleNodeTestCase {
         assertEquals(0, shard.getEngine().getTranslog().totalOperations());
     }
 
+    public void testAdaptiveRefresh() throws Exception {
+        createIndex("test", settingsBuilder()
+            .put(SETTING_NUMBER_OF_SHARDS, 1)
+            .put(SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1) // we trigger scheduled refreshes manually
+            .put(IndexSettings.INDEX_REFRESH_ADAPTIVE_SETTING.getKey(), true)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER_SETTING.getKey(), TimeValue.timeValueMillis(0))
+            .build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+        IndexShard shard = test.getShardOrNull(0);
+
+        // the shard is search idle, the scheduled refresh is skipped and executed by the next search
+        client().prepareIndex("test", "test", "0").setSource("{}").get();
+        assertTrue(shard.isSearchIdle());
+        assertFalse(shard.scheduledRefresh());
+        assertTrue(shard.hasPendingRefresh());
+        assertHitCount(client().prepareSearch("test").get(), 1);
+        assertFalse(shard.hasPendingRefresh());
+
+        // the shard was searched recently
+        client().admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder()
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER_SETTING.getKey(), TimeValue.timeValueHours(1)).build()).get();
+        assertFalse(shard.isSearchIdle());
+        client().prepareIndex("test", "test", "1").setSource("{}").get();
+        assertTrue(shard.scheduledRefresh());
+        assertFalse(shard.hasPendingRefresh());
+        assertFalse(shard.scheduledRefresh()); // nothing changed since the last refresh
+
+        // without adaptive refresh search idle shards are refreshed
+        client().admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder()
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER_SETTING.getKey(), TimeValue.timeValueMillis(0))
+            .put(IndexSettings.INDEX_REFRESH_ADAPTIVE_SETTING.getKey(), false).build()).get();
+        assertTrue(shard.isSearchIdle());
+        client().prepareIndex("test", "test", "2").setSource("{}").get();
+        assertTrue(shard.scheduledRefresh());
+        assertFalse(shard.hasPendingRefresh());
+    }
+
+    public void testAdaptiveRefreshWithMergeBacklog() throws Exception {
+        createIndex("test", settingsBuilder()
+            .put(SETTING_NUMBER_OF_SHARDS, 1)
+            .put(SETTING_NUMBER_OF_REPLICAS, 0)
+            .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), TimeValue.timeValueHours(1)) // we trigger scheduled refreshes manually
+            .put(IndexSettings.INDEX_REFRESH_ADAPTIVE_SETTING.getKey(), true)
+            .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER_SETTING.getKey(), TimeValue.timeValueHours(1))
+            .build());
+        ensureGreen();
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+        IndexShard shard = test.getShardOrNull(0);
+        final AtomicBoolean mergeBacklog = new AtomicBoolean(true);
+        final AtomicInteger searchRefreshes = new AtomicInteger();
+        EngineFactory engineFactory = new EngineFactory() {
+            @Override
+            public Engine newReadWriteEngine(EngineConfig config, boolean skipTranslogRecovery) {
+                return new InternalEngine(config, skipTranslogRecovery) {
+                    @Override
+                    public boolean hasMergeBacklog() {
+                        return mergeBacklog.get();
+                    }
+
+                    @Override
+                    public void refresh(String source) throws EngineException {
+                        if ("search".equals(source)) {
+                            searchRefreshes.incrementAndGet();
+                        }
+                        super.refresh(source);
+                    }
+                };
+            }
+
+            @Override
+            public Engine newReadOnlyEngine(EngineConfig config) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        IndexShard newShard = reinitWithEngineFactory(test, shard, engineFactory);
+        try {
+            // the shard is searched, but merges are falling behind and it was refreshed less than four refresh intervals ago
+            newShard.onSearch();
+            ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, new ParseContext.Document(), new BytesArray(new byte[]{1}), null);
+            newShard.index(new Engine.Index(new Term("_uid", "1"), doc));
+            assertFalse(newShard.isSearchIdle());
+            assertFalse(newShard.scheduledRefresh());
+            assertFalse(newShard.hasPendingRefresh());
+
+            // searches don't execute the skipped refresh, a later scheduled refresh does
+            newShard.onSearch();
+            assertEquals(0, searchRefreshes.get());
+            mergeBacklog.set(false);
+            assertTrue(newShard.scheduledRefresh());
+
+            // the skipped refresh of a search idle shard is executed by exactly one of the searches that arrive concurrently
+            client().admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder()
+                .put(IndexSettings.INDEX_SEARCH_IDLE_AFTER_SETTING.getKey(), TimeValue.timeValueMillis(0)).build()).get();
+            doc = testParsedDocument("2", "2", "test", null, -1, -1, new ParseContext.Document(), new BytesArray(new byte[]{1}), null);
+            newShard.index(new Engine.Index(new Term("_uid", "2"), doc));
+            assertTrue(newShard.isSearchIdle());
+            assertFalse(newShard.scheduledRefresh());
+            assertTrue(newShard.hasPendingRefresh());
+            final IndexShard searchedShard = newShard;
+            Thread[] threads = new Thread[randomIntBetween(2, 4)];
+            CyclicBarrier barrier = new CyclicBarrier(threads.length);
+            for (int i = 0; i < threads.length; i++) {
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            barrier.await();
+                        } catch (InterruptedException | BrokenBarrierException e) {
+                            throw new RuntimeException(e);
+                        }
+                        searchedShard.onSearch();
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(1, searchRefreshes.get());
+            assertFalse(newShard.hasPendingRefresh());
+        } finally {
+            newShard.close("just do it", randomBoolean());
+        }
+    }
+
     public void testStressMaybeFlush() throws Exception {
         createIndex("test");
         ensureGreen();
@@ -1270,11 +1465,19 @@ public class IndexShardTests extends ESSingleNodeTestCase {
     }
 
     private final IndexShard reinitWithWrapper(IndexService indexService, IndexShard shard, IndexSearcherWrapper wrapper, IndexingOperationListener... listeners) throws IOException {
+        return reinit(indexService, shard, wrapper, shard.getEngineFactory(), listeners);
+    }
+
+    private final IndexShard reinitWithEngineFactory(IndexService indexService, IndexShard shard, EngineFactory engineFactory) throws IOException {
+        return reinit(indexService, shard, null, engineFactory);
+    }
+
+    private final IndexShard reinit(IndexService indexService, IndexShard shard, IndexSearcherWrapper wrapper, EngineFactory engineFactory, IndexingOperationListener... listeners) throws IOException {
         ShardRouting routing = new ShardRouting(shard.routingEntry());
         shard.close("simon says", true);
         IndexShard newShard = new IndexShard(shard.shardId(), indexService.getIndexSettings(), shard.shardPath(),
                 shard.store(), indexService.cache(), indexService.mapperService(), indexService.similarityService(),
-                indexService.fieldData(), shard.getEngineFactory(), indexService.getIndexEventListener(), wrapper,
+                indexService.fieldData(), engineFactory, indexService.getIndexEventListener(), wrapper,
                 indexService.getThreadPool(), indexService.getBigArrays(), indexService.getSearchSlowLog(), null, listeners
         );
         ShardRoutingHelper.reinit(routing);
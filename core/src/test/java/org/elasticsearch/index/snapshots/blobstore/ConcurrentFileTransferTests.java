@@ -0,0 +1,126 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot.FileInfo;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ConcurrentFileTransferTests extends ESTestCase {
+
+    private final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+
+    private static List<FileInfo> randomFiles(int numFiles) {
+        List<FileInfo> files = new ArrayList<>(numFiles);
+        for (int i = 0; i < numFiles; i++) {
+            files.add(new FileInfo("__" + i, new StoreFileMetaData("_" + i, randomIntBetween(1, 100), "checksum"), new ByteSizeValue(10)));
+        }
+        return files;
+    }
+
+    public void testTransfersEachFileOnce() throws Exception {
+        final int poolSize = randomIntBetween(1, 4);
+        final int maxConcurrentTransfers = randomIntBetween(1, 6);
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), poolSize, 100,
+            EsExecutors.daemonThreadFactory("test"), threadContext);
+        try {
+            final List<FileInfo> files = randomFiles(randomIntBetween(0, 50));
+            final Set<String> transferred = ConcurrentHashMap.newKeySet();
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            ConcurrentFileTransfer.transfer(files, executor, maxConcurrentTransfers, fileInfo -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                assertTrue("file transferred twice: " + fileInfo.name(), transferred.add(fileInfo.name()));
+                running.decrementAndGet();
+            });
+            assertThat(transferred.size(), equalTo(files.size()));
+            assertThat(maxRunning.get(), lessThanOrEqualTo(Math.max(1, maxConcurrentTransfers)));
+            assertThat(running.get(), equalTo(0));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testTransfersConcurrently() throws Exception {
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), 1, 100, EsExecutors.daemonThreadFactory("test"), threadContext);
+        try {
+            // both files can only complete if they are transferred at the same time
+            final CountDownLatch bothStarted = new CountDownLatch(2);
+            ConcurrentFileTransfer.transfer(randomFiles(2), executor, 2, fileInfo -> {
+                bothStarted.countDown();
+                try {
+                    assertTrue(bothStarted.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testFailureIsRethrown() throws Exception {
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(getTestName(), randomIntBetween(1, 4), 100,
+            EsExecutors.daemonThreadFactory("test"), threadContext);
+        try {
+            final List<FileInfo> files = randomFiles(randomIntBetween(1, 20));
+            final String failingFile = randomFrom(files).name();
+            IOException e = expectThrows(IOException.class, () ->
+                ConcurrentFileTransfer.transfer(files, executor, randomIntBetween(1, 5), fileInfo -> {
+                    if (fileInfo.name().equals(failingFile)) {
+                        throw new IOException("boom");
+                    }
+                }));
+            assertThat(e.getMessage(), equalTo("boom"));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRejectedHelpersFallBackToCallingThread() throws Exception {
+        final Thread caller = Thread.currentThread();
+        final List<FileInfo> files = randomFiles(randomIntBetween(2, 20));
+        final AtomicInteger transferred = new AtomicInteger();
+        ConcurrentFileTransfer.transfer(files, command -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, randomIntBetween(2, 5), fileInfo -> {
+            assertSame(caller, Thread.currentThread());
+            transferred.incrementAndGet();
+        });
+        assertThat(transferred.get(), equalTo(files.size()));
+    }
+}
@@ -43,6 +43,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
@@ -84,6 +85,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
 
 /**
  *
@@ -139,6 +141,7 @@ public class TranslogTests extends ESTestCase {
     private TranslogConfig getTranslogConfig(Path path) {
         Settings build = Settings.settingsBuilder()
                 .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+                .put(IndexSettings.INDEX_TRANSLOG_COMPRESS_SETTING.getKey(), randomBoolean())
                 .build();
         ByteSizeValue bufferSize = randomBoolean() ? TranslogConfig.DEFAULT_BUFFER_SIZE : new ByteSizeValue(10 + randomInt(128 * 1024), ByteSizeUnit.BYTES);
         return new TranslogConfig(shardId, path, IndexSettingsModule.newIndexSettings(shardId.getIndex(), build), BigArrays.NON_RECYCLING_INSTANCE, bufferSize);
@@ -320,7 +323,7 @@ public class TranslogTests extends ESTestCase {
         assertThat(stats.estimatedNumberOfOperations(), equalTo(0L));
         assertThat(stats.getTranslogSizeInBytes(), equalTo(firstOperationPosition));
         assertEquals(6, total.estimatedNumberOfOperations());
-        assertEquals(431, total.getTranslogSizeInBytes());
+        assertEquals(434, total.getTranslogSizeInBytes());
 
         BytesStreamOutput out = new BytesStreamOutput();
         total.writeTo(out);
@@ -328,10 +331,10 @@ public class TranslogTests extends ESTestCase {
         copy.readFrom(StreamInput.wrap(out.bytes()));
 
         assertEquals(6, copy.estimatedNumberOfOperations());
-        assertEquals(431, copy.getTranslogSizeInBytes());
+        assertEquals(434, copy.getTranslogSizeInBytes());
         assertEquals("\"translog\"{\n" +
                 "  \"operations\" : 6,\n" +
-                "  \"size_in_bytes\" : 431\n" +
+                "  \"size_in_bytes\" : 434\n" +
                 "}", copy.toString().trim());
 
         try {
@@ -780,6 +783,179 @@ public class TranslogTests extends ESTestCase {
         }
     }
 
+    public void testConcurrentSyncUpTo() throws Throwable {
+        final int threadCount = randomIntBetween(2, 8);
+        final int opsPerThread = randomIntBetween(10, 100);
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        final AtomicInteger syncs = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Translog.Location> locations = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            final int threadId = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int op = 0; op < opsPerThread; op++) {
+                        final Translog.Location location = translog.add(new Translog.Index("test", threadId + "_" + op,
+                            Integer.toString(op).getBytes(Charset.forName("UTF-8"))));
+                        if (translog.ensureSynced(location)) {
+                            syncs.incrementAndGet();
+                        }
+                        // whether we synced ourselves or a concurrent caller did it for us, the location must be durable now
+                        assertFalse("location must have been synced", translog.ensureSynced(location));
+                        locations.add(location);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        assertEquals(threadCount * opsPerThread, locations.size());
+        assertThat(syncs.get(), greaterThan(0));
+        assertFalse(translog.syncNeeded());
+        final Checkpoint checkpoint = Checkpoint.read(translog.location().resolve(Translog.CHECKPOINT_FILE_NAME));
+        for (Translog.Location location : locations) {
+            assertFalse(translog.ensureSynced(location));
+            assertDurable(checkpoint, location);
+        }
+    }
+
+    public void testConcurrentSyncUpToIsGroupCommitted() throws Throwable {
+        final AtomicInteger fsyncs = new AtomicInteger();
+        final AtomicBoolean blockNextFsync = new AtomicBoolean();
+        final CountDownLatch fsyncBlocked = new CountDownLatch(1);
+        final CountDownLatch releaseFsync = new CountDownLatch(1);
+        final Path tempDir = createTempDir();
+        try (Translog translog = new Translog(getTranslogConfig(tempDir)) {
+            @Override
+            TranslogWriter.ChannelFactory getChannelFactory() {
+                final TranslogWriter.ChannelFactory factory = super.getChannelFactory();
+                return new TranslogWriter.ChannelFactory() {
+                    @Override
+                    public FileChannel open(Path file) throws IOException {
+                        return new FilterFileChannel(factory.open(file)) {
+                            @Override
+                            public void force(boolean metaData) throws IOException {
+                                fsyncs.incrementAndGet();
+                                if (blockNextFsync.compareAndSet(true, false)) {
+                                    fsyncBlocked.countDown();
+                                    try {
+                                        releaseFsync.await();
+                                    } catch (InterruptedException e) {
+                                        throw new IOException(e);
+                                    }
+                                }
+                                super.force(metaData);
+                            }
+                        };
+                    }
+                };
+            }
+        }) {
+            final int fsyncsBefore = fsyncs.get();
+            final int followerCount = randomIntBetween(2, 8);
+            final AtomicReference<Throwable> failure = new AtomicReference<>();
+            final AtomicInteger syncingCalls = new AtomicInteger();
+            final List<Translog.Location> locations = new CopyOnWriteArrayList<>();
+            final CountDownLatch followersAdded = new CountDownLatch(followerCount);
+            final Runnable[] runnables = new Runnable[followerCount + 1];
+            for (int i = 0; i < runnables.length; i++) {
+                final int threadId = i;
+                runnables[i] = () -> {
+                    try {
+                        final Translog.Location location = translog.add(new Translog.Index("test", Integer.toString(threadId),
+                            new byte[]{(byte) threadId}));
+                        locations.add(location);
+                        if (threadId > 0) {
+                            followersAdded.countDown();
+                        }
+                        if (translog.ensureSynced(location)) {
+                            syncingCalls.incrementAndGet();
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                };
+            }
+            // the first thread syncs and blocks in the fsync
+            blockNextFsync.set(true);
+            final Thread leader = new Thread(runnables[0]);
+            leader.start();
+            assertTrue(fsyncBlocked.await(10, TimeUnit.SECONDS));
+            // the others add their operations and wait for the running fsync
+            final Thread[] followers = new Thread[followerCount];
+            for (int i = 0; i < followerCount; i++) {
+                followers[i] = new Thread(runnables[i + 1]);
+                followers[i].start();
+            }
+            assertTrue(followersAdded.await(10, TimeUnit.SECONDS));
+            assertBusy(() -> {
+                for (Thread follower : followers) {
+                    assertEquals(Thread.State.BLOCKED, follower.getState());
+                }
+            });
+            releaseFsync.countDown();
+            leader.join();
+            for (Thread follower : followers) {
+                follower.join();
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            // the blocked fsync plus a single one on behalf of all the followers
+            assertEquals(fsyncsBefore + 2, fsyncs.get());
+            assertEquals(2, syncingCalls.get());
+            assertFalse(translog.syncNeeded());
+            final Checkpoint checkpoint = Checkpoint.read(translog.location().resolve(Translog.CHECKPOINT_FILE_NAME));
+            assertEquals(followerCount + 1, locations.size());
+            for (Translog.Location location : locations) {
+                assertDurable(checkpoint, location);
+            }
+        }
+    }
+
+    private static void assertDurable(Checkpoint checkpoint, Translog.Location location) {
+        assertEquals(checkpoint.generation, location.generation);
+        assertThat(checkpoint.offset, greaterThanOrEqualTo(location.translogLocation + location.size));
+    }
+
+    public void testCompressedIndexOperation() throws IOException {
+        final StringBuilder source = new StringBuilder("{");
+        final int numFields = randomIntBetween(20, 200);
+        for (int i = 0; i < numFields; i++) {
+            source.append("\"field_").append(i).append("\":\"").append(randomFrom("foo", "bar", "baz")).append("\",");
+        }
+        source.append("\"last\":").append(randomInt()).append("}");
+        final Translog.Index op = new Translog.Index("test", "1", source.toString().getBytes(Charset.forName("UTF-8")));
+
+        final BytesReference plain = writeOperation(op, false);
+        final BytesReference compressed = writeOperation(op, true);
+        assertThat(compressed.length(), lessThan(plain.length()));
+        assertEquals(op, Translog.readOperation(new BufferedChecksumStreamInput(StreamInput.wrap(plain))));
+        assertEquals(op, Translog.readOperation(new BufferedChecksumStreamInput(StreamInput.wrap(compressed))));
+
+        // small sources are written as is
+        final Translog.Index smallOp = new Translog.Index("test", "2", new byte[]{1});
+        assertEquals(writeOperation(smallOp, false), writeOperation(smallOp, true));
+    }
+
+    private static BytesReference writeOperation(Translog.Operation op, boolean compressSource) throws IOException {
+        final BytesStreamOutput opBytes = new BytesStreamOutput();
+        Translog.writeOperationNoSize(new BufferedChecksumStreamOutput(opBytes), op, compressSource);
+        final BytesStreamOutput out = new BytesStreamOutput();
+        out.writeInt(opBytes.size());
+        opBytes.bytes().writeTo(out);
+        return out.bytes();
+    }
+
     public void testLocationComparison() throws IOException {
         List<Translog.Location> locations = new ArrayList<>();
         int translogOperations = randomIntBetween(10, 100);
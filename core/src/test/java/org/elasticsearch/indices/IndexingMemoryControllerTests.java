@@ -57,6 +57,14 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         // Shards that are currently throttled
         final Set<IndexShard> throttled = new HashSet<>();
 
+        // How many translog bytes each shard has written
+        final Map<IndexShard, Long> indexingBytes = new HashMap<>();
+
+        // The share of the indexing buffer that was allocated to each shard
+        final Map<IndexShard, Long> allocations = new HashMap<>();
+
+        long nanoTime;
+
         public MockController(Settings settings) {
             super(Settings.builder()
                             .put(SHARD_MEMORY_INTERVAL_TIME_SETTING, "200h") // disable it
@@ -94,6 +102,22 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         protected void checkIdle(IndexShard shard, long inactiveTimeNS) {
         }
 
+        @Override
+        protected long getShardIndexingBytes(IndexShard shard) {
+            Long bytes = indexingBytes.get(shard);
+            return bytes == null ? 0 : bytes;
+        }
+
+        @Override
+        protected void indexBufferAllocation(IndexShard shard, long allocatedBytes, long indexingRateBytesPerSec) {
+            allocations.put(shard, allocatedBytes);
+        }
+
+        @Override
+        protected long currentTimeInNanos() {
+            return nanoTime;
+        }
+
         @Override
         public void writeIndexingBufferAsync(IndexShard shard) {
             long bytes = indexBufferRAMBytesUsed.put(shard, 0L);
@@ -229,6 +253,115 @@ public class IndexingMemoryControllerTests extends ESSingleNodeTestCase {
         controller.assertBuffer(shard1, 0);
     }
 
+    public void testRateAwareAllocation() {
+        createIndex("test", Settings.builder().put(SETTING_NUMBER_OF_SHARDS, 2).put(SETTING_NUMBER_OF_REPLICAS, 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                .put(IndexingMemoryController.INDEX_BUFFER_SIZE_SETTING, "10mb").build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        setBuffer(controller, shard0, 0);
+        setBuffer(controller, shard1, 0);
+        controller.forceCheck();
+
+        // no shard indexed yet, so the buffer is shared equally
+        assertEquals(5 * 1024 * 1024, controller.allocations.get(shard0).longValue());
+        assertEquals(5 * 1024 * 1024, controller.allocations.get(shard1).longValue());
+
+        // shard0 indexes 9 times faster than shard1
+        controller.indexingBytes.put(shard0, 9L * 1024 * 1024);
+        controller.indexingBytes.put(shard1, 1L * 1024 * 1024);
+        controller.nanoTime += TimeValue.timeValueSeconds(1).nanos();
+        controller.forceCheck();
+        assertEquals(9 * 1024 * 1024, controller.allocations.get(shard0).longValue());
+        assertEquals(1024 * 1024, controller.allocations.get(shard1).longValue());
+
+        // over budget: shard1 exceeds its share and is written although its buffer is smaller
+        setBuffer(controller, shard0, 6 * 1024 * 1024);
+        setBuffer(controller, shard1, 5 * 1024 * 1024);
+        controller.forceCheck();
+        controller.assertBuffer(shard0, 6);
+        controller.assertBuffer(shard1, 0);
+        controller.assertWriting(shard1, 5);
+        controller.doneWriting(shard1);
+
+        // shard0 is about to fill its share and the node is close to its budget, so shard0 is written ahead of time
+        setBuffer(controller, shard0, 9 * 1024 * 1024 - 100 * 1024);
+        setBuffer(controller, shard1, 900 * 1024);
+        controller.forceCheck();
+        assertEquals(0, controller.indexBufferRAMBytesUsed.get(shard0).longValue());
+        assertEquals(900 * 1024, controller.indexBufferRAMBytesUsed.get(shard1).longValue());
+    }
+
+    public void testRateAwareAllocationDisabled() {
+        createIndex("test", Settings.builder().put(SETTING_NUMBER_OF_SHARDS, 2).put(SETTING_NUMBER_OF_REPLICAS, 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+
+        MockController controller = new MockController(Settings.builder()
+                .put(IndexingMemoryController.INDEX_BUFFER_SIZE_SETTING, "10mb")
+                .put(IndexingMemoryController.RATE_AWARE_ALLOCATION_SETTING, false).build());
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+        setBuffer(controller, shard0, 0);
+        setBuffer(controller, shard1, 0);
+        controller.forceCheck();
+        controller.indexingBytes.put(shard0, 9L * 1024 * 1024);
+        controller.indexingBytes.put(shard1, 1L * 1024 * 1024);
+        controller.nanoTime += TimeValue.timeValueSeconds(1).nanos();
+        controller.forceCheck();
+        assertTrue(controller.allocations.isEmpty());
+
+        // the largest buffer is written first
+        setBuffer(controller, shard0, 6 * 1024 * 1024);
+        setBuffer(controller, shard1, 5 * 1024 * 1024);
+        controller.forceCheck();
+        controller.assertBuffer(shard0, 0);
+        controller.assertBuffer(shard1, 5);
+    }
+
+    public void testIndexingRateDoesNotDependOnCheckFrequency() {
+        createIndex("test", Settings.builder().put(SETTING_NUMBER_OF_SHARDS, 2).put(SETTING_NUMBER_OF_REPLICAS, 0).build());
+        IndicesService indicesService = getInstanceFromNode(IndicesService.class);
+        IndexService test = indicesService.indexService(resolveIndex("test"));
+        IndexShard shard0 = test.getShard(0);
+        IndexShard shard1 = test.getShard(1);
+
+        // shard0 speeds up from 1mb/sec to 9mb/sec while shard1 keeps indexing 1mb/sec, so the average rate of shard0 is
+        // 0.3 * 9mb + 0.7 * 1mb = 3.4mb/sec after one interval
+        long expected = (long) (10 * 1024 * 1024 * 3.4 / 4.4);
+        assertEquals(expected, shard0AllocationAfterSpeedUp(shard0, shard1, 1), 1024);
+        // checks that are triggered by written bytes between scheduled checks don't make the average follow the new rate quicker
+        assertEquals(expected, shard0AllocationAfterSpeedUp(shard0, shard1, 4), 1024);
+    }
+
+    private static long shard0AllocationAfterSpeedUp(IndexShard shard0, IndexShard shard1, int checksPerInterval) {
+        MockController controller = new MockController(Settings.builder()
+                .put(IndexingMemoryController.INDEX_BUFFER_SIZE_SETTING, "10mb")
+                .put(IndexingMemoryController.SHARD_MEMORY_INTERVAL_TIME_SETTING, "1s").build());
+        setBuffer(controller, shard0, 0);
+        setBuffer(controller, shard1, 0);
+        controller.forceCheck();
+        for (long shard0MBPerSec : new long[] {1, 9}) {
+            for (int i = 0; i < checksPerInterval; i++) {
+                controller.indexingBytes.merge(shard0, shard0MBPerSec * 1024 * 1024 / checksPerInterval, Long::sum);
+                controller.indexingBytes.merge(shard1, 1024L * 1024 / checksPerInterval, Long::sum);
+                controller.nanoTime += TimeValue.timeValueSeconds(1).nanos() / checksPerInterval;
+                controller.forceCheck();
+            }
+        }
+        return controller.allocations.get(shard0);
+    }
+
+    private static void setBuffer(MockController controller, IndexShard shard, long bytes) {
+        controller.indexBufferRAMBytesUsed.put(shard, bytes);
+        if (controller.writingBytes.containsKey(shard) == false) {
+            controller.writingBytes.put(shard, 0L);
+        }
+    }
+
     public void testMinBufferSizes() {
         MockController controller = new MockController(Settings.builder()
             .put(IndexingMemoryController.INDEX_BUFFER_SIZE_SETTING, "0.001%")
@@ -19,13 +19,18 @@
 
 package org.elasticsearch.indices;
 
+import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
 import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
@@ -34,6 +39,8 @@ import org.joda.time.chrono.ISOChronology;
 import java.util.List;
 
 import static org.elasticsearch.search.aggregations.AggregationBuilders.dateHistogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.topHits;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
 import static org.hamcrest.Matchers.equalTo;
@@ -84,6 +91,44 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
         }
     }
 
+    public void testCacheHitsOnlyWhenRequested() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=keyword")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1,
+                        IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        indexRandom(true, client().prepareIndex("index", "type", "1").setSource("s", "a"),
+                client().prepareIndex("index", "type", "2").setSource("s", "b"),
+                client().prepareIndex("index", "type", "3").setSource("s", "c"));
+        ensureSearchable("index");
+
+        // requests with hits are not cached by default, even though the index setting is enabled
+        SearchResponse r1 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                .addSort("s", SortOrder.ASC).get();
+        assertSearchResponse(r1);
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(0L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getMemorySizeInBytes(), equalTo(0L));
+
+        // but they are once the request opts in
+        for (int i = 0; i < 3; i++) {
+            SearchResponse r2 = client().prepareSearch("index").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(2)
+                    .addSort("s", SortOrder.ASC).setRequestCache(true).get();
+            assertSearchResponse(r2);
+            assertThat(r2.getHits().getTotalHits(), equalTo(3L));
+            assertThat(r2.getHits().getHits().length, equalTo(2));
+            assertThat(r2.getHits().getAt(0).getId(), equalTo("1"));
+            assertThat(r2.getHits().getAt(1).getId(), equalTo("2"));
+        }
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getMissCount(),
+                equalTo(1L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache().getHitCount(),
+                equalTo(2L));
+        assertThat(client().admin().indices().prepareStats("index").setRequestCache(true).get().getTotal().getRequestCache()
+                .getMemorySizeInBytes(), greaterThan(0L));
+    }
+
     public void testQueryRewrite() throws Exception {
         assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=text")
                 .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true,
@@ -354,4 +399,143 @@ public class IndicesRequestCacheIT extends ESIntegTestCase {
                 equalTo(0L));
     }
 
+    public void testSegmentAggregationCache() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=keyword")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING.getKey(), 1,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1,
+                        IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        int id = 0;
+        for (int round = 0; round < 3; round++) {
+            // every round adds a new segment while the segments of the previous rounds are served from the cache
+            IndexRequestBuilder[] docs = new IndexRequestBuilder[randomIntBetween(1, 20)];
+            for (int i = 0; i < docs.length; i++) {
+                docs[i] = client().prepareIndex("index", "type", Integer.toString(id++)).setSource("s", randomFrom("a", "b", "c"));
+            }
+            indexRandom(true, false, docs);
+            for (int i = 0; i < 2; i++) {
+                SearchResponse cached = client().prepareSearch("index").setSize(0)
+                        .addAggregation(terms("terms").field("s")).get();
+                SearchResponse uncached = client().prepareSearch("index").setSize(0).setRequestCache(false)
+                        .addAggregation(terms("terms").field("s")).get();
+                assertSearchResponse(cached);
+                assertSearchResponse(uncached);
+                assertEquals(id, cached.getHits().getTotalHits());
+                assertEquals(uncached.getHits().getTotalHits(), cached.getHits().getTotalHits());
+                Terms cachedTerms = cached.getAggregations().get("terms");
+                Terms uncachedTerms = uncached.getAggregations().get("terms");
+                assertEquals(uncachedTerms.getBuckets().size(), cachedTerms.getBuckets().size());
+                for (Terms.Bucket bucket : uncachedTerms.getBuckets()) {
+                    assertEquals(bucket.getDocCount(), cachedTerms.getBucketByKey(bucket.getKeyAsString()).getDocCount());
+                }
+            }
+        }
+    }
+
+    public void testSegmentAggregationCacheWithScores() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=keyword", "t", "type=text")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING.getKey(), 1,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1,
+                        IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        int id = 0;
+        for (int round = 0; round < 3; round++) {
+            // every round adds a new segment, which changes the term statistics and thus the scores of the older segments
+            IndexRequestBuilder[] docs = new IndexRequestBuilder[randomIntBetween(1, 20)];
+            for (int i = 0; i < docs.length; i++) {
+                docs[i] = client().prepareIndex("index", "type", Integer.toString(id++))
+                        .setSource("s", randomFrom("a", "b", "c"), "t", randomFrom("foo", "foo bar", "bar baz", "foo baz baz"));
+            }
+            indexRandom(true, false, docs);
+            for (int i = 0; i < 2; i++) {
+                // aggregations that read scores
+                SearchResponse cached = client().prepareSearch("index").setSize(0).setQuery(QueryBuilders.matchQuery("t", "foo baz"))
+                        .addAggregation(terms("terms").field("s").subAggregation(topHits("top").size(3))).get();
+                SearchResponse uncached = client().prepareSearch("index").setSize(0).setRequestCache(false)
+                        .setQuery(QueryBuilders.matchQuery("t", "foo baz"))
+                        .addAggregation(terms("terms").field("s").subAggregation(topHits("top").size(3))).get();
+                assertSearchResponse(cached);
+                assertSearchResponse(uncached);
+                assertEquals(uncached.getHits().getTotalHits(), cached.getHits().getTotalHits());
+                Terms cachedTerms = cached.getAggregations().get("terms");
+                Terms uncachedTerms = uncached.getAggregations().get("terms");
+                assertEquals(uncachedTerms.getBuckets().size(), cachedTerms.getBuckets().size());
+                for (Terms.Bucket bucket : uncachedTerms.getBuckets()) {
+                    Terms.Bucket cachedBucket = cachedTerms.getBucketByKey(bucket.getKeyAsString());
+                    assertEquals(bucket.getDocCount(), cachedBucket.getDocCount());
+                    SearchHits hits = ((TopHits) bucket.getAggregations().get("top")).getHits();
+                    SearchHits cachedHits = ((TopHits) cachedBucket.getAggregations().get("top")).getHits();
+                    assertEquals(hits.hits().length, cachedHits.hits().length);
+                    for (int j = 0; j < hits.hits().length; j++) {
+                        assertEquals(hits.getAt(j).getId(), cachedHits.getAt(j).getId());
+                        assertEquals(hits.getAt(j).getScore(), cachedHits.getAt(j).getScore(), 0f);
+                    }
+                }
+
+                // min_score filters on scores
+                cached = client().prepareSearch("index").setSize(0).setQuery(QueryBuilders.matchQuery("t", "foo baz"))
+                        .setMinScore(0.5f).addAggregation(terms("terms").field("s")).get();
+                uncached = client().prepareSearch("index").setSize(0).setRequestCache(false)
+                        .setQuery(QueryBuilders.matchQuery("t", "foo baz"))
+                        .setMinScore(0.5f).addAggregation(terms("terms").field("s")).get();
+                assertSearchResponse(cached);
+                assertSearchResponse(uncached);
+                assertEquals(uncached.getHits().getTotalHits(), cached.getHits().getTotalHits());
+                cachedTerms = cached.getAggregations().get("terms");
+                uncachedTerms = uncached.getAggregations().get("terms");
+                assertEquals(uncachedTerms.getBuckets().size(), cachedTerms.getBuckets().size());
+                for (Terms.Bucket bucket : uncachedTerms.getBuckets()) {
+                    assertEquals(bucket.getDocCount(), cachedTerms.getBucketByKey(bucket.getKeyAsString()).getDocCount());
+                }
+            }
+        }
+    }
+
+    public void testSegmentAggregationCacheWithManyTerms() throws Exception {
+        assertAcked(client().admin().indices().prepareCreate("index").addMapping("type", "s", "type=keyword", "l", "type=long")
+                .setSettings(IndicesRequestCache.INDEX_CACHE_REQUEST_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_ENABLED_SETTING.getKey(), true,
+                        IndicesSegmentAggregationCache.INDEX_CACHE_SEGMENT_AGGREGATIONS_MIN_DOCS_SETTING.getKey(), 1,
+                        IndexMetaData.SETTING_NUMBER_OF_SHARDS, 2,
+                        IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .get());
+        int id = 0;
+        for (int round = 0; round < 4; round++) {
+            // every segment holds far more terms than shard_size, with different top terms in every segment
+            IndexRequestBuilder[] docs = new IndexRequestBuilder[randomIntBetween(100, 200)];
+            for (int i = 0; i < docs.length; i++) {
+                final int term = randomBoolean() ? randomIntBetween(0, 9) + 10 * round : randomIntBetween(0, 299);
+                docs[i] = client().prepareIndex("index", "type", Integer.toString(id++)).setSource("s", "t" + term, "l", term);
+            }
+            indexRandom(true, false, docs);
+            for (int i = 0; i < 2; i++) {
+                for (String field : new String[] {"s", "l"}) {
+                    SearchResponse cached = client().prepareSearch("index").setSize(0)
+                            .addAggregation(terms("terms").field(field).size(5).shardSize(10).showTermDocCountError(true)).get();
+                    SearchResponse uncached = client().prepareSearch("index").setSize(0).setRequestCache(false)
+                            .addAggregation(terms("terms").field(field).size(5).shardSize(10).showTermDocCountError(true)).get();
+                    assertSearchResponse(cached);
+                    assertSearchResponse(uncached);
+                    assertEquals(uncached.getHits().getTotalHits(), cached.getHits().getTotalHits());
+                    Terms cachedTerms = cached.getAggregations().get("terms");
+                    Terms uncachedTerms = uncached.getAggregations().get("terms");
+                    assertEquals(uncachedTerms.getDocCountError(), cachedTerms.getDocCountError());
+                    assertEquals(uncachedTerms.getSumOfOtherDocCounts(), cachedTerms.getSumOfOtherDocCounts());
+                    assertEquals(uncachedTerms.getBuckets().size(), cachedTerms.getBuckets().size());
+                    for (int j = 0; j < uncachedTerms.getBuckets().size(); j++) {
+                        Terms.Bucket bucket = uncachedTerms.getBuckets().get(j);
+                        Terms.Bucket cachedBucket = cachedTerms.getBuckets().get(j);
+                        assertEquals(bucket.getKeyAsString(), cachedBucket.getKeyAsString());
+                        assertEquals(bucket.getDocCount(), cachedBucket.getDocCount());
+                        assertEquals(bucket.getDocCountError(), cachedBucket.getDocCountError());
+                    }
+                }
+            }
+        }
+    }
+
 }
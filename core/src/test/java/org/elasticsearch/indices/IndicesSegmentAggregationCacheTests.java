@@ -0,0 +1,170 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+
+public class IndicesSegmentAggregationCacheTests extends ESTestCase {
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        InternalMax.registerStreams();
+    }
+
+    public void testBasicOperationsCache() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        LeafReader leaf = reader.leaves().get(0).reader();
+        Object shard = new Object();
+        IndicesSegmentAggregationCache.Lookup lookup = cache.lookup(shard, new BytesArray("request"), 1);
+
+        assertTrue(lookup.canCache(leaf));
+        assertNull(lookup.get(leaf));
+        IndicesSegmentAggregationCache.Value value = lookup.put(leaf, 1, aggregations(42));
+        assertEquals(1, value.totalHits());
+        assertEquals(1, cache.count());
+        assertEquals(1, cache.numRegisteredCloseListeners());
+
+        // cache hit, with a new copy of the aggregations every time
+        value = lookup.get(leaf);
+        assertNotNull(value);
+        assertEquals(1, value.totalHits());
+        assertEquals(42, maxValue(value.aggregations()), 0d);
+        assertNotSame(value.aggregations(), value.aggregations());
+
+        // another request or another shard doesn't see the entry
+        assertNull(cache.lookup(shard, new BytesArray("other"), 1).get(leaf));
+        assertNull(cache.lookup(new Object(), new BytesArray("request"), 1).get(leaf));
+
+        // the entry is removed once the core of the segment is closed
+        IOUtils.close(reader, writer);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.numRegisteredCloseListeners());
+
+        IOUtils.close(dir, cache);
+    }
+
+    public void testDeletesInvalidateSegment() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        // both documents go to the same segment, which keeps its core once one of them is deleted
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig().setMaxBufferedDocs(10).setMergePolicy(NoMergePolicy.INSTANCE));
+        writer.addDocument(newDoc(0, "foo"));
+        writer.addDocument(newDoc(1, "bar"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        LeafReader leaf = reader.leaves().get(0).reader();
+        IndicesSegmentAggregationCache.Lookup lookup = cache.lookup(new Object(), new BytesArray("request"), 1);
+        lookup.put(leaf, leaf.numDocs(), aggregations(1));
+
+        writer.deleteDocuments(new Term("id", "0"));
+        DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+        assertNotNull(newReader);
+        LeafReader newLeaf = newReader.leaves().get(0).reader();
+        assertSame(leaf.getCoreCacheKey(), newLeaf.getCoreCacheKey());
+        assertNull(lookup.get(newLeaf));
+        assertNotNull(lookup.get(leaf));
+
+        lookup.put(newLeaf, newLeaf.numDocs(), aggregations(2));
+        assertEquals(2, cache.count());
+        // both entries share the same segment core
+        assertEquals(1, cache.numRegisteredCloseListeners());
+
+        IOUtils.close(reader, newReader, writer);
+        cache.cleanCache();
+        assertEquals(0, cache.count());
+        IOUtils.close(dir, cache);
+    }
+
+    public void testClear() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        LeafReader leaf = reader.leaves().get(0).reader();
+        Object shard = new Object();
+        Object otherShard = new Object();
+        BytesReference request = new BytesArray("request");
+        cache.lookup(shard, request, 1).put(leaf, 1, aggregations(1));
+        cache.lookup(otherShard, request, 1).put(leaf, 1, aggregations(1));
+        assertEquals(2, cache.count());
+
+        cache.clear(shard);
+        assertEquals(1, cache.count());
+        assertNull(cache.lookup(shard, request, 1).get(leaf));
+        assertNotNull(cache.lookup(otherShard, request, 1).get(leaf));
+
+        IOUtils.close(reader, writer, dir, cache);
+        assertEquals(0, cache.count());
+    }
+
+    public void testMinDocs() throws Exception {
+        IndicesSegmentAggregationCache cache = new IndicesSegmentAggregationCache(Settings.EMPTY);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig());
+        writer.addDocument(newDoc(0, "foo"));
+        DirectoryReader reader = ElasticsearchDirectoryReader.wrap(DirectoryReader.open(writer), new ShardId("foo", "bar", 1));
+        LeafReader leaf = reader.leaves().get(0).reader();
+        assertTrue(cache.lookup(new Object(), new BytesArray("request"), leaf.maxDoc()).canCache(leaf));
+        assertFalse(cache.lookup(new Object(), new BytesArray("request"), leaf.maxDoc() + 1).canCache(leaf));
+        IOUtils.close(reader, writer, dir, cache);
+    }
+
+    private static InternalAggregations aggregations(double max) {
+        return new InternalAggregations(Collections.singletonList(
+            new InternalMax("max", max, ValueFormatter.RAW, Collections.emptyList(), null)));
+    }
+
+    private static double maxValue(InternalAggregations aggregations) {
+        return ((InternalMax) aggregations.get("max")).getValue();
+    }
+
+    private static Document newDoc(int id, String value) {
+        Document doc = new Document();
+        doc.add(new StringField("id", Integer.toString(id), Field.Store.NO));
+        doc.add(new StringField("value", value, Field.Store.NO));
+        return doc;
+    }
+}
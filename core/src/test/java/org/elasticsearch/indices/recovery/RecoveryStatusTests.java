@@ -19,17 +19,25 @@
 package org.elasticsearch.indices.recovery;
 
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -87,4 +95,60 @@ public class RecoveryStatusTests extends ESSingleNodeTestCase {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.getShardOrNull(0);
+        DiscoveryNode node = new DiscoveryNode("foo", new LocalTransportAddress("bar"), emptyMap(), emptySet(), Version.CURRENT);
+        RecoveryTarget status = new RecoveryTarget(indexShard, node, new RecoveryTargetService.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        });
+        final byte[] bytes;
+        final String checksum;
+        try (Directory dir = newDirectory()) {
+            try (IndexOutput output = dir.createOutput("foo.bar", IOContext.DEFAULT)) {
+                byte[] content = new byte[randomIntBetween(100, 1000)];
+                random().nextBytes(content);
+                output.writeBytes(content, content.length);
+                CodecUtil.writeFooter(output);
+            }
+            try (IndexInput input = dir.openInput("foo.bar", IOContext.DEFAULT)) {
+                bytes = new byte[(int) input.length()];
+                input.readBytes(bytes, 0, bytes.length);
+                checksum = Store.digestToString(CodecUtil.retrieveChecksum(input));
+            }
+        }
+        StoreFileMetaData md = new StoreFileMetaData("foo.bar", bytes.length, checksum);
+        status.state().getIndex().addFileDetail(md.name(), md.length(), false);
+
+        // cut the file into chunks and send them in random order, the target must write them sequentially
+        List<Integer> positions = new ArrayList<>();
+        int chunkSize = randomIntBetween(10, 50);
+        for (int position = 0; position < bytes.length; position += chunkSize) {
+            positions.add(position);
+        }
+        Collections.shuffle(positions, random());
+        for (int position : positions) {
+            int length = Math.min(chunkSize, bytes.length - position);
+            status.writeFileChunk(md, position, new BytesArray(bytes, position, length), position + length == bytes.length, 0);
+        }
+        assertNull("file should be completely written", status.getOpenIndexOutput("foo.bar"));
+        assertEquals(bytes.length, status.state().getIndex().recoveredBytes());
+
+        indexShard.close("foo", false);// we have to close it here otherwise rename fails since the write.lock is held by the engine
+        status.renameAllTempFiles();
+        try (IndexInput input = status.store().directory().openInput("foo.bar", IOContext.DEFAULT)) {
+            byte[] written = new byte[(int) input.length()];
+            input.readBytes(written, 0, written.length);
+            assertArrayEquals(bytes, written);
+        }
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
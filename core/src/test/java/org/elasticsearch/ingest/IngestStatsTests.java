@@ -25,7 +25,9 @@ import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 public class IngestStatsTests extends ESTestCase {
@@ -60,6 +62,31 @@ public class IngestStatsTests extends ESTestCase {
         assertEquals(leftStats.getIngestCurrent(), rightStats.getIngestCurrent());
     }
 
+    public void testProcessorStatsSerialization() throws IOException {
+        IngestStats.Stats total = new IngestStats.Stats(5, 10, 20, 30);
+        IngestStats.Stats foo = new IngestStats.Stats(50, 100, 200, 300);
+        List<IngestStats.ProcessorStat> processorStats = Arrays.asList(
+            new IngestStats.ProcessorStat("set", "my_tag", new IngestStats.Stats(1, 2, 3, 4)),
+            new IngestStats.ProcessorStat("geoip", null, new IngestStats.Stats(5, 6, 7, 8), Collections.singletonMap("cache_hits", 9L)));
+        IngestStats ingestStats = new IngestStats(total, Collections.singletonMap("foo", foo),
+            Collections.singletonMap("foo", processorStats));
+        IngestStats serialize = serialize(ingestStats);
+
+        List<IngestStats.ProcessorStat> right = serialize.getProcessorStatsPerPipeline().get("foo");
+        assertEquals(2, right.size());
+        for (int i = 0; i < processorStats.size(); i++) {
+            IngestStats.ProcessorStat leftStat = processorStats.get(i);
+            IngestStats.ProcessorStat rightStat = right.get(i);
+            assertEquals(leftStat.getType(), rightStat.getType());
+            assertEquals(leftStat.getTag(), rightStat.getTag());
+            assertEquals(leftStat.getStats().getIngestCount(), rightStat.getStats().getIngestCount());
+            assertEquals(leftStat.getStats().getIngestTimeInMillis(), rightStat.getStats().getIngestTimeInMillis());
+            assertEquals(leftStat.getStats().getIngestCurrent(), rightStat.getStats().getIngestCurrent());
+            assertEquals(leftStat.getStats().getIngestFailedCount(), rightStat.getStats().getIngestFailedCount());
+            assertEquals(leftStat.getProcessorStats(), rightStat.getProcessorStats());
+        }
+    }
+
     private <T> T serialize(Writeable<T> writeable) throws IOException {
         BytesStreamOutput out = new BytesStreamOutput();
         writeable.writeTo(out);
@@ -38,14 +38,17 @@ import org.junit.Before;
 import org.mockito.ArgumentMatcher;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.any;
@@ -343,6 +346,49 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         verify(completionHandler, times(1)).accept(null);
     }
 
+    public void testBulkRequestExecutionReportsFailuresInOrder() throws Exception {
+        BulkRequest bulkRequest = new BulkRequest();
+        String pipelineId = "_id";
+
+        int numRequest = scaledRandomIntBetween(PipelineExecutionService.BULK_BATCH_SIZE, PipelineExecutionService.BULK_BATCH_SIZE * 8);
+        List<IndexRequest> expectedFailures = new ArrayList<>();
+        for (int i = 0; i < numRequest; i++) {
+            IndexRequest indexRequest = new IndexRequest("_index", "_type", "_id").setPipeline(pipelineId);
+            boolean fail = randomBoolean();
+            indexRequest.source("fail", fail);
+            bulkRequest.add(indexRequest);
+            if (fail) {
+                expectedFailures.add(indexRequest);
+            }
+        }
+
+        Processor processor = new TestProcessor(ingestDocument -> {
+            if (ingestDocument.getFieldValue("fail", Boolean.class)) {
+                throw new IllegalStateException("failed");
+            }
+            ingestDocument.setFieldValue("field", "value");
+        });
+        when(store.get(pipelineId)).thenReturn(new Pipeline(pipelineId, null, new CompoundProcessor(processor)));
+
+        List<IndexRequest> failures = new ArrayList<>();
+        List<Throwable> completions = new ArrayList<>();
+        executionService.executeBulkRequest(bulkRequest.requests(), (indexRequest, e) -> {
+            assertThat(e.getMessage(), equalTo("failed"));
+            failures.add(indexRequest);
+        }, completions::add);
+
+        assertThat(failures, equalTo(expectedFailures));
+        assertThat(completions.size(), equalTo(1));
+        assertThat(completions.get(0), nullValue());
+        for (ActionRequest request : bulkRequest.requests()) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            if (expectedFailures.contains(indexRequest) == false) {
+                assertThat(indexRequest.sourceAsMap().get("field"), equalTo("value"));
+                assertThat(indexRequest.getPipeline(), nullValue());
+            }
+        }
+    }
+
     public void testStats() throws Exception {
         IngestStats ingestStats = executionService.stats();
         assertThat(ingestStats.getStatsPerPipeline().size(), equalTo(0));
@@ -380,6 +426,40 @@ public class PipelineExecutionServiceTests extends ESTestCase {
         assertThat(ingestStats.getTotalStats().getIngestCount(), equalTo(2L));
     }
 
+    public void testProcessorStats() throws Exception {
+        Processor succeeding = new TestProcessor("tag1", "succeeding", ingestDocument -> {});
+        Processor failing = new TestProcessor("tag2", "failing", ingestDocument -> {
+            throw new IllegalStateException("failed");
+        });
+        when(store.get("_id")).thenReturn(new Pipeline("_id", null, new CompoundProcessor(succeeding, failing)));
+        Map<String, PipelineConfiguration> configurationMap = new HashMap<>();
+        configurationMap.put("_id", new PipelineConfiguration("_id", new BytesArray("{}")));
+        executionService.updatePipelineStats(new IngestMetadata(configurationMap));
+
+        @SuppressWarnings("unchecked")
+        Consumer<Throwable> failureHandler = mock(Consumer.class);
+        @SuppressWarnings("unchecked")
+        Consumer<Boolean> completionHandler = mock(Consumer.class);
+        IndexRequest indexRequest = new IndexRequest("_index", "_type", "_id").source(Collections.emptyMap()).setPipeline("_id");
+        executionService.executeIndexRequest(indexRequest, failureHandler, completionHandler);
+        verify(failureHandler, times(1)).accept(any(IllegalStateException.class));
+
+        IngestStats ingestStats = executionService.stats();
+        assertThat(ingestStats.getStatsPerPipeline().get("_id").getIngestCount(), equalTo(1L));
+        assertThat(ingestStats.getStatsPerPipeline().get("_id").getIngestFailedCount(), equalTo(1L));
+        List<IngestStats.ProcessorStat> processorStats = ingestStats.getProcessorStatsPerPipeline().get("_id");
+        assertThat(processorStats.size(), equalTo(2));
+        assertThat(processorStats.get(0).getType(), equalTo("succeeding"));
+        assertThat(processorStats.get(0).getTag(), equalTo("tag1"));
+        assertThat(processorStats.get(0).getStats().getIngestCount(), equalTo(1L));
+        assertThat(processorStats.get(0).getStats().getIngestFailedCount(), equalTo(0L));
+        assertThat(processorStats.get(0).getStats().getIngestCurrent(), equalTo(0L));
+        assertThat(processorStats.get(1).getType(), equalTo("failing"));
+        assertThat(processorStats.get(1).getTag(), equalTo("tag2"));
+        assertThat(processorStats.get(1).getStats().getIngestCount(), equalTo(1L));
+        assertThat(processorStats.get(1).getStats().getIngestFailedCount(), equalTo(1L));
+    }
+
     private IngestDocument eqID(String index, String type, String id, Map<String, Object> source) {
         return argThat(new IngestDocumentMatcher(index, type, id, source));
     }
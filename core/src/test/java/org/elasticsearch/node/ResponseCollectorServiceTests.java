@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.node;
+
+import org.elasticsearch.common.metrics.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.ResponseCollectorService.ComputedNodeStats;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ResponseCollectorServiceTests extends ESTestCase {
+
+    public void testMovingAverage() {
+        ExponentiallyWeightedMovingAverage average = new ExponentiallyWeightedMovingAverage(0.5, 10);
+        assertThat(average.getAverage(), equalTo(10.0));
+        average.addValue(20);
+        assertThat(average.getAverage(), equalTo(15.0));
+        average.addValue(15);
+        assertThat(average.getAverage(), equalTo(15.0));
+        expectThrows(IllegalArgumentException.class, () -> new ExponentiallyWeightedMovingAverage(1.5, 0));
+    }
+
+    public void testNodeStatistics() {
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY);
+        assertThat(collector.getNodeStatistics("node1"), nullValue());
+
+        collector.requestSent("node1");
+        collector.requestSent("node1");
+        // outstanding requests alone don't say anything about the node
+        assertThat(collector.getNodeStatistics("node1"), nullValue());
+        assertTrue(collector.getAllNodeStatistics().isEmpty());
+
+        collector.addNodeStatistics("node1", 4, 2000, 1000);
+        ComputedNodeStats stats = collector.getNodeStatistics("node1");
+        assertThat(stats.outstandingRequests, equalTo(1L));
+        // the averages start from the first response
+        assertThat(stats.queueSize, equalTo(4.0));
+        assertThat(stats.responseTime, equalTo(2000.0));
+        assertThat(stats.serviceTime, equalTo(1000.0));
+
+        collector.addNodeStatistics("node1", 14, 2000, 1000);
+        stats = collector.getNodeStatistics("node1");
+        assertThat(stats.outstandingRequests, equalTo(0L));
+        assertThat(stats.queueSize, closeTo(4 + ResponseCollectorService.ALPHA * 10, 0.00001));
+
+        collector.requestSent("node1");
+        collector.requestCompleted("node1");
+        assertThat(collector.getNodeStatistics("node1").outstandingRequests, equalTo(0L));
+        assertThat(collector.getAllNodeStatistics().keySet(), equalTo(Collections.singleton("node1")));
+
+        collector.removeNode("node1");
+        assertThat(collector.getNodeStatistics("node1"), nullValue());
+    }
+
+    public void testRank() {
+        ComputedNodeStats idle = new ComputedNodeStats("idle", 3, 0, 0, 1000, 500);
+        ComputedNodeStats queued = new ComputedNodeStats("queued", 3, 0, 2, 1000, 500);
+        ComputedNodeStats outstanding = new ComputedNodeStats("outstanding", 3, 1, 0, 1000, 500);
+        ComputedNodeStats slow = new ComputedNodeStats("slow", 3, 0, 0, 10000, 5000);
+        assertThat(idle.rank(), equalTo(1000.0));
+        assertThat(queued.rank(), greaterThan(idle.rank()));
+        // every outstanding request counts once per client
+        assertThat(outstanding.rank(), greaterThan(queued.rank()));
+        assertThat(slow.rank(), greaterThan(idle.rank()));
+    }
+
+    public void testAdjustNodeStatistics() {
+        ResponseCollectorService collector = new ResponseCollectorService(Settings.EMPTY);
+        collector.requestSent("fast");
+        collector.addNodeStatistics("fast", 0, 1000, 500);
+        collector.requestSent("slow");
+        collector.addNodeStatistics("slow", 10, 100000, 50000);
+        ComputedNodeStats winner = collector.getNodeStatistics("fast");
+        double rank = collector.getNodeStatistics("slow").rank();
+        for (int i = 0; i < 5; i++) {
+            collector.adjustNodeStatistics("slow", winner);
+            double newRank = collector.getNodeStatistics("slow").rank();
+            assertThat(newRank, lessThan(rank));
+            assertThat(newRank, greaterThan(winner.rank()));
+            rank = newRank;
+        }
+        // nodes without statistics are left alone
+        collector.adjustNodeStatistics("unknown", winner);
+        assertThat(collector.getNodeStatistics("unknown"), nullValue());
+    }
+}
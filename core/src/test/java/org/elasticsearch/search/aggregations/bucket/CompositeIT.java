@@ -0,0 +1,180 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.HistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.tophits.TopHits;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.composite;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.topHits;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@ESIntegTestCase.SuiteScopeTestCase
+public class CompositeIT extends ESIntegTestCase {
+
+    private static final int INTERVAL = 10;
+
+    /** expected doc count per key, keyed by tag and then by the rounded value */
+    static TreeMap<String, TreeMap<Long, Long>> expected;
+    /** expected max value per key */
+    static TreeMap<String, TreeMap<Long, Long>> expectedMax;
+
+    @Override
+    public void setupSuiteScopeCluster() throws Exception {
+        assertAcked(prepareCreate("idx").addMapping("type", "tag", "type=keyword", "value", "type=long"));
+        expected = new TreeMap<>();
+        expectedMax = new TreeMap<>();
+        List<IndexRequestBuilder> builders = new ArrayList<>();
+        int numDocs = randomIntBetween(50, 200);
+        for (int i = 0; i < numDocs; i++) {
+            long value = randomIntBetween(0, 99);
+            long rounded = value - value % INTERVAL;
+            String[] tags = randomBoolean()
+                    ? new String[] { "tag" + randomInt(4) }
+                    : new String[] { "tag" + randomInt(4), "tag" + randomInt(4) };
+            for (String tag : Arrays.asList(tags).stream().distinct().toArray(String[]::new)) {
+                expected.computeIfAbsent(tag, t -> new TreeMap<>()).merge(rounded, 1L, Long::sum);
+                expectedMax.computeIfAbsent(tag, t -> new TreeMap<>()).merge(rounded, value, Math::max);
+            }
+            builders.add(client().prepareIndex("idx", "type", "" + i).setSource(jsonBuilder()
+                    .startObject()
+                    .array("tag", tags)
+                    .field("value", value)
+                    .endObject()));
+        }
+        // documents without a value for one of the sources are not part of any bucket
+        builders.add(client().prepareIndex("idx", "type", "missing").setSource(jsonBuilder()
+                .startObject()
+                .field("value", 5)
+                .endObject()));
+        indexRandom(true, builders);
+        ensureSearchable();
+    }
+
+    private static List<CompositeValuesSourceBuilder<?>> sources(SortOrder tagOrder) {
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+        sources.add(new TermsValuesSourceBuilder("tag").field("tag").order(tagOrder));
+        sources.add(new HistogramValuesSourceBuilder("value").field("value").interval(INTERVAL));
+        return sources;
+    }
+
+    public void testPaginateAllBuckets() throws Exception {
+        for (SortOrder tagOrder : SortOrder.values()) {
+            int size = randomIntBetween(1, 7);
+            List<String> expectedKeys = new ArrayList<>();
+            List<Long> expectedCounts = new ArrayList<>();
+            List<Long> expectedMaxes = new ArrayList<>();
+            Map<String, TreeMap<Long, Long>> byTag = tagOrder == SortOrder.ASC ? expected : expected.descendingMap();
+            for (Map.Entry<String, TreeMap<Long, Long>> tag : byTag.entrySet()) {
+                for (Map.Entry<Long, Long> value : tag.getValue().entrySet()) {
+                    expectedKeys.add(tag.getKey() + "/" + value.getKey());
+                    expectedCounts.add(value.getValue());
+                    expectedMaxes.add(expectedMax.get(tag.getKey()).get(value.getKey()));
+                }
+            }
+
+            List<String> keys = new ArrayList<>();
+            List<Long> counts = new ArrayList<>();
+            List<Long> maxes = new ArrayList<>();
+            Map<String, Object> after = null;
+            while (true) {
+                CompositeAggregatorBuilder builder = composite("composite", sources(tagOrder)).size(size)
+                        .subAggregation(max("max").field("value"));
+                if (after != null) {
+                    builder.aggregateAfter(after);
+                }
+                SearchResponse response = client().prepareSearch("idx").setSize(0).addAggregation(builder).get();
+                assertSearchResponse(response);
+                CompositeAggregation composite = response.getAggregations().get("composite");
+                assertThat(composite.getBuckets().size(), lessThanOrEqualTo(size));
+                if (composite.getBuckets().isEmpty()) {
+                    assertThat(composite.afterKey(), nullValue());
+                    break;
+                }
+                for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+                    keys.add(bucket.getKey().get("tag") + "/" + bucket.getKey().get("value"));
+                    counts.add(bucket.getDocCount());
+                    Max max = bucket.getAggregations().get("max");
+                    maxes.add((long) max.getValue());
+                }
+                after = composite.afterKey();
+            }
+            assertThat(keys, equalTo(expectedKeys));
+            assertThat(counts, equalTo(expectedCounts));
+            assertThat(maxes, equalTo(expectedMaxes));
+        }
+    }
+
+    public void testSubAggregationThatNeedsScores() throws Exception {
+        int size = randomIntBetween(1, 7);
+        SearchResponse response = client().prepareSearch("idx").setSize(0)
+                .addAggregation(composite("composite", sources(SortOrder.ASC)).size(size).subAggregation(topHits("top").size(1)))
+                .get();
+        assertSearchResponse(response);
+        CompositeAggregation composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(Math.min(size, expected.values().stream().mapToInt(Map::size).sum())));
+        for (CompositeAggregation.Bucket bucket : composite.getBuckets()) {
+            TopHits top = bucket.getAggregations().get("top");
+            // the documents of the bucket were replayed with their scores
+            assertThat(top.getHits().getTotalHits(), equalTo(bucket.getDocCount()));
+            assertThat(top.getHits().getAt(0).getScore(), equalTo(1f));
+        }
+    }
+
+    public void testSubAggregationOfComposite() throws Exception {
+        SearchPhaseExecutionException e = expectThrows(SearchPhaseExecutionException.class, () -> client().prepareSearch("idx")
+                .addAggregation(terms("terms").field("tag").subAggregation(composite("composite", sources(SortOrder.ASC))))
+                .get());
+        assertThat(e.toString(), containsString("must be a top-level aggregation"));
+    }
+
+    public void testUnmappedField() throws Exception {
+        List<CompositeValuesSourceBuilder<?>> sources = Collections.singletonList(
+                new TermsValuesSourceBuilder("unmapped").field("does_not_exist"));
+        SearchResponse response = client().prepareSearch("idx").addAggregation(composite("composite", sources)).get();
+        assertSearchResponse(response);
+        CompositeAggregation composite = response.getAggregations().get("composite");
+        assertThat(composite.getBuckets().size(), equalTo(0));
+    }
+}
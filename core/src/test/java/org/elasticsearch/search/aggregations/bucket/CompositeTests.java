@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregatorBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.DateHistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.HistogramValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.sort.SortOrder;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class CompositeTests extends BaseAggregationTestCase<CompositeAggregatorBuilder> {
+
+    @Override
+    protected CompositeAggregatorBuilder createTestAggregatorBuilder() {
+        int numSources = randomIntBetween(1, 4);
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>(numSources);
+        Map<String, Object> after = new HashMap<>();
+        for (int i = 0; i < numSources; i++) {
+            String name = "source" + i;
+            CompositeValuesSourceBuilder<?> source;
+            switch (randomInt(2)) {
+            case 0:
+                source = new TermsValuesSourceBuilder(name).field(STRING_FIELD_NAME);
+                break;
+            case 1:
+                source = new HistogramValuesSourceBuilder(name).interval(randomIntBetween(1, 1000)).field(INT_FIELD_NAME);
+                break;
+            default:
+                DateHistogramValuesSourceBuilder dateSource = new DateHistogramValuesSourceBuilder(name).field(DATE_FIELD_NAME);
+                dateSource.interval(randomFrom(DateHistogramInterval.DAY, DateHistogramInterval.MONTH,
+                        DateHistogramInterval.hours(randomIntBetween(1, 48))));
+                if (randomBoolean()) {
+                    dateSource.timeZone(randomFrom(DateTimeZone.UTC, DateTimeZone.forID("Europe/Paris")));
+                }
+                source = dateSource;
+                break;
+            }
+            if (randomBoolean()) {
+                source.order(randomFrom(SortOrder.values()));
+            }
+            sources.add(source);
+            after.put(name, randomAsciiOfLengthBetween(1, 10));
+        }
+        CompositeAggregatorBuilder factory = new CompositeAggregatorBuilder("foo", sources);
+        if (randomBoolean()) {
+            factory.size(randomIntBetween(1, 1000));
+        }
+        if (randomBoolean()) {
+            factory.aggregateAfter(after);
+        }
+        return factory;
+    }
+
+    public void testDuplicateSourceNames() {
+        List<CompositeValuesSourceBuilder<?>> sources = new ArrayList<>();
+        sources.add(new TermsValuesSourceBuilder("same").field(STRING_FIELD_NAME));
+        sources.add(new HistogramValuesSourceBuilder("same").field(INT_FIELD_NAME).interval(10));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new CompositeAggregatorBuilder("foo", sources));
+        assertThat(e.getMessage(), containsString("Duplicate source name [same]"));
+    }
+
+    public void testInvalidSize() {
+        CompositeAggregatorBuilder factory = new CompositeAggregatorBuilder("foo",
+                Collections.singletonList(new TermsValuesSourceBuilder("terms").field(STRING_FIELD_NAME)));
+        expectThrows(IllegalArgumentException.class, () -> factory.size(0));
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.rounding.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregator.SegmentBuckets;
+import org.elasticsearch.test.ESTestCase;
+import org.joda.time.DateTimeZone;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+public class SegmentBucketsTests extends ESTestCase {
+
+    private static Rounding randomRounding() {
+        switch (randomInt(3)) {
+        case 0:
+            return new Rounding.Interval(randomIntBetween(1, 1000));
+        case 1:
+            return new Rounding.OffsetRounding(new Rounding.Interval(randomIntBetween(1, 1000)), randomIntBetween(-100, 100));
+        case 2:
+            return TimeZoneRounding.builder(randomFrom(DateTimeUnit.HOUR_OF_DAY, DateTimeUnit.DAY_OF_MONTH, DateTimeUnit.MONTH_OF_YEAR))
+                    .timeZone(randomFrom(DateTimeZone.UTC, DateTimeZone.forID("Europe/Paris"), DateTimeZone.forID("America/New_York")))
+                    .build();
+        default:
+            return TimeZoneRounding.builder(TimeValue.timeValueMinutes(randomIntBetween(1, 600)))
+                    .timeZone(randomFrom(DateTimeZone.UTC, DateTimeZone.forID("Europe/Paris"), DateTimeZone.forID("America/New_York")))
+                    .build();
+        }
+    }
+
+    public void testValuesMapToTheirRoundedKey() {
+        for (int iter = 0; iter < 100; iter++) {
+            Rounding rounding = randomRounding();
+            long min = randomBoolean() ? randomIntBetween(-100000, 100000) : 1420070400000L + randomIntBetween(0, 1000000000);
+            long max = min + (randomBoolean() ? randomIntBetween(0, 1000) : randomIntBetween(0, 1000000000));
+            SegmentBuckets buckets = SegmentBuckets.build(rounding, min, max, HistogramAggregator.MAX_SEGMENT_BUCKETS);
+            if (buckets == null) {
+                continue;
+            }
+            assertThat(buckets.boundaries[0], equalTo(min));
+            assertThat(buckets.boundaries[buckets.keys.length], equalTo(max + 1));
+            for (int i = 0; i < 100; i++) {
+                long value = randomBoolean()
+                        ? min + (long) (randomDouble() * (max - min))
+                        : buckets.boundaries[randomInt(buckets.keys.length)];
+                if (value > max) {
+                    assertThat(buckets.indexOf(value), equalTo(-1));
+                } else {
+                    int index = buckets.indexOf(value);
+                    assertThat(index, greaterThanOrEqualTo(0));
+                    assertThat(buckets.keys[index], equalTo(rounding.roundKey(value)));
+                }
+            }
+            assertThat(buckets.indexOf(min - 1), equalTo(-1));
+        }
+    }
+
+    public void testSingleBucket() {
+        Rounding rounding = new Rounding.Interval(100);
+        SegmentBuckets buckets = SegmentBuckets.build(rounding, 210, 290, HistogramAggregator.MAX_SEGMENT_BUCKETS);
+        assertThat(buckets.keys.length, equalTo(1));
+        assertThat(buckets.keys[0], equalTo(2L));
+        assertThat(buckets.indexOf(250), equalTo(0));
+    }
+
+    public void testTooManyBuckets() {
+        Rounding rounding = new Rounding.Interval(1);
+        assertNull(SegmentBuckets.build(rounding, 0, 10, 5));
+        assertNotNull(SegmentBuckets.build(rounding, 0, 4, 5));
+    }
+
+    public void testFactorRoundingIsNotPrecomputed() {
+        Rounding rounding = TimeZoneRounding.builder(TimeValue.timeValueMillis(10)).factor(2.5f).build();
+        assertNull(SegmentBuckets.build(rounding, 0, 1000, HistogramAggregator.MAX_SEGMENT_BUCKETS));
+    }
+}
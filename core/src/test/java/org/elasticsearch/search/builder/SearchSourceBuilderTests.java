@@ -235,6 +235,9 @@ public class SearchSourceBuilderTests extends ESTestCase {
         if (randomBoolean()) {
             builder.trackScores(randomBoolean());
         }
+        if (randomBoolean()) {
+            builder.trackTotalHits(randomBoolean());
+        }
         if (randomBoolean()) {
             builder.minScore(randomFloat() * 1000);
         }
@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.controller;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.support.format.ValueFormatter;
+import org.elasticsearch.search.fetch.FetchSearchResultProvider;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class QueryPhaseResultConsumerTests extends ESTestCase {
+
+    private final SearchPhaseController controller = new SearchPhaseController(Settings.EMPTY, BigArrays.NON_RECYCLING_INSTANCE, null);
+
+    public void testInvalidBatchedReduceSize() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new SearchRequest().setBatchedReduceSize(1));
+        assertThat(e.getMessage(), equalTo("batchedReduceSize must be >= 2"));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> new QueryPhaseResultConsumer(BigArrays.NON_RECYCLING_INSTANCE, null, randomIntBetween(-1, 1), 10, true));
+        assertThat(e.getMessage(), equalTo("batchedReduceSize must be >= 2"));
+    }
+
+    public void testDisabledIfAllShardsFitInOneBatch() {
+        int numShards = randomIntBetween(2, 10);
+        QueryPhaseResultConsumer consumer = new QueryPhaseResultConsumer(BigArrays.NON_RECYCLING_INSTANCE, null,
+            randomIntBetween(numShards, 20), numShards, true);
+        for (int i = 0; i < numShards; i++) {
+            QuerySearchResult result = createResult(i, 10, 0, 10, randomIntBetween(0, 10));
+            consumer.consume(i, result);
+            assertThat(result.topDocs().scoreDocs.length, equalTo(10));
+            assertNotNull(result.aggregations());
+        }
+        assertThat(consumer.getNumReducePhases(), equalTo(0));
+    }
+
+    public void testPartialReduce() throws Exception {
+        int numShards = randomIntBetween(5, 50);
+        int batchedReduceSize = randomIntBetween(2, numShards - 1);
+        int from = randomIntBetween(0, 5);
+        int size = randomIntBetween(1, 10);
+        QueryPhaseResultConsumer consumer = new QueryPhaseResultConsumer(BigArrays.NON_RECYCLING_INSTANCE, null, batchedReduceSize,
+            numShards, true);
+        AtomicArray<QuerySearchResult> expectedResults = new AtomicArray<>(numShards);
+        AtomicArray<QuerySearchResult> results = new AtomicArray<>(numShards);
+        double expectedMax = Double.NEGATIVE_INFINITY;
+        List<Integer> shardIndices = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            shardIndices.add(i);
+        }
+        // shard results arrive in any order
+        Collections.shuffle(shardIndices, random());
+        for (int shardIndex : shardIndices) {
+            int numDocs = randomIntBetween(0, from + size);
+            double max = randomDouble();
+            expectedMax = Math.max(expectedMax, max);
+            long seed = randomLong();
+            expectedResults.set(shardIndex, createResult(shardIndex, numDocs, from, size, max, seed));
+            QuerySearchResult result = createResult(shardIndex, numDocs, from, size, max, seed);
+            results.set(shardIndex, result);
+            consumer.consume(shardIndex, result);
+        }
+        consumer.ensureNoFailure();
+        assertThat(consumer.getNumReducePhases(), equalTo(numShards / batchedReduceSize));
+
+        int numAggs = 0;
+        for (AtomicArray.Entry<QuerySearchResult> entry : results.asList()) {
+            if (entry.value.aggregations() != null) {
+                numAggs++;
+            }
+            assertThat(entry.value.topDocs().totalHits, equalTo(expectedResults.get(entry.index).topDocs().totalHits));
+        }
+        assertThat(numAggs, lessThanOrEqualTo(batchedReduceSize));
+
+        ScoreDoc[] expectedDocs = controller.sortDocs(false, expectedResults);
+        ScoreDoc[] docs = controller.sortDocs(false, results);
+        assertThat(docs.length, equalTo(expectedDocs.length));
+        for (int i = 0; i < docs.length; i++) {
+            assertThat(docs[i].shardIndex, equalTo(expectedDocs[i].shardIndex));
+            assertThat(docs[i].doc, equalTo(expectedDocs[i].doc));
+            assertThat(docs[i].score, equalTo(expectedDocs[i].score));
+        }
+
+        InternalSearchResponse response = controller.merge(docs, results, new AtomicArray<FetchSearchResultProvider>(0));
+        assertThat(response.hits().totalHits(), equalTo(controller.merge(expectedDocs, expectedResults,
+            new AtomicArray<FetchSearchResultProvider>(0)).hits().totalHits()));
+        InternalMax max = response.aggregations().get("max");
+        assertThat(max.getValue(), equalTo(expectedMax));
+    }
+
+    public void testTopDocsAreKeptForScroll() {
+        int numShards = randomIntBetween(5, 20);
+        QueryPhaseResultConsumer consumer = new QueryPhaseResultConsumer(BigArrays.NON_RECYCLING_INSTANCE, null, 2, numShards, false);
+        for (int i = 0; i < numShards; i++) {
+            QuerySearchResult result = createResult(i, 10, 0, 1, randomDouble());
+            consumer.consume(i, result);
+            assertThat(result.topDocs().scoreDocs.length, equalTo(10));
+        }
+        assertThat(consumer.getNumReducePhases(), greaterThan(0));
+    }
+
+    private static QuerySearchResult createResult(int shardIndex, int numDocs, int from, int size, double max) {
+        return createResult(shardIndex, numDocs, from, size, max, randomLong());
+    }
+
+    private static QuerySearchResult createResult(int shardIndex, int numDocs, int from, int size, double max, long seed) {
+        QuerySearchResult result = new QuerySearchResult(shardIndex, new SearchShardTarget("node", new Index("index", "_na_"), shardIndex));
+        Random random = new Random(seed);
+        ScoreDoc[] scoreDocs = new ScoreDoc[numDocs];
+        float score = 100f;
+        for (int i = 0; i < numDocs; i++) {
+            // allow ties between the docs of different shards
+            score -= random.nextInt(3);
+            scoreDocs[i] = new ScoreDoc(i, score);
+        }
+        result.topDocs(new TopDocs(numDocs + random.nextInt(100), scoreDocs, numDocs == 0 ? Float.NaN : scoreDocs[0].score));
+        result.from(from);
+        result.size(size);
+        List<InternalAggregation> aggs = Collections.singletonList(new InternalMax("max", max, ValueFormatter.RAW,
+            Collections.emptyList(), Collections.emptyMap()));
+        result.aggregations(new InternalAggregations(aggs));
+        return result;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.internal;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ContextIndexSearcherTests extends ESTestCase {
+
+    private static DirectoryReader newMultiSegmentReader(Directory dir) throws IOException {
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        final int numSegments = randomIntBetween(1, 10);
+        for (int i = 0; i < numSegments; ++i) {
+            final int numDocs = randomIntBetween(1, 50);
+            for (int j = 0; j < numDocs; ++j) {
+                Document doc = new Document();
+                doc.add(new StringField("foo", randomFrom("bar", "baz"), Store.NO));
+                w.addDocument(doc);
+            }
+            w.commit();
+        }
+        w.close();
+        return DirectoryReader.open(dir);
+    }
+
+    public void testSlices() throws IOException {
+        Directory dir = newDirectory();
+        DirectoryReader reader = newMultiSegmentReader(dir);
+        final List<LeafReaderContext> leaves = reader.leaves();
+        for (int maxSlices = 1; maxSlices <= leaves.size() + 1; ++maxSlices) {
+            List<List<LeafReaderContext>> slices = ContextIndexSearcher.slices(leaves, maxSlices);
+            assertTrue(slices.size() >= 1);
+            assertTrue(slices.size() <= maxSlices);
+            // slices are contiguous, non empty and cover all leaves in order
+            List<LeafReaderContext> flattened = new ArrayList<>();
+            for (List<LeafReaderContext> slice : slices) {
+                assertFalse(slice.isEmpty());
+                flattened.addAll(slice);
+            }
+            assertEquals(leaves, flattened);
+        }
+        assertEquals(1, ContextIndexSearcher.slices(leaves, 1).size());
+        IOUtils.close(reader, dir);
+    }
+
+    public void testSearchSlices() throws Exception {
+        Directory dir = newDirectory();
+        DirectoryReader reader = newMultiSegmentReader(dir);
+        Engine.Searcher engineSearcher = new Engine.Searcher("test", new IndexSearcher(reader));
+        ContextIndexSearcher searcher = new ContextIndexSearcher(engineSearcher, IndexSearcher.getDefaultQueryCache(),
+                MAYBE_CACHE_POLICY);
+        ExecutorService executor = Executors.newFixedThreadPool(randomIntBetween(1, 3));
+        try {
+            final int maxSlices = randomIntBetween(2, 4);
+            switch (randomInt(2)) {
+            case 0:
+                searcher.setSliceExecutor(maxSlices, executor);
+                break;
+            case 1:
+                // slices are searched by the calling thread
+                searcher.setSliceExecutor(maxSlices, r -> r.run());
+                break;
+            default:
+                // the calling thread must search the rejected slices
+                searcher.setSliceExecutor(maxSlices, r -> {
+                    throw new EsRejectedExecutionException("rejected");
+                });
+                break;
+            }
+            assertEquals(Math.min(maxSlices, reader.leaves().size()) > 1, searcher.sliceCount() > 1);
+
+            final Query query = new TermQuery(new Term("foo", "bar"));
+            final int numHits = randomIntBetween(1, 20);
+            List<Collector> collectors = new ArrayList<>();
+            TopDocs[] sliceDocs = new TopDocs[searcher.sliceCount()];
+            for (int i = 0; i < sliceDocs.length; ++i) {
+                collectors.add(TopScoreDocCollector.create(numHits));
+            }
+            searcher.searchSlices(query, collectors);
+            for (int i = 0; i < sliceDocs.length; ++i) {
+                sliceDocs[i] = ((TopScoreDocCollector) collectors.get(i)).topDocs();
+            }
+            TopDocs merged = TopDocs.merge(numHits, sliceDocs);
+            TopDocs expected = searcher.search(query, numHits);
+            assertEquals(expected.totalHits, merged.totalHits);
+            assertEquals(expected.scoreDocs.length, merged.scoreDocs.length);
+            for (int i = 0; i < expected.scoreDocs.length; ++i) {
+                ScoreDoc expectedDoc = expected.scoreDocs[i];
+                ScoreDoc actualDoc = merged.scoreDocs[i];
+                assertEquals(expectedDoc.doc, actualDoc.doc);
+                assertEquals(expectedDoc.score, actualDoc.score, 0f);
+            }
+
+            try {
+                searcher.searchSlices(query, new ArrayList<>());
+                fail("expected an exception when the number of collectors doesn't match the number of slices");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().startsWith("Expected [" + searcher.sliceCount() + "] collectors"));
+            }
+        } finally {
+            ThreadPool.terminate(executor, 10, TimeUnit.SECONDS);
+            IOUtils.close(searcher, reader, dir);
+        }
+    }
+}
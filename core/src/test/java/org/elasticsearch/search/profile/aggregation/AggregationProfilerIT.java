@@ -0,0 +1,162 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.profile.aggregation;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.bucket.global.Global;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.test.ESIntegTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.avg;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.global;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+public class AggregationProfilerIT extends ESIntegTestCase {
+
+    private static final String[] TAGS = new String[] {"red", "green", "blue", "yellow"};
+
+    private void indexDocs() throws Exception {
+        // a single shard makes sure that all tags are seen by the profiled shard
+        assertAcked(prepareCreate("idx").setSettings(SETTING_NUMBER_OF_SHARDS, 1, SETTING_NUMBER_OF_REPLICAS, 0)
+                .addMapping("type", "tag", "type=keyword", "number", "type=long"));
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        final int numDocs = randomIntBetween(20, 50);
+        for (int i = 0; i < numDocs; i++) {
+            docs.add(client().prepareIndex("idx", "type").setSource("tag", TAGS[i % TAGS.length], "number", i));
+        }
+        indexRandom(true, docs);
+    }
+
+    /**
+     * Returns the profiled aggregations of each shard, which are reported with the first search of the shard.
+     */
+    private static List<List<AggregationProfileResult>> aggregationProfiles(SearchResponse response) {
+        Map<String, List<ProfileShardResult>> profileResults = response.getProfileResults();
+        assertThat(profileResults, notNullValue());
+        assertThat(profileResults.size(), greaterThan(0));
+        List<List<AggregationProfileResult>> results = new ArrayList<>();
+        for (List<ProfileShardResult> shardResults : profileResults.values()) {
+            assertThat(shardResults.size(), greaterThan(0));
+            results.add(shardResults.get(0).getAggregationResults());
+            for (int i = 1; i < shardResults.size(); ++i) {
+                assertThat(shardResults.get(i).getAggregationResults().size(), equalTo(0));
+            }
+        }
+        return results;
+    }
+
+    private static void assertTimings(AggregationProfileResult result) {
+        Map<String, Long> breakdown = result.getTimeBreakdown();
+        assertThat(breakdown.get(AggregationProfileBreakdown.TimingType.INITIALIZE.toString()), greaterThan(0L));
+        assertThat(breakdown.get(AggregationProfileBreakdown.TimingType.COLLECT.toString()), greaterThan(0L));
+        assertThat(breakdown.get(AggregationProfileBreakdown.TimingType.POST_COLLECTION.toString()), greaterThan(0L));
+        assertThat(breakdown.get(AggregationProfileBreakdown.TimingType.BUILD_AGGREGATION.toString()), greaterThan(0L));
+        assertThat(result.getTime(), greaterThan(0L));
+    }
+
+    public void testNestedAggregations() throws Exception {
+        indexDocs();
+        SearchResponse response = client().prepareSearch("idx").setProfile(true)
+                .addAggregation(terms("tags").field("tag").collectMode(SubAggCollectionMode.BREADTH_FIRST)
+                        .subAggregation(avg("avg").field("number"))
+                        .subAggregation(terms("numbers").field("number")))
+                .get();
+        assertSearchResponse(response);
+
+        for (List<AggregationProfileResult> shardResults : aggregationProfiles(response)) {
+            assertThat(shardResults.size(), equalTo(1));
+            AggregationProfileResult tags = shardResults.get(0);
+            assertThat(tags.getType(), equalTo("terms"));
+            assertThat(tags.getName(), equalTo("tags"));
+            assertTimings(tags);
+            assertThat(tags.getCounts().get(AggregationProfileBreakdown.CountType.BUCKETS.toString()), equalTo((long) TAGS.length));
+            // sub aggregations are deferred in breadth first mode, so every document is replayed
+            assertThat(tags.getCounts().get(AggregationProfileBreakdown.CountType.DEFERRED_DOCS_REPLAYED.toString()),
+                    greaterThan(0L));
+
+            List<AggregationProfileResult> children = tags.getProfiledChildren();
+            assertThat(children.size(), equalTo(2));
+            AggregationProfileResult avg = children.get(0);
+            assertThat(avg.getType(), equalTo("avg"));
+            assertThat(avg.getName(), equalTo("avg"));
+            assertThat(avg.getProfiledChildren().size(), equalTo(0));
+            assertThat(avg.getCounts().get(AggregationProfileBreakdown.CountType.BUCKETS.toString()), equalTo(0L));
+            AggregationProfileResult numbers = children.get(1);
+            assertThat(numbers.getType(), equalTo("terms"));
+            assertThat(numbers.getName(), equalTo("numbers"));
+            assertThat(numbers.getCounts().get(AggregationProfileBreakdown.CountType.BUCKETS.toString()),
+                    greaterThanOrEqualTo((long) TAGS.length));
+            assertThat(tags.getTime(), greaterThanOrEqualTo(avg.getTime()));
+        }
+    }
+
+    public void testOrderBySubAggregation() throws Exception {
+        indexDocs();
+        SearchResponse response = client().prepareSearch("idx").setProfile(true)
+                .addAggregation(terms("tags").field("tag").collectMode(randomFrom(SubAggCollectionMode.values()))
+                        .order(Terms.Order.aggregation("avg", false))
+                        .subAggregation(avg("avg").field("number")))
+                .get();
+        assertSearchResponse(response);
+        Terms tags = response.getAggregations().get("tags");
+        assertThat(tags.getBuckets().size(), equalTo(TAGS.length));
+
+        for (List<AggregationProfileResult> shardResults : aggregationProfiles(response)) {
+            assertThat(shardResults.size(), equalTo(1));
+            assertThat(shardResults.get(0).getProfiledChildren().size(), equalTo(1));
+            assertTimings(shardResults.get(0).getProfiledChildren().get(0));
+        }
+    }
+
+    public void testGlobalAggregation() throws Exception {
+        indexDocs();
+        SearchResponse response = client().prepareSearch("idx").setProfile(true).setSize(0)
+                .addAggregation(global("global").subAggregation(terms("tags").field("tag")))
+                .addAggregation(avg("avg").field("number"))
+                .get();
+        assertSearchResponse(response);
+        Global global = response.getAggregations().get("global");
+        assertThat(global.getDocCount(), equalTo(response.getHits().getTotalHits()));
+
+        for (List<AggregationProfileResult> shardResults : aggregationProfiles(response)) {
+            assertThat(shardResults.size(), equalTo(2));
+            AggregationProfileResult globalResult = shardResults.get(0);
+            assertThat(globalResult.getType(), equalTo("global"));
+            assertThat(globalResult.getName(), equalTo("global"));
+            assertThat(globalResult.getProfiledChildren().size(), equalTo(1));
+            assertThat(globalResult.getProfiledChildren().get(0).getName(), equalTo("tags"));
+            assertThat(shardResults.get(1).getName(), equalTo("avg"));
+        }
+    }
+}
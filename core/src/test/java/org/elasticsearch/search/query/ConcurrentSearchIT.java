@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.admin.indices.segments.IndexShardSegments;
+import org.elasticsearch.action.admin.indices.segments.IndicesSegmentResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.MergePolicyConfig;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.script.MockScriptEngine;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ESIntegTestCase;
+import org.elasticsearch.test.InternalSettingsPlugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchQuery;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.diversifiedSampler;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.histogram;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.max;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sampler;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.scriptedMetric;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.sum;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Checks that searching the segments of a shard concurrently returns the same top docs and aggregations as searching them
+ * sequentially.
+ */
+public class ConcurrentSearchIT extends ESIntegTestCase {
+
+    private static final String[] WORDS = new String[] {"quick", "brown", "fox", "lazy", "dog", "jumps"};
+
+    @Override
+    protected Collection<Class<? extends Plugin>> nodePlugins() {
+        return pluginList(InternalSettingsPlugin.class, // uses index.merge.enabled
+                MockScriptEngine.TestPlugin.class);
+    }
+
+    public void testConcurrentSearchMatchesSequentialSearch() throws Exception {
+        assertAcked(prepareCreate("test")
+                .setSettings(Settings.builder()
+                        .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, randomIntBetween(1, 2))
+                        .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                        .put(IndexSettings.INDEX_REFRESH_INTERVAL_SETTING.getKey(), -1)
+                        // every refresh must leave its own segment so that there is something to slice
+                        .put(MergePolicyConfig.INDEX_MERGE_ENABLED, false))
+                .addMapping("type", "body", "type=text", "group", "type=keyword", "value", "type=long", "tag", "type=keyword",
+                        "number", "type=long"));
+        ensureGreen();
+
+        final int numSegments = randomIntBetween(4, 8);
+        int id = 0;
+        for (int s = 0; s < numSegments; s++) {
+            final int numDocs = randomIntBetween(20, 50);
+            List<IndexRequestBuilder> builders = new ArrayList<>(numDocs);
+            for (int i = 0; i < numDocs; i++) {
+                StringBuilder body = new StringBuilder();
+                final int numWords = randomIntBetween(1, 5);
+                for (int w = 0; w < numWords; w++) {
+                    body.append(randomFrom(WORDS)).append(' ');
+                }
+                builders.add(client().prepareIndex("test", "type", Integer.toString(id++)).setSource(
+                        "body", body.toString(), "group", "g" + randomIntBetween(0, 4), "value", randomIntBetween(0, 100),
+                        "tag", "t" + randomIntBetween(0, 199), "number", randomIntBetween(0, 199)));
+            }
+            indexRandom(false, false, builders);
+            refresh();
+        }
+        IndicesSegmentResponse segments = client().admin().indices().prepareSegments("test").get();
+        for (IndexShardSegments shardSegments : segments.getIndices().get("test")) {
+            assertThat(shardSegments.getShards()[0].getSegments().size(), greaterThan(1));
+        }
+
+        List<SearchRequestBuilder> requests = new ArrayList<>();
+        // top docs by score
+        requests.add(client().prepareSearch("test").setQuery(matchQuery("body", "quick fox dog")).setSize(25));
+        // top docs by field, ties are broken on doc ids
+        requests.add(client().prepareSearch("test").setQuery(matchAllQuery()).addSort("value", SortOrder.DESC).setSize(25));
+        // post filter and min score
+        requests.add(client().prepareSearch("test").setQuery(matchQuery("body", "lazy brown")).setMinScore(0.1f)
+                .setPostFilter(rangeQuery("value").gte(30)).setSize(25));
+        // aggregations reduced across slices
+        requests.add(client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0)
+                .addAggregation(terms("groups").field("group").subAggregation(max("max").field("value")))
+                .addAggregation(histogram("histo").field("value").interval(10).subAggregation(sum("sum").field("value")))
+                .addAggregation(sum("sum").field("value")));
+        // far more terms than shard_size, the slices must not prune terms that the whole shard would return
+        requests.add(client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0)
+                .addAggregation(terms("tags").field("tag").size(5).shardSize(10).showTermDocCountError(true)
+                        .subAggregation(terms("numbers").field("number").size(3).shardSize(4).showTermDocCountError(true)))
+                .addAggregation(terms("numbers").field("number").size(5).shardSize(10).showTermDocCountError(true)
+                        .subAggregation(max("max").field("value"))));
+        // the combine script runs once per shard and the reduce script gets one object per shard
+        requests.add(client().prepareSearch("test").setQuery(matchAllQuery()).setSize(0)
+                .addAggregation(scriptedMetric("scripted")
+                        .mapScript(new Script("1", ScriptService.ScriptType.INLINE, MockScriptEngine.NAME, Collections.emptyMap()))));
+        // samplers keep the best shard_size documents of the whole shard
+        requests.add(client().prepareSearch("test").setQuery(matchQuery("body", "quick jumps")).setSize(0)
+                .addAggregation(sampler("sample").shardSize(10).subAggregation(terms("groups").field("group")))
+                .addAggregation(diversifiedSampler("diversified").field("group").maxDocsPerValue(2).shardSize(6)
+                        .subAggregation(sum("sum").field("value"))));
+
+        List<SearchResponse> sequential = new ArrayList<>();
+        for (SearchRequestBuilder request : requests) {
+            sequential.add(request.get());
+        }
+
+        final int concurrency = randomIntBetween(2, numSegments);
+        assertAcked(client().admin().indices().prepareUpdateSettings("test").setSettings(
+                Settings.builder().put(IndexSettings.INDEX_SEARCH_CONCURRENCY_SETTING.getKey(), concurrency)));
+
+        for (int i = 0; i < requests.size(); i++) {
+            SearchResponse expected = sequential.get(i);
+            SearchResponse actual = requests.get(i).get();
+            assertSearchResponse(expected);
+            assertSearchResponse(actual);
+            assertThat(actual.getHits().getTotalHits(), equalTo(expected.getHits().getTotalHits()));
+            assertThat(actual.getHits().getMaxScore(), equalTo(expected.getHits().getMaxScore()));
+            assertThat(actual.getHits().hits().length, equalTo(expected.getHits().hits().length));
+            for (int j = 0; j < expected.getHits().hits().length; j++) {
+                SearchHit expectedHit = expected.getHits().getAt(j);
+                SearchHit actualHit = actual.getHits().getAt(j);
+                assertThat(actualHit.getId(), equalTo(expectedHit.getId()));
+                assertThat(actualHit.getScore(), equalTo(expectedHit.getScore()));
+            }
+            assertThat(aggregationsToString(actual), equalTo(aggregationsToString(expected)));
+        }
+    }
+
+    private static String aggregationsToString(SearchResponse response) throws IOException {
+        if (response.getAggregations() == null) {
+            return null;
+        }
+        XContentBuilder builder = jsonBuilder().startObject();
+        ((InternalAggregations) response.getAggregations()).toXContent(builder, ToXContent.EMPTY_PARAMS);
+        return builder.endObject().string();
+    }
+}
@@ -21,26 +21,42 @@ package org.elasticsearch.search.query;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
 import org.elasticsearch.index.query.ParsedQuery;
+import org.elasticsearch.search.MultiValueMode;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.TestSearchContext;
 
@@ -165,4 +181,91 @@ public class QueryPhaseTests extends ESTestCase {
         assertTrue(collected.get());
     }
 
+    public void testSortedSegmentTerminatingCollector() throws Exception {
+        final boolean reverse = randomBoolean();
+        final Sort indexSort = new Sort(new SortedNumericSortField("rank", SortField.Type.LONG, reverse));
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = newIndexWriterConfig().setMergePolicy(new SortingMergePolicy(newLogMergePolicy(), indexSort));
+        IndexWriter w = new IndexWriter(dir, iwc);
+        final int numSortedDocs = scaledRandomIntBetween(100, 200);
+        for (int i = 0; i < numSortedDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+            w.addDocument(doc);
+            if (i == numSortedDocs / 2) {
+                // make sure that the sorted segment is the result of a merge
+                w.commit();
+            }
+        }
+        w.forceMerge(1);
+        // a flushed segment that isn't sorted
+        final int numUnsortedDocs = randomIntBetween(1, 50);
+        for (int i = 0; i < numUnsortedDocs; ++i) {
+            Document doc = new Document();
+            doc.add(new SortedNumericDocValuesField("rank", randomIntBetween(0, 1000)));
+            w.addDocument(doc);
+        }
+        w.commit();
+        final IndexReader reader = DirectoryReader.open(dir);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        final int numHits = randomIntBetween(1, 50);
+
+        TopFieldCollector expected = TopFieldCollector.create(indexSort, numHits, true, false, false);
+        searcher.search(new MatchAllDocsQuery(), expected);
+        TopFieldCollector actual = TopFieldCollector.create(indexSort, numHits, true, false, false);
+        SortedSegmentTerminatingCollector collector = new SortedSegmentTerminatingCollector(actual, indexSort, numHits);
+        searcher.search(new MatchAllDocsQuery(), collector);
+
+        assertTrue(collector.terminatedEarly());
+        ScoreDoc[] expectedDocs = expected.topDocs().scoreDocs;
+        ScoreDoc[] actualDocs = actual.topDocs().scoreDocs;
+        assertEquals(expectedDocs.length, actualDocs.length);
+        for (int i = 0; i < expectedDocs.length; i++) {
+            assertEquals(expectedDocs[i].doc, actualDocs[i].doc);
+            assertArrayEquals(((FieldDoc) expectedDocs[i]).fields, ((FieldDoc) actualDocs[i]).fields);
+        }
+        reader.close();
+        w.close();
+        dir.close();
+    }
+
+    public void testSortedSegmentsTerminateEarlyOnlyWithoutTrackingTotalHits() {
+        final Sort indexSort = new Sort(new SortedNumericSortField("rank", SortField.Type.LONG, false));
+        final Sort searchSort = new Sort(new SortField("rank", new LongValuesComparatorSource(null, "_last", MultiValueMode.MIN, null)));
+        TestSearchContext context = new TestSearchContext(null) {
+            @Override
+            public Sort sort() {
+                return searchSort;
+            }
+        };
+        // the total number of hits is tracked by default
+        assertFalse(QueryPhase.canTerminateSortedSegmentsEarly(context, indexSort));
+        context.trackTotalHits(false);
+        assertTrue(QueryPhase.canTerminateSortedSegmentsEarly(context, indexSort));
+        context.queryCollectors().put(QueryPhaseTests.class, new TotalHitCountCollector());
+        assertFalse(QueryPhase.canTerminateSortedSegmentsEarly(context, indexSort));
+    }
+
+    public void testScriptsDisableConcurrentSearch() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        for (int i = 0; i < 3; ++i) {
+            w.addDocument(new Document());
+            w.commit();
+        }
+        w.close();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        ContextIndexSearcher searcher = new ContextIndexSearcher(new Engine.Searcher("test", new IndexSearcher(reader)),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy());
+        searcher.setSliceExecutor(3, r -> r.run());
+        TestSearchContext context = new TestSearchContext(null);
+        context.setSize(10);
+        assertTrue(QueryPhase.canSearchConcurrently(context, searcher));
+        // scripts get the lookup of the context, which is not thread-safe
+        context.lookup();
+        assertTrue(context.lookupUsed());
+        assertFalse(QueryPhase.canSearchConcurrently(context, searcher));
+        IOUtils.close(searcher, reader, dir);
+    }
+
 }
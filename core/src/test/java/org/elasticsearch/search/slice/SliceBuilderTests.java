@@ -0,0 +1,192 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.slice;
+
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.query.QueryParseContext;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.indices.query.IndicesQueriesRegistry;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SliceBuilderTests extends ESTestCase {
+    private static final int NUMBER_OF_TESTBUILDERS = 20;
+
+    private static SliceBuilder randomSliceBuilder() {
+        int max = randomIntBetween(2, 1000);
+        int id = randomInt(max - 1);
+        String field = randomBoolean() ? UidFieldMapper.NAME : randomAsciiOfLengthBetween(5, 20);
+        return new SliceBuilder(field, id, max);
+    }
+
+    private static SliceBuilder serializedCopy(SliceBuilder original) throws IOException {
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            original.writeTo(output);
+            try (StreamInput in = StreamInput.wrap(output.bytes())) {
+                return new SliceBuilder(in);
+            }
+        }
+    }
+
+    public void testSerialization() throws Exception {
+        for (int runs = 0; runs < NUMBER_OF_TESTBUILDERS; runs++) {
+            SliceBuilder original = randomSliceBuilder();
+            SliceBuilder deserialized = serializedCopy(original);
+            assertEquals(deserialized, original);
+            assertEquals(deserialized.hashCode(), original.hashCode());
+            assertNotSame(deserialized, original);
+        }
+    }
+
+    public void testEqualsAndHashcode() throws Exception {
+        for (int runs = 0; runs < NUMBER_OF_TESTBUILDERS; runs++) {
+            SliceBuilder firstBuilder = randomSliceBuilder();
+            assertFalse("slice is equal to null", firstBuilder.equals(null));
+            assertFalse("slice is equal to incompatible type", firstBuilder.equals(""));
+            assertTrue("slice is not equal to self", firstBuilder.equals(firstBuilder));
+            assertThat("same slice's hashcode returns different values if called multiple times", firstBuilder.hashCode(),
+                    equalTo(firstBuilder.hashCode()));
+
+            SliceBuilder secondBuilder = serializedCopy(firstBuilder);
+            assertTrue("slice is not equal to its copy", firstBuilder.equals(secondBuilder));
+            assertTrue("equals is not symmetric", secondBuilder.equals(firstBuilder));
+            assertThat("slice copy's hashcode is different from original hashcode", secondBuilder.hashCode(),
+                    equalTo(firstBuilder.hashCode()));
+
+            SliceBuilder differentBuilder = new SliceBuilder(firstBuilder.getField(), firstBuilder.getId(), firstBuilder.getMax() + 1);
+            assertFalse("slices with a different max are equal", firstBuilder.equals(differentBuilder));
+        }
+    }
+
+    public void testFromXContent() throws Exception {
+        for (int runs = 0; runs < NUMBER_OF_TESTBUILDERS; runs++) {
+            SliceBuilder original = randomSliceBuilder();
+            XContentBuilder builder = XContentFactory.contentBuilder(randomFrom(XContentType.values()));
+            if (randomBoolean()) {
+                builder.prettyPrint();
+            }
+            original.toXContent(builder, ToXContent.EMPTY_PARAMS);
+            XContentParser parser = XContentFactory.xContent(builder.bytes()).createParser(builder.bytes());
+            QueryParseContext context = new QueryParseContext(new IndicesQueriesRegistry(Settings.EMPTY, Collections.emptyMap()));
+            context.reset(parser);
+            parser.nextToken();
+            SliceBuilder parsed = SliceBuilder.fromXContent(context);
+            assertEquals(original, parsed);
+            assertEquals(original.hashCode(), parsed.hashCode());
+        }
+    }
+
+    public void testInvalidArguments() throws Exception {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", -1, 10));
+        assertEquals("id must be greater than or equal to 0", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, -1));
+        assertEquals("max must be greater than 1", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, 0));
+        assertEquals("max must be greater than 1", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("field", 10, 5));
+        assertEquals("max must be greater than id", e.getMessage());
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder(null, 5, 10));
+        assertEquals("field name is null or empty", e.getMessage());
+    }
+
+    public void testToFilter() throws Exception {
+        MappedFieldType uidType = mock(MappedFieldType.class);
+        when(uidType.hasDocValues()).thenReturn(false);
+        MappedFieldType numericType = mock(MappedFieldType.class);
+        when(numericType.hasDocValues()).thenReturn(true);
+        MappedFieldType textType = mock(MappedFieldType.class);
+        when(textType.hasDocValues()).thenReturn(false);
+        QueryShardContext context = mock(QueryShardContext.class);
+        when(context.fieldMapper(UidFieldMapper.NAME)).thenReturn(uidType);
+        when(context.fieldMapper("field_doc_values")).thenReturn(numericType);
+        when(context.fieldMapper("field_without_doc_values")).thenReturn(textType);
+
+        // a single shard gets every slice
+        Query query = new SliceBuilder(UidFieldMapper.NAME, 1, 5).toFilter(context, 0, 1);
+        assertThat(query, instanceOf(TermsSliceQuery.class));
+        assertEquals(new TermsSliceQuery(UidFieldMapper.NAME, 1, 5), query);
+        query = new SliceBuilder("field_doc_values", 1, 5).toFilter(context, 0, 1);
+        assertEquals(new DocValuesSliceQuery("field_doc_values", 1, 5), query);
+
+        // more shards than slices: every shard belongs to exactly one slice
+        int numShards = randomIntBetween(6, 20);
+        int max = randomIntBetween(2, 5);
+        for (int shardId = 0; shardId < numShards; shardId++) {
+            int matches = 0;
+            for (int id = 0; id < max; id++) {
+                query = new SliceBuilder(UidFieldMapper.NAME, id, max).toFilter(context, shardId, numShards);
+                if (query instanceof MatchAllDocsQuery) {
+                    matches++;
+                } else {
+                    assertEquals(Queries.newMatchNoDocsQuery(), query);
+                }
+            }
+            assertEquals(1, matches);
+        }
+
+        // more slices than shards: the slices are spread evenly across the shards
+        numShards = randomIntBetween(2, 5);
+        max = randomIntBetween(numShards, 20);
+        int totalSlices = 0;
+        for (int shardId = 0; shardId < numShards; shardId++) {
+            for (int id = 0; id < max; id++) {
+                query = new SliceBuilder(UidFieldMapper.NAME, id, max).toFilter(context, shardId, numShards);
+                if (id % numShards == shardId) {
+                    // either a sub-slice of the shard or the whole shard
+                    assertFalse(query.equals(Queries.newMatchNoDocsQuery()));
+                    totalSlices++;
+                } else {
+                    assertEquals(Queries.newMatchNoDocsQuery(), query);
+                }
+            }
+        }
+        assertEquals(max, totalSlices);
+
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> new SliceBuilder("field_without_doc_values", 1, 5).toFilter(context, 0, 1));
+        assertThat(e.getMessage(), containsString("cannot load numeric doc values"));
+
+        e = expectThrows(IllegalArgumentException.class, () -> new SliceBuilder("unknown", 1, 5).toFilter(context, 0, 1));
+        assertThat(e.getMessage(), containsString("field unknown not found"));
+    }
+}
@@ -242,8 +242,16 @@ public class Def {
     }
 
     public static Method getMethod(final Object owner, final String name, final Definition definition) {
+        return getMethod(owner.getClass(), name, definition);
+    }
+
+    /**
+     * Looks up the whitelisted method with the given name for a receiver class, walking
+     * the class hierarchy and implemented interfaces.
+     */
+    static Method getMethod(final Class<?> receiverClass, final String name, final Definition definition) {
         Struct struct = null;
-        Class<?> clazz = owner.getClass();
+        Class<?> clazz = receiverClass;
         Method method = null;
 
         while (clazz != null) {
@@ -281,15 +289,23 @@ public class Def {
         }
 
         if (struct == null) {
-            throw new IllegalArgumentException("Unable to find a dynamic struct for class [" + owner.getClass() + "].");
+            throw new IllegalArgumentException("Unable to find a dynamic struct for class [" + receiverClass + "].");
         }
 
         return method;
     }
 
     public static Field getField(final Object owner, final String name, final Definition definition) {
+        return getField(owner.getClass(), name, definition);
+    }
+
+    /**
+     * Looks up the whitelisted field with the given name for a receiver class, walking
+     * the class hierarchy and implemented interfaces.
+     */
+    static Field getField(final Class<?> receiverClass, final String name, final Definition definition) {
         Struct struct = null;
-        Class<?> clazz = owner.getClass();
+        Class<?> clazz = receiverClass;
         Field field = null;
 
         while (clazz != null) {
@@ -327,7 +343,7 @@ public class Def {
         }
 
         if (struct == null) {
-            throw new IllegalArgumentException("Unable to find a dynamic struct for class [" + owner.getClass() + "].");
+            throw new IllegalArgumentException("Unable to find a dynamic struct for class [" + receiverClass + "].");
         }
 
         return field;
@@ -0,0 +1,380 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.elasticsearch.painless.Definition.Field;
+import org.elasticsearch.painless.Definition.Method;
+import org.elasticsearch.painless.Definition.Transform;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Painless invokedynamic bootstrap for dynamic (def) method calls, field loads and field stores.
+ * <p>
+ * Each call site is a polymorphic inline cache: the result of the {@link Definition} lookup for a
+ * receiver class is linked into the call site behind a guard on the exact receiver class, so that
+ * subsequent invocations with the same receiver class call the target directly, without a lookup
+ * and without allocating an argument array. After {@link #MAX_DEPTH} different receiver classes the
+ * call site is considered megamorphic and is relinked to the generic path in {@link Def}.
+ */
+public final class DefBootstrap {
+
+    private DefBootstrap() {} // no instance!
+
+    /** maximum number of receiver classes cached per call site before it goes megamorphic */
+    static final int MAX_DEPTH = 5;
+
+    /** static bootstrap parameter indicating a dynamic method call, e.g. foo.bar(...) */
+    static final int METHOD_CALL = 0;
+    /** static bootstrap parameter indicating a dynamic load (getter), e.g. baz = foo.bar */
+    static final int LOAD = 1;
+    /** static bootstrap parameter indicating a dynamic store (setter), e.g. foo.bar = baz */
+    static final int STORE = 2;
+
+    /** recipe character for an argument that is statically known to have the right type */
+    static final char TYPESAFE = 't';
+    /** recipe character for an argument that may need a runtime transform */
+    static final char UNSAFE = 'u';
+
+    /**
+     * CallSite that implements the polymorphic inlining cache (PIC).
+     */
+    static final class PIC extends MutableCallSite {
+        private final String name;
+        private final int flavor;
+        private final String recipe;
+        int depth; // pkg-protected for testing
+
+        PIC(final String name, final MethodType type, final int flavor, final String recipe) {
+            super(type);
+            this.name = name;
+            this.flavor = flavor;
+            this.recipe = recipe;
+
+            final MethodHandle fallback = FALLBACK.bindTo(this)
+                                                  .asCollector(Object[].class, type.parameterCount())
+                                                  .asType(type);
+
+            setTarget(fallback);
+        }
+
+        /**
+         * Returns the index of the {@link Definition} argument of this call site's signature.
+         */
+        private int definitionIndex() {
+            return flavor == STORE ? 2 : 1;
+        }
+
+        /**
+         * Looks up the target for the given receiver class, adapted to this call site's signature.
+         */
+        private MethodHandle lookup(final Class<?> receiverClass, final Definition definition) {
+            switch (flavor) {
+                case METHOD_CALL:
+                    return lookupMethod(receiverClass, definition);
+                case LOAD:
+                    return lookupGetter(receiverClass, definition);
+                case STORE:
+                    return lookupSetter(receiverClass, definition);
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        private MethodHandle lookupMethod(final Class<?> receiverClass, final Definition definition) {
+            final Method method = Def.getMethod(receiverClass, name, definition);
+
+            if (method == null) {
+                throw new IllegalArgumentException("Unable to find dynamic method [" + name + "] " +
+                        "for class [" + receiverClass.getCanonicalName() + "].");
+            }
+
+            final int arity = type().parameterCount() - 2;
+            final List<Definition.Type> types = method.arguments;
+
+            if (types.size() != arity) {
+                throw new IllegalArgumentException("When dynamically calling [" + name + "] from class " +
+                        "[" + receiverClass + "] expected [" + types.size() + "] arguments," +
+                        " but found [" + arity + "].");
+            }
+
+            final MethodHandle[] filters = new MethodHandle[arity];
+
+            for (int argument = 0; argument < arity; ++argument) {
+                if (recipe.charAt(argument) == UNSAFE) {
+                    filters[argument] = transform(types.get(argument).clazz, definition);
+                }
+            }
+
+            MethodHandle handle = method.handle.asType(MethodType.genericMethodType(arity + 1));
+            handle = MethodHandles.filterArguments(handle, 1, filters);
+
+            return MethodHandles.dropArguments(handle, 1, Definition.class);
+        }
+
+        private MethodHandle lookupGetter(final Class<?> receiverClass, final Definition definition) {
+            MethodHandle handle;
+
+            if (receiverClass.isArray() && "length".equals(name)) {
+                handle = ARRAY_LENGTH;
+            } else {
+                final Field field = Def.getField(receiverClass, name, definition);
+
+                if (field == null) {
+                    final String get = "get" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                    final Method method = Def.getMethod(receiverClass, get, definition);
+
+                    if (method != null) {
+                        handle = method.handle;
+                    } else if (Map.class.isAssignableFrom(receiverClass)) {
+                        handle = MethodHandles.insertArguments(MAP_GET, 1, name);
+                    } else if (List.class.isAssignableFrom(receiverClass)) {
+                        handle = MethodHandles.insertArguments(LIST_GET, 1, parseListIndex(name));
+                    } else {
+                        throw new IllegalArgumentException("Unable to find dynamic field [" + name + "] " +
+                                "for class [" + receiverClass.getCanonicalName() + "].");
+                    }
+                } else if (field.getter == null) {
+                    throw new IllegalArgumentException(
+                            "Unable to read from field [" + name + "] with owner class [" + receiverClass + "].");
+                } else {
+                    handle = field.getter;
+                }
+            }
+
+            handle = handle.asType(MethodType.genericMethodType(1));
+
+            return MethodHandles.dropArguments(handle, 1, Definition.class);
+        }
+
+        private MethodHandle lookupSetter(final Class<?> receiverClass, final Definition definition) {
+            final Field field = Def.getField(receiverClass, name, definition);
+            MethodHandle handle = null;
+
+            if (field == null) {
+                final String set = "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+                final Method method = Def.getMethod(receiverClass, set, definition);
+
+                if (method != null) {
+                    handle = method.handle;
+                }
+            } else {
+                handle = field.setter;
+            }
+
+            final MethodType generic = MethodType.methodType(void.class, Object.class, Object.class);
+
+            if (handle != null) {
+                final Class<?> valueClass = handle.type().parameterType(1);
+                handle = handle.asType(generic);
+
+                if (recipe.charAt(0) == UNSAFE) {
+                    handle = MethodHandles.filterArguments(handle, 1, transform(valueClass, definition));
+                }
+            } else if (Map.class.isAssignableFrom(receiverClass)) {
+                handle = MethodHandles.insertArguments(MAP_PUT, 1, name).asType(generic);
+            } else if (List.class.isAssignableFrom(receiverClass)) {
+                handle = MethodHandles.insertArguments(LIST_SET, 1, parseListIndex(name)).asType(generic);
+            } else {
+                throw new IllegalArgumentException("Unable to find dynamic field [" + name + "] " +
+                        "for class [" + receiverClass.getCanonicalName() + "].");
+            }
+
+            return MethodHandles.dropArguments(handle, 2, Definition.class);
+        }
+
+        /**
+         * Returns the generic path through {@link Def}, used once the call site is megamorphic.
+         */
+        private MethodHandle megamorphic() {
+            final MethodType type = type();
+
+            switch (flavor) {
+                case METHOD_CALL:
+                    final int arity = type.parameterCount() - 2;
+                    final boolean[] typesafe = new boolean[arity];
+
+                    for (int argument = 0; argument < arity; ++argument) {
+                        typesafe[argument] = recipe.charAt(argument) == TYPESAFE;
+                    }
+
+                    MethodHandle call = MethodHandles.insertArguments(DEF_METHOD_CALL, 1, name);
+                    call = MethodHandles.insertArguments(call, 3, typesafe);
+
+                    return call.asCollector(Object[].class, arity).asType(type);
+                case LOAD:
+                    return MethodHandles.insertArguments(DEF_FIELD_LOAD, 1, name).asType(type);
+                case STORE:
+                    MethodHandle store = MethodHandles.insertArguments(DEF_FIELD_STORE, 2, name);
+                    store = MethodHandles.insertArguments(store, 3, recipe.charAt(0) == TYPESAFE);
+
+                    return store.asType(type);
+                default:
+                    throw new AssertionError();
+            }
+        }
+
+        /**
+         * Called when a receiver class is seen that none of the cached targets handle: links a new
+         * guarded target in front of the existing ones, or the generic path once the call site has
+         * become megamorphic, and then invokes it.
+         */
+        Object fallback(final Object[] args) throws Throwable {
+            final Object receiver = args[0];
+            final MethodType type = type();
+
+            if (receiver == null || depth >= MAX_DEPTH) {
+                final MethodHandle generic = megamorphic();
+
+                if (receiver != null) {
+                    setTarget(generic);
+                }
+
+                return generic.invokeWithArguments(args);
+            }
+
+            final Class<?> receiverClass = receiver.getClass();
+            final Definition definition = (Definition)args[definitionIndex()];
+            final MethodHandle target = lookup(receiverClass, definition).asType(type);
+
+            MethodHandle test = CHECK_CLASS.bindTo(receiverClass);
+            test = test.asType(test.type().changeParameterType(0, type.parameterType(0)));
+            test = MethodHandles.dropArguments(test, 1, type.parameterList().subList(1, type.parameterCount()));
+
+            final MethodHandle guard = MethodHandles.guardWithTest(test, target, getTarget());
+
+            depth++;
+            setTarget(guard);
+
+            return target.invokeWithArguments(args);
+        }
+
+        private static final MethodHandle CHECK_CLASS;
+        private static final MethodHandle FALLBACK;
+
+        static {
+            final Lookup lookup = MethodHandles.lookup();
+
+            try {
+                CHECK_CLASS = lookup.findStatic(PIC.class, "checkClass",
+                                                MethodType.methodType(boolean.class, Class.class, Object.class));
+                FALLBACK = lookup.findVirtual(PIC.class, "fallback",
+                                              MethodType.methodType(Object.class, Object[].class));
+            } catch (final ReflectiveOperationException exception) {
+                throw new AssertionError(exception);
+            }
+        }
+
+        /**
+         * Guard method for inline caching: checks the receiver's class is the same
+         * as the cached class.
+         */
+        static boolean checkClass(final Class<?> clazz, final Object receiver) {
+            return receiver != null && receiver.getClass() == clazz;
+        }
+    }
+
+    /**
+     * Returns a filter that converts an argument to the given class using the whitelisted
+     * transforms of the {@link Definition}, when its runtime class is not already compatible.
+     */
+    private static MethodHandle transform(final Class<?> clazz, final Definition definition) {
+        final Class<?> boxed = MethodType.methodType(clazz).wrap().returnType();
+
+        return MethodHandles.insertArguments(TRANSFORM, 1, boxed, clazz, definition);
+    }
+
+    static Object transform(final Object value, final Class<?> boxed, final Class<?> clazz,
+                            final Definition definition) throws Throwable {
+        if (value == null || boxed.isInstance(value)) {
+            return value;
+        }
+
+        final Transform transform = Def.getTransform(value.getClass(), clazz, definition);
+
+        return transform == null ? value : transform.method.handle.invoke(value);
+    }
+
+    static int parseListIndex(final String name) {
+        try {
+            return Integer.parseInt(name);
+        } catch (final NumberFormatException exception) {
+            throw new IllegalArgumentException("Illegal list shortcut value [" + name + "].");
+        }
+    }
+
+    private static final MethodHandle TRANSFORM;
+    private static final MethodHandle ARRAY_LENGTH;
+    private static final MethodHandle MAP_GET;
+    private static final MethodHandle MAP_PUT;
+    private static final MethodHandle LIST_GET;
+    private static final MethodHandle LIST_SET;
+    private static final MethodHandle DEF_METHOD_CALL;
+    private static final MethodHandle DEF_FIELD_LOAD;
+    private static final MethodHandle DEF_FIELD_STORE;
+
+    static {
+        final Lookup lookup = MethodHandles.lookup();
+
+        try {
+            TRANSFORM = lookup.findStatic(DefBootstrap.class, "transform", MethodType.methodType(
+                Object.class, Object.class, Class.class, Class.class, Definition.class));
+            ARRAY_LENGTH = lookup.findStatic(Array.class, "getLength", MethodType.methodType(int.class, Object.class));
+            MAP_GET = lookup.findVirtual(Map.class, "get", MethodType.methodType(Object.class, Object.class));
+            MAP_PUT = lookup.findVirtual(Map.class, "put", MethodType.methodType(Object.class, Object.class, Object.class));
+            LIST_GET = lookup.findVirtual(List.class, "get", MethodType.methodType(Object.class, int.class));
+            LIST_SET = lookup.findVirtual(List.class, "set", MethodType.methodType(Object.class, int.class, Object.class));
+            DEF_METHOD_CALL = lookup.findStatic(Def.class, "methodCall", MethodType.methodType(
+                Object.class, Object.class, String.class, Definition.class, Object[].class, boolean[].class));
+            DEF_FIELD_LOAD = lookup.findStatic(Def.class, "fieldLoad", MethodType.methodType(
+                Object.class, Object.class, String.class, Definition.class));
+            DEF_FIELD_STORE = lookup.findStatic(Def.class, "fieldStore", MethodType.methodType(
+                void.class, Object.class, Object.class, String.class, Definition.class, boolean.class));
+        } catch (final ReflectiveOperationException exception) {
+            throw new AssertionError(exception);
+        }
+    }
+
+    /**
+     * invokedynamic bootstrap method.
+     * <p>
+     * In addition to ordinary parameters, we also take some static parameters:
+     * <ul>
+     *   <li>{@code flavor}: type of dynamic call it is (and which part of whitelist to look at).
+     *   <li>{@code recipe}: one character per argument (or the stored value for a store), {@code t}
+     *       if the argument is statically known to be of the right type, {@code u} if it may need
+     *       to be transformed at runtime.
+     * </ul>
+     * <p>
+     * see https://docs.oracle.com/javase/specs/jvms/se7/html/jvms-6.html#jvms-6.5.invokedynamic
+     */
+    public static CallSite bootstrap(final Lookup lookup, final String name, final MethodType type,
+                                     final int flavor, final String recipe) {
+        return new PIC(name, type, flavor, recipe);
+    }
+}
@@ -20,9 +20,13 @@
 package org.elasticsearch.painless;
 
 import org.elasticsearch.script.ScoreAccessor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.Method;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.Map;
 
@@ -46,16 +50,19 @@ class WriterConstants {
     final static Type SCORE_ACCESSOR_TYPE    = Type.getType(ScoreAccessor.class);
     final static Method SCORE_ACCESSOR_FLOAT = getAsmMethod(float.class, "floatValue");
 
-    final static Method DEF_METHOD_CALL = getAsmMethod(
-        Object.class, "methodCall", Object.class, String.class, Definition.class, Object[].class, boolean[].class);
+    /** dynamic invokedynamic bootstrap for def method calls, field loads and field stores */
+    final static Handle DEF_BOOTSTRAP_HANDLE = new Handle(Opcodes.H_INVOKESTATIC, Type.getInternalName(DefBootstrap.class),
+        "bootstrap", MethodType.methodType(CallSite.class, MethodHandles.Lookup.class,
+            String.class, MethodType.class, int.class, String.class).toMethodDescriptorString());
+    final static String DEF_FIELD_LOAD_DESC = MethodType.methodType(
+        Object.class, Object.class, Definition.class).toMethodDescriptorString();
+    final static String DEF_FIELD_STORE_DESC = MethodType.methodType(
+        void.class, Object.class, Object.class, Definition.class).toMethodDescriptorString();
+
     final static Method DEF_ARRAY_STORE = getAsmMethod(
         void.class, "arrayStore", Object.class, Object.class, Object.class, Definition.class, boolean.class, boolean.class);
     final static Method DEF_ARRAY_LOAD = getAsmMethod(
         Object.class, "arrayLoad", Object.class, Object.class, Definition.class, boolean.class);
-    final static Method DEF_FIELD_STORE = getAsmMethod(
-        void.class, "fieldStore", Object.class, Object.class, String.class, Definition.class, boolean.class);
-    final static Method DEF_FIELD_LOAD = getAsmMethod(
-        Object.class, "fieldLoad", Object.class, String.class, Definition.class);
 
     final static Method DEF_NOT_CALL = getAsmMethod(Object.class, "not", Object.class);
     final static Method DEF_NEG_CALL = getAsmMethod(Object.class, "neg", Object.class);
@@ -54,9 +54,9 @@ import static org.elasticsearch.painless.WriterConstants.CLASS_TYPE;
 import static org.elasticsearch.painless.WriterConstants.DEFINITION_TYPE;
 import static org.elasticsearch.painless.WriterConstants.DEF_ARRAY_LOAD;
 import static org.elasticsearch.painless.WriterConstants.DEF_ARRAY_STORE;
-import static org.elasticsearch.painless.WriterConstants.DEF_FIELD_LOAD;
-import static org.elasticsearch.painless.WriterConstants.DEF_FIELD_STORE;
-import static org.elasticsearch.painless.WriterConstants.DEF_METHOD_CALL;
+import static org.elasticsearch.painless.WriterConstants.DEF_BOOTSTRAP_HANDLE;
+import static org.elasticsearch.painless.WriterConstants.DEF_FIELD_LOAD_DESC;
+import static org.elasticsearch.painless.WriterConstants.DEF_FIELD_STORE_DESC;
 import static org.elasticsearch.painless.WriterConstants.TOBYTEEXACT_INT;
 import static org.elasticsearch.painless.WriterConstants.TOBYTEEXACT_LONG;
 import static org.elasticsearch.painless.WriterConstants.TOBYTEWOOVERFLOW_DOUBLE;
@@ -487,16 +487,16 @@ class WriterExternal {
             final ExternalMetadata parentemd = metadata.getExternalMetadata(sourceemd.parent);
             final ExpressionMetadata expremd = metadata.getExpressionMetadata(parentemd.storeExpr);
 
-            execute.push(name);
+            final boolean typesafe = parentemd.token == 0 && expremd.typesafe;
+
             execute.loadThis();
             execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
-            execute.push(parentemd.token == 0 && expremd.typesafe);
-            execute.invokeStatic(definition.defobjType.type, DEF_FIELD_STORE);
+            execute.invokeDynamic(name, DEF_FIELD_STORE_DESC, DEF_BOOTSTRAP_HANDLE,
+                DefBootstrap.STORE, String.valueOf(typesafe ? DefBootstrap.TYPESAFE : DefBootstrap.UNSAFE));
         } else {
-            execute.push(name);
             execute.loadThis();
             execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
-            execute.invokeStatic(definition.defobjType.type, DEF_FIELD_LOAD);
+            execute.invokeDynamic(name, DEF_FIELD_LOAD_DESC, DEF_BOOTSTRAP_HANDLE, DefBootstrap.LOAD, "");
         }
     }
 
@@ -739,31 +739,25 @@ class WriterExternal {
                 execute.checkCast(target.rtn.type);
             }
         } else {
-            execute.push((String)sourceenmd.target);
+            final org.objectweb.asm.Type[] parameters = new org.objectweb.asm.Type[arguments.size() + 2];
+            final StringBuilder recipe = new StringBuilder(arguments.size());
+
+            parameters[0] = definition.defType.type;
+            parameters[1] = DEFINITION_TYPE;
+
             execute.loadThis();
             execute.getField(CLASS_TYPE, "definition", DEFINITION_TYPE);
 
-            execute.push(arguments.size());
-            execute.newArray(definition.defType.type);
-
             for (int argument = 0; argument < arguments.size(); ++argument) {
-                execute.dup();
-                execute.push(argument);
                 writer.visit(arguments.get(argument));
-                execute.arrayStore(definition.defType.type);
-            }
-
-            execute.push(arguments.size());
-            execute.newArray(definition.booleanType.type);
-
-            for (int argument = 0; argument < arguments.size(); ++argument) {
-                execute.dup();
-                execute.push(argument);
-                execute.push(metadata.getExpressionMetadata(arguments.get(argument)).typesafe);
-                execute.arrayStore(definition.booleanType.type);
+                parameters[argument + 2] = definition.defType.type;
+                recipe.append(metadata.getExpressionMetadata(arguments.get(argument)).typesafe ?
+                    DefBootstrap.TYPESAFE : DefBootstrap.UNSAFE);
             }
 
-            execute.invokeStatic(definition.defobjType.type, DEF_METHOD_CALL);
+            final String descriptor = org.objectweb.asm.Type.getMethodDescriptor(definition.defType.type, parameters);
+            execute.invokeDynamic((String)sourceenmd.target, descriptor, DEF_BOOTSTRAP_HANDLE,
+                DefBootstrap.METHOD_CALL, recipe.toString());
         }
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.painless;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DefBootstrapTests extends ESTestCase {
+    private final Definition definition = new Definition(new Definition());
+
+    /** calls toString() on integers, twice */
+    public void testOneType() throws Throwable {
+        CallSite site = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "toString",
+            MethodType.methodType(Object.class, Object.class, Definition.class), DefBootstrap.METHOD_CALL, "");
+        MethodHandle handle = site.dynamicInvoker();
+        assertDepthEquals(site, 0);
+
+        // invoke with integer, needs lookup
+        assertEquals("5", handle.invoke(Integer.valueOf(5), definition));
+        assertDepthEquals(site, 1);
+
+        // invoked with integer again: should be cached
+        assertEquals("6", handle.invoke(Integer.valueOf(6), definition));
+        assertDepthEquals(site, 1);
+    }
+
+    public void testTwoTypes() throws Throwable {
+        CallSite site = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "toString",
+            MethodType.methodType(Object.class, Object.class, Definition.class), DefBootstrap.METHOD_CALL, "");
+        MethodHandle handle = site.dynamicInvoker();
+        assertDepthEquals(site, 0);
+
+        assertEquals("5", handle.invoke(Integer.valueOf(5), definition));
+        assertDepthEquals(site, 1);
+        assertEquals("1.5", handle.invoke(Float.valueOf(1.5f), definition));
+        assertDepthEquals(site, 2);
+
+        // both these should be cached
+        assertEquals("6", handle.invoke(Integer.valueOf(6), definition));
+        assertDepthEquals(site, 2);
+        assertEquals("2.5", handle.invoke(Float.valueOf(2.5f), definition));
+        assertDepthEquals(site, 2);
+    }
+
+    public void testTooManyTypes() throws Throwable {
+        // if this changes, test must be rewritten
+        assertEquals(5, DefBootstrap.MAX_DEPTH);
+        CallSite site = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "toString",
+            MethodType.methodType(Object.class, Object.class, Definition.class), DefBootstrap.METHOD_CALL, "");
+        MethodHandle handle = site.dynamicInvoker();
+        assertDepthEquals(site, 0);
+
+        assertEquals("5", handle.invoke(Integer.valueOf(5), definition));
+        assertDepthEquals(site, 1);
+        assertEquals("1.5", handle.invoke(Float.valueOf(1.5f), definition));
+        assertDepthEquals(site, 2);
+        assertEquals("6", handle.invoke(Long.valueOf(6), definition));
+        assertDepthEquals(site, 3);
+        assertEquals("3.2", handle.invoke(Double.valueOf(3.2d), definition));
+        assertDepthEquals(site, 4);
+        assertEquals("foo", handle.invoke(new String("foo"), definition));
+        assertDepthEquals(site, 5);
+        assertEquals("c", handle.invoke(Character.valueOf('c'), definition));
+        assertDepthEquals(site, 5);
+        // the megamorphic call site still handles every type
+        assertEquals("7", handle.invoke(Integer.valueOf(7), definition));
+        assertEquals("d", handle.invoke(Character.valueOf('d'), definition));
+    }
+
+    public void testMethodCallWithArguments() throws Throwable {
+        CallSite site = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "get",
+            MethodType.methodType(Object.class, Object.class, Definition.class, Object.class), DefBootstrap.METHOD_CALL, "u");
+        MethodHandle handle = site.dynamicInvoker();
+
+        assertEquals("b", handle.invoke(new ArrayList<>(Arrays.asList("a", "b")), definition, 1));
+        assertDepthEquals(site, 1);
+        assertEquals("c", handle.invoke(new ArrayList<>(Arrays.asList("a", "b", "c")), definition, 2));
+        assertDepthEquals(site, 1);
+    }
+
+    public void testLoadAndStoreShortcuts() throws Throwable {
+        CallSite load = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "foo",
+            MethodType.methodType(Object.class, Object.class, Definition.class), DefBootstrap.LOAD, "");
+        CallSite store = DefBootstrap.bootstrap(MethodHandles.publicLookup(), "foo",
+            MethodType.methodType(void.class, Object.class, Object.class, Definition.class), DefBootstrap.STORE, "u");
+
+        Map<String, Object> map = new HashMap<>();
+        store.dynamicInvoker().invoke(map, "bar", definition);
+        assertEquals("bar", map.get("foo"));
+        assertEquals("bar", load.dynamicInvoker().invoke(map, definition));
+        assertDepthEquals(load, 1);
+        assertDepthEquals(store, 1);
+    }
+
+    static void assertDepthEquals(CallSite site, int expected) {
+        DefBootstrap.PIC dsite = (DefBootstrap.PIC) site;
+        assertEquals(expected, dsite.depth);
+    }
+}
@@ -911,4 +911,12 @@ public class DefTests extends ScriptTestCase {
         assertEquals(true, exec("def x = (float)6 def y = (double)2 return x >= y"));
         assertEquals(true, exec("def x = (double)7 def y = (double)1 return x >= y"));
     }
+
+    public void testPolymorphicCallSite() {
+        // the same dynamic call site sees several receiver classes, and goes megamorphic in the last loop
+        assertEquals(6, exec("def x = new ArrayList(); x.add(2); def y = new HashMap(); y.put(1, 1); y.put(2, 2); " +
+            "int total = 0; for (int i = 0; i < 4; ++i) { def z = i % 2 == 0 ? x : y; total += z.size(); } return total;"));
+        assertEquals("123.0", exec("def x = new ArrayList(); x.add(1); x.add(2L); x.add(3.0); String s = \"\"; " +
+            "for (int i = 0; i < 3; ++i) { def z = x.get(i); s += z.toString(); } return s;"));
+    }
 }
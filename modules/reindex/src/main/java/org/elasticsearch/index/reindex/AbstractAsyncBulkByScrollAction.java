@@ -84,6 +84,10 @@ public abstract class AbstractAsyncBulkByScrollAction<Request extends AbstractBu
     private final AtomicLong startTime = new AtomicLong(-1);
     private final AtomicReference<String> scroll = new AtomicReference<>();
     private final AtomicLong lastBatchStartTime = new AtomicLong(-1);
+    /**
+     * The total this action last reported to the task. The task may be shared with other slices so we only ever report deltas.
+     */
+    private final AtomicLong reportedTotal = new AtomicLong(0);
     private final Set<String> destinationIndices = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
     private final ESLogger logger;
@@ -172,7 +176,7 @@ public abstract class AbstractAsyncBulkByScrollAction<Request extends AbstractBu
         if (mainRequest.getSize() > 0) {
             total = min(total, mainRequest.getSize());
         }
-        task.setTotal(total);
+        task.addToTotal(total - reportedTotal.getAndSet(total));
         task.countThrottle(delay);
         threadPool.schedule(delay, ThreadPool.Names.GENERIC, threadPool.getThreadContext().preserveContext(new AbstractRunnable() {
             @Override
@@ -335,7 +339,8 @@ public abstract class AbstractAsyncBulkByScrollAction<Request extends AbstractBu
         //       requests
         // ------------------- == seconds
         // request per seconds
-        float targetBatchTimeInSeconds = lastBatchSize / mainRequest.getRequestsPerSecond();
+        // Each slice gets an even share of the throttle so the request as a whole stays within requestsPerSecond.
+        float targetBatchTimeInSeconds = lastBatchSize / (mainRequest.getRequestsPerSecond() / mainRequest.getSlices());
         // nanoseconds per seconds * seconds == nanoseconds
         return TimeUnit.SECONDS.toNanos(1) * targetBatchTimeInSeconds;
     }
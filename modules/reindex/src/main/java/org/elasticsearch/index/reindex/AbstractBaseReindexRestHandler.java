@@ -62,6 +62,7 @@ public abstract class AbstractBaseReindexRestHandler<
 
     protected void execute(RestRequest request, Request internalRequest, RestChannel channel) throws IOException {
         internalRequest.setRequestsPerSecond(request.paramAsFloat("requests_per_second", internalRequest.getRequestsPerSecond()));
+        internalRequest.setSlices(request.paramAsInt("slices", internalRequest.getSlices()));
         if (request.paramAsBoolean("wait_for_completion", true)) {
             action.execute(internalRequest, new BulkIndexByScrollResponseContentListener<Response>(channel));
             return;
@@ -92,6 +92,12 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
      */
     private float requestsPerSecond = 0;
 
+    /**
+     * The number of slices this request should be divided into. Each slice is a sliced scroll with its own scroll context and bulk
+     * requests, all of them reporting into the same task. Defaults to 1 meaning the request isn't sliced.
+     */
+    private int slices = 1;
+
     public AbstractBulkByScrollRequest() {
     }
 
@@ -126,6 +132,17 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
                             + size + "]",
                     e);
         }
+        if (slices < 1) {
+            e = addValidationError("slices must be greater than 0 but was [" + slices + "]", e);
+        }
+        if (slices > 1) {
+            if (size != SIZE_ALL_MATCHES) {
+                e = addValidationError("size cannot be limited when slicing the request into [" + slices + "] slices", e);
+            }
+            if (searchRequest.source() != null && searchRequest.source().slice() != null) {
+                e = addValidationError("can't specify both slice on the search and slices on the request", e);
+            }
+        }
         return e;
     }
 
@@ -274,6 +291,22 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         return self();
     }
 
+    /**
+     * The number of slices this request should be divided into. Defaults to 1 meaning the request isn't sliced.
+     */
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * Set the number of slices this request should be divided into. Each slice scrolls a disjoint part of the source documents so the
+     * slices can be processed in parallel.
+     */
+    public Self setSlices(int slices) {
+        this.slices = slices;
+        return self();
+    }
+
     @Override
     public Task createTask(long id, String type, String action) {
         return new BulkByScrollTask(id, type, action, getDescription());
@@ -292,6 +325,7 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         retryBackoffInitialTime = TimeValue.readTimeValue(in);
         maxRetries = in.readVInt();
         requestsPerSecond = in.readFloat();
+        slices = in.readVInt();
     }
 
     @Override
@@ -306,6 +340,7 @@ public abstract class AbstractBulkByScrollRequest<Self extends AbstractBulkByScr
         retryBackoffInitialTime.writeTo(out);
         out.writeVInt(maxRetries);
         out.writeFloat(requestsPerSecond);
+        out.writeVInt(slices);
     }
 
     /**
@@ -106,4 +106,12 @@ public abstract class AbstractBulkByScrollRequestBuilder<
         request.setConsistency(consistency);
         return self();
     }
+
+    /**
+     * The number of slices this request should be divided into. Each slice is scrolled and processed in parallel.
+     */
+    public Self slices(int slices) {
+        request.setSlices(slices);
+        return self();
+    }
 }
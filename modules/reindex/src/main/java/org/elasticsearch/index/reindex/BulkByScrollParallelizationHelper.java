@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.reindex;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.bulk.BulkItemResponse.Failure;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.util.concurrent.AtomicArray;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.slice.SliceBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static java.lang.Math.max;
+import static java.util.Collections.unmodifiableList;
+import static org.elasticsearch.common.unit.TimeValue.timeValueNanos;
+
+/**
+ * Splits reindex and update-by-query requests into sliced scrolls and runs one {@link AbstractAsyncBulkByScrollAction} per slice. All
+ * slices report into the same {@link BulkByScrollTask} so status and cancellation work exactly as they do for unsliced requests.
+ */
+class BulkByScrollParallelizationHelper {
+    private BulkByScrollParallelizationHelper() {
+    }
+
+    /**
+     * Start the request, slicing it if {@link AbstractBulkByScrollRequest#getSlices()} is greater than 1.
+     *
+     * @param mainRequest the request to execute
+     * @param listener notified once every slice has finished
+     * @param workerBuilder builds the action that processes a single slice given the search request for that slice and its listener
+     */
+    static <Request extends AbstractBulkByScrollRequest<Request>, Response extends BulkIndexByScrollResponse> void startSlices(
+            Request mainRequest, ActionListener<Response> listener,
+            BiFunction<SearchRequest, ActionListener<Response>, AbstractAsyncBulkByScrollAction<Request, Response>> workerBuilder) {
+        if (mainRequest.getSlices() == 1) {
+            workerBuilder.apply(mainRequest.getSearchRequest(), listener).start();
+            return;
+        }
+        long startTime = System.nanoTime();
+        SearchRequest[] slices = sliceIntoSubRequests(mainRequest.getSearchRequest(), mainRequest.getSlices());
+        AtomicArray<Response> responses = new AtomicArray<>(slices.length);
+        AtomicArray<Throwable> failures = new AtomicArray<>(slices.length);
+        CountDown countDown = new CountDown(slices.length);
+        List<AbstractAsyncBulkByScrollAction<Request, Response>> workers = new ArrayList<>(slices.length);
+        for (int slice = 0; slice < slices.length; slice++) {
+            int sliceId = slice;
+            workers.add(workerBuilder.apply(slices[slice], new ActionListener<Response>() {
+                @Override
+                public void onResponse(Response response) {
+                    responses.setOnce(sliceId, response);
+                    if (countDown.countDown()) {
+                        finish(workers.get(0), startTime, responses, failures, listener);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    failures.setOnce(sliceId, e);
+                    if (countDown.countDown()) {
+                        finish(workers.get(0), startTime, responses, failures, listener);
+                    }
+                }
+            }));
+        }
+        for (AbstractAsyncBulkByScrollAction<Request, Response> worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Build one search request per slice. Slices are computed on {@code _uid} which is always available.
+     */
+    static SearchRequest[] sliceIntoSubRequests(SearchRequest request, int times) {
+        SearchSourceBuilder source = request.source() == null ? new SearchSourceBuilder() : request.source();
+        SearchRequest[] slices = new SearchRequest[times];
+        for (int slice = 0; slice < times; slice++) {
+            SearchRequest sliced = new SearchRequest(request.indices(), source.copyWithNewSlice(new SliceBuilder(slice, times)));
+            sliced.types(request.types());
+            sliced.indicesOptions(request.indicesOptions());
+            sliced.routing(request.routing());
+            sliced.preference(request.preference());
+            sliced.searchType(request.searchType());
+            sliced.scroll(request.scroll());
+            sliced.requestCache(request.requestCache());
+            sliced.template(request.template());
+            slices[slice] = sliced;
+        }
+        return slices;
+    }
+
+    /**
+     * Merge the results of all the slices. If any slice failed catastrophically then the whole request fails with the other failures
+     * attached as suppressed exceptions.
+     */
+    private static <Request extends AbstractBulkByScrollRequest<Request>, Response extends BulkIndexByScrollResponse> void finish(
+            AbstractAsyncBulkByScrollAction<Request, Response> worker, long startTime, AtomicArray<Response> responses,
+            AtomicArray<Throwable> failures, ActionListener<Response> listener) {
+        Throwable failure = null;
+        for (AtomicArray.Entry<Throwable> entry : failures.asList()) {
+            if (failure == null) {
+                failure = entry.value;
+            } else {
+                failure.addSuppressed(entry.value);
+            }
+        }
+        if (failure != null) {
+            listener.onFailure(failure);
+            return;
+        }
+        List<Failure> indexingFailures = new ArrayList<>();
+        List<ShardSearchFailure> searchFailures = new ArrayList<>();
+        boolean timedOut = false;
+        long tookNanos = 0;
+        for (AtomicArray.Entry<Response> entry : responses.asList()) {
+            Response response = entry.value;
+            indexingFailures.addAll(response.getIndexingFailures());
+            searchFailures.addAll(response.getSearchFailures());
+            timedOut |= response.isTimedOut();
+            tookNanos = max(tookNanos, response.getTook().nanos());
+        }
+        tookNanos = max(tookNanos, System.nanoTime() - startTime);
+        listener.onResponse(worker.buildResponse(timeValueNanos(tookNanos), unmodifiableList(indexingFailures),
+                unmodifiableList(searchFailures), timedOut));
+    }
+}
@@ -270,6 +270,13 @@ public class BulkByScrollTask extends CancellableTask {
         total.set(totalHits);
     }
 
+    /**
+     * Adjust the total by some delta. Sliced requests share a single task so each slice reports how its own total changed.
+     */
+    void addToTotal(long delta) {
+        total.addAndGet(delta);
+    }
+
     void countBatch() {
         batch.incrementAndGet();
     }
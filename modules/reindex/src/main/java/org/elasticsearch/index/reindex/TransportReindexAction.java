@@ -73,7 +73,8 @@ public class TransportReindexAction extends HandledTransportAction<ReindexReques
     protected void doExecute(Task task, ReindexRequest request, ActionListener<ReindexResponse> listener) {
         validateAgainstAliases(request.getSearchRequest(), request.getDestination(), indexNameExpressionResolver, autoCreateIndex,
                 clusterService.state());
-        new AsyncIndexBySearchAction((BulkByScrollTask) task, logger, scriptService, client, threadPool, request, listener).start();
+        BulkByScrollParallelizationHelper.startSlices(request, listener, (search, sliceListener) -> new AsyncIndexBySearchAction(
+                (BulkByScrollTask) task, logger, scriptService, client, threadPool, request, search, sliceListener));
     }
 
     @Override
@@ -117,7 +118,12 @@ public class TransportReindexAction extends HandledTransportAction<ReindexReques
     static class AsyncIndexBySearchAction extends AbstractAsyncBulkIndexByScrollAction<ReindexRequest, ReindexResponse> {
         public AsyncIndexBySearchAction(BulkByScrollTask task, ESLogger logger, ScriptService scriptService, Client client,
                 ThreadPool threadPool, ReindexRequest request, ActionListener<ReindexResponse> listener) {
-            super(task, logger, scriptService, client, threadPool, request, request.getSearchRequest(), listener);
+            this(task, logger, scriptService, client, threadPool, request, request.getSearchRequest(), listener);
+        }
+
+        public AsyncIndexBySearchAction(BulkByScrollTask task, ESLogger logger, ScriptService scriptService, Client client,
+                ThreadPool threadPool, ReindexRequest request, SearchRequest searchRequest, ActionListener<ReindexResponse> listener) {
+            super(task, logger, scriptService, client, threadPool, request, searchRequest, listener);
         }
 
         @Override
@@ -82,4 +82,23 @@ public class ReindexBasicTests extends ReindexTestCase {
         assertThat(copy.get(), responseMatcher().created(half).batches(half, 5));
         assertHitCount(client().prepareSearch("dest").setTypes("half").setSize(0).get(), half);
     }
+
+    public void testCopyManyWithSlices() throws Exception {
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        int max = between(150, 500);
+        for (int i = 0; i < max; i++) {
+            docs.add(client().prepareIndex("source", "test", Integer.toString(i)).setSource("foo", "a"));
+        }
+
+        indexRandom(true, docs);
+        assertHitCount(client().prepareSearch("source").setSize(0).get(), max);
+
+        // Copy all the docs, splitting the scroll into slices that are processed in parallel
+        int slices = between(2, 5);
+        ReindexRequestBuilder copy = reindex().source("source").destination("dest", "all").refresh(true).slices(slices);
+        // Use a small batch size so we have to use more than one batch
+        copy.source().setSize(5);
+        assertThat(copy.get(), responseMatcher().created(max));
+        assertHitCount(client().prepareSearch("dest").setTypes("all").setSize(0).get(), max);
+    }
 }
@@ -61,4 +61,19 @@ public class UpdateByQueryBasicTests extends UpdateByQueryTestCase {
         assertEquals(3, client().prepareGet("test", "test", "3").get().getVersion());
         assertEquals(2, client().prepareGet("test", "test", "4").get().getVersion());
     }
+
+    public void testSlices() throws Exception {
+        indexRandom(true, client().prepareIndex("test", "test", "1").setSource("foo", "a"),
+                client().prepareIndex("test", "test", "2").setSource("foo", "a"),
+                client().prepareIndex("test", "test", "3").setSource("foo", "b"),
+                client().prepareIndex("test", "test", "4").setSource("foo", "c"));
+        assertHitCount(client().prepareSearch("test").setTypes("test").setSize(0).get(), 4);
+
+        // Every slice updates its own share of the docs but the response covers all of them
+        int slices = between(2, 5);
+        assertThat(request().source("test").refresh(true).slices(slices).get(), responseMatcher().updated(4));
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(2, client().prepareGet("test", "test", Integer.toString(id)).get().getVersion());
+        }
+    }
 }
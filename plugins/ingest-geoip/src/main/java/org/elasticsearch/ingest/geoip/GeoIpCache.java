@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import com.maxmind.geoip2.model.AbstractResponse;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.settings.Setting;
+
+import java.net.InetAddress;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * A node wide LRU cache of geoip lookups, keyed by ip address and database file. Lookups of addresses that can't be
+ * found in the database are not cached.
+ */
+final class GeoIpCache {
+
+    public static final Setting<Long> CACHE_SIZE =
+        Setting.longSetting("ingest.geoip.cache_size", 1000, 0, Setting.Property.NodeScope);
+
+    private final Cache<CacheKey, AbstractResponse> cache;
+
+    /**
+     * @param maxSize the maximum number of lookups to cache, <code>0</code> disables caching
+     */
+    GeoIpCache(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("geoip cache size must be 0 or greater");
+        }
+        this.cache = maxSize == 0 ? null : CacheBuilder.<CacheKey, AbstractResponse>builder().setMaximumWeight(maxSize).build();
+    }
+
+    /**
+     * Returns the cached response for the given address and database file or looks it up using the given function
+     */
+    @SuppressWarnings("unchecked")
+    <T extends AbstractResponse> T putIfAbsent(InetAddress ip, String databaseFile, Function<InetAddress, T> retrieveFunction) {
+        if (cache == null) {
+            return retrieveFunction.apply(ip);
+        }
+        try {
+            return (T) cache.computeIfAbsent(new CacheKey(ip, databaseFile), key -> retrieveFunction.apply(key.ip));
+        } catch (ExecutionException e) {
+            throw ExceptionsHelper.convertToRuntime(e.getCause());
+        }
+    }
+
+    /**
+     * The number of lookups that were served from the cache
+     */
+    long getHits() {
+        return cache == null ? 0 : cache.stats().getHits();
+    }
+
+    /**
+     * The number of lookups that weren't cached yet
+     */
+    long getMisses() {
+        return cache == null ? 0 : cache.stats().getMisses();
+    }
+
+    /**
+     * The number of cached lookups that were evicted to make room for new ones
+     */
+    long getEvictions() {
+        return cache == null ? 0 : cache.stats().getEvictions();
+    }
+
+    int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    private static final class CacheKey {
+
+        private final InetAddress ip;
+        private final String databaseFile;
+
+        private CacheKey(InetAddress ip, String databaseFile) {
+            this.ip = ip;
+            this.databaseFile = databaseFile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CacheKey other = (CacheKey) o;
+            return Objects.equals(ip, other.ip) && Objects.equals(databaseFile, other.databaseFile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ip, databaseFile);
+        }
+    }
+}
@@ -31,11 +31,13 @@ import com.maxmind.geoip2.record.Subdivision;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.SpecialPermission;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.ingest.core.AbstractProcessor;
 import org.elasticsearch.ingest.core.AbstractProcessorFactory;
 import org.elasticsearch.ingest.core.IngestDocument;
+import org.elasticsearch.ingest.core.ProcessorStatsProvider;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -55,21 +57,32 @@ import static org.elasticsearch.ingest.core.ConfigurationUtils.newConfigurationE
 import static org.elasticsearch.ingest.core.ConfigurationUtils.readOptionalList;
 import static org.elasticsearch.ingest.core.ConfigurationUtils.readStringProperty;
 
-public final class GeoIpProcessor extends AbstractProcessor {
+public final class GeoIpProcessor extends AbstractProcessor implements ProcessorStatsProvider {
 
     public static final String TYPE = "geoip";
 
     private final String sourceField;
     private final String targetField;
     private final DatabaseReader dbReader;
+    private final String databaseFile;
     private final Set<Field> fields;
+    private final GeoIpCache cache;
+    private final CounterMetric lookups = new CounterMetric();
+    private final CounterMetric cacheMisses = new CounterMetric();
 
     GeoIpProcessor(String tag, String sourceField, DatabaseReader dbReader, String targetField, Set<Field> fields) throws IOException {
+        this(tag, sourceField, dbReader, null, targetField, fields, new GeoIpCache(0));
+    }
+
+    GeoIpProcessor(String tag, String sourceField, DatabaseReader dbReader, String databaseFile, String targetField, Set<Field> fields,
+                   GeoIpCache cache) throws IOException {
         super(tag);
         this.sourceField = sourceField;
         this.targetField = targetField;
         this.dbReader = dbReader;
+        this.databaseFile = databaseFile;
         this.fields = fields;
+        this.cache = cache;
     }
 
     @Override
@@ -120,20 +133,36 @@ public final class GeoIpProcessor extends AbstractProcessor {
         return fields;
     }
 
+    GeoIpCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Map<String, Long> getProcessorStats() {
+        Map<String, Long> stats = new HashMap<>();
+        long misses = cacheMisses.count();
+        stats.put("cache_hits", lookups.count() - misses);
+        stats.put("cache_misses", misses);
+        return stats;
+    }
+
     private Map<String, Object> retrieveCityGeoData(InetAddress ipAddress) {
         SecurityManager sm = System.getSecurityManager();
         if (sm != null) {
             sm.checkPermission(new SpecialPermission());
         }
-        CityResponse response = AccessController.doPrivileged((PrivilegedAction<CityResponse>) () -> {
-            try {
-                return dbReader.city(ipAddress);
-            } catch (AddressNotFoundException e) {
-                throw new AddressNotFoundRuntimeException(e);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        lookups.inc();
+        CityResponse response = AccessController.doPrivileged((PrivilegedAction<CityResponse>) () ->
+            cache.putIfAbsent(ipAddress, databaseFile, address -> {
+                cacheMisses.inc();
+                try {
+                    return dbReader.city(address);
+                } catch (AddressNotFoundException e) {
+                    throw new AddressNotFoundRuntimeException(e);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
 
         Country country = response.getCountry();
         City city = response.getCity();
@@ -181,15 +210,18 @@ public final class GeoIpProcessor extends AbstractProcessor {
         if (sm != null) {
             sm.checkPermission(new SpecialPermission());
         }
-        CountryResponse response = AccessController.doPrivileged((PrivilegedAction<CountryResponse>) () -> {
-            try {
-                return dbReader.country(ipAddress);
-            } catch (AddressNotFoundException e) {
-                throw new AddressNotFoundRuntimeException(e);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+        lookups.inc();
+        CountryResponse response = AccessController.doPrivileged((PrivilegedAction<CountryResponse>) () ->
+            cache.putIfAbsent(ipAddress, databaseFile, address -> {
+                cacheMisses.inc();
+                try {
+                    return dbReader.country(address);
+                } catch (AddressNotFoundException e) {
+                    throw new AddressNotFoundRuntimeException(e);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }));
 
         Country country = response.getCountry();
         Continent continent = response.getContinent();
@@ -221,9 +253,15 @@ public final class GeoIpProcessor extends AbstractProcessor {
         );
 
         private final Map<String, DatabaseReader> databaseReaders;
+        private final GeoIpCache cache;
 
         public Factory(Map<String, DatabaseReader> databaseReaders) {
+            this(databaseReaders, new GeoIpCache(0));
+        }
+
+        Factory(Map<String, DatabaseReader> databaseReaders, GeoIpCache cache) {
             this.databaseReaders = databaseReaders;
+            this.cache = cache;
         }
 
         @Override
@@ -251,7 +289,7 @@ public final class GeoIpProcessor extends AbstractProcessor {
             if (databaseReader == null) {
                 throw newConfigurationException(TYPE, processorTag, "database_file", "database file [" + databaseFile + "] doesn't exist");
             }
-            return new GeoIpProcessor(processorTag, ipField, databaseReader, targetField, fields);
+            return new GeoIpProcessor(processorTag, ipField, databaseReader, databaseFile, targetField, fields, cache);
         }
 
         @Override
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.ingest.geoip;
+
+import com.maxmind.geoip2.model.AbstractResponse;
+import org.elasticsearch.common.network.InetAddresses;
+import org.elasticsearch.test.ESTestCase;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+
+public class GeoIpCacheTests extends ESTestCase {
+
+    public void testCachesLookups() {
+        GeoIpCache cache = new GeoIpCache(randomIntBetween(1, 100));
+        AbstractResponse response = mock(AbstractResponse.class);
+        InetAddress address = InetAddresses.forString("82.170.213.79");
+        AtomicInteger loads = new AtomicInteger();
+
+        assertThat(cache.putIfAbsent(address, "GeoLite2-City.mmdb", ip -> {
+            loads.incrementAndGet();
+            return response;
+        }), sameInstance(response));
+        assertThat(cache.putIfAbsent(address, "GeoLite2-City.mmdb", ip -> {
+            loads.incrementAndGet();
+            return mock(AbstractResponse.class);
+        }), sameInstance(response));
+
+        assertThat(loads.get(), equalTo(1));
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getMisses(), equalTo(1L));
+        assertThat(cache.count(), equalTo(1));
+    }
+
+    public void testKeyedByDatabaseFile() {
+        GeoIpCache cache = new GeoIpCache(randomIntBetween(2, 100));
+        AbstractResponse cityResponse = mock(AbstractResponse.class);
+        AbstractResponse countryResponse = mock(AbstractResponse.class);
+        InetAddress address = InetAddresses.forString("82.170.213.79");
+
+        assertThat(cache.putIfAbsent(address, "GeoLite2-City.mmdb", ip -> cityResponse), sameInstance(cityResponse));
+        assertThat(cache.putIfAbsent(address, "GeoLite2-Country.mmdb", ip -> countryResponse), sameInstance(countryResponse));
+        assertThat(cache.putIfAbsent(address, "GeoLite2-City.mmdb", ip -> countryResponse), sameInstance(cityResponse));
+        assertThat(cache.count(), equalTo(2));
+    }
+
+    public void testEviction() {
+        GeoIpCache cache = new GeoIpCache(1);
+        AbstractResponse response1 = mock(AbstractResponse.class);
+        AbstractResponse response2 = mock(AbstractResponse.class);
+        InetAddress address1 = InetAddresses.forString("82.170.213.79");
+        InetAddress address2 = InetAddresses.forString("2.125.160.216");
+
+        cache.putIfAbsent(address1, "GeoLite2-City.mmdb", ip -> response1);
+        cache.putIfAbsent(address2, "GeoLite2-City.mmdb", ip -> response2);
+        assertThat(cache.count(), equalTo(1));
+        assertThat(cache.getEvictions(), equalTo(1L));
+        assertThat(cache.putIfAbsent(address1, "GeoLite2-City.mmdb", ip -> response2), sameInstance(response2));
+    }
+
+    public void testFailedLookupsAreNotCached() {
+        GeoIpCache cache = new GeoIpCache(randomIntBetween(1, 100));
+        InetAddress address = InetAddresses.forString("127.0.0.1");
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            IllegalStateException e = expectThrows(IllegalStateException.class, () -> cache.putIfAbsent(address, "GeoLite2-City.mmdb",
+                ip -> {
+                    loads.incrementAndGet();
+                    throw new IllegalStateException("not found");
+                }));
+            assertThat(e.getMessage(), equalTo("not found"));
+        }
+        assertThat(loads.get(), equalTo(2));
+        assertThat(cache.count(), equalTo(0));
+    }
+
+    public void testDisabled() {
+        GeoIpCache cache = new GeoIpCache(0);
+        InetAddress address = InetAddresses.forString("82.170.213.79");
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            cache.putIfAbsent(address, "GeoLite2-City.mmdb", ip -> {
+                loads.incrementAndGet();
+                return mock(AbstractResponse.class);
+            });
+        }
+        assertThat(loads.get(), equalTo(2));
+        assertThat(cache.count(), equalTo(0));
+        assertThat(cache.getHits(), equalTo(0L));
+    }
+
+    public void testInvalidSize() {
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new GeoIpCache(-1));
+        assertThat(e.getMessage(), equalTo("geoip cache size must be 0 or greater"));
+    }
+}
@@ -60,6 +60,27 @@ public class GeoIpProcessorTests extends ESTestCase {
         assertThat(geoData.get("location"), equalTo(location));
     }
 
+    public void testCityWithCache() throws Exception {
+        InputStream database = GeoIpProcessor.class.getResourceAsStream("/GeoLite2-City.mmdb");
+        GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field", new DatabaseReader.Builder(database).build(),
+            "GeoLite2-City.mmdb", "target_field", EnumSet.allOf(GeoIpProcessor.Field.class), new GeoIpCache(randomIntBetween(1, 100)));
+
+        int numDocs = randomIntBetween(2, 10);
+        for (int i = 0; i < numDocs; i++) {
+            Map<String, Object> document = new HashMap<>();
+            document.put("source_field", "82.170.213.79");
+            IngestDocument ingestDocument = RandomDocumentPicks.randomIngestDocument(random(), document);
+            processor.execute(ingestDocument);
+            @SuppressWarnings("unchecked")
+            Map<String, Object> geoData = (Map<String, Object>) ingestDocument.getSourceAndMetadata().get("target_field");
+            assertThat(geoData.get("city_name"), equalTo("Amsterdam"));
+        }
+
+        assertThat(processor.getProcessorStats().get("cache_misses"), equalTo(1L));
+        assertThat(processor.getProcessorStats().get("cache_hits"), equalTo((long) numDocs - 1));
+        assertThat(processor.getCache().getHits(), equalTo((long) numDocs - 1));
+    }
+
     public void testCountry() throws Exception {
         InputStream database = GeoIpProcessor.class.getResourceAsStream("/GeoLite2-Country.mmdb");
         GeoIpProcessor processor = new GeoIpProcessor(randomAsciiOfLength(10), "source_field", new DatabaseReader.Builder(database).build(), "target_field", EnumSet.allOf(GeoIpProcessor.Field.class));
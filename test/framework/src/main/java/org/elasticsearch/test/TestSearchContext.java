@@ -91,6 +91,7 @@ public class TestSearchContext extends SearchContext {
     ParsedQuery postFilter;
     Query query;
     Float minScore;
+    boolean trackTotalHits = true;
 
     ContextIndexSearcher searcher;
     int size;
@@ -389,6 +390,17 @@ public class TestSearchContext extends SearchContext {
         return false;
     }
 
+    @Override
+    public SearchContext trackTotalHits(boolean trackTotalHits) {
+        this.trackTotalHits = trackTotalHits;
+        return this;
+    }
+
+    @Override
+    public boolean trackTotalHits() {
+        return trackTotalHits;
+    }
+
     @Override
     public SearchContext searchAfter(FieldDoc searchAfter) {
         return null;
@@ -537,7 +549,7 @@ public class TestSearchContext extends SearchContext {
     }
 
     @Override
-    public SearchLookup lookup() {
+    protected SearchLookup lookupImpl() {
         return new SearchLookup(mapperService(), fieldData(), null);
     }
 